@@ -51,3 +51,52 @@ CREATE TABLE Players (
 
 ALTER TABLE Players ADD CONSTRAINT chk_mycolor_players CHECK (MyColor IN ('White', 'Black'));
 ALTER TABLE Players ADD CONSTRAINT chk_opponentcolor CHECK (OpponentColor IN ('White', 'Black'));
+
+-- Indexes used by the opening explorer to find a position and the position that follows it in the same game
+CREATE INDEX idx_positions_fen ON Positions (FENString);
+CREATE INDEX idx_positions_game ON Positions (GameID, PositionNumber);
+
+-- Index used by the PGN export to read the moves of a game in order without sorting them
+CREATE INDEX idx_moves_game ON Moves (GameID, MoveNumber, MoveID);
+
+-- Create the table to store whole games in the compact binary format
+CREATE TABLE CompactGames (
+                              GameID INT NOT NULL PRIMARY KEY, -- Foreign key to Games table
+                              GameData BLOB(1M) NOT NULL, -- Header and moves encoded by storage.CompactGameWriter
+                              FOREIGN KEY (GameID) REFERENCES Games(GameID) ON DELETE CASCADE
+);
+
+-- Create the tables written by the batch analysis (analysis.BatchAnalyzer)
+CREATE TABLE MoveAnnotations (
+                                 Source VARCHAR(255) NOT NULL, -- 'Games' for stored games, or the name of the PGN file
+                                 GameID INT NOT NULL, -- GameID, or the position of the game in the PGN file
+                                 Ply INT NOT NULL,
+                                 PlayedMove VARCHAR(5) NOT NULL,
+                                 BestMove VARCHAR(5),
+                                 ScoreBefore INT NOT NULL, -- Centipawns, from the point of view of the player who moved
+                                 ScoreAfter INT NOT NULL,
+                                 CentipawnLoss INT NOT NULL,
+                                 Mistake BOOLEAN NOT NULL,
+                                 Blunder BOOLEAN NOT NULL,
+                                 PRIMARY KEY (Source, GameID, Ply)
+);
+
+-- Games whose annotations are written, committed with them so that an interrupted analysis can resume
+CREATE TABLE AnalyzedGames (
+                               Source VARCHAR(255) NOT NULL,
+                               GameID INT NOT NULL,
+                               AnalyzedTimestamp TIMESTAMP NOT NULL,
+                               PRIMARY KEY (Source, GameID)
+);
+
+-- Engine evaluations reused across analyses (database.EvaluationCache), keyed by elements.PositionKey#longHash
+CREATE TABLE EngineEvaluations (
+                                   PositionHash BIGINT NOT NULL,
+                                   EngineID VARCHAR(100) NOT NULL,
+                                   FENString VARCHAR(100) NOT NULL, -- FEN without the move counters, to detect hash collisions
+                                   Depth INT NOT NULL,
+                                   Score INT NOT NULL, -- Centipawns, from the point of view of the side to move
+                                   BestMove VARCHAR(5),
+                                   PV VARCHAR(2000) NOT NULL, -- Expected line of moves in UCI notation, separated by spaces
+                                   PRIMARY KEY (PositionHash, EngineID)
+);
@@ -0,0 +1,83 @@
+package analysis;
+
+/// @author dana
+
+/**
+ * Throughput of a batch analysis: how many games and positions were analyzed, and how fast.
+ */
+public class AnalysisReport {
+    /// The number of games analyzed and written.
+    private final int games;
+    /// The number of games that could not be analyzed.
+    private final int failedGames;
+    /// The number of positions evaluated.
+    private final long positions;
+    /// The duration of the analysis, in milliseconds.
+    private final long elapsedMillis;
+
+    /**
+     * Constructs an {@code AnalysisReport}.
+     *
+     * @param games The number of games analyzed and written.
+     * @param failedGames The number of games that could not be analyzed.
+     * @param positions The number of positions evaluated.
+     * @param elapsedMillis The duration of the analysis, in milliseconds.
+     */
+    public AnalysisReport(int games, int failedGames, long positions, long elapsedMillis) {
+        this.games = games;
+        this.failedGames = failedGames;
+        this.positions = positions;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Returns the number of games analyzed and written.
+     *
+     * @return The number of games.
+     */
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the number of games that could not be analyzed.
+     *
+     * @return The number of failed games.
+     */
+    public int getFailedGames() {
+        return failedGames;
+    }
+
+    /**
+     * Returns the number of positions evaluated.
+     *
+     * @return The number of positions.
+     */
+    public long getPositions() {
+        return positions;
+    }
+
+    /**
+     * Returns the duration of the analysis.
+     *
+     * @return The duration, in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the number of positions evaluated per second.
+     *
+     * @return The throughput in positions per second.
+     */
+    public double getPositionsPerSecond() {
+        return positions * 1000.0 / Math.max(1, elapsedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games (%d failed), %d positions in %d ms: %.1f positions/s, %.2f games/s",
+                games, failedGames, positions, elapsedMillis, getPositionsPerSecond(), games * 1000.0 / Math.max(1, elapsedMillis));
+    }
+}
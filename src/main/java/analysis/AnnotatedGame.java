@@ -0,0 +1,54 @@
+package analysis;
+
+import java.util.Collections;
+import java.util.List;
+
+/// @author dana
+
+/**
+ * Represents an analyzed game: the game and the annotation of each of its half-moves.
+ */
+public class AnnotatedGame {
+    /// The analyzed game.
+    private final GameRecord game;
+    /// The annotation of each half-move, in order.
+    private final List<MoveAnnotation> annotations;
+
+    /**
+     * Constructs an {@code AnnotatedGame}.
+     *
+     * @param game The analyzed game.
+     * @param annotations The annotation of each half-move, in order.
+     */
+    public AnnotatedGame(GameRecord game, List<MoveAnnotation> annotations) {
+        this.game = game;
+        this.annotations = Collections.unmodifiableList(annotations);
+    }
+
+    /**
+     * Returns the analyzed game.
+     *
+     * @return The game.
+     */
+    public GameRecord getGame() {
+        return game;
+    }
+
+    /**
+     * Returns the annotations of the game.
+     *
+     * @return The annotation of each half-move, in order.
+     */
+    public List<MoveAnnotation> getAnnotations() {
+        return annotations;
+    }
+
+    /**
+     * Returns the number of positions evaluated for this game.
+     *
+     * @return The number of half-moves plus the starting position.
+     */
+    public int getPositionCount() {
+        return annotations.size() + 1;
+    }
+}
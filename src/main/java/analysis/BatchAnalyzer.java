@@ -0,0 +1,252 @@
+package analysis;
+
+import database.AnnotationStore;
+import database.Database;
+import database.EvaluationCache;
+import elements.Game;
+import elements.Player;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/// @author dana
+
+/**
+ * Batch job annotating stored games: every game is analyzed on a work-stealing executor, each position is
+ * evaluated by an evaluator borrowed from an {@link EvaluatorPool}, and the annotated games are handed to a
+ * {@link Writer} in batches, from the calling thread only.
+ * <p>
+ * When run from the command line, the games come from the database or from a PGN file and the annotations are
+ * written to the {@code MoveAnnotations} table. Each batch is committed together with the list of analyzed
+ * games, which serves as the checkpoint: a restarted job skips the games already analyzed.
+ */
+public class BatchAnalyzer {
+    /// The default number of games written per batch.
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    /// The default search depth of the Stockfish evaluators.
+    public static final int DEFAULT_DEPTH = 12;
+
+    /**
+     * Receives the annotated games, one batch at a time.
+     */
+    public interface Writer {
+        /**
+         * Writes a batch of annotated games.
+         *
+         * @param batch The annotated games.
+         * @throws SQLException If the games cannot be written.
+         */
+        void write(List<AnnotatedGame> batch) throws SQLException;
+    }
+
+    /// The evaluators shared by the analysis threads.
+    private final EvaluatorPool pool;
+    /// The number of games written per batch.
+    private final int batchSize;
+
+    /**
+     * Constructs a {@code BatchAnalyzer}. One game is analyzed per evaluator of the pool at a time.
+     *
+     * @param pool The evaluators shared by the analysis threads.
+     * @param batchSize The number of games written per batch.
+     */
+    public BatchAnalyzer(EvaluatorPool pool, int batchSize) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Analyzes games in parallel and writes their annotations in batches, in the order the games complete.
+     * Games that cannot be analyzed are reported and skipped.
+     *
+     * @param games The games to analyze.
+     * @param writer Receives the annotated games.
+     * @return The throughput of the analysis.
+     * @throws SQLException If a batch cannot be written; the batches already written are kept.
+     * @throws InterruptedException If the thread is interrupted while waiting for the analysis.
+     */
+    public AnalysisReport run(List<GameRecord> games, Writer writer) throws SQLException, InterruptedException {
+        long startTime = System.currentTimeMillis();
+        ExecutorService executor = Executors.newWorkStealingPool(pool.size());
+        CompletionService<AnnotatedGame> completionService = new ExecutorCompletionService<>(executor);
+
+        int written = 0;
+        int failed = 0;
+        long positions = 0;
+        try {
+            for (GameRecord game : games) completionService.submit(() -> analyzeGame(game));
+
+            List<AnnotatedGame> batch = new ArrayList<>();
+            for (int i = 0; i < games.size(); i++) {
+                try {
+                    AnnotatedGame annotatedGame = completionService.take().get();
+                    batch.add(annotatedGame);
+                    positions += annotatedGame.getPositionCount();
+                } catch (ExecutionException e) {
+                    failed++;
+                    System.out.println("Skipping game: " + e.getCause().getMessage());
+                }
+
+                if (batch.size() >= batchSize || (i == games.size() - 1 && !batch.isEmpty())) {
+                    writer.write(batch);
+                    written += batch.size();
+                    batch.clear();
+                    System.out.println(new AnalysisReport(written, failed, positions, System.currentTimeMillis() - startTime));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new AnalysisReport(written, failed, positions, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Replays a game and annotates each of its half-moves, with an evaluator borrowed for the whole game.
+     *
+     * @param record The game to analyze.
+     * @return The annotated game.
+     * @throws IOException If the engine cannot be reached.
+     * @throws IllegalArgumentException If a move of the game is not legal.
+     */
+    AnnotatedGame analyzeGame(GameRecord record) throws IOException {
+        PositionEvaluator evaluator = pool.borrow();
+        try {
+            return analyzeGame(record, evaluator);
+        } finally {
+            pool.release(evaluator);
+        }
+    }
+
+    /**
+     * Replays a game and annotates each of its half-moves.
+     *
+     * @param record The game to analyze.
+     * @param evaluator The evaluator of the positions.
+     * @return The annotated game.
+     * @throws IOException If the engine cannot be reached.
+     * @throws IllegalArgumentException If a move of the game is not legal.
+     */
+    static AnnotatedGame analyzeGame(GameRecord record, PositionEvaluator evaluator) throws IOException {
+        Game game = new Game(Player.ColorOption.WHITE);
+        List<MoveAnnotation> annotations = new ArrayList<>();
+
+        Evaluation before = evaluator.evaluate(game);
+        int ply = 0;
+        for (String move : record.getUciMoves()) {
+            ply++;
+            if (!game.playMove(move)) {
+                throw new IllegalArgumentException("Illegal move " + move + " at half-move " + ply + " of " + record + ".");
+            }
+            Evaluation after = evaluator.evaluate(game);
+            annotations.add(MoveAnnotation.of(ply, move, before, after));
+            before = after;
+        }
+        return new AnnotatedGame(record, annotations);
+    }
+
+    /**
+     * Runs the batch analysis.
+     * Options: {@code --pgn <file>} to analyze a PGN file instead of the finished games of the database,
+     * {@code --threads <n>}, {@code --engine stockfish|material}, {@code --depth <n>}, {@code --batch <n>},
+     * {@code --cache true|false} to reuse the Stockfish evaluations stored by earlier jobs (on by default)
+     * and {@code --db <JDBC URL>}.
+     *
+     * @param args Command-line arguments.
+     */
+    public static void main(String[] args) {
+        String pgnFile = null;
+        String engine = "stockfish";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depth = DEFAULT_DEPTH;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        boolean useCache = true;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--pgn": pgnFile = args[i + 1]; break;
+                case "--threads": threads = Integer.parseInt(args[i + 1]); break;
+                case "--engine": engine = args[i + 1]; break;
+                case "--depth": depth = Integer.parseInt(args[i + 1]); break;
+                case "--batch": batchSize = Integer.parseInt(args[i + 1]); break;
+                case "--cache": useCache = Boolean.parseBoolean(args[i + 1]); break;
+                case "--db": Database.setJdbcURL(args[i + 1]); break;
+                default: System.out.println("Unknown option " + args[i]);
+            }
+        }
+
+        final int searchDepth = depth;
+        boolean material = engine.equals("material");
+        EvaluationCache cache = useCache && !material
+                ? new EvaluationCache(engine, EvaluationCache.DEFAULT_CACHE_SIZE, EvaluationCache.DEFAULT_BATCH_SIZE)
+                : null;
+        EvaluatorPool.Factory factory = material
+                ? MaterialEvaluator::new
+                : cache != null
+                ? () -> new CachedEvaluator(new StockfishEvaluator(searchDepth), cache, searchDepth)
+                : () -> new StockfishEvaluator(searchDepth);
+
+        // The pool is closed before the cache, which then writes its last batch
+        try (Connection connection = Database.getConnection();
+             EvaluationCache evaluations = cache;
+             EvaluatorPool pool = new EvaluatorPool(threads, factory)) {
+            AnnotationStore.createTables(connection);
+            if (evaluations != null) EvaluationCache.createTable(connection);
+
+            String source = pgnFile == null ? AnnotationStore.DATABASE_SOURCE : Paths.get(pgnFile).getFileName().toString();
+            Set<Integer> analyzed = AnnotationStore.analyzedGameIDs(connection, source);
+            List<GameRecord> games = pgnFile == null ? AnnotationStore.loadFinishedGames(connection) : readPgn(Paths.get(pgnFile));
+            games.removeIf(game -> analyzed.contains(game.getGameID()));
+            System.out.println("Analyzing " + games.size() + " games (" + analyzed.size() + " already analyzed).");
+
+            AnalysisReport report = new BatchAnalyzer(pool, batchSize).run(games, batch -> AnnotationStore.saveGames(connection, batch));
+            System.out.println("Done: " + report);
+            if (evaluations != null) {
+                System.out.println("Evaluation cache: " + evaluations.getHitCount() + " hits, " + evaluations.getMissCount() + " misses.");
+            }
+        } catch (SQLException | IOException e) {
+            e.printStackTrace();
+            System.out.println("Batch analysis failed.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Batch analysis interrupted.");
+        }
+    }
+
+    /**
+     * Reads every game of a PGN file. Games with an illegal move are reported and skipped.
+     *
+     * @param pgnFile The PGN file.
+     * @return The games of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    private static List<GameRecord> readPgn(Path pgnFile) throws IOException {
+        List<GameRecord> games = new ArrayList<>();
+        BufferedReader fileReader = Files.newBufferedReader(pgnFile, StandardCharsets.UTF_8);
+        try (PgnReader reader = new PgnReader(fileReader, pgnFile.getFileName().toString())) {
+            while (true) {
+                try {
+                    GameRecord game = reader.next();
+                    if (game == null) break;
+                    games.add(game);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Skipping game: " + e.getMessage());
+                }
+            }
+        }
+        return games;
+    }
+}
@@ -0,0 +1,61 @@
+package analysis;
+
+import database.EvaluationCache;
+import elements.Game;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/// @author dana
+
+/**
+ * Evaluator answering from an {@link EvaluationCache} when the position was already evaluated at the same depth
+ * or deeper, and asking another evaluator otherwise. New evaluations are stored in the cache.
+ * <p>
+ * The cache may be shared by the evaluators of an {@link EvaluatorPool}; it is not closed with the evaluator.
+ */
+public class CachedEvaluator implements PositionEvaluator {
+    /// The evaluator of the positions that are not cached.
+    private final PositionEvaluator evaluator;
+    /// The cache of the evaluations.
+    private final EvaluationCache cache;
+    /// The search depth of the evaluator.
+    private final int depth;
+
+    /**
+     * Constructs a {@code CachedEvaluator}.
+     *
+     * @param evaluator The evaluator of the positions that are not cached; it is closed with this evaluator.
+     * @param cache The cache of the evaluations.
+     * @param depth The search depth of the evaluator.
+     */
+    public CachedEvaluator(PositionEvaluator evaluator, EvaluationCache cache, int depth) {
+        this.evaluator = evaluator;
+        this.cache = cache;
+        this.depth = depth;
+    }
+
+    @Override
+    public Evaluation evaluate(Game game) throws IOException {
+        try {
+            Evaluation cached = cache.lookup(game, depth);
+            if (cached != null) return cached;
+
+            Evaluation evaluation = evaluator.evaluate(game);
+            cache.store(game, depth, evaluation);
+            return evaluation;
+        } catch (SQLException e) {
+            throw new IOException("Cannot reach the evaluation cache.", e);
+        }
+    }
+
+    /**
+     * Closes the underlying evaluator.
+     *
+     * @throws IOException If the evaluator cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        evaluator.close();
+    }
+}
@@ -0,0 +1,98 @@
+package analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/// @author dana
+
+/**
+ * Represents the evaluation of a position by an engine: its score from the point of view of the side to move
+ * and the best move found, with the line of moves the engine expects after it when it is known.
+ */
+public class Evaluation {
+    /// The score of a mate in 0, from the point of view of the winning side; a mate in n scores n less.
+    public static final int MATE_SCORE = 100000;
+
+    /// The score in centipawns, from the point of view of the side to move.
+    private final int score;
+    /// The best move in UCI notation, or {@code null} if the side to move has no legal move.
+    private final String bestMove;
+    /// The expected line of moves in UCI notation, starting with the best move.
+    private final List<String> principalVariation;
+
+    /**
+     * Constructs an {@code Evaluation} whose line is the best move alone.
+     *
+     * @param score The score in centipawns, from the point of view of the side to move.
+     * @param bestMove The best move in UCI notation, or {@code null} if there is none.
+     */
+    public Evaluation(int score, String bestMove) {
+        this(score, bestMove, bestMove == null ? List.of() : List.of(bestMove));
+    }
+
+    /**
+     * Constructs an {@code Evaluation} with the line of moves the engine expects.
+     *
+     * @param score The score in centipawns, from the point of view of the side to move.
+     * @param bestMove The best move in UCI notation, or {@code null} if there is none.
+     * @param principalVariation The expected line of moves in UCI notation, starting with the best move.
+     */
+    public Evaluation(int score, String bestMove, List<String> principalVariation) {
+        this.score = score;
+        this.bestMove = bestMove;
+        this.principalVariation = Collections.unmodifiableList(new ArrayList<>(principalVariation));
+    }
+
+    /**
+     * Returns the score of a forced mate.
+     *
+     * @param plies The number of half-moves until mate: positive if the side to move mates, negative if it is mated.
+     * @return The score from the point of view of the side to move.
+     */
+    public static int mateScore(int plies) {
+        return plies > 0 ? MATE_SCORE - plies : -MATE_SCORE - plies;
+    }
+
+    /**
+     * Returns the score of the position.
+     *
+     * @return The score in centipawns, from the point of view of the side to move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the best move of the position.
+     *
+     * @return The best move in UCI notation, or {@code null} if the side to move has no legal move.
+     */
+    public String getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Returns the line of moves the engine expects.
+     *
+     * @return An unmodifiable list of moves in UCI notation, starting with the best move, or an empty list if
+     *         there is no best move.
+     */
+    public List<String> getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    /**
+     * Returns whether the score is a forced mate.
+     *
+     * @return {@code true} if one side mates by force, {@code false} otherwise.
+     */
+    public boolean isMate() {
+        return Math.abs(score) > MATE_SCORE - 1000;
+    }
+
+    @Override
+    public String toString() {
+        return (bestMove == null ? "(none)" : bestMove) + " " + score;
+    }
+}
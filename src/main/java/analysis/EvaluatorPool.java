@@ -0,0 +1,133 @@
+package analysis;
+
+import elements.Game;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/// @author dana
+
+/**
+ * Fixed pool of evaluators (e.g., one Stockfish process each) shared by the threads of a batch job.
+ * A thread borrows an evaluator, uses it alone and releases it; when every evaluator is in use,
+ * borrowing waits until one is released.
+ */
+public class EvaluatorPool implements PositionEvaluator {
+
+    /**
+     * Creates the evaluators of a pool.
+     */
+    public interface Factory {
+        /**
+         * Creates an evaluator.
+         *
+         * @return The new evaluator.
+         * @throws IOException If the evaluator cannot be created.
+         */
+        PositionEvaluator create() throws IOException;
+    }
+
+    /// Every evaluator of the pool.
+    private final List<PositionEvaluator> evaluators = new ArrayList<>();
+    /// The evaluators that are not borrowed.
+    private final BlockingQueue<PositionEvaluator> available;
+
+    /**
+     * Creates a pool of evaluators.
+     *
+     * @param size The number of evaluators.
+     * @param factory Creates each evaluator.
+     * @throws IOException If an evaluator cannot be created; the evaluators already created are closed.
+     */
+    public EvaluatorPool(int size, Factory factory) throws IOException {
+        this.available = new ArrayBlockingQueue<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                PositionEvaluator evaluator = factory.create();
+                evaluators.add(evaluator);
+                available.add(evaluator);
+            }
+        } catch (IOException e) {
+            try {
+                closeEvaluators();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Borrows an evaluator, waiting until one is available.
+     *
+     * @return An evaluator to be used by the calling thread only, until it is released.
+     * @throws InterruptedIOException If the thread is interrupted while waiting.
+     */
+    public PositionEvaluator borrow() throws InterruptedIOException {
+        try {
+            return available.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an evaluator.");
+        }
+    }
+
+    /**
+     * Returns a borrowed evaluator to the pool.
+     *
+     * @param evaluator The evaluator returned by {@link #borrow()}.
+     */
+    public void release(PositionEvaluator evaluator) {
+        available.add(evaluator);
+    }
+
+    /**
+     * Returns the number of evaluators of the pool.
+     *
+     * @return The size of the pool.
+     */
+    public int size() {
+        return evaluators.size();
+    }
+
+    /**
+     * Evaluates a position with an evaluator borrowed for this call only.
+     *
+     * @param game The game whose current position is evaluated.
+     * @return The evaluation of the position.
+     * @throws IOException If the engine cannot be reached.
+     */
+    @Override
+    public Evaluation evaluate(Game game) throws IOException {
+        PositionEvaluator evaluator = borrow();
+        try {
+            return evaluator.evaluate(game);
+        } finally {
+            release(evaluator);
+        }
+    }
+
+    /**
+     * Closes every evaluator of the pool.
+     *
+     * @throws IOException If an evaluator cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        closeEvaluators();
+    }
+
+    /**
+     * Closes every evaluator created so far. Private, so the constructor can clean up without calling a method a
+     * subclass may override.
+     *
+     * @throws IOException If an evaluator cannot be closed.
+     */
+    private void closeEvaluators() throws IOException {
+        for (PositionEvaluator evaluator : evaluators) evaluator.close();
+    }
+}
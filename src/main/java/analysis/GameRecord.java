@@ -0,0 +1,87 @@
+package analysis;
+
+import java.util.Collections;
+import java.util.List;
+
+/// @author dana
+
+/**
+ * Represents a game to analyze: where it comes from and its moves from the starting position.
+ */
+public class GameRecord {
+    /// The source of the game: "Games" for the database, or the name of a PGN file.
+    private final String source;
+    /// The identifier of the game in its source (the GameID, or the position of the game in a PGN file).
+    private final int gameID;
+    /// The moves of the game in UCI notation.
+    private final List<String> uciMoves;
+    /// The result of the game ("White", "Black" or "Draw"), or null if it is unknown.
+    private final String result;
+
+    /**
+     * Constructs a {@code GameRecord} whose result is unknown.
+     *
+     * @param source The source of the game.
+     * @param gameID The identifier of the game in its source.
+     * @param uciMoves The moves of the game in UCI notation.
+     */
+    public GameRecord(String source, int gameID, List<String> uciMoves) {
+        this(source, gameID, uciMoves, null);
+    }
+
+    /**
+     * Constructs a {@code GameRecord}.
+     *
+     * @param source The source of the game.
+     * @param gameID The identifier of the game in its source.
+     * @param uciMoves The moves of the game in UCI notation.
+     * @param result The result of the game ("White", "Black" or "Draw"), or null if it is unknown.
+     */
+    public GameRecord(String source, int gameID, List<String> uciMoves, String result) {
+        this.source = source;
+        this.gameID = gameID;
+        this.uciMoves = Collections.unmodifiableList(uciMoves);
+        this.result = result;
+    }
+
+    /**
+     * Returns the source of the game.
+     *
+     * @return "Games" for the database, or the name of a PGN file.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the identifier of the game in its source.
+     *
+     * @return The game identifier.
+     */
+    public int getGameID() {
+        return gameID;
+    }
+
+    /**
+     * Returns the moves of the game.
+     *
+     * @return The moves in UCI notation.
+     */
+    public List<String> getUciMoves() {
+        return uciMoves;
+    }
+
+    /**
+     * Returns the result of the game.
+     *
+     * @return "White", "Black" or "Draw", or null if the result is unknown.
+     */
+    public String getResult() {
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return source + "#" + gameID;
+    }
+}
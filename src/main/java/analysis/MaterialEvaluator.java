@@ -0,0 +1,78 @@
+package analysis;
+
+import elements.Game;
+import elements.GameStatus;
+import elements.Square;
+import pieces.*;
+
+import java.util.List;
+
+/// @author dana
+
+/**
+ * In-process evaluator needing no engine binary: it tries every legal move and keeps the one leaving the
+ * best material balance. It only sees one half-move ahead, so it is meant for quick passes and tests rather
+ * than for accurate annotations. It holds no state and can be shared between threads.
+ */
+public class MaterialEvaluator implements PositionEvaluator {
+
+    @Override
+    public Evaluation evaluate(Game game) {
+        GameStatus status = game.getStatus();
+        Game.Color color = status.getSideToMove();
+        List<String> legalMoves = status.getLegalMoves();
+
+        if (legalMoves.isEmpty()) {
+            return new Evaluation(status.isCheckmate() ? Evaluation.mateScore(0) : 0, null);
+        }
+
+        String bestMove = null;
+        int bestScore = Integer.MIN_VALUE;
+        for (String move : legalMoves) {
+            Game copy = game.copy();
+            copy.playMove(move);
+            int score = material(copy, color);
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+        }
+        return new Evaluation(bestScore, bestMove);
+    }
+
+    /**
+     * Returns the material balance of a game.
+     *
+     * @param game The game.
+     * @param color The side whose point of view is taken.
+     * @return The value of the pieces of the side minus the value of the opponent's pieces, in centipawns.
+     */
+    public static int material(Game game, Game.Color color) {
+        int balance = 0;
+        for (int index = 0; index < 64; index++) {
+            Piece piece = game.currentPosition.getPiece(Square.of(index));
+            if (piece == null) continue;
+            balance += piece.color == color ? value(piece) : -value(piece);
+        }
+        return balance;
+    }
+
+    /**
+     * Returns the value of a piece.
+     *
+     * @param piece The piece.
+     * @return The value of the piece, in centipawns.
+     */
+    private static int value(Piece piece) {
+        if (piece instanceof Pawn) return 100;
+        if (piece instanceof Knight) return 320;
+        if (piece instanceof Bishop) return 330;
+        if (piece instanceof Rook) return 500;
+        if (piece instanceof Queen) return 900;
+        return 0;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,151 @@
+package analysis;
+
+/// @author dana
+
+/**
+ * Represents the annotation of a half-move: the evaluations before and after it, from the point of view of
+ * the player who moved, the centipawn loss compared to the best move, and whether it is a mistake or a blunder.
+ */
+public class MoveAnnotation {
+    /// The centipawn loss from which a move is a mistake.
+    public static final int MISTAKE_THRESHOLD = 100;
+    /// The centipawn loss from which a move is a blunder.
+    public static final int BLUNDER_THRESHOLD = 300;
+    /// Scores are capped to this value when computing the loss, so that a won position stays won.
+    static final int SCORE_CAP = 1000;
+
+    /// The half-move, from 1.
+    private final int ply;
+    /// The move played, in UCI notation.
+    private final String playedMove;
+    /// The best move according to the engine, or {@code null} if unknown.
+    private final String bestMove;
+    /// The score before the move, from the point of view of the player who moved.
+    private final int scoreBefore;
+    /// The score after the move, from the point of view of the player who moved.
+    private final int scoreAfter;
+    /// The centipawn loss of the move.
+    private final int centipawnLoss;
+
+    /**
+     * Constructs a {@code MoveAnnotation}.
+     *
+     * @param ply The half-move, from 1.
+     * @param playedMove The move played, in UCI notation.
+     * @param bestMove The best move, or {@code null} if unknown.
+     * @param scoreBefore The score before the move, from the point of view of the player who moved.
+     * @param scoreAfter The score after the move, from the point of view of the player who moved.
+     * @param centipawnLoss The centipawn loss of the move.
+     */
+    public MoveAnnotation(int ply, String playedMove, String bestMove, int scoreBefore, int scoreAfter, int centipawnLoss) {
+        this.ply = ply;
+        this.playedMove = playedMove;
+        this.bestMove = bestMove;
+        this.scoreBefore = scoreBefore;
+        this.scoreAfter = scoreAfter;
+        this.centipawnLoss = centipawnLoss;
+    }
+
+    /**
+     * Annotates a move from the evaluations of the positions before and after it.
+     *
+     * @param ply The half-move, from 1.
+     * @param playedMove The move played, in UCI notation.
+     * @param before The evaluation before the move, from the point of view of the player who moved.
+     * @param after The evaluation after the move, from the point of view of the opponent.
+     * @return The annotation of the move.
+     */
+    public static MoveAnnotation of(int ply, String playedMove, Evaluation before, Evaluation after) {
+        int scoreBefore = before.getScore();
+        int scoreAfter = -after.getScore();
+        int loss = playedMove.equals(before.getBestMove()) ? 0 : Math.max(0, cap(scoreBefore) - cap(scoreAfter));
+        return new MoveAnnotation(ply, playedMove, before.getBestMove(), scoreBefore, scoreAfter, loss);
+    }
+
+    /**
+     * Caps a score to {@link #SCORE_CAP}.
+     *
+     * @param score The score.
+     * @return The capped score.
+     */
+    private static int cap(int score) {
+        return Math.max(-SCORE_CAP, Math.min(SCORE_CAP, score));
+    }
+
+    /**
+     * Returns the half-move.
+     *
+     * @return The half-move, from 1.
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Returns the move played.
+     *
+     * @return The move in UCI notation.
+     */
+    public String getPlayedMove() {
+        return playedMove;
+    }
+
+    /**
+     * Returns the best move according to the engine.
+     *
+     * @return The best move in UCI notation, or {@code null} if unknown.
+     */
+    public String getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Returns the score before the move.
+     *
+     * @return The score in centipawns, from the point of view of the player who moved.
+     */
+    public int getScoreBefore() {
+        return scoreBefore;
+    }
+
+    /**
+     * Returns the score after the move.
+     *
+     * @return The score in centipawns, from the point of view of the player who moved.
+     */
+    public int getScoreAfter() {
+        return scoreAfter;
+    }
+
+    /**
+     * Returns the centipawn loss of the move.
+     *
+     * @return How much worse the move is than the best move, in centipawns.
+     */
+    public int getCentipawnLoss() {
+        return centipawnLoss;
+    }
+
+    /**
+     * Returns whether the move is a mistake, but not a blunder.
+     *
+     * @return {@code true} if the loss is at least {@link #MISTAKE_THRESHOLD} and below {@link #BLUNDER_THRESHOLD}.
+     */
+    public boolean isMistake() {
+        return centipawnLoss >= MISTAKE_THRESHOLD && !isBlunder();
+    }
+
+    /**
+     * Returns whether the move is a blunder.
+     *
+     * @return {@code true} if the loss is at least {@link #BLUNDER_THRESHOLD}.
+     */
+    public boolean isBlunder() {
+        return centipawnLoss >= BLUNDER_THRESHOLD;
+    }
+
+    @Override
+    public String toString() {
+        return ply + ". " + playedMove + " (best " + bestMove + ", loss " + centipawnLoss + ")";
+    }
+}
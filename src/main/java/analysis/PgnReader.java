@@ -0,0 +1,162 @@
+package analysis;
+
+import elements.Game;
+import elements.Player;
+import notation.San;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/// @author dana
+
+/**
+ * Reads the games of a PGN file one at a time. Tags, comments, variations and numeric annotation glyphs are
+ * skipped, and the moves of the main line are converted from SAN to UCI notation by matching them against the
+ * legal moves of each position.
+ */
+public class PgnReader implements Closeable {
+    /// The reader of the PGN text.
+    private final BufferedReader reader;
+    /// The source name given to the games read.
+    private final String source;
+    /// The number of games read so far.
+    private int gameCount;
+
+    /**
+     * Constructs a {@code PgnReader}.
+     *
+     * @param reader The reader of the PGN text.
+     * @param source The source name given to the games read (e.g., the file name).
+     */
+    public PgnReader(BufferedReader reader, String source) {
+        this.reader = reader;
+        this.source = source;
+    }
+
+    /**
+     * Reads the next game. Its identifier is its position in the file, from 1.
+     *
+     * @return The next game, or {@code null} at the end of the file.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If a move of the game is not legal.
+     */
+    public GameRecord next() throws IOException {
+        StringBuilder moveText = new StringBuilder();
+        String result = null;
+        boolean inMoves = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.startsWith("[")) {
+                if (inMoves) break;
+                if (line.startsWith("[Result ")) result = result(line.substring("[Result ".length()).replaceAll("[\\]\"]", "").trim());
+                continue;
+            }
+            if (line.isEmpty()) {
+                if (inMoves) break;
+                continue;
+            }
+            inMoves = true;
+            moveText.append(line).append(' ');
+        }
+        if (!inMoves) return null;
+
+        gameCount++;
+        Game game = new Game(Player.ColorOption.WHITE);
+        List<String> uciMoves = new ArrayList<>();
+        for (String san : sanMoves(moveText.toString())) {
+            String uciMove = San.toUci(game, san);
+            if (uciMove == null || !game.playMove(uciMove)) {
+                throw new IllegalArgumentException("Illegal move " + san + " in game " + gameCount + ".");
+            }
+            uciMoves.add(uciMove);
+        }
+        return new GameRecord(source, gameCount, uciMoves, result);
+    }
+
+    /**
+     * Reads a PGN result.
+     *
+     * @param pgnResult The result in PGN ("1-0", "0-1", "1/2-1/2" or "*").
+     * @return "White", "Black" or "Draw", or null if the game has no result.
+     */
+    static String result(String pgnResult) {
+        switch (pgnResult) {
+            case "1-0": return "White";
+            case "0-1": return "Black";
+            case "1/2-1/2": return "Draw";
+            default: return null;
+        }
+    }
+
+    /**
+     * Extracts the moves of the main line from movetext.
+     *
+     * @param moveText The movetext of a game.
+     * @return The moves in SAN.
+     */
+    static List<String> sanMoves(String moveText) {
+        List<String> moves = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        int variationDepth = 0;
+        boolean inComment = false;
+
+        for (int i = 0; i <= moveText.length(); i++) {
+            char c = i < moveText.length() ? moveText.charAt(i) : ' ';
+            if (inComment) {
+                if (c == '}') inComment = false;
+                continue;
+            }
+            if (c == '{' || c == '(' || c == ')' || c == ';' || Character.isWhitespace(c)) {
+                if (variationDepth == 0) addMove(moves, token.toString());
+                token.setLength(0);
+                if (c == '{') inComment = true;
+                else if (c == '(') variationDepth++;
+                else if (c == ')') variationDepth--;
+                else if (c == ';') i = skipLine(moveText, i);
+            } else {
+                token.append(c);
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Adds a token of movetext to the moves if it is a move, after removing its move number.
+     *
+     * @param moves The moves read so far.
+     * @param token The token.
+     */
+    private static void addMove(List<String> moves, String token) {
+        int dot = token.lastIndexOf('.');
+        if (dot >= 0) token = token.substring(dot + 1);
+        if (token.isEmpty() || token.startsWith("$") || token.equals("*")
+                || token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2")) return;
+        moves.add(token);
+    }
+
+    /**
+     * Returns the index of the end of the line containing a character.
+     *
+     * @param text The text.
+     * @param index The index of the character.
+     * @return The index of the next line break, or the end of the text.
+     */
+    private static int skipLine(String text, int index) {
+        int end = text.indexOf('\n', index);
+        return end < 0 ? text.length() : end;
+    }
+
+    /**
+     * Closes the underlying reader.
+     *
+     * @throws IOException If an error occurs while closing.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
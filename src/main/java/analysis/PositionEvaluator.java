@@ -0,0 +1,24 @@
+package analysis;
+
+import elements.Game;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/// @author dana
+
+/**
+ * Engine backend evaluating the positions of a game. An evaluator is used by one thread at a time;
+ * use an {@link EvaluatorPool} to share several evaluators between threads.
+ */
+public interface PositionEvaluator extends Closeable {
+
+    /**
+     * Evaluates the current position of a game. The game is not modified.
+     *
+     * @param game The game whose current position is evaluated.
+     * @return The evaluation of the position.
+     * @throws IOException If the engine cannot be reached.
+     */
+    Evaluation evaluate(Game game) throws IOException;
+}
@@ -0,0 +1,94 @@
+package analysis;
+
+import elements.Game;
+import engine.SearchLimits;
+import engine.Stockfish;
+import engine.UciEngine;
+import notation.Fen;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/// @author dana
+
+/**
+ * Evaluates positions with a Stockfish process searching within fixed {@link SearchLimits} (e.g., a depth or a
+ * time per position).
+ * Each evaluator owns its process, so evaluators can run in parallel from an {@link EvaluatorPool}.
+ */
+public class StockfishEvaluator implements PositionEvaluator {
+    /// The running Stockfish engine.
+    private final Stockfish engine;
+    /// The limits of the search of each evaluation.
+    private final SearchLimits limits;
+    /// The buffer the "position" command is built in, reused across evaluations.
+    private final StringBuilder positionCommand = new StringBuilder(Fen.MAX_LENGTH + 16);
+
+    /**
+     * Starts a Stockfish process for evaluating positions.
+     *
+     * @param depth The search depth of each evaluation.
+     * @throws IOException If the engine cannot be started.
+     */
+    public StockfishEvaluator(int depth) throws IOException {
+        this(SearchLimits.depth(depth));
+    }
+
+    /**
+     * Starts a Stockfish process for evaluating positions within search limits.
+     *
+     * @param limits The limits of the search of each evaluation.
+     * @throws IOException If the engine cannot be started.
+     */
+    public StockfishEvaluator(SearchLimits limits) throws IOException {
+        this.engine = new Stockfish();
+        this.limits = limits;
+        if (!engine.startEngine()) throw new IOException("Failed to start Stockfish engine.");
+        engine.initialize();
+    }
+
+    @Override
+    public Evaluation evaluate(Game game) throws IOException {
+        positionCommand.setLength(0);
+        engine.sendCommand(Fen.append(game, positionCommand.append("position fen ")).toString());
+        return parseOutput(engine.search(limits, game.whiteMoves));
+    }
+
+    /**
+     * Reads the evaluation from the output of a search: the score and the line of moves of the last "info"
+     * lines and the move of the "bestmove" line.
+     *
+     * @param lines The output of the engine, ending with the "bestmove" line.
+     * @return The evaluation of the position.
+     */
+    static Evaluation parseOutput(List<String> lines) {
+        int score = 0;
+        List<String> principalVariation = List.of();
+        for (String line : lines) {
+            String[] tokens = line.split(" ");
+            for (int i = 0; i + 2 < tokens.length; i++) {
+                if (!tokens[i].equals("score")) continue;
+                int value = Integer.parseInt(tokens[i + 2]);
+                if (tokens[i + 1].equals("cp")) score = value;
+                else if (tokens[i + 1].equals("mate")) score = Evaluation.mateScore(value > 0 ? 2 * value - 1 : 2 * value);
+            }
+            int pv = Arrays.asList(tokens).indexOf("pv");
+            if (pv >= 0) principalVariation = Arrays.asList(tokens).subList(pv + 1, tokens.length);
+        }
+
+        String bestMove = UciEngine.parseBestMove(lines.get(lines.size() - 1));
+        if (bestMove == null) return new Evaluation(score, null);
+        // The line must start with the move actually played, e.g., after a search stopped at its hard limit
+        if (principalVariation.isEmpty() || !principalVariation.get(0).equals(bestMove)) principalVariation = List.of(bestMove);
+        return new Evaluation(score, bestMove, principalVariation);
+    }
+
+    /**
+     * Stops the Stockfish process.
+     */
+    @Override
+    public void close() {
+        engine.stopEngine();
+    }
+}
@@ -0,0 +1,184 @@
+package database;
+
+import analysis.AnnotatedGame;
+import analysis.GameRecord;
+import analysis.MoveAnnotation;
+import notation.Fen;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/// @author dana
+
+/**
+ * Reads the games to analyze and writes the annotations of the batch analysis to the {@code MoveAnnotations}
+ * table. The games of a batch are also recorded in {@code AnalyzedGames} in the same transaction, so an
+ * interrupted analysis resumes after the last committed batch.
+ */
+public class AnnotationStore {
+    /// The source name of the games stored in the database.
+    public static final String DATABASE_SOURCE = "Games";
+
+    /// Creates the table holding the annotation of each half-move.
+    private static final String CREATE_ANNOTATIONS_SQL =
+            "CREATE TABLE MoveAnnotations (" +
+            "Source VARCHAR(255) NOT NULL, GameID INT NOT NULL, Ply INT NOT NULL, " +
+            "PlayedMove VARCHAR(5) NOT NULL, BestMove VARCHAR(5), " +
+            "ScoreBefore INT NOT NULL, ScoreAfter INT NOT NULL, CentipawnLoss INT NOT NULL, " +
+            "Mistake BOOLEAN NOT NULL, Blunder BOOLEAN NOT NULL, " +
+            "PRIMARY KEY (Source, GameID, Ply))";
+    /// Creates the table holding the analyzed games.
+    private static final String CREATE_ANALYZED_SQL =
+            "CREATE TABLE AnalyzedGames (" +
+            "Source VARCHAR(255) NOT NULL, GameID INT NOT NULL, AnalyzedTimestamp TIMESTAMP NOT NULL, " +
+            "PRIMARY KEY (Source, GameID))";
+    /// Selects the positions of every finished game, in order.
+    private static final String FINISHED_POSITIONS_SQL =
+            "SELECT p.GameID, p.FENString FROM Positions p JOIN Games g ON g.GameID = p.GameID " +
+            "WHERE g.Status = 'Finished' ORDER BY p.GameID, p.PositionNumber";
+    /// Inserts the annotation of a half-move.
+    private static final String INSERT_ANNOTATION_SQL =
+            "INSERT INTO MoveAnnotations (Source, GameID, Ply, PlayedMove, BestMove, ScoreBefore, ScoreAfter, " +
+            "CentipawnLoss, Mistake, Blunder) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Creates the {@code MoveAnnotations} and {@code AnalyzedGames} tables if they do not exist yet.
+     *
+     * @param connection The connection to the database.
+     * @throws SQLException If a table cannot be created.
+     */
+    public static void createTables(Connection connection) throws SQLException {
+        for (String sql : new String[]{CREATE_ANNOTATIONS_SQL, CREATE_ANALYZED_SQL}) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(sql);
+            } catch (SQLException e) {
+                if (!CompactGameStore.TABLE_EXISTS_STATE.equals(e.getSQLState())) throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns the games of a source that are already analyzed.
+     *
+     * @param connection The connection to the database.
+     * @param source The source of the games.
+     * @return The identifiers of the analyzed games.
+     * @throws SQLException If the database cannot be read.
+     */
+    public static Set<Integer> analyzedGameIDs(Connection connection, String source) throws SQLException {
+        Set<Integer> gameIDs = new HashSet<>();
+        try (PreparedStatement select = connection.prepareStatement("SELECT GameID FROM AnalyzedGames WHERE Source = ?")) {
+            select.setString(1, source);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) gameIDs.add(rs.getInt("GameID"));
+            }
+        }
+        return gameIDs;
+    }
+
+    /**
+     * Loads the moves of every finished game, recovered from its stored positions with a single query.
+     * Games whose moves cannot be recovered are reported and skipped.
+     *
+     * @param connection The connection to the database.
+     * @return The finished games, in the order of their identifiers.
+     * @throws SQLException If the database cannot be read.
+     */
+    public static List<GameRecord> loadFinishedGames(Connection connection) throws SQLException {
+        List<GameRecord> games = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(FINISHED_POSITIONS_SQL)) {
+
+            int gameID = -1;
+            String previousFEN = Fen.START_FEN;
+            List<String> uciMoves = null;
+            while (rs.next()) {
+                int rowGameID = rs.getInt("GameID");
+                if (rowGameID != gameID) {
+                    if (uciMoves != null) games.add(new GameRecord(DATABASE_SOURCE, gameID, uciMoves));
+                    gameID = rowGameID;
+                    previousFEN = Fen.START_FEN;
+                    uciMoves = new ArrayList<>();
+                }
+                if (uciMoves == null) continue;
+
+                String fen = rs.getString("FENString");
+                String uciMove = CompactGameMigration.uciMove(previousFEN, fen);
+                if (uciMove == null) {
+                    System.out.println("Skipping game " + gameID + ": no move leads from " + previousFEN + " to " + fen);
+                    uciMoves = null;
+                    continue;
+                }
+                uciMoves.add(uciMove);
+                previousFEN = fen;
+            }
+            if (uciMoves != null) games.add(new GameRecord(DATABASE_SOURCE, gameID, uciMoves));
+        }
+        return games;
+    }
+
+    /**
+     * Writes the annotations of a batch of games and marks them as analyzed, in a single transaction.
+     * The annotations of a game already stored (e.g., after its row in {@code AnalyzedGames} was deleted to analyze it
+     * again) are replaced.
+     *
+     * @param connection The connection to the database.
+     * @param batch The annotated games.
+     * @throws SQLException If the batch cannot be written; nothing of the batch is kept.
+     */
+    public static void saveGames(Connection connection, List<AnnotatedGame> batch) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM MoveAnnotations WHERE Source = ? AND GameID = ?");
+             PreparedStatement insert = connection.prepareStatement(INSERT_ANNOTATION_SQL);
+             PreparedStatement analyzed = connection.prepareStatement(
+                     "INSERT INTO AnalyzedGames (Source, GameID, AnalyzedTimestamp) VALUES (?, ?, ?)")) {
+
+            for (AnnotatedGame annotatedGame : batch) {
+                GameRecord game = annotatedGame.getGame();
+                delete.setString(1, game.getSource());
+                delete.setInt(2, game.getGameID());
+                delete.addBatch();
+
+                for (MoveAnnotation annotation : annotatedGame.getAnnotations()) {
+                    insert.setString(1, game.getSource());
+                    insert.setInt(2, game.getGameID());
+                    insert.setInt(3, annotation.getPly());
+                    insert.setString(4, annotation.getPlayedMove());
+                    insert.setString(5, annotation.getBestMove());
+                    insert.setInt(6, annotation.getScoreBefore());
+                    insert.setInt(7, annotation.getScoreAfter());
+                    insert.setInt(8, annotation.getCentipawnLoss());
+                    insert.setBoolean(9, annotation.isMistake());
+                    insert.setBoolean(10, annotation.isBlunder());
+                    insert.addBatch();
+                }
+
+                analyzed.setString(1, game.getSource());
+                analyzed.setInt(2, game.getGameID());
+                analyzed.setTimestamp(3, now);
+                analyzed.addBatch();
+            }
+
+            delete.executeBatch();
+            insert.executeBatch();
+            analyzed.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package database;
+
+import analysis.GameRecord;
+import analysis.PgnReader;
+import elements.Game;
+import elements.GameStatus;
+import elements.Move;
+import elements.Player;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/// @author dana
+
+/**
+ * Bulk-load mode for importing game history into {@code Games}, {@code Positions} and {@code Moves}.
+ * <p>
+ * Inserting a game row by row costs one statement per position and per move, each checking the foreign keys
+ * and updating every index. The loader instead replays the games once and stages the rows in CSV files with
+ * their identifiers already assigned. It then drops the foreign keys and the secondary indexes of
+ * {@code Positions} and {@code Moves}, imports the three files with {@code SYSCS_UTIL.SYSCS_IMPORT_TABLE}, and
+ * rebuilds the constraints and indexes in one pass each, followed by fresh statistics. Each import commits, so
+ * if one fails the rows already imported by the load are deleted again.
+ * <p>
+ * A bulk load should run in its own JVM: {@link #configureEngine(int)} relaxes durability and enlarges the page
+ * cache before Derby boots. The database is checkpointed at the end, but a crash during the load may corrupt it,
+ * so it should be backed up first.
+ */
+public class BulkLoader implements Closeable {
+    /// The default size of the Derby page cache during a bulk load, in pages (the default of Derby is 1000).
+    public static final int DEFAULT_PAGE_CACHE_SIZE = 64000;
+    /// The name of the staged file of the {@code Games} rows.
+    public static final String GAMES_FILE = "games.csv";
+    /// The name of the staged file of the {@code Positions} rows.
+    public static final String POSITIONS_FILE = "positions.csv";
+    /// The name of the staged file of the {@code Moves} rows.
+    public static final String MOVES_FILE = "moves.csv";
+
+    /// The secondary indexes dropped during a load, as their creation statements (see CreatingDatabase.sql).
+    private static final String[][] SECONDARY_INDEXES = {
+            {"idx_positions_fen", "CREATE INDEX idx_positions_fen ON Positions (FENString)"},
+            {"idx_positions_game", "CREATE INDEX idx_positions_game ON Positions (GameID, PositionNumber)"},
+            {"idx_moves_game", "CREATE INDEX idx_moves_game ON Moves (GameID, MoveNumber, MoveID)"}
+    };
+    /// The foreign keys restored after a load, as (table, constraint name, definition).
+    private static final String[][] FOREIGN_KEYS = {
+            {"Positions", "fk_positions_game", "FOREIGN KEY (GameID) REFERENCES Games(GameID) ON DELETE CASCADE"},
+            {"Moves", "fk_moves_game", "FOREIGN KEY (GameID) REFERENCES Games(GameID) ON DELETE CASCADE"},
+            {"Moves", "fk_moves_position", "FOREIGN KEY (PositionID) REFERENCES Positions(PositionID) ON DELETE CASCADE"}
+    };
+    /// Selects the foreign keys of the loaded tables, whatever their names.
+    private static final String FOREIGN_KEYS_SQL =
+            "SELECT c.CONSTRAINTNAME, t.TABLENAME FROM SYS.SYSCONSTRAINTS c JOIN SYS.SYSTABLES t ON t.TABLEID = c.TABLEID " +
+            "WHERE c.TYPE = 'F' AND t.TABLENAME IN ('POSITIONS', 'MOVES')";
+    /// The tables loaded, in import order, with their identity column and staged file.
+    private static final String[][] TABLES = {
+            {"GAMES", "GameID", GAMES_FILE},
+            {"POSITIONS", "PositionID", POSITIONS_FILE},
+            {"MOVES", "MoveID", MOVES_FILE}
+    };
+    /// The SQL state reported by Derby when an index or constraint does not exist.
+    private static final String DOES_NOT_EXIST_STATE = "42X65";
+
+    /// The writer of the staged {@code Games} rows.
+    private final BufferedWriter gamesWriter;
+    /// The writer of the staged {@code Positions} rows.
+    private final BufferedWriter positionsWriter;
+    /// The writer of the staged {@code Moves} rows.
+    private final BufferedWriter movesWriter;
+    /// The time written as the start, end and move times of the staged games, whose history has none.
+    private final String importTime = new Timestamp(System.currentTimeMillis()).toString();
+    /// The identifier of the next staged game.
+    private int nextGameID;
+    /// The identifier of the next staged position.
+    private int nextPositionID;
+    /// The identifier of the next staged move.
+    private int nextMoveID;
+    /// The number of staged games.
+    private int gameCount;
+    /// The number of staged moves, each with its position.
+    private int moveCount;
+
+    /**
+     * Creates a loader staging rows in a directory, with identifiers following the given ones.
+     *
+     * @param stagingDirectory The directory of the staged files, created if needed.
+     * @param firstGameID The identifier of the first staged game.
+     * @param firstPositionID The identifier of the first staged position.
+     * @param firstMoveID The identifier of the first staged move.
+     * @throws IOException If the staged files cannot be created.
+     */
+    public BulkLoader(Path stagingDirectory, int firstGameID, int firstPositionID, int firstMoveID) throws IOException {
+        Files.createDirectories(stagingDirectory);
+        this.gamesWriter = Files.newBufferedWriter(stagingDirectory.resolve(GAMES_FILE), StandardCharsets.UTF_8);
+        this.positionsWriter = Files.newBufferedWriter(stagingDirectory.resolve(POSITIONS_FILE), StandardCharsets.UTF_8);
+        this.movesWriter = Files.newBufferedWriter(stagingDirectory.resolve(MOVES_FILE), StandardCharsets.UTF_8);
+        this.nextGameID = firstGameID;
+        this.nextPositionID = firstPositionID;
+        this.nextMoveID = firstMoveID;
+    }
+
+    /**
+     * Creates a loader whose identifiers follow the largest ones of the database.
+     *
+     * @param connection The connection to the database.
+     * @param stagingDirectory The directory of the staged files, created if needed.
+     * @return The loader.
+     * @throws SQLException If the database cannot be read.
+     * @throws IOException If the staged files cannot be created.
+     */
+    public static BulkLoader open(Connection connection, Path stagingDirectory) throws SQLException, IOException {
+        return new BulkLoader(stagingDirectory,
+                nextID(connection, "GAMES", "GameID"),
+                nextID(connection, "POSITIONS", "PositionID"),
+                nextID(connection, "MOVES", "MoveID"));
+    }
+
+    /**
+     * Relaxes the durability of Derby and enlarges its page cache for a bulk load. The settings only apply if
+     * they are made before the first connection of the JVM, which boots Derby.
+     *
+     * @param pageCacheSize The number of pages of the page cache.
+     */
+    public static void configureEngine(int pageCacheSize) {
+        System.setProperty("derby.system.durability", "test");
+        System.setProperty("derby.storage.pageCacheSize", String.valueOf(pageCacheSize));
+    }
+
+    /**
+     * Replays a game and stages its row, and the row of each of its positions and moves, as the application
+     * would have stored them. A game without result (e.g., "*" in PGN) that is not over on the board is staged as
+     * not finished, without end time.
+     *
+     * @param record The game.
+     * @throws IllegalArgumentException If a move of the game is not legal; nothing of the game is staged.
+     * @throws IOException If the rows cannot be written.
+     */
+    public void add(GameRecord record) throws IOException {
+        Game game = new Game(Player.ColorOption.WHITE);
+        List<String> positionRows = new ArrayList<>();
+        List<String> moveRows = new ArrayList<>();
+        int gameID = nextGameID;
+        int positionID = nextPositionID;
+        int moveID = nextMoveID;
+
+        for (String uciMove : record.getUciMoves()) {
+            if (!game.playMove(uciMove)) throw new IllegalArgumentException("Illegal move " + uciMove + " in " + record + ".");
+            Move move = game.gameHistory.get(game.gameHistory.size() - 1);
+            positionRows.add(positionID + "," + gameID + "," + move.getPositionAfterMove().positionNumber + "," + quote(game.FENNotation()));
+            moveRows.add(gameID + "," + moveID + "," + positionID + "," + move.getMoveNumber() + ","
+                    + quote(game.whiteMoves ? "Black" : "White") + "," + quote(move.getMoveNotation()) + "," + quote(importTime));
+            positionID++;
+            moveID++;
+        }
+
+        String result = record.getResult() != null ? record.getResult() : result(game.getStatus());
+        if (result == null) {
+            writeLine(gamesWriter, gameID + "," + quote(importTime) + ",,\"White\",\"Not Finished\",");
+        } else {
+            writeLine(gamesWriter, gameID + "," + quote(importTime) + "," + quote(importTime) + ",\"White\",\"Finished\","
+                    + quote(result));
+        }
+        for (String row : positionRows) writeLine(positionsWriter, row);
+        for (String row : moveRows) writeLine(movesWriter, row);
+
+        nextGameID++;
+        nextPositionID = positionID;
+        nextMoveID = moveID;
+        gameCount++;
+        moveCount += moveRows.size();
+    }
+
+    /**
+     * Returns the number of staged games.
+     *
+     * @return The game count.
+     */
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * Returns the number of staged moves, which is also the number of staged positions.
+     *
+     * @return The move count.
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Closes the staged files, which are then ready for {@link #importStaged(Connection, Path)}.
+     *
+     * @throws IOException If a file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try (BufferedWriter games = gamesWriter; BufferedWriter positions = positionsWriter; BufferedWriter moves = movesWriter) {
+            games.flush();
+            positions.flush();
+            moves.flush();
+        }
+    }
+
+    /**
+     * Imports the staged files, with the foreign keys and secondary indexes of {@code Positions} and
+     * {@code Moves} dropped meanwhile. If a file cannot be imported, the rows imported from the other files are
+     * deleted, since each import commits. Whether the import succeeds or not, the constraints
+     * and indexes are then rebuilt, the identity columns restart after the largest identifiers, the statistics of
+     * the loaded tables are updated and the database is checkpointed.
+     *
+     * @param connection The connection to the database.
+     * @param stagingDirectory The directory of the staged files.
+     * @throws SQLException If the import fails (nothing is imported) or the tables cannot be restored. If both
+     *                      fail, the failure of the import is thrown, with the one of the restore suppressed.
+     */
+    public static void importStaged(Connection connection, Path stagingDirectory) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        int[] firstIDs = new int[TABLES.length];
+        for (int i = 0; i < TABLES.length; i++) firstIDs[i] = nextID(connection, TABLES[i][0], TABLES[i][1]);
+        dropConstraintsAndIndexes(connection);
+        SQLException failure = null;
+        try {
+            connection.setAutoCommit(false);
+            try (CallableStatement importTable = connection.prepareCall(
+                    "CALL SYSCS_UTIL.SYSCS_IMPORT_TABLE(NULL, ?, ?, ',', '\"', 'UTF-8', 0)")) {
+                for (String[] table : TABLES) {
+                    importTable.setString(1, table[0]);
+                    importTable.setString(2, stagingDirectory.resolve(table[2]).toAbsolutePath().toString());
+                    importTable.execute();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                try {
+                    connection.rollback();
+                    deleteImported(connection, firstIDs);
+                } catch (SQLException cleanupFailure) {
+                    e.addSuppressed(cleanupFailure);
+                }
+                throw e;
+            }
+        } catch (SQLException e) {
+            failure = e;
+            throw e;
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+                restoreConstraintsAndIndexes(connection);
+                connection.setAutoCommit(autoCommit);
+            } catch (SQLException e) {
+                if (failure == null) throw e;
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Deletes the rows imported by a failed load, from the last table imported to the first.
+     *
+     * @param connection The connection to the database, not in auto-commit mode.
+     * @param firstIDs The first identifier of the load in each table, in import order.
+     * @throws SQLException If the rows cannot be deleted.
+     */
+    private static void deleteImported(Connection connection, int[] firstIDs) throws SQLException {
+        for (int i = TABLES.length - 1; i >= 0; i--) {
+            try (PreparedStatement delete = connection.prepareStatement(
+                    "DELETE FROM " + TABLES[i][0] + " WHERE " + TABLES[i][1] + " >= ?")) {
+                delete.setInt(1, firstIDs[i]);
+                delete.executeUpdate();
+            }
+        }
+        connection.commit();
+    }
+
+    /**
+     * Drops the foreign keys and the secondary indexes of {@code Positions} and {@code Moves}. The foreign keys
+     * are found in the catalog, since the schema script leaves their names to Derby.
+     *
+     * @param connection The connection to the database.
+     * @throws SQLException If a constraint or index cannot be dropped.
+     */
+    static void dropConstraintsAndIndexes(Connection connection) throws SQLException {
+        List<String> drops = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(FOREIGN_KEYS_SQL)) {
+            while (rs.next()) drops.add("ALTER TABLE " + rs.getString("TABLENAME") + " DROP CONSTRAINT \"" + rs.getString("CONSTRAINTNAME") + "\"");
+        }
+        for (String[] index : SECONDARY_INDEXES) drops.add("DROP INDEX " + index[0]);
+
+        try (Statement statement = connection.createStatement()) {
+            for (String drop : drops) {
+                try {
+                    statement.executeUpdate(drop);
+                } catch (SQLException e) {
+                    if (!DOES_NOT_EXIST_STATE.equals(e.getSQLState())) throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the foreign keys and secondary indexes, restarts the identity columns after the largest
+     * identifiers, updates the statistics of the loaded tables and checkpoints the database.
+     *
+     * @param connection The connection to the database, in auto-commit mode.
+     * @throws SQLException If a constraint or index cannot be rebuilt.
+     */
+    static void restoreConstraintsAndIndexes(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String[] foreignKey : FOREIGN_KEYS) {
+                statement.executeUpdate("ALTER TABLE " + foreignKey[0] + " ADD CONSTRAINT " + foreignKey[1] + " " + foreignKey[2]);
+            }
+            for (String[] index : SECONDARY_INDEXES) statement.executeUpdate(index[1]);
+            for (String[] table : TABLES) {
+                statement.executeUpdate("ALTER TABLE " + table[0] + " ALTER COLUMN " + table[1]
+                        + " RESTART WITH " + nextID(connection, table[0], table[1]));
+            }
+        }
+        try (CallableStatement statistics = connection.prepareCall("CALL SYSCS_UTIL.SYSCS_UPDATE_STATISTICS(NULL, ?, NULL)")) {
+            for (String[] table : TABLES) {
+                statistics.setString(1, table[0]);
+                statistics.execute();
+            }
+        }
+        try (CallableStatement checkpoint = connection.prepareCall("CALL SYSCS_UTIL.SYSCS_CHECKPOINT_DATABASE()")) {
+            checkpoint.execute();
+        }
+    }
+
+    /**
+     * Returns the identifier following the largest one of a table.
+     *
+     * @param connection The connection to the database.
+     * @param table The table.
+     * @param column The identity column.
+     * @return The next identifier, 1 for an empty table.
+     * @throws SQLException If the table cannot be read.
+     */
+    private static int nextID(Connection connection, String table, String column) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MAX(" + column + ") FROM " + table)) {
+            return rs.next() ? rs.getInt(1) + 1 : 1;
+        }
+    }
+
+    /**
+     * Returns the result of a game decided on the board.
+     *
+     * @param status The status of the final position.
+     * @return "White", "Black" or "Draw", or null if the game is not over.
+     */
+    private static String result(GameStatus status) {
+        if (status.isCheckmate()) return status.getSideToMove() == Game.Color.WHITE ? "Black" : "White";
+        return status.isDraw() ? "Draw" : null;
+    }
+
+    /**
+     * Quotes a string field for the import, doubling its quotes.
+     *
+     * @param value The value.
+     * @return The quoted value.
+     */
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Writes a row and a line break.
+     *
+     * @param writer The writer of a staged file.
+     * @param row The row.
+     * @throws IOException If the row cannot be written.
+     */
+    private static void writeLine(BufferedWriter writer, String row) throws IOException {
+        writer.write(row);
+        writer.newLine();
+    }
+
+    /**
+     * Loads the games of PGN files into the database in bulk-load mode.
+     * Options: {@code --db <JDBC URL>}, {@code --page-cache <pages>} and {@code --staging <directory>}
+     * (a temporary directory by default), followed by the PGN files.
+     *
+     * @param args Command-line arguments.
+     */
+    public static void main(String[] args) {
+        int pageCacheSize = DEFAULT_PAGE_CACHE_SIZE;
+        Path stagingDirectory = null;
+        List<Path> pgnFiles = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--db": Database.setJdbcURL(args[++i]); break;
+                case "--page-cache": pageCacheSize = Integer.parseInt(args[++i]); break;
+                case "--staging": stagingDirectory = Paths.get(args[++i]); break;
+                default: pgnFiles.add(Paths.get(args[i]));
+            }
+        }
+        configureEngine(pageCacheSize);
+
+        long startTime = System.currentTimeMillis();
+        try (Connection connection = Database.getConnection()) {
+            if (stagingDirectory == null) stagingDirectory = Files.createTempDirectory("bulk-load");
+            BulkLoader loader = open(connection, stagingDirectory);
+            try (loader) {
+                for (Path pgnFile : pgnFiles) {
+                    BufferedReader fileReader = Files.newBufferedReader(pgnFile, StandardCharsets.UTF_8);
+                    try (PgnReader reader = new PgnReader(fileReader, pgnFile.getFileName().toString())) {
+                        while (true) {
+                            try {
+                                GameRecord game = reader.next();
+                                if (game == null) break;
+                                loader.add(game);
+                            } catch (IllegalArgumentException e) {
+                                System.out.println("Skipping game: " + e.getMessage());
+                            }
+                        }
+                    }
+                }
+            }
+            System.out.println("Staged " + loader.getGameCount() + " games and " + loader.getMoveCount() + " moves in "
+                    + (System.currentTimeMillis() - startTime) + " ms.");
+
+            importStaged(connection, stagingDirectory);
+            System.out.println("Loaded in " + (System.currentTimeMillis() - startTime) + " ms.");
+        } catch (SQLException | IOException e) {
+            e.printStackTrace();
+            System.out.println("Bulk load failed.");
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package database;
+
+import elements.Game;
+import elements.Square;
+import notation.Fen;
+import storage.CompactGame;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/// @author dana
+
+/**
+ * Tool migrating the games stored row by row in {@code Games}, {@code Moves} and {@code Positions}
+ * to the compact binary format in {@code CompactGames}. Only finished games are migrated, since the moves
+ * of a game still being played would be cut short, and games already migrated are skipped, so the tool
+ * can be run again after new games are finished.
+ * <p>
+ * The move of each half-move is recovered by comparing the board of the stored position with the board
+ * of the previous one, so it does not depend on the notation stored in {@code Moves}.
+ */
+public class CompactGameMigration {
+    /// The number of migrated games between two commits.
+    private static final int COMMIT_INTERVAL = 100;
+
+    /// Selects the finished games that are not migrated yet.
+    private static final String GAMES_SQL =
+            "SELECT g.GameID, g.StartTimestamp, g.EndTimestamp, g.MyColor, g.Result FROM Games g " +
+            "WHERE g.Status = 'Finished' " +
+            "AND NOT EXISTS (SELECT 1 FROM CompactGames c WHERE c.GameID = g.GameID) ORDER BY g.GameID";
+    /// Selects the positions of a game with the time of the move that reached each of them.
+    private static final String POSITIONS_SQL =
+            "SELECT p.FENString, m.Timestamp FROM Positions p JOIN Moves m ON m.PositionID = p.PositionID " +
+            "WHERE p.GameID = ? ORDER BY p.PositionNumber";
+
+    /**
+     * Migrates every game of the database to the compact format.
+     *
+     * @param args Command-line arguments: an optional JDBC URL of the database to migrate.
+     */
+    public static void main(String[] args) {
+        if (args.length > 0) Database.setJdbcURL(args[0]);
+
+        try (Connection connection = Database.getConnection()) {
+            long startTime = System.currentTimeMillis();
+            Report report = migrate(connection);
+            System.out.println("Migrated " + report.getMigrated() + " games in " + (System.currentTimeMillis() - startTime) + " ms.");
+            for (Map.Entry<Integer, String> skipped : report.getSkipped().entrySet()) {
+                System.out.println("Skipped game " + skipped.getKey() + ": " + skipped.getValue());
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.out.println("Database connection or query execution failed.");
+        }
+    }
+
+    /**
+     * Migrates the finished games that are not in the compact format yet. A game whose moves cannot be recovered
+     * or encoded is skipped and reported; any other failure rolls back the games not committed yet.
+     *
+     * @param connection The connection to the database.
+     * @return The numbers of migrated games and the skipped games.
+     * @throws SQLException If the database cannot be read or written.
+     */
+    public static Report migrate(Connection connection) throws SQLException {
+        CompactGameStore.createTable(connection);
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        int migrated = 0;
+        Map<Integer, String> skipped = new LinkedHashMap<>();
+
+        try (PreparedStatement gamesStatement = connection.prepareStatement(GAMES_SQL);
+             PreparedStatement positionsStatement = connection.prepareStatement(POSITIONS_SQL);
+             ResultSet games = gamesStatement.executeQuery()) {
+
+            while (games.next()) {
+                int gameID = games.getInt("GameID");
+                Timestamp start = games.getTimestamp("StartTimestamp");
+                Timestamp end = games.getTimestamp("EndTimestamp");
+                Game.Color myColor = "Black".equalsIgnoreCase(games.getString("MyColor")) ? Game.Color.BLACK : Game.Color.WHITE;
+                String result = games.getString("Result");
+
+                try {
+                    // The game is encoded before anything of it is written, so a skipped game leaves no row
+                    CompactGameStore.save(connection, readGame(positionsStatement, gameID, start, end, myColor, result));
+                } catch (IllegalArgumentException e) {
+                    skipped.put(gameID, e.getMessage());
+                    continue;
+                }
+                if (++migrated % COMMIT_INTERVAL == 0) connection.commit();
+            }
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return new Report(migrated, skipped);
+    }
+
+    /**
+     * Reads the positions of a game and encodes its moves.
+     *
+     * @param positionsStatement The statement selecting the positions of a game.
+     * @param gameID The identifier of the game.
+     * @param start The start of the game.
+     * @param end The end of the game, or {@code null} if not finished.
+     * @param myColor The color the user played.
+     * @param result The result of the game, or {@code null} if not finished.
+     * @return The compact game.
+     * @throws SQLException If the positions cannot be read.
+     * @throws IllegalArgumentException If a move cannot be recovered from the stored positions or the game cannot
+     *                                  be encoded.
+     */
+    private static CompactGame readGame(PreparedStatement positionsStatement, int gameID, Timestamp start, Timestamp end,
+                                        Game.Color myColor, String result) throws SQLException {
+        List<String> uciMoves = new ArrayList<>();
+        List<Integer> moveTimes = new ArrayList<>();
+        long startTime = start == null ? 0 : start.getTime();
+
+        positionsStatement.setInt(1, gameID);
+        try (ResultSet positions = positionsStatement.executeQuery()) {
+            String previousFEN = Fen.START_FEN;
+            long previousTime = startTime;
+            while (positions.next()) {
+                String fen = positions.getString("FENString");
+                String uciMove = uciMove(previousFEN, fen);
+                if (uciMove == null) {
+                    throw new IllegalArgumentException("no move leads from " + previousFEN + " to " + fen);
+                }
+                uciMoves.add(uciMove);
+
+                long moveTime = positions.getTimestamp("Timestamp").getTime();
+                moveTimes.add((int) Math.min(Integer.MAX_VALUE, Math.max(0, moveTime - previousTime)));
+                previousTime = moveTime;
+                previousFEN = fen;
+            }
+        }
+
+        int[] times = new int[moveTimes.size()];
+        for (int i = 0; i < times.length; i++) times[i] = moveTimes.get(i);
+
+        return CompactGame.fromUciMoves(gameID, startTime, end == null ? 0 : end.getTime(), myColor, result, uciMoves, times);
+    }
+
+    /**
+     * Recovers the move played between two positions by comparing their boards: the moved piece leaves its
+     * start square and appears on its end square (for castling, the king's squares are used).
+     *
+     * @param fenBefore The FEN of the position before the move.
+     * @param fenAfter The FEN of the position after the move.
+     * @return The move in UCI notation, or {@code null} if the boards do not differ by a single move.
+     */
+    static String uciMove(String fenBefore, String fenAfter) {
+        char[] before = placement(fenBefore);
+        char[] after = placement(fenAfter);
+        boolean whiteMoved = fenBefore.split(" ")[1].equals("w");
+
+        int start = -1;
+        int end = -1;
+        for (int square = 0; square < 64; square++) {
+            if (before[square] == after[square]) continue;
+            if (before[square] != 0 && Character.isUpperCase(before[square]) == whiteMoved
+                    && (start < 0 || Character.toLowerCase(before[square]) == 'k')) {
+                start = square;
+            }
+            if (after[square] != 0 && Character.isUpperCase(after[square]) == whiteMoved
+                    && (end < 0 || Character.toLowerCase(after[square]) == 'k')) {
+                end = square;
+            }
+        }
+        if (start < 0 || end < 0) return null;
+
+        String move = Square.of(start).toString() + Square.of(end);
+        if (Character.toLowerCase(before[start]) == 'p' && Character.toLowerCase(after[end]) != 'p') {
+            move += Character.toLowerCase(after[end]);
+        }
+        return move;
+    }
+
+    /**
+     * Expands the piece placement of a FEN into one character per square (0 for an empty square),
+     * indexed by rank * 8 + file from a1.
+     *
+     * @param fen The FEN of the position.
+     * @return The piece on each square.
+     */
+    private static char[] placement(String fen) {
+        char[] squares = new char[64];
+        int rank = 7;
+        int file = 0;
+        for (char c : fen.split(" ")[0].toCharArray()) {
+            if (c == '/') {
+                rank--;
+                file = 0;
+            } else if (Character.isDigit(c)) {
+                file += c - '0';
+            } else {
+                squares[rank * 8 + file++] = c;
+            }
+        }
+        return squares;
+    }
+
+    /**
+     * The outcome of a migration: the number of migrated games and the games that were skipped.
+     */
+    public static final class Report {
+        /// The number of migrated games.
+        private final int migrated;
+        /// The reason each skipped game was skipped, by game identifier, in migration order.
+        private final Map<Integer, String> skipped;
+
+        /**
+         * Constructs a {@code Report}.
+         *
+         * @param migrated The number of migrated games.
+         * @param skipped The reason each skipped game was skipped, by game identifier.
+         */
+        Report(int migrated, Map<Integer, String> skipped) {
+            this.migrated = migrated;
+            this.skipped = Collections.unmodifiableMap(skipped);
+        }
+
+        /**
+         * Returns the number of migrated games.
+         *
+         * @return The number of games.
+         */
+        public int getMigrated() {
+            return migrated;
+        }
+
+        /**
+         * Returns the games that were skipped, with the reason of each.
+         *
+         * @return The reasons, by game identifier.
+         */
+        public Map<Integer, String> getSkipped() {
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package database;
+
+import storage.CompactGame;
+import storage.CompactGameReader;
+import storage.CompactGameWriter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/// @author dana
+
+/**
+ * Stores games in the compact binary format, as one BLOB per game in the {@code CompactGames} table.
+ * A whole game is loaded with a single row fetch instead of one row per move and per position.
+ */
+public class CompactGameStore {
+    /// The SQL state reported by Derby when a table already exists.
+    static final String TABLE_EXISTS_STATE = "X0Y32";
+    /// Creates the table holding the compact games.
+    private static final String CREATE_TABLE_SQL =
+            "CREATE TABLE CompactGames (" +
+            "GameID INT NOT NULL PRIMARY KEY, " +
+            "GameData BLOB(1M) NOT NULL, " +
+            "FOREIGN KEY (GameID) REFERENCES Games(GameID) ON DELETE CASCADE)";
+
+    /**
+     * Creates the {@code CompactGames} table if it does not exist yet.
+     *
+     * @param connection The connection to the database.
+     * @throws SQLException If the table cannot be created.
+     */
+    public static void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(CREATE_TABLE_SQL);
+        } catch (SQLException e) {
+            if (!TABLE_EXISTS_STATE.equals(e.getSQLState())) throw e;
+        }
+    }
+
+    /**
+     * Stores a game, replacing the stored copy if there is one.
+     *
+     * @param connection The connection to the database.
+     * @param game The game to store.
+     * @throws SQLException If the game cannot be stored.
+     */
+    public static void save(Connection connection, CompactGame game) throws SQLException {
+        byte[] gameData = CompactGameWriter.toBytes(game);
+
+        try (PreparedStatement update = connection.prepareStatement("UPDATE CompactGames SET GameData = ? WHERE GameID = ?")) {
+            update.setBytes(1, gameData);
+            update.setInt(2, game.getGameID());
+            if (update.executeUpdate() > 0) return;
+        }
+
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO CompactGames (GameID, GameData) VALUES (?, ?)")) {
+            insert.setInt(1, game.getGameID());
+            insert.setBytes(2, gameData);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Loads a stored game.
+     *
+     * @param connection The connection to the database.
+     * @param gameID The identifier of the game.
+     * @return The game, or {@code null} if it is not stored in the compact format.
+     * @throws SQLException If the game cannot be loaded.
+     */
+    public static CompactGame load(Connection connection, int gameID) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT GameData FROM CompactGames WHERE GameID = ?")) {
+            select.setInt(1, gameID);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next() ? CompactGameReader.read(rs.getBytes("GameData")) : null;
+            }
+        }
+    }
+}
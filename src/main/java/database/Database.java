@@ -0,0 +1,47 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/// @author dana
+
+/**
+ * Provides the connection path to the embedded Derby database that stores the games, moves, positions and players.
+ * Every database access of the application opens its connections through this class, so the location of the
+ * database is configured in a single place.
+ */
+public class Database {
+    /// The default JDBC URL of the embedded Derby database, relative to the working directory.
+    public static final String DEFAULT_JDBC_URL = "jdbc:derby:database;create=true";
+    /// The JDBC URL used to open new connections.
+    private static volatile String jdbcURL = DEFAULT_JDBC_URL;
+
+    /**
+     * Returns the JDBC URL used to open new connections.
+     *
+     * @return The JDBC URL of the database.
+     */
+    public static String getJdbcURL() {
+        return jdbcURL;
+    }
+
+    /**
+     * Sets the JDBC URL used to open new connections (e.g., to point the application at another database).
+     *
+     * @param url The new JDBC URL.
+     */
+    public static void setJdbcURL(String url) {
+        jdbcURL = url;
+    }
+
+    /**
+     * Opens a new connection to the database.
+     *
+     * @return A new connection to the database.
+     * @throws SQLException If the connection cannot be opened.
+     */
+    public static Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(jdbcURL);
+    }
+}
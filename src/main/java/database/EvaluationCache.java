@@ -0,0 +1,319 @@
+package database;
+
+import analysis.Evaluation;
+import elements.Game;
+import elements.PositionKey;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/// @author dana
+
+/**
+ * Persistent cache of engine evaluations, so a position already analyzed by an engine, in this job or an earlier
+ * one, is not searched again. The evaluations are stored in the {@code EngineEvaluations} table, keyed by the
+ * 64-bit hash of the position ({@link PositionKey#longHash()}) and the engine identifier, with the FEN of the
+ * position to tell apart the rare positions sharing a hash.
+ * <p>
+ * A lookup is answered by any stored evaluation at the requested depth or deeper. The evaluations of the most
+ * recently used positions are kept in a size-bounded LRU cache in front of the table, so only a miss reads the
+ * database. New evaluations are written in batches, each batch in a single transaction, keeping only the deepest
+ * evaluation of each position. The cache can be shared by several threads.
+ */
+public class EvaluationCache implements AutoCloseable {
+    /// The default maximum number of positions kept in memory.
+    public static final int DEFAULT_CACHE_SIZE = 100000;
+    /// The default number of evaluations written per batch.
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /// Creates the table holding the evaluations.
+    private static final String CREATE_TABLE_SQL =
+            "CREATE TABLE EngineEvaluations (" +
+            "PositionHash BIGINT NOT NULL, EngineID VARCHAR(100) NOT NULL, FENString VARCHAR(100) NOT NULL, " +
+            "Depth INT NOT NULL, Score INT NOT NULL, BestMove VARCHAR(5), PV VARCHAR(2000) NOT NULL, " +
+            "PRIMARY KEY (PositionHash, EngineID))";
+    /// Selects the evaluation of a position.
+    private static final String SELECT_SQL =
+            "SELECT FENString, Depth, Score, BestMove, PV FROM EngineEvaluations WHERE PositionHash = ? AND EngineID = ?";
+    /// Replaces a stored evaluation by a deeper one.
+    private static final String UPDATE_SQL =
+            "UPDATE EngineEvaluations SET FENString = ?, Depth = ?, Score = ?, BestMove = ?, PV = ? " +
+            "WHERE PositionHash = ? AND EngineID = ? AND Depth < ?";
+    /// Inserts an evaluation unless the position already has one.
+    private static final String INSERT_SQL =
+            "INSERT INTO EngineEvaluations (PositionHash, EngineID, FENString, Depth, Score, BestMove, PV) " +
+            "SELECT CAST(? AS BIGINT), CAST(? AS VARCHAR(100)), CAST(? AS VARCHAR(100)), CAST(? AS INT), " +
+            "CAST(? AS INT), CAST(? AS VARCHAR(5)), CAST(? AS VARCHAR(2000)) FROM SYSIBM.SYSDUMMY1 WHERE NOT EXISTS " +
+            "(SELECT 1 FROM EngineEvaluations WHERE PositionHash = ? AND EngineID = ?)";
+    /// The maximum number of moves of a stored line, which keeps it within the PV column.
+    private static final int MAX_PV_MOVES = 200;
+
+    /**
+     * An evaluation of a position at a given depth.
+     */
+    protected static final class Entry {
+        /// The hash of the position.
+        final long hash;
+        /// The FEN of the position without the move counters.
+        final String fen;
+        /// The search depth of the evaluation.
+        final int depth;
+        /// The evaluation.
+        final Evaluation evaluation;
+
+        /**
+         * Constructs an {@code Entry}.
+         *
+         * @param hash The hash of the position.
+         * @param fen The FEN of the position without the move counters.
+         * @param depth The search depth of the evaluation.
+         * @param evaluation The evaluation.
+         */
+        Entry(long hash, String fen, int depth, Evaluation evaluation) {
+            this.hash = hash;
+            this.fen = fen;
+            this.depth = depth;
+            this.evaluation = evaluation;
+        }
+    }
+
+    /// The identifier of the engine and its settings; evaluations of other engines are ignored.
+    private final String engineID;
+    /// The number of evaluations written per batch.
+    private final int batchSize;
+    /// The cached evaluations, ordered from least to most recently used.
+    private final Map<PositionKey, Entry> cache;
+    /// The evaluations not written yet, by position.
+    private final Map<PositionKey, Entry> pending = new LinkedHashMap<>();
+    /// The number of lookups answered without searching.
+    private long hitCount;
+    /// The number of lookups that needed a search.
+    private long missCount;
+
+    /**
+     * Constructs an {@code EvaluationCache}.
+     *
+     * @param engineID The identifier of the engine (e.g., "stockfish"); only its own evaluations are used.
+     * @param cacheSize The maximum number of positions kept in memory.
+     * @param batchSize The number of evaluations written per batch.
+     */
+    public EvaluationCache(String engineID, final int cacheSize, int batchSize) {
+        this.engineID = engineID;
+        this.batchSize = batchSize;
+        this.cache = new LinkedHashMap<PositionKey, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PositionKey, Entry> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Creates the {@code EngineEvaluations} table if it does not exist yet.
+     *
+     * @param connection The connection to the database.
+     * @throws SQLException If the table cannot be created.
+     */
+    public static void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(CREATE_TABLE_SQL);
+        } catch (SQLException e) {
+            if (!CompactGameStore.TABLE_EXISTS_STATE.equals(e.getSQLState())) throw e;
+        }
+    }
+
+    /**
+     * Returns the stored evaluation of the current position of a game at the given depth or deeper.
+     *
+     * @param game The game.
+     * @param depth The minimum search depth.
+     * @return The evaluation, or {@code null} if the position must be searched.
+     * @throws SQLException If the evaluation is not cached in memory and the database query fails.
+     */
+    public Evaluation lookup(Game game, int depth) throws SQLException {
+        PositionKey key = PositionKey.of(game);
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        if (entry == null || entry.depth < depth) {
+            String fen = OpeningExplorer.positionKey(game.FENNotation());
+            Entry stored = load(key.longHash(), fen);
+            if (stored != null && (entry == null || stored.depth > entry.depth)) {
+                entry = stored;
+                synchronized (cache) {
+                    cache.put(key, stored);
+                }
+            }
+        }
+
+        synchronized (cache) {
+            if (entry != null && entry.depth >= depth) {
+                hitCount++;
+                return entry.evaluation;
+            }
+            missCount++;
+            return null;
+        }
+    }
+
+    /**
+     * Stores the evaluation of the current position of a game, unless a deeper one is cached. The evaluation is
+     * written to the database with the next batch.
+     *
+     * @param game The game.
+     * @param depth The search depth of the evaluation.
+     * @param evaluation The evaluation.
+     * @throws SQLException If the batch is full and cannot be written.
+     */
+    public void store(Game game, int depth, Evaluation evaluation) throws SQLException {
+        PositionKey key = PositionKey.of(game);
+        Entry entry = new Entry(key.longHash(), OpeningExplorer.positionKey(game.FENNotation()), depth, evaluation);
+        synchronized (cache) {
+            Entry cached = cache.get(key);
+            if (cached != null && cached.depth >= depth) return;
+            cache.put(key, entry);
+        }
+        synchronized (pending) {
+            pending.put(key, entry);
+            if (pending.size() >= batchSize) flush();
+        }
+    }
+
+    /**
+     * Writes the pending evaluations.
+     *
+     * @throws SQLException If the batch cannot be written; the evaluations stay pending.
+     */
+    public void flush() throws SQLException {
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+            write(new ArrayList<>(pending.values()));
+            pending.clear();
+        }
+    }
+
+    /**
+     * Writes the pending evaluations.
+     *
+     * @throws SQLException If the batch cannot be written.
+     */
+    @Override
+    public void close() throws SQLException {
+        flush();
+    }
+
+    /**
+     * Returns the number of lookups answered by a stored evaluation.
+     *
+     * @return The hit count.
+     */
+    public long getHitCount() {
+        synchronized (cache) {
+            return hitCount;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that found no evaluation deep enough.
+     *
+     * @return The miss count.
+     */
+    public long getMissCount() {
+        synchronized (cache) {
+            return missCount;
+        }
+    }
+
+    /**
+     * Returns the number of positions cached in memory.
+     *
+     * @return The cache size.
+     */
+    public int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Reads the stored evaluation of a position that is not cached deep enough.
+     *
+     * @param hash The hash of the position.
+     * @param fen The FEN of the position without the move counters.
+     * @return The evaluation, or {@code null} if the position has none.
+     * @throws SQLException If the database query fails.
+     */
+    protected Entry load(long hash, String fen) throws SQLException {
+        try (Connection connection = Database.getConnection();
+             PreparedStatement select = connection.prepareStatement(SELECT_SQL)) {
+            select.setLong(1, hash);
+            select.setString(2, engineID);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next() || !fen.equals(rs.getString("FENString"))) return null;
+                String pv = rs.getString("PV");
+                Evaluation evaluation = new Evaluation(rs.getInt("Score"), rs.getString("BestMove"),
+                        pv.isEmpty() ? List.of() : Arrays.asList(pv.split(" ")));
+                return new Entry(hash, fen, rs.getInt("Depth"), evaluation);
+            }
+        }
+    }
+
+    /**
+     * Writes a batch of evaluations in a single transaction. An evaluation replaces a stored one only if it is
+     * deeper.
+     *
+     * @param batch The evaluations.
+     * @throws SQLException If the batch cannot be written; nothing of the batch is kept.
+     */
+    protected void write(List<Entry> batch) throws SQLException {
+        try (Connection connection = Database.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement update = connection.prepareStatement(UPDATE_SQL);
+                 PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+
+                for (Entry entry : batch) {
+                    Evaluation evaluation = entry.evaluation;
+                    List<String> line = evaluation.getPrincipalVariation();
+                    String pv = String.join(" ", line.subList(0, Math.min(line.size(), MAX_PV_MOVES)));
+
+                    update.setString(1, entry.fen);
+                    update.setInt(2, entry.depth);
+                    update.setInt(3, evaluation.getScore());
+                    update.setString(4, evaluation.getBestMove());
+                    update.setString(5, pv);
+                    update.setLong(6, entry.hash);
+                    update.setString(7, engineID);
+                    update.setInt(8, entry.depth);
+                    update.addBatch();
+
+                    insert.setLong(1, entry.hash);
+                    insert.setString(2, engineID);
+                    insert.setString(3, entry.fen);
+                    insert.setInt(4, entry.depth);
+                    insert.setInt(5, evaluation.getScore());
+                    insert.setString(6, evaluation.getBestMove());
+                    insert.setString(7, pv);
+                    insert.setLong(8, entry.hash);
+                    insert.setString(9, engineID);
+                    insert.addBatch();
+                }
+
+                update.executeBatch();
+                insert.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+}
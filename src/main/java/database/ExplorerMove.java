@@ -0,0 +1,129 @@
+package database;
+
+import elements.Game;
+
+/// @author dana
+
+/**
+ * Represents the statistics of one continuation from a position in the opening explorer:
+ * the move played and how the finished games that continued with it ended.
+ * Instances are immutable, so they can be handed out from the explorer's cache without copying.
+ */
+public class ExplorerMove {
+    /// The move played from the position, in the notation stored in the database (e.g., "e4", "Nxf3").
+    private final String moveNotation;
+    /// The number of finished games won by White after this move.
+    private final int whiteWins;
+    /// The number of finished games drawn after this move.
+    private final int draws;
+    /// The number of finished games won by Black after this move.
+    private final int blackWins;
+
+    /**
+     * Constructs an {@code ExplorerMove} with the given results.
+     *
+     * @param moveNotation The move played from the position.
+     * @param whiteWins The number of games won by White.
+     * @param draws The number of drawn games.
+     * @param blackWins The number of games won by Black.
+     */
+    public ExplorerMove(String moveNotation, int whiteWins, int draws, int blackWins) {
+        this.moveNotation = moveNotation;
+        this.whiteWins = whiteWins;
+        this.draws = draws;
+        this.blackWins = blackWins;
+    }
+
+    /**
+     * Returns the move played from the position.
+     *
+     * @return The move notation.
+     */
+    public String getMoveNotation() {
+        return moveNotation;
+    }
+
+    /**
+     * Returns the number of games won by White after this move.
+     *
+     * @return The number of White wins.
+     */
+    public int getWhiteWins() {
+        return whiteWins;
+    }
+
+    /**
+     * Returns the number of drawn games after this move.
+     *
+     * @return The number of draws.
+     */
+    public int getDraws() {
+        return draws;
+    }
+
+    /**
+     * Returns the number of games won by Black after this move.
+     *
+     * @return The number of Black wins.
+     */
+    public int getBlackWins() {
+        return blackWins;
+    }
+
+    /**
+     * Returns the number of finished games that continued with this move.
+     *
+     * @return The game count.
+     */
+    public int getGameCount() {
+        return whiteWins + draws + blackWins;
+    }
+
+    /**
+     * Returns the score of the given side after this move, as a percentage (a win counts 1, a draw counts 1/2).
+     *
+     * @param color The side whose score is computed, usually the side that plays the move.
+     * @return The score percentage between 0 and 100, or 0 if no game continued with this move.
+     */
+    public double getScorePercentage(Game.Color color) {
+        int games = getGameCount();
+        if (games == 0) return 0;
+        int wins = color == Game.Color.WHITE ? whiteWins : blackWins;
+        return 100.0 * (wins + 0.5 * draws) / games;
+    }
+
+    /**
+     * Returns the average result of the games after this move from White's point of view,
+     * where a White win counts 1, a draw 0 and a Black win -1.
+     *
+     * @return The average result between -1 and 1, or 0 if no game continued with this move.
+     */
+    public double getAverageResult() {
+        int games = getGameCount();
+        if (games == 0) return 0;
+        return (double) (whiteWins - blackWins) / games;
+    }
+
+    /**
+     * Returns a copy of these statistics with one more game ending with the given result.
+     *
+     * @param result The result of the game ("White", "Black" or "Draw").
+     * @return The updated statistics.
+     */
+    public ExplorerMove withResult(String result) {
+        if ("White".equalsIgnoreCase(result)) return new ExplorerMove(moveNotation, whiteWins + 1, draws, blackWins);
+        if ("Black".equalsIgnoreCase(result)) return new ExplorerMove(moveNotation, whiteWins, draws, blackWins + 1);
+        if ("Draw".equalsIgnoreCase(result)) return new ExplorerMove(moveNotation, whiteWins, draws + 1, blackWins);
+        return this;
+    }
+
+    /**
+     * Returns a string representation of the continuation (e.g., "e4: 10 games, +5 =3 -2").
+     *
+     * @return A string describing the continuation.
+     */
+    @Override
+    public String toString() {
+        return moveNotation + ": " + getGameCount() + " games, +" + whiteWins + " =" + draws + " -" + blackWins;
+    }
+}
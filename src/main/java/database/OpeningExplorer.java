@@ -0,0 +1,210 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/// @author dana
+
+/**
+ * Opening explorer over the stored games: given a position, it returns every move played from it in finished
+ * games, together with the game count and the results.
+ * <p>
+ * Positions are looked up by their FEN without the move counters. The statistics of the most recently used
+ * positions are kept in a size-bounded LRU cache, so only a miss runs the aggregation query on the database.
+ * The moves of a game are recorded while it is played; once the game has a result, the cached positions it went
+ * through are dropped, so their next lookup reads the finished game from the database. A lookup whose query ran
+ * while a result was recorded does not cache its statistics, which may or may not include that game.
+ */
+public class OpeningExplorer {
+    /// The default maximum number of positions kept in the cache.
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+    /// The key of the starting position, which is never stored in the {@code Positions} table.
+    public static final String START_POSITION_KEY = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq -";
+
+    /// Aggregates the continuations of a position from the position that follows it in the same game.
+    private static final String CONTINUATIONS_SQL =
+            "SELECT m.MoveNotation, g.Result, COUNT(*) AS GameCount " +
+            "FROM Positions p " +
+            "JOIN Positions n ON n.GameID = p.GameID AND n.PositionNumber = p.PositionNumber + 1 " +
+            "JOIN Moves m ON m.PositionID = n.PositionID " +
+            "JOIN Games g ON g.GameID = p.GameID " +
+            "WHERE p.FENString LIKE ? AND g.Status = 'Finished' " +
+            "GROUP BY m.MoveNotation, g.Result";
+    /// Aggregates the first moves of the games, whose starting position has no row in {@code Positions}.
+    private static final String FIRST_MOVES_SQL =
+            "SELECT m.MoveNotation, g.Result, COUNT(*) AS GameCount " +
+            "FROM Positions n " +
+            "JOIN Moves m ON m.PositionID = n.PositionID " +
+            "JOIN Games g ON g.GameID = n.GameID " +
+            "WHERE n.PositionNumber = 1 AND g.Status = 'Finished' " +
+            "GROUP BY m.MoveNotation, g.Result";
+
+    /// The cached continuations, keyed by position key and ordered from least to most recently used.
+    private final Map<String, List<ExplorerMove>> cache;
+    /// The moves of the games still in progress, as (position key, move notation) pairs in playing order.
+    private final Map<Integer, List<String[]>> pendingMoves;
+    /// The key of the current position of each game in progress.
+    private final Map<Integer, String> currentKeys;
+    /// The number of results recorded, guarded by the cache lock; a lookup only caches statistics loaded while it
+    /// did not change.
+    private long generation;
+
+    /**
+     * Constructs an {@code OpeningExplorer} whose cache holds at most the given number of positions.
+     *
+     * @param cacheSize The maximum number of cached positions.
+     */
+    public OpeningExplorer(final int cacheSize) {
+        this.cache = new LinkedHashMap<String, List<ExplorerMove>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<ExplorerMove>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.pendingMoves = new HashMap<>();
+        this.currentKeys = new HashMap<>();
+    }
+
+    /**
+     * Returns the key of a position: its FEN without the half-move clock and the move number,
+     * so the same position reached at different moments of the game shares its statistics.
+     *
+     * @param fen The FEN of the position.
+     * @return The position key.
+     */
+    public static String positionKey(String fen) {
+        String[] fields = fen.trim().split(" ");
+        if (fields.length < 4) return fen.trim();
+        return fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3];
+    }
+
+    /**
+     * Returns the continuations of a position, most played first.
+     *
+     * @param fen The FEN of the position.
+     * @return The moves played from the position in finished games, or an empty list if there are none.
+     * @throws SQLException If the statistics are not cached and the database query fails.
+     */
+    public List<ExplorerMove> lookup(String fen) throws SQLException {
+        String key = positionKey(fen);
+        long loadGeneration;
+        synchronized (cache) {
+            List<ExplorerMove> cached = cache.get(key);
+            if (cached != null) return cached;
+            loadGeneration = generation;
+        }
+
+        List<ExplorerMove> moves = loadContinuations(key);
+        moves.sort((a, b) -> Integer.compare(b.getGameCount(), a.getGameCount()));
+        List<ExplorerMove> result = Collections.unmodifiableList(moves);
+
+        synchronized (cache) {
+            if (generation == loadGeneration) cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Runs the aggregation query for a position that is not cached.
+     *
+     * @param key The key of the position.
+     * @return The continuations of the position, in any order.
+     * @throws SQLException If the database query fails.
+     */
+    protected List<ExplorerMove> loadContinuations(String key) throws SQLException {
+        Map<String, ExplorerMove> moves = new LinkedHashMap<>();
+        boolean startPosition = key.equals(START_POSITION_KEY);
+
+        try (Connection connection = Database.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(startPosition ? FIRST_MOVES_SQL : CONTINUATIONS_SQL)) {
+
+            if (!startPosition) preparedStatement.setString(1, key + " %");
+
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    String moveNotation = rs.getString("MoveNotation");
+                    String result = rs.getString("Result");
+                    int count = rs.getInt("GameCount");
+
+                    ExplorerMove move = moves.get(moveNotation);
+                    if (move == null) move = new ExplorerMove(moveNotation, 0, 0, 0);
+                    moves.put(moveNotation, new ExplorerMove(moveNotation,
+                            move.getWhiteWins() + ("White".equals(result) ? count : 0),
+                            move.getDraws() + ("Draw".equals(result) ? count : 0),
+                            move.getBlackWins() + ("Black".equals(result) ? count : 0)));
+                }
+            }
+        }
+        return new ArrayList<>(moves.values());
+    }
+
+    /**
+     * Records a move of a game in progress. The move only counts in the statistics once the game has a result.
+     *
+     * @param gameID The identifier of the game.
+     * @param fenAfterMove The FEN of the position after the move.
+     * @param moveNotation The notation of the move.
+     */
+    public synchronized void recordMove(int gameID, String fenAfterMove, String moveNotation) {
+        String keyBeforeMove = currentKeys.getOrDefault(gameID, START_POSITION_KEY);
+        pendingMoves.computeIfAbsent(gameID, id -> new ArrayList<>()).add(new String[]{keyBeforeMove, moveNotation});
+        currentKeys.put(gameID, positionKey(fenAfterMove));
+    }
+
+    /**
+     * Records the result of a finished game, which must already be stored in the database, and drops the cached
+     * positions the game went through. Their statistics are read again from the database on their next lookup,
+     * so the game is counted exactly once whichever lookups overlap this call.
+     *
+     * @param gameID The identifier of the game.
+     * @param result The result of the game ("White", "Black" or "Draw").
+     */
+    public synchronized void recordResult(int gameID, String result) {
+        List<String[]> moves = pendingMoves.remove(gameID);
+        currentKeys.remove(gameID);
+        if (moves == null) return;
+
+        synchronized (cache) {
+            generation++;
+            for (String[] move : moves) cache.remove(move[0]);
+        }
+    }
+
+    /**
+     * Forgets the moves of a game that was abandoned before having a result.
+     *
+     * @param gameID The identifier of the game.
+     */
+    public synchronized void discardGame(int gameID) {
+        pendingMoves.remove(gameID);
+        currentKeys.remove(gameID);
+    }
+
+    /**
+     * Removes every position from the cache.
+     */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns the number of cached positions.
+     *
+     * @return The cache size.
+     */
+    public int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
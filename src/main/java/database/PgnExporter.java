@@ -0,0 +1,333 @@
+package database;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+/// @author dana
+
+/**
+ * Exports the stored games to a PGN file.
+ * <p>
+ * The games are read in the order of their primary key over a forward-only, read-only cursor, fetched a
+ * configurable number of rows at a time, and the moves of each game through the index on
+ * {@code Moves (GameID, MoveNumber, MoveID)}, so neither query needs a sort, whatever the number of moves stored. Each game is written as its rows arrive, into a buffer drained to the
+ * file channel when full, optionally through gzip. Nothing but the current row and line is held, so the memory
+ * used does not depend on the number of games exported.
+ */
+public class PgnExporter implements Closeable {
+    /// The default number of rows fetched from the database at a time.
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    /// The size of the output buffer.
+    private static final int BUFFER_SIZE = 1 << 20;
+    /// The size of the gzip buffer.
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+    /// The maximum length of a line of movetext, as recommended by the PGN standard.
+    private static final int MAX_LINE_LENGTH = 80;
+    /// Selects every game, in the order of the primary key.
+    private static final String GAMES_SQL =
+            "SELECT GameID, StartTimestamp, EndTimestamp, MyColor, Status, Result FROM Games ORDER BY GameID";
+    /// Selects the moves of a game, in order, through the index on {@code Moves (GameID, MoveNumber, MoveID)}.
+    private static final String MOVES_SQL =
+            "SELECT MoveNotation FROM Moves WHERE GameID = ? ORDER BY MoveNumber, MoveID";
+    /// Creates the index the moves of a game are read through (see CreatingDatabase.sql).
+    private static final String CREATE_INDEX_SQL = "CREATE INDEX idx_moves_game ON Moves (GameID, MoveNumber, MoveID)";
+    /// The format of the PGN dates.
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+    /// The format of the PGN times.
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    /// The channel the games are written to.
+    private final WritableByteChannel channel;
+    /// The buffer of the bytes not yet written to the channel.
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    /// The movetext line being written.
+    private final StringBuilder line = new StringBuilder(MAX_LINE_LENGTH + 16);
+    /// The result of the game being written, or null if no game is being written.
+    private String gameResult;
+    /// The number of half-moves written for the game being written.
+    private int ply;
+    /// The number of games written.
+    private long gameCount;
+
+    /**
+     * Creates an exporter writing to a channel.
+     *
+     * @param channel The channel, closed by {@link #close()}.
+     */
+    public PgnExporter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Creates an exporter writing to a file, replacing it if it exists.
+     *
+     * @param file The PGN file.
+     * @param gzip Whether the file is compressed with gzip.
+     * @return The exporter.
+     * @throws IOException If the file cannot be created.
+     */
+    public static PgnExporter open(Path file, boolean gzip) throws IOException {
+        FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        if (!gzip) return new PgnExporter(fileChannel);
+        try {
+            return new PgnExporter(Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fileChannel), GZIP_BUFFER_SIZE)));
+        } catch (IOException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Exports every stored game, in the order of their identifiers. A game that is not finished is exported
+     * with the result "*".
+     *
+     * @param connection The connection to the database.
+     * @param fetchSize The number of rows fetched from the database at a time.
+     * @return The number of games exported.
+     * @throws SQLException If the database query fails.
+     * @throws IOException If the games cannot be written.
+     */
+    public long export(Connection connection, int fetchSize) throws SQLException, IOException {
+        long startCount = gameCount;
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             PreparedStatement movesStatement = connection.prepareStatement(MOVES_SQL, ResultSet.TYPE_FORWARD_ONLY,
+                     ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(fetchSize);
+            movesStatement.setFetchSize(fetchSize);
+            try (ResultSet rs = statement.executeQuery(GAMES_SQL)) {
+                while (rs.next()) {
+                    int gameID = rs.getInt("GameID");
+                    beginGame(gameID, rs.getTimestamp("StartTimestamp"), rs.getTimestamp("EndTimestamp"),
+                            rs.getString("MyColor"), "Finished".equals(rs.getString("Status")) ? rs.getString("Result") : null);
+                    movesStatement.setInt(1, gameID);
+                    try (ResultSet moves = movesStatement.executeQuery()) {
+                        while (moves.next()) addMove(moves.getString("MoveNotation"));
+                    }
+                    endGame();
+                }
+            }
+        }
+        return gameCount - startCount;
+    }
+
+    /**
+     * Creates the index the moves of a game are read through, if the database was created without it.
+     *
+     * @param connection The connection to the database.
+     * @throws SQLException If the index cannot be created.
+     */
+    public static void createIndex(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(CREATE_INDEX_SQL);
+        } catch (SQLException e) {
+            if (!CompactGameStore.TABLE_EXISTS_STATE.equals(e.getSQLState())) throw e;
+        }
+    }
+
+    /**
+     * Writes the tags of a game and starts its movetext.
+     *
+     * @param gameID The identifier of the game.
+     * @param start The start of the game.
+     * @param end The end of the game, or null if it is not finished.
+     * @param myColor The color of the user ("White" or "Black").
+     * @param result The result of the game ("White", "Black" or "Draw"), or null if it is not known.
+     * @throws IOException If the tags cannot be written.
+     */
+    void beginGame(int gameID, Timestamp start, Timestamp end, String myColor, String result) throws IOException {
+        boolean userIsWhite = !"Black".equalsIgnoreCase(myColor);
+        gameResult = pgnResult(result);
+        ply = 0;
+        line.setLength(0);
+
+        writeTag("Event", "ChessGame");
+        writeTag("Site", "?");
+        writeTag("Date", start == null ? "????.??.??" : DATE_FORMAT.format(start.toLocalDateTime()));
+        writeTag("Round", "-");
+        writeTag("White", userIsWhite ? "Player" : "Stockfish");
+        writeTag("Black", userIsWhite ? "Stockfish" : "Player");
+        writeTag("Result", gameResult);
+        if (start != null) writeTag("Time", TIME_FORMAT.format(start.toLocalDateTime()));
+        if (end != null) {
+            writeTag("EndDate", DATE_FORMAT.format(end.toLocalDateTime()));
+            writeTag("EndTime", TIME_FORMAT.format(end.toLocalDateTime()));
+        }
+        writeTag("GameID", String.valueOf(gameID));
+        write("\n");
+    }
+
+    /**
+     * Adds a move to the movetext of the game being written, preceded by its number for a move of White.
+     *
+     * @param moveNotation The move in SAN.
+     * @throws IOException If a full line cannot be written.
+     */
+    void addMove(String moveNotation) throws IOException {
+        if (ply % 2 == 0) addToken((ply / 2 + 1) + ".");
+        addToken(moveNotation);
+        ply++;
+    }
+
+    /**
+     * Ends the movetext of the game being written with its result.
+     *
+     * @throws IOException If the movetext cannot be written.
+     */
+    void endGame() throws IOException {
+        addToken(gameResult);
+        write(line.append("\n\n").toString());
+        line.setLength(0);
+        gameResult = null;
+        gameCount++;
+    }
+
+    /**
+     * Returns the number of games written.
+     *
+     * @return The game count.
+     */
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * Writes the buffered bytes and closes the channel.
+     *
+     * @throws IOException If the bytes cannot be written or the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Appends a token to the movetext line, writing the line first if the token would make it too long.
+     *
+     * @param token The token.
+     * @throws IOException If the line cannot be written.
+     */
+    private void addToken(String token) throws IOException {
+        if (line.length() > 0) {
+            if (line.length() + 1 + token.length() > MAX_LINE_LENGTH) {
+                write(line.append('\n').toString());
+                line.setLength(0);
+            } else {
+                line.append(' ');
+            }
+        }
+        line.append(token);
+    }
+
+    /**
+     * Writes a tag pair, escaping the quotes and backslashes of its value.
+     *
+     * @param name The name of the tag.
+     * @param value The value of the tag.
+     * @throws IOException If the tag cannot be written.
+     */
+    private void writeTag(String name, String value) throws IOException {
+        write("[" + name + " \"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"]\n");
+    }
+
+    /**
+     * Writes text to the buffer, draining the buffer to the channel if it is full.
+     *
+     * @param text The text.
+     * @throws IOException If the buffer cannot be drained.
+     */
+    private void write(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > buffer.remaining()) drain();
+        if (bytes.length > buffer.remaining()) {
+            ByteBuffer large = ByteBuffer.wrap(bytes);
+            while (large.hasRemaining()) channel.write(large);
+        } else {
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     *
+     * @throws IOException If the bytes cannot be written.
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Returns the PGN result of a stored result.
+     *
+     * @param result "White", "Black" or "Draw", or null if the result is not known.
+     * @return "1-0", "0-1", "1/2-1/2" or "*".
+     */
+    private static String pgnResult(String result) {
+        if (result == null) return "*";
+        switch (result) {
+            case "White": return "1-0";
+            case "Black": return "0-1";
+            case "Draw": return "1/2-1/2";
+            default: return "*";
+        }
+    }
+
+    /**
+     * Exports the stored games to a PGN file.
+     * Options: {@code --db <JDBC URL>}, {@code --fetch-size <rows>} and {@code --gzip} (implied by a file name
+     * ending with ".gz"), followed by the PGN file.
+     *
+     * @param args Command-line arguments.
+     */
+    public static void main(String[] args) {
+        int fetchSize = DEFAULT_FETCH_SIZE;
+        boolean gzip = false;
+        Path file = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--db": Database.setJdbcURL(args[++i]); break;
+                case "--fetch-size": fetchSize = Integer.parseInt(args[++i]); break;
+                case "--gzip": gzip = true; break;
+                default: file = Paths.get(args[i]);
+            }
+        }
+        if (file == null) {
+            System.out.println("Usage: PgnExporter [--db <JDBC URL>] [--fetch-size <rows>] [--gzip] <PGN file>");
+            return;
+        }
+        gzip |= file.getFileName().toString().endsWith(".gz");
+
+        long startTime = System.currentTimeMillis();
+        try (Connection connection = Database.getConnection();
+             PgnExporter exporter = open(file, gzip)) {
+            createIndex(connection);
+            long count = exporter.export(connection, fetchSize);
+            System.out.println("Exported " + count + " games in " + (System.currentTimeMillis() - startTime) + " ms.");
+        } catch (SQLException | IOException e) {
+            e.printStackTrace();
+            System.out.println("Export failed.");
+        }
+    }
+}
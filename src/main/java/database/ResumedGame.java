@@ -0,0 +1,214 @@
+package database;
+
+import elements.Game;
+import elements.LazyHistory;
+import elements.Player;
+import elements.Position;
+import elements.Square;
+import notation.Fen;
+import pieces.Piece;
+import pieces.PieceType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/// @author dana
+
+/**
+ * An unfinished game loaded back from the database to be played on.
+ * <p>
+ * The game is set up directly from the FEN of its latest stored position, with a {@link LazyHistory} of its
+ * stored moves, so resuming does not replay the moves: no move is generated, checked or played. Its stored moves
+ * and positions are still read with a single query that returns a row per move, so loading grows with the length
+ * of the game, but only by the cost of reading the rows.
+ * <p>
+ * The moves stored before the game was resumed can be handed to an {@link OpeningExplorer} with
+ * {@link #recordMoves(OpeningExplorer)}, so that the result of the game refreshes every position it went through.
+ */
+public class ResumedGame {
+    /// Selects the stored positions of a game with the move that reached each of them, in order.
+    private static final String POSITIONS_SQL =
+            "SELECT g.GameID, g.MyColor, p.PositionID, p.FENString, m.MoveNotation FROM Games g " +
+            "LEFT JOIN Positions p ON p.GameID = g.GameID " +
+            "LEFT JOIN Moves m ON m.PositionID = p.PositionID " +
+            "WHERE g.GameID = %s ORDER BY p.PositionNumber";
+    /// Selects the latest unfinished game.
+    private static final String LATEST_UNFINISHED_SQL = "(SELECT MAX(GameID) FROM Games WHERE Status = 'Not Finished')";
+    /// The number of pieces of each type a side starts with, indexed by {@link PieceType} ordinal.
+    private static final int[] STARTING_PIECE_COUNTS = {8, 2, 2, 2, 1, 1};
+
+    /// The identifier of the game.
+    private final int gameID;
+    /// The identifier of the latest stored position, or 0 if no move is stored.
+    private final int lastPositionID;
+    /// The game, in its latest stored position.
+    private final Game game;
+    /// The notations of the stored moves, in order.
+    private final List<String> storedMoves;
+    /// The FEN of the position after each stored move.
+    private final List<String> storedFENs;
+
+    /**
+     * Constructs a {@code ResumedGame}.
+     *
+     * @param gameID The identifier of the game.
+     * @param lastPositionID The identifier of the latest stored position, or 0 if no move is stored.
+     * @param game The game, in its latest stored position.
+     * @param storedMoves The notations of the stored moves, in order.
+     * @param storedFENs The FEN of the position after each stored move.
+     */
+    public ResumedGame(int gameID, int lastPositionID, Game game, List<String> storedMoves, List<String> storedFENs) {
+        this.gameID = gameID;
+        this.lastPositionID = lastPositionID;
+        this.game = game;
+        this.storedMoves = storedMoves;
+        this.storedFENs = storedFENs;
+    }
+
+    /**
+     * Loads the latest unfinished game.
+     *
+     * @param connection The connection to the database.
+     * @return The game, or {@code null} if every game is finished.
+     * @throws SQLException If the database query fails.
+     * @throws IllegalStateException If a stored position is not a valid FEN.
+     */
+    public static ResumedGame loadLatest(Connection connection) throws SQLException {
+        return load(connection, LATEST_UNFINISHED_SQL, null);
+    }
+
+    /**
+     * Loads a game.
+     *
+     * @param connection The connection to the database.
+     * @param gameID The identifier of the game.
+     * @return The game, or {@code null} if there is no such game.
+     * @throws SQLException If the database query fails.
+     * @throws IllegalStateException If a stored position is not a valid FEN.
+     */
+    public static ResumedGame load(Connection connection, int gameID) throws SQLException {
+        return load(connection, "?", gameID);
+    }
+
+    /**
+     * Runs the query of a game and sets the game up from its rows.
+     *
+     * @param connection The connection to the database.
+     * @param gameIDExpression The SQL expression of the identifier of the game.
+     * @param gameID The value of the identifier parameter, or null if the expression has none.
+     * @return The game, or {@code null} if the query selects no game.
+     * @throws SQLException If the database query fails.
+     */
+    private static ResumedGame load(Connection connection, String gameIDExpression, Integer gameID) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(String.format(POSITIONS_SQL, gameIDExpression))) {
+            if (gameID != null) select.setInt(1, gameID);
+            try (ResultSet rs = select.executeQuery()) {
+                int id = 0;
+                String myColor = null;
+                int lastPositionID = 0;
+                List<String> moves = new ArrayList<>();
+                List<String> fens = new ArrayList<>();
+                String lastFEN = Fen.START_FEN;
+                String previousFEN = null;
+                while (rs.next()) {
+                    id = rs.getInt("GameID");
+                    myColor = rs.getString("MyColor");
+                    String moveNotation = rs.getString("MoveNotation");
+                    // A position without its move was stored by an interrupted move and is left out
+                    if (moveNotation == null) continue;
+                    moves.add(moveNotation);
+                    previousFEN = lastFEN;
+                    lastFEN = rs.getString("FENString");
+                    fens.add(lastFEN);
+                    lastPositionID = rs.getInt("PositionID");
+                }
+                if (myColor == null) return null;
+                return new ResumedGame(id, lastPositionID, setUp(lastFEN, previousFEN, moves, myColor), moves, fens);
+            }
+        }
+    }
+
+    /**
+     * Sets a game up in its latest position, with its stored moves as a lazy history and the captured pieces
+     * found from the material missing on the board.
+     *
+     * @param lastFEN The FEN of the latest position.
+     * @param previousFEN The FEN of the position before the last move, or null if there is no move.
+     * @param moves The stored moves.
+     * @param myColor The color of the user ("White" or "Black").
+     * @return The game.
+     * @throws IllegalStateException If a FEN is not valid.
+     */
+    static Game setUp(String lastFEN, String previousFEN, List<String> moves, String myColor) {
+        Game game;
+        try {
+            game = Fen.parse(lastFEN, "Black".equalsIgnoreCase(myColor) ? Player.ColorOption.BLACK : Player.ColorOption.WHITE);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("The stored position cannot be resumed: " + lastFEN, e);
+        }
+        game.gameHistory = new LazyHistory(moves, previousFEN);
+        if (!moves.isEmpty()) game.currentPosition.positionNumber = moves.size();
+
+        int[][] counts = new int[2][PieceType.values().length];
+        Position position = game.currentPosition;
+        for (int index = 0; index < 64; index++) {
+            Piece piece = position.getPiece(Square.of(index));
+            if (piece != null) counts[piece.color.ordinal()][piece.getType().ordinal()]++;
+        }
+        Game.Color me = game.getMe().playerColor;
+        for (Game.Color color : Game.Color.values()) {
+            List<Piece> captured = color == me ? game.getOpponentCapturedPieces() : game.getMeCapturedPieces();
+            int[] missing = new int[STARTING_PIECE_COUNTS.length];
+            for (PieceType type : PieceType.values()) {
+                missing[type.ordinal()] = STARTING_PIECE_COUNTS[type.ordinal()] - counts[color.ordinal()][type.ordinal()];
+                // A piece beyond the starting set was promoted from a pawn that is therefore not captured
+                if (type != PieceType.PAWN && missing[type.ordinal()] < 0) missing[PieceType.PAWN.ordinal()] += missing[type.ordinal()];
+            }
+            for (PieceType type : PieceType.values()) {
+                for (int i = 0; i < missing[type.ordinal()]; i++) captured.add(type.getPiece(color));
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Records the stored moves of the game in an opening explorer, as if they had just been played, so that the
+     * result of the game drops every position it went through from the cache of the explorer.
+     *
+     * @param explorer The opening explorer.
+     */
+    public void recordMoves(OpeningExplorer explorer) {
+        for (int i = 0; i < storedMoves.size(); i++) explorer.recordMove(gameID, storedFENs.get(i), storedMoves.get(i));
+    }
+
+    /**
+     * Returns the identifier of the game.
+     *
+     * @return The GameID.
+     */
+    public int getGameID() {
+        return gameID;
+    }
+
+    /**
+     * Returns the identifier of the latest stored position, which the next stored move refers to.
+     *
+     * @return The PositionID, or 0 if no move is stored.
+     */
+    public int getLastPositionID() {
+        return lastPositionID;
+    }
+
+    /**
+     * Returns the game, in its latest stored position.
+     *
+     * @return The game.
+     */
+    public Game getGame() {
+        return game;
+    }
+}
@@ -1,10 +1,10 @@
 package elements;
 
+import notation.Fen;
 import pieces.*;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 /// @author dana
 
@@ -37,6 +37,14 @@ public class Game {
     private List<Piece> meCapturedPieces;
     /// List of pieces captured by the opponent.
     private List<Piece> opponentCapturedPieces;
+    /// The promotion suffixes of UCI notation, in the order legal moves are generated.
+    private static final char[] PROMOTION_PIECES = {'q', 'r', 'b', 'n'};
+    /// The status of the current position, or null until it is first needed after a move.
+    private GameStatus status;
+    /// The position the cached status was computed for.
+    private Position statusPosition;
+    /// The number of moves in the history when the cached status was computed.
+    private int statusHistorySize;
 
     /**
      * Constructs a new {@code Game} instance, initializing players and the board position.
@@ -85,9 +93,53 @@ public class Game {
      * Displays the current game state, including the last move and check status.
      */
     public void display() {
+        GameStatus currentStatus = getStatus();
         System.out.println(gameHistory.get(gameHistory.size() - 1).toString(this));
-        System.out.println("Is check for white: " + isCheckForWhite());
-        System.out.println("Is check for black: " + isCheckForBlack());
+        System.out.println("Is check for white: " + (currentStatus.isInCheck() && currentStatus.getSideToMove() == Color.WHITE));
+        System.out.println("Is check for black: " + (currentStatus.isInCheck() && currentStatus.getSideToMove() == Color.BLACK));
+    }
+
+    /**
+     * Returns the status of the current position: check, checkmate, stalemate, draw and legal moves.
+     * The status is computed at most once per move and cached until the next move is recorded.
+     *
+     * @return The status of the game for the side to move.
+     */
+    public GameStatus getStatus() {
+        if (status == null || statusPosition != currentPosition || statusHistorySize != gameHistory.size()
+                || (status.getSideToMove() == Color.WHITE) != whiteMoves) {
+            status = GameStatus.of(this);
+            statusPosition = currentPosition;
+            statusHistorySize = gameHistory.size();
+        }
+        return status;
+    }
+
+    /**
+     * Records a move already applied to the current position: appends it to the game history, gives the turn
+     * to the other side and adds the check ("+") or checkmate ("#") suffix to its notation.
+     * The status of the previous position is dropped; the new one is only computed when the side to move is in
+     * check (to tell check from checkmate) or when it is first asked for.
+     *
+     * @param start The start square of the move.
+     * @param end The end square of the move.
+     * @param movedPiece The piece that moved.
+     * @param moveNotation The notation of the move, without check suffix.
+     * @return The recorded move.
+     */
+    public Move recordMove(Square start, Square end, Piece movedPiece, String moveNotation) {
+        status = null;
+        int moveNumber = (int) (Math.ceil((double) currentPosition.positionNumber / 2));
+        Move move = new Move(start, end, moveNumber, movedPiece, moveNotation, currentPosition);
+        gameHistory.add(move);
+        whiteMoves = !whiteMoves;
+
+        if (isCheck(whiteMoves ? Color.WHITE : Color.BLACK)) {
+            String suffix = getStatus().isCheckmate() ? "#" : "+";
+            move = new Move(start, end, moveNumber, movedPiece, moveNotation + suffix, currentPosition);
+            gameHistory.set(gameHistory.size() - 1, move);
+        }
+        return move;
     }
 
     /**
@@ -126,7 +178,7 @@ public class Game {
 
         // Check if any opponent piece can capture the king
         for (Square opponentSquare : opponentPieceSquares) {
-            Piece opponentPiece = opponentSquare.getPiece();
+            Piece opponentPiece = currentPosition.getPiece(opponentSquare);
             if (opponentPiece != null && opponentPiece.allowedCapture(opponentSquare, kingSquare, this)) {
                 return true;
             }
@@ -162,12 +214,12 @@ public class Game {
         List<Square> mePieceSquares = getPiecesOfColor(color);
 
         for (Square startSquare : mePieceSquares) {
-            Piece piece = startSquare.getPiece();
+            Piece piece = currentPosition.getPiece(startSquare);
             if (piece == null) continue;
 
             for (int rank = 0; rank < 8; rank++) {
                 for (int file = 0; file < 8; file++) {
-                    Square endSquare = currentPosition.board[rank][file];
+                    Square endSquare = Square.of(rank, file);
                     if (piece.allowedMove(startSquare, endSquare, this) && piece.stopCheck(startSquare, endSquare, this)) {
                         return false;
                     } else if (piece.allowedCapture(startSquare, endSquare, this) && piece.stopCheck(startSquare, endSquare, this)) {
@@ -209,14 +261,15 @@ public class Game {
     } // Black can't move nor is in check
 
     /**
-     * Checks if a player is in stalemate.
+     * Checks if a player is in stalemate: the player is to move, is not in check and has no legal move.
      *
      * @param color the color of the player to check for stalemate.
      * @return {@code true} if the player is in stalemate, {@code false} otherwise.
+     * @see #getStatus()
      */
     public boolean isStalemate(Color color) {
-        if (!isCheck(color)) possibleMoveFromCheck(color);
-        return false;
+        GameStatus status = getStatus();
+        return status.getSideToMove() == color && status.isStalemate();
     }
 
     /**
@@ -237,9 +290,9 @@ public class Game {
         }
 
         boolean opponentHasOnlyKingAndKnight = opponentPieceCount == 2 &&
-                opponentPiecesSquares.stream().anyMatch(square -> square.getPiece() instanceof Knight);
+                opponentPiecesSquares.stream().anyMatch(square -> currentPosition.getPiece(square) instanceof Knight);
         boolean opponentHasOnlyKingAndBishop = opponentPieceCount == 2 &&
-                opponentPiecesSquares.stream().anyMatch(square -> square.getPiece() instanceof Bishop);
+                opponentPiecesSquares.stream().anyMatch(square -> currentPosition.getPiece(square) instanceof Bishop);
 
         return (opponentHasOnlyKingAndKnight || opponentHasOnlyKingAndBishop) && myPieceCount == 1;
     }
@@ -257,14 +310,10 @@ public class Game {
      * Checks if the game is a draw due to stalemate, insufficient material, or the 50-move rule.
      *
      * @return {@code true} if the game is a draw, {@code false} otherwise.
+     * @see #getStatus()
      */
     public boolean isDraw() {
-        return (isStalemateForWhite() ||
-                isStalemateForBlack() ||
-                insufficientMaterial(Color.WHITE) ||
-                insufficientMaterial(Color.BLACK) ||
-                rule50Moves()
-        );
+        return getStatus().isDraw();
     }
 
     /**
@@ -277,18 +326,101 @@ public class Game {
         Position position = currentPosition;
         List<Square> pieceSquares = new ArrayList<>();
 
-        for (int rank = 0; rank < 8; rank++) {
-            for (int file = 0; file < 8; file++) {
-                Square square = position.board[rank][file];
-                Piece piece = square.getPiece();
-                if (piece != null && piece.color == color) {
-                    pieceSquares.add(square);
-                }
+        for (int index = 0; index < 64; index++) {
+            Square square = Square.of(index);
+            Piece piece = position.getPiece(square);
+            if (piece != null && piece.color == color) {
+                pieceSquares.add(square);
             }
         }
         return pieceSquares;
     }
 
+    /**
+     * Returns the legal moves of the side to move in UCI notation (e.g., "e2e4", "e7e8q").
+     * The moves are ordered by start square, then by end square (a1, b1, ..., h8), and promotions by
+     * queen, rook, bishop and knight, so the list is the same every time the same position is reached.
+     * They are part of the cached {@link #getStatus() status}, so they are generated once per move.
+     *
+     * @return an unmodifiable list of the legal moves of the side to move.
+     */
+    public List<String> legalMoves() {
+        return getStatus().getLegalMoves();
+    }
+
+    /**
+     * Generates the legal moves of the side to move, in the order described in {@link #legalMoves()}.
+     *
+     * @return the legal moves of the side to move.
+     */
+    List<String> generateLegalMoves() {
+        List<String> moves = new ArrayList<>();
+        Color color = whiteMoves ? Color.WHITE : Color.BLACK;
+
+        for (Square startSquare : getPiecesOfColor(color)) {
+            Piece piece = currentPosition.getPiece(startSquare);
+            for (int rank = 0; rank < 8; rank++) {
+                for (int file = 0; file < 8; file++) {
+                    Square endSquare = Square.of(rank, file);
+                    if ((piece.allowedMove(startSquare, endSquare, this) || piece.allowedCapture(startSquare, endSquare, this))
+                            && piece.stopCheck(startSquare, endSquare, this)) {
+                        String move = startSquare.toString() + endSquare;
+                        if (piece instanceof Pawn && (rank == 0 || rank == 7)) {
+                            for (char promotion : PROMOTION_PIECES) moves.add(move + promotion);
+                        } else {
+                            moves.add(move);
+                        }
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Plays a move given in UCI notation (e.g., "e2e4", "e1g1" for castling, "e7e8q" for a promotion)
+     * for the side to move, if it is legal.
+     *
+     * @param uciMove the move in UCI notation.
+     * @return {@code true} if the move was played, {@code false} if it is not legal in the current position.
+     */
+    public boolean playMove(String uciMove) {
+        if (uciMove == null || uciMove.length() < 4) return false;
+
+        Square start = getSquare(uciMove.substring(0, 2));
+        Square end = getSquare(uciMove.substring(2, 4));
+        if (start == null || end == null) return false;
+
+        Piece piece = currentPosition.getPiece(start);
+        Color color = whiteMoves ? Color.WHITE : Color.BLACK;
+        if (piece == null || piece.color != color || !piece.stopCheck(start, end, this)) return false;
+
+        // A promotion needs its piece as a suffix, and only a promotion may have one
+        boolean isPromotion = piece instanceof Pawn && ((Pawn) piece).isPromotionSquare(end);
+        PieceType promotion = uciMove.length() > 4 ? PieceType.fromUciSuffix(uciMove.charAt(4)) : null;
+        if (isPromotion != (promotion != null) || uciMove.length() > 5) return false;
+
+        int historySize = gameHistory.size();
+        if (isPromotion) ((Pawn) piece).promote(start, end, this, promotion);
+        else if (currentPosition.isEmpty(end) && piece.allowedMove(start, end, this)) piece.makeMove(start, end, this);
+        else piece.makeCapture(start, end, this);
+        return gameHistory.size() > historySize;
+    }
+
+    /**
+     * Returns the square with the given name.
+     *
+     * @param name the name of the square (e.g., "e4").
+     * @return the square, or {@code null} if the name is not a valid square.
+     */
+    public Square getSquare(String name) {
+        try {
+            return Square.fromName(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     /**
      * Finds the square containing the king of the specified color.
      *
@@ -299,12 +431,10 @@ public class Game {
         Position position = currentPosition;
 
         // Iterate through the board to find the king
-        for (int rank = 0; rank < 8; rank++) {
-            for (int file = 0; file < 8; file++) {
-                Piece piece = position.board[rank][file].getPiece();
-                if (piece instanceof King && piece.color == kingColor) {
-                    return position.board[rank][file];
-                }
+        for (int index = 0; index < 64; index++) {
+            Piece piece = position.getPiece(Square.of(index));
+            if (piece instanceof King && piece.color == kingColor) {
+                return Square.of(index);
             }
         }
         return null;
@@ -312,76 +442,27 @@ public class Game {
 
     /**
      * Generates the FEN (Forsyth-Edwards Notation) string representing the current state of the game.
+     * Callers building a larger string or writing bytes should use {@link Fen} directly.
      *
      * @return the FEN string representing the current game state.
      */
     public String FENNotation() {
-        if (gameHistory.isEmpty()) {
-            return "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
-        } else {
-            StringBuilder fenNotation = new StringBuilder();
-            for (int rank = 7; rank >= 0; rank--) {
-                int emptySquareCount = 0;
-                for (int file = 0; file < 8; file++) {
-                    Square square = currentPosition.board[rank][file];
-                    if (square.getIsEmpty()) {
-                        emptySquareCount++;
-                    } else {
-                        if (emptySquareCount != 0) fenNotation.append(emptySquareCount);
-                        emptySquareCount = 0;
-                        String piece = square.getPiece().toString();
-                        fenNotation.append(piece);
-                    }
-                }
-                if (emptySquareCount != 0) fenNotation.append(emptySquareCount);
-                if (rank != 0) fenNotation.append("/");
-                else fenNotation.append(" ");
-            }
-
-            if (whiteMoves) fenNotation.append("w ");
-            else fenNotation.append("b ");
-
-            Piece whiteKing = Objects.requireNonNull(findKingSquare(Color.WHITE)).getPiece();
-            Piece blackKing = Objects.requireNonNull(findKingSquare(Color.BLACK)).getPiece();
-
-            if (((King) whiteKing).isFirstMove) {
-                Piece rookKingSide = currentPosition.board[0][7].getPiece();
-                Piece rookQueenSide = currentPosition.board[0][0].getPiece();
-                if (rookKingSide instanceof Rook && ((Rook) rookKingSide).isFirstMove) fenNotation.append("K");
-                if (rookQueenSide instanceof Rook && ((Rook) rookQueenSide).isFirstMove) fenNotation.append("Q");
-            }
-            if (((King) blackKing).isFirstMove) {
-                Piece rookKingSide = currentPosition.board[7][7].getPiece();
-                Piece rookQueenSide = currentPosition.board[7][0].getPiece();
-                if (rookKingSide instanceof Rook && ((Rook) rookKingSide).isFirstMove) fenNotation.append("k");
-                if (rookQueenSide instanceof Rook && ((Rook) rookQueenSide).isFirstMove) fenNotation.append("q");
-            }
-
-            if (fenNotation.charAt(fenNotation.length() - 1) == ' ') fenNotation.append("-");
-            fenNotation.append(" ");
-
-            Move lastMove = gameHistory.get(gameHistory.size() - 1);
-            Piece movedPiece = lastMove.getMovedPiece();
-            if (movedPiece instanceof Pawn) {
-                Square startSquare = lastMove.getStart();
-                Square endSquare = lastMove.getEnd();
-
-                int direction = movedPiece.color == Color.WHITE ? -1 : 1;
-
-                int endRank = endSquare.getRank() - 1;
-                int endFile = endSquare.getFile() - 'a';
-
-                Square targetSquare = currentPosition.board[endRank + direction][endFile];
-
-                if (Math.abs(startSquare.getRank() - endSquare.getRank()) == 2) fenNotation.append(targetSquare.toString()).append(" ");
-            } else fenNotation.append("- ");
-
-            fenNotation.append(halfMoveClock).append(" ");
-
-            fenNotation.append(gameHistory.isEmpty() ? 1 : gameHistory.get(gameHistory.size() - 1).getMoveNumber());
+        return Fen.append(this, new StringBuilder(Fen.MAX_LENGTH)).toString();
+    }
 
-            return fenNotation.toString();
-        }
+    /**
+     * Returns the square a pawn passed over with a two-square move on the last move, as written in the
+     * en passant field of FEN.
+     *
+     * @return the en passant target square, or {@code null} if the last move was not a two-square pawn move.
+     */
+    public Square enPassantTarget() {
+        if (gameHistory.isEmpty()) return null;
+        Move lastMove = gameHistory.get(gameHistory.size() - 1);
+        Square start = lastMove.getStart();
+        Square end = lastMove.getEnd();
+        if (!(lastMove.getMovedPiece() instanceof Pawn) || Math.abs(start.getRank() - end.getRank()) != 2) return null;
+        return Square.of((start.getIndex() + end.getIndex()) / 2);
     }
 
     /**
@@ -394,9 +475,14 @@ public class Game {
 
         copy.currentPosition = this.currentPosition.copy();
 
-        copy.gameHistory = new ArrayList<>();
-        for (Move move : this.gameHistory) {
-            copy.gameHistory.add(move.copy());
+        if (this.gameHistory instanceof LazyHistory) {
+            // A resumed game keeps its stored moves unbuilt, so a copy does not replay them
+            copy.gameHistory = ((LazyHistory) this.gameHistory).copy();
+        } else {
+            copy.gameHistory = new ArrayList<>();
+            for (Move move : this.gameHistory) {
+                copy.gameHistory.add(move.copy());
+            }
         }
 
         copy.meCapturedPieces = new ArrayList<>();
@@ -412,6 +498,7 @@ public class Game {
         copy.me = this.me.copy();
         copy.opponent = this.opponent.copy();
         copy.whiteMoves = this.whiteMoves;
+        copy.halfMoveClock = this.halfMoveClock;
 
         return copy;
     }
@@ -0,0 +1,151 @@
+package elements;
+
+import java.util.Collections;
+import java.util.List;
+
+/// @author dana
+
+/**
+ * The status of a game after a move: whether the side to move is in check, checkmated or stalemated,
+ * whether the game is drawn, and the legal moves of the side to move.
+ * <p>
+ * A status is immutable. {@link Game#getStatus()} computes it at most once per move and keeps it until the
+ * next move, so the GUI and replays can ask for it as often as they need.
+ */
+public final class GameStatus {
+    /**
+     * The reasons a game can be drawn.
+     */
+    public enum DrawReason {
+        /// The side to move has no legal move and is not in check.
+        STALEMATE,
+        /// Neither side has enough material left to checkmate.
+        INSUFFICIENT_MATERIAL,
+        /// Fifty moves were played without a capture or a pawn move.
+        FIFTY_MOVE_RULE
+    }
+
+    /// The side to move.
+    private final Game.Color sideToMove;
+    /// Indicates if the side to move is in check.
+    private final boolean inCheck;
+    /// The reason the game is drawn, or null if it is not.
+    private final DrawReason drawReason;
+    /// The legal moves of the side to move, in UCI notation.
+    private final List<String> legalMoves;
+
+    /**
+     * Constructs a {@code GameStatus}.
+     *
+     * @param sideToMove The side to move.
+     * @param inCheck True if the side to move is in check, false otherwise.
+     * @param drawReason The reason the game is drawn, or null if it is not.
+     * @param legalMoves The legal moves of the side to move.
+     */
+    GameStatus(Game.Color sideToMove, boolean inCheck, DrawReason drawReason, List<String> legalMoves) {
+        this.sideToMove = sideToMove;
+        this.inCheck = inCheck;
+        this.drawReason = drawReason;
+        this.legalMoves = Collections.unmodifiableList(legalMoves);
+    }
+
+    /**
+     * Computes the status of a game.
+     *
+     * @param game The game.
+     * @return The status of the game for its side to move.
+     */
+    static GameStatus of(Game game) {
+        Game.Color sideToMove = game.whiteMoves ? Game.Color.WHITE : Game.Color.BLACK;
+        boolean inCheck = sideToMove == Game.Color.WHITE ? game.isCheckForWhite() : game.isCheckForBlack();
+        List<String> legalMoves = game.generateLegalMoves();
+
+        DrawReason drawReason = null;
+        if (legalMoves.isEmpty() && !inCheck) drawReason = DrawReason.STALEMATE;
+        else if (game.insufficientMaterial(Game.Color.WHITE) || game.insufficientMaterial(Game.Color.BLACK)) drawReason = DrawReason.INSUFFICIENT_MATERIAL;
+        else if (game.rule50Moves() && !legalMoves.isEmpty()) drawReason = DrawReason.FIFTY_MOVE_RULE;
+
+        return new GameStatus(sideToMove, inCheck, drawReason, legalMoves);
+    }
+
+    /**
+     * Returns the side to move.
+     *
+     * @return The color of the side to move.
+     */
+    public Game.Color getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Returns whether the side to move is in check.
+     *
+     * @return True if the side to move is in check, false otherwise.
+     */
+    public boolean isInCheck() {
+        return inCheck;
+    }
+
+    /**
+     * Returns whether the side to move is checkmated.
+     *
+     * @return True if the side to move is in check and has no legal move, false otherwise.
+     */
+    public boolean isCheckmate() {
+        return inCheck && legalMoves.isEmpty();
+    }
+
+    /**
+     * Returns whether the side to move is stalemated.
+     *
+     * @return True if the side to move is not in check and has no legal move, false otherwise.
+     */
+    public boolean isStalemate() {
+        return drawReason == DrawReason.STALEMATE;
+    }
+
+    /**
+     * Returns whether the game is drawn.
+     *
+     * @return True if the game is drawn, false otherwise.
+     */
+    public boolean isDraw() {
+        return drawReason != null;
+    }
+
+    /**
+     * Returns whether the game is over, by checkmate or by a draw.
+     *
+     * @return True if the game is over, false otherwise.
+     */
+    public boolean isOver() {
+        return isCheckmate() || isDraw();
+    }
+
+    /**
+     * Returns the reason the game is drawn.
+     *
+     * @return The draw reason, or null if the game is not drawn.
+     */
+    public DrawReason getDrawReason() {
+        return drawReason;
+    }
+
+    /**
+     * Returns the legal moves of the side to move, in the order of {@link Game#legalMoves()}.
+     *
+     * @return An unmodifiable list of moves in UCI notation.
+     */
+    public List<String> getLegalMoves() {
+        return legalMoves;
+    }
+
+    /**
+     * Returns the number of legal moves of the side to move.
+     *
+     * @return The legal move count.
+     */
+    public int getLegalMoveCount() {
+        return legalMoves.size();
+    }
+}
@@ -0,0 +1,163 @@
+package elements;
+
+import notation.Fen;
+import notation.San;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/// @author dana
+
+/**
+ * The history of a game resumed from its latest position, holding the stored moves as notation and building
+ * their {@link Move} objects only when they are read.
+ * <p>
+ * The rules only read the last move (for en passant) and the length of the history, so a resumed game plays on
+ * without replaying its earlier moves: the last stored move is rebuilt from the position before it alone, and
+ * the whole stored part is replayed from the starting position only if an earlier move is read (e.g., to export
+ * the game). Moves played after the resume are appended as usual.
+ */
+public final class LazyHistory extends AbstractList<Move> {
+    /// The stored moves in SAN or UCI notation, from the starting position; shared by the copies.
+    private List<String> storedMoves;
+    /// The FEN of the position before the last stored move, or null if there is no stored move.
+    private String fenBeforeLastMove;
+    /// The last stored move, or null until it is first read.
+    private Move lastStoredMove;
+    /// The stored moves, or null until a move other than the last one is read.
+    private List<Move> replayedMoves;
+    /// The moves played after the resume.
+    private final List<Move> newMoves = new ArrayList<>();
+
+    /**
+     * Constructs a {@code LazyHistory}.
+     *
+     * @param storedMoves The stored moves in SAN or UCI notation, from the starting position.
+     * @param fenBeforeLastMove The FEN of the position before the last stored move, or null if there is no stored
+     *                          move.
+     */
+    public LazyHistory(List<String> storedMoves, String fenBeforeLastMove) {
+        this.storedMoves = List.copyOf(storedMoves);
+        this.fenBeforeLastMove = fenBeforeLastMove;
+    }
+
+    @Override
+    public Move get(int index) {
+        Objects.checkIndex(index, size());
+        int storedCount = storedMoves.size();
+        if (index >= storedCount) return newMoves.get(index - storedCount);
+        if (index == storedCount - 1 && replayedMoves == null) return lastStoredMove();
+        return replayedMoves().get(index);
+    }
+
+    @Override
+    public int size() {
+        return storedMoves.size() + newMoves.size();
+    }
+
+    @Override
+    public void add(int index, Move move) {
+        if (index != size()) throw new UnsupportedOperationException("Moves can only be appended to a history.");
+        newMoves.add(move);
+        modCount++;
+    }
+
+    @Override
+    public Move set(int index, Move move) {
+        Objects.checkIndex(index, size());
+        int storedCount = storedMoves.size();
+        if (index >= storedCount) return newMoves.set(index - storedCount, move);
+        return replayedMoves().set(index, move);
+    }
+
+    @Override
+    public Move remove(int index) {
+        Objects.checkIndex(index, size());
+        int storedCount = storedMoves.size();
+        if (index < storedCount) throw new UnsupportedOperationException("Stored moves cannot be removed.");
+        modCount++;
+        return newMoves.remove(index - storedCount);
+    }
+
+    @Override
+    public void clear() {
+        storedMoves = List.of();
+        fenBeforeLastMove = null;
+        lastStoredMove = null;
+        replayedMoves = null;
+        newMoves.clear();
+        modCount++;
+    }
+
+    /**
+     * Indicates if the stored moves have been replayed, e.g., because an early move was read.
+     *
+     * @return True if every stored move has its {@link Move} object.
+     */
+    public boolean isReplayed() {
+        return replayedMoves != null;
+    }
+
+    /**
+     * Creates a deep copy of the history. The stored moves that are not rebuilt yet are shared, so a copy costs
+     * the same whatever the length of the game.
+     *
+     * @return A new history with the same moves.
+     */
+    public LazyHistory copy() {
+        LazyHistory copy = new LazyHistory(storedMoves, fenBeforeLastMove);
+        if (lastStoredMove != null) copy.lastStoredMove = lastStoredMove.copy();
+        if (replayedMoves != null) {
+            copy.replayedMoves = new ArrayList<>(replayedMoves.size());
+            for (Move move : replayedMoves) copy.replayedMoves.add(move.copy());
+        }
+        for (Move move : newMoves) copy.newMoves.add(move.copy());
+        return copy;
+    }
+
+    /**
+     * Returns the last stored move, rebuilt by playing it in the position before it.
+     *
+     * @return The move.
+     */
+    private Move lastStoredMove() {
+        if (lastStoredMove == null) {
+            Game game = Fen.parse(fenBeforeLastMove);
+            // The number of the position comes from the stored moves, as the move number of a FEN is only rounded
+            game.currentPosition.positionNumber = storedMoves.size() - 1;
+            play(game, storedMoves.get(storedMoves.size() - 1));
+            lastStoredMove = game.gameHistory.get(game.gameHistory.size() - 1);
+        }
+        return lastStoredMove;
+    }
+
+    /**
+     * Returns the stored moves, replayed from the starting position the first time.
+     *
+     * @return The moves.
+     */
+    private List<Move> replayedMoves() {
+        if (replayedMoves == null) {
+            Game game = new Game(Player.ColorOption.WHITE);
+            for (String move : storedMoves) play(game, move);
+            replayedMoves = new ArrayList<>(game.gameHistory);
+        }
+        return replayedMoves;
+    }
+
+    /**
+     * Plays a stored move.
+     *
+     * @param game The game.
+     * @param move The move in SAN or UCI notation.
+     * @throws IllegalStateException If the move is not legal, i.e., the stored game is inconsistent.
+     */
+    private static void play(Game game, String move) {
+        String uciMove = San.toUci(game, move);
+        if (uciMove == null || !game.playMove(uciMove)) {
+            throw new IllegalStateException("The stored move " + move + " is not legal in " + game.FENNotation() + ".");
+        }
+    }
+}
@@ -96,6 +96,20 @@ public class Move {
         return positionAfterMove;
     }
 
+    /**
+     * Gets the move in UCI notation (e.g., "e2e4", "e1g1" for castling, "e7e8q" for a promotion).
+     *
+     * @return a String representing the move in UCI notation.
+     */
+    public String getUciNotation() {
+        String uciNotation = start.toString() + end;
+        int promotion = moveNotation == null ? -1 : moveNotation.indexOf('=');
+        if (promotion >= 0 && promotion + 1 < moveNotation.length()) {
+            uciNotation += Character.toLowerCase(moveNotation.charAt(promotion + 1));
+        }
+        return uciNotation;
+    }
+
     /**
      * Converts this move into a string representation.
      * The string includes the resulting board state, the move number, and the move notation.
@@ -104,22 +118,22 @@ public class Move {
      * @return a string describing this move.
      */
     public String toString(Game game) {
-        return positionAfterMove.toString(game) + "\n" + moveNumber + ". " + moveNotation;
+        return getPositionAfterMove().toString(game) + "\n" + moveNumber + ". " + moveNotation;
     }
 
     /**
-     * Creates a deep copy of this move, including its associated pieces and board position.
+     * Creates a copy of this move, including its board position. Squares and pieces are immutable, so they are shared.
      *
      * @return a new Move object that is a clone of the current move.
      */
     public Move copy() {
         return new Move(
-                this.start.copy(),
-                this.end.copy(),
+                this.start,
+                this.end,
                 this.moveNumber,
                 this.movedPiece.copy(),
                 this.moveNotation,
-                this.positionAfterMove.copy()
+                getPositionAfterMove().copy()
         );
     }
 }
\ No newline at end of file
@@ -7,85 +7,150 @@ import pieces.*;
 /**
  * Represents the chessboard's position at any given time in the game.
  * It includes the current state of the board, such as piece placement, and is responsible for displaying the board.
+ * The pieces are stored by {@link Square#getIndex() square index}; squares themselves are shared constants.
  */
-public class Position {
+public final class Position {
     /// ANSI escape code for white background color.
     public static final String WHITE_BACKGROUND = "\u001B[47m";
     /// ANSI escape code for black background color.
     public static final String BLACK_BACKGROUND = "\u001B[40m";
     /// ANSI escape code to reset text formatting.
     public static final String RESET = "\u001B[0m";
-    /// A 2D array representing the board of squares (8x8).
-    public Square[][] board;
+    /// The piece on each square, indexed by square index, or null for an empty square.
+    private final Piece[] pieces;
     /// The position number used to uniquely identify the position in the game's history.
     public int positionNumber;
+    /// Castling right bit: white may still castle on the king-side.
+    public static final int WHITE_KING_SIDE = 1;
+    /// Castling right bit: white may still castle on the queen-side.
+    public static final int WHITE_QUEEN_SIDE = 2;
+    /// Castling right bit: black may still castle on the king-side.
+    public static final int BLACK_KING_SIDE = 4;
+    /// Castling right bit: black may still castle on the queen-side.
+    public static final int BLACK_QUEEN_SIDE = 8;
+    /// Every castling right, as in the starting position.
+    public static final int ALL_CASTLING_RIGHTS = WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE;
+    /// The castling rights still available in this position, as a combination of the castling right bits.
+    public int castlingRights;
 
     /**
      * Constructs a new {@code Position} with an empty board and sets up the starting position of the game.
      */
     public Position() {
-        this.board = new Square[8][8];
+        this.pieces = new Piece[64];
         startPosition();
         this.positionNumber = 0;
+        this.castlingRights = ALL_CASTLING_RIGHTS;
     }
 
     /**
-     * Initializes the board with the starting positions of the chess pieces.
+     * Constructs a {@code Position} around existing piece placement, without setting up the starting position.
+     *
+     * @param pieces The piece on each square.
+     * @param positionNumber The position number.
+     * @param castlingRights The castling rights still available.
      */
-    private void startPosition() {
-        // Creating the board with alternating square colors
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                this.board[i][j] = new Square();
-                board[i][j].setIsEmpty(true);
-                board[i][j].setRank(i + 1);
-                board[i][j].setFile((char) ('a' + j));
-
-                if ((i % 2 == 0 && j % 2 == 0) || (i % 2 != 0 && j % 2 != 0)) {
-                    board[i][j].setColor(Game.Color.BLACK);
-                } else {
-                    board[i][j].setColor(Game.Color.WHITE);
-                }
-            }
-        }
+    private Position(Piece[] pieces, int positionNumber, int castlingRights) {
+        this.pieces = pieces;
+        this.positionNumber = positionNumber;
+        this.castlingRights = castlingRights;
+    }
 
-        // Placing pawns in their initial positions
-        for (int i = 0; i < 8; i++) {
-            board[1][i].setIsEmpty(false);
-            board[1][i].setPiece(new Pawn(Game.Color.WHITE));
+    /**
+     * Returns the piece standing on a square.
+     *
+     * @param square The square.
+     * @return The piece on the square, or null if the square is empty.
+     */
+    public Piece getPiece(Square square) {
+        return pieces[square.getIndex()];
+    }
 
-            board[6][i].setIsEmpty(false);
-            board[6][i].setPiece(new Pawn(Game.Color.BLACK));
+    /**
+     * Returns whether a square is empty.
+     *
+     * @param square The square.
+     * @return True if no piece stands on the square, false otherwise.
+     */
+    public boolean isEmpty(Square square) {
+        return pieces[square.getIndex()] == null;
+    }
 
-            board[0][i].setIsEmpty(false);
-            board[7][i].setIsEmpty(false);
-        }
+    /**
+     * Places a piece on a square, replacing the piece standing there.
+     *
+     * @param square The square.
+     * @param piece The piece to place on the square, or null to leave it empty.
+     */
+    public void setPiece(Square square, Piece piece) {
+        pieces[square.getIndex()] = piece;
+    }
 
-        // Placing rooks in their initial positions
-        board[0][0].setPiece(new Rook(Game.Color.WHITE));
-        board[0][7].setPiece(new Rook(Game.Color.WHITE));
-        board[7][0].setPiece(new Rook(Game.Color.BLACK));
-        board[7][7].setPiece(new Rook(Game.Color.BLACK));
-
-        // Placing knights in their initial positions
-        board[0][1].setPiece(new Knight(Game.Color.WHITE));
-        board[0][6].setPiece(new Knight(Game.Color.WHITE));
-        board[7][1].setPiece(new Knight(Game.Color.BLACK));
-        board[7][6].setPiece(new Knight(Game.Color.BLACK));
-
-        // Placing bishops in their initial positions
-        board[0][2].setPiece(new Bishop(Game.Color.WHITE));
-        board[0][5].setPiece(new Bishop(Game.Color.WHITE));
-        board[7][2].setPiece(new Bishop(Game.Color.BLACK));
-        board[7][5].setPiece(new Bishop(Game.Color.BLACK));
-
-        // Placing queens in their initial positions
-        board[0][3].setPiece(new Queen(Game.Color.WHITE));
-        board[7][3].setPiece(new Queen(Game.Color.BLACK));
-
-        // Placing kings in their initial positions
-        board[0][4].setPiece(new King(Game.Color.WHITE));
-        board[7][4].setPiece(new King(Game.Color.BLACK));
+    /**
+     * Sets this position to the placement, number and castling rights of another one.
+     *
+     * @param other The position to copy.
+     */
+    void restore(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        positionNumber = other.positionNumber;
+        castlingRights = other.castlingRights;
+    }
+
+    /**
+     * Returns whether a castling right is still available.
+     *
+     * @param castlingRight One of the castling right bits (e.g., {@link #WHITE_KING_SIDE}).
+     * @return True if the castling is still allowed, false otherwise.
+     */
+    public boolean hasCastlingRight(int castlingRight) {
+        return (castlingRights & castlingRight) != 0;
+    }
+
+    /**
+     * Clears the castling rights lost by a move: moving a king loses both rights of its color, and a move
+     * from or to a corner square loses the right of the rook starting there.
+     *
+     * @param start The starting square of the move.
+     * @param end The ending square of the move.
+     */
+    public void updateCastlingRights(Square start, Square end) {
+        castlingRights &= ~(lostCastlingRights(start) | lostCastlingRights(end));
+    }
+
+    /**
+     * Returns the castling rights lost when a piece leaves or enters a square.
+     *
+     * @param square The square.
+     * @return The castling right bits lost.
+     */
+    private static int lostCastlingRights(Square square) {
+        int file = square.getFile() - 'a';
+        int rank = square.getRank() - 1;
+        if (rank != 0 && rank != 7) return 0;
+
+        int kingSide = rank == 0 ? WHITE_KING_SIDE : BLACK_KING_SIDE;
+        int queenSide = rank == 0 ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE;
+        if (file == 4) return kingSide | queenSide;
+        if (file == 7) return kingSide;
+        if (file == 0) return queenSide;
+        return 0;
+    }
+
+    /**
+     * Initializes the board with the starting positions of the chess pieces.
+     */
+    private void startPosition() {
+        Piece[] whiteBackRank = {Rook.WHITE, Knight.WHITE, Bishop.WHITE, Queen.WHITE, King.WHITE, Bishop.WHITE, Knight.WHITE, Rook.WHITE};
+        Piece[] blackBackRank = {Rook.BLACK, Knight.BLACK, Bishop.BLACK, Queen.BLACK, King.BLACK, Bishop.BLACK, Knight.BLACK, Rook.BLACK};
+
+        // Placing the pieces and the pawns in their initial positions
+        for (int file = 0; file < 8; file++) {
+            setPiece(Square.of(0, file), whiteBackRank[file]);
+            setPiece(Square.of(1, file), Pawn.WHITE);
+            setPiece(Square.of(6, file), Pawn.BLACK);
+            setPiece(Square.of(7, file), blackBackRank[file]);
+        }
     }
 
     /**
@@ -99,11 +164,11 @@ public class Position {
      */
     public String toStringRank(int i, int j, Game game) {
         String rank = "";
-        Square square = game.currentPosition.board[i][j];
-        if (square.getIsEmpty()) {
+        Square square = Square.of(i, j);
+        Piece piece = game.currentPosition.getPiece(square);
+        if (piece == null) {
             rank += (square.getColor() == Game.Color.WHITE) ? WHITE_BACKGROUND + "   " : BLACK_BACKGROUND + "   ";
         } else {
-            pieces.Piece piece = square.getPiece();
             rank += (square.getColor() == Game.Color.WHITE ? WHITE_BACKGROUND : BLACK_BACKGROUND) + " " + piece.toString() + " ";
         }
         return rank;
@@ -126,23 +191,23 @@ public class Position {
         if (game.getMe().playerColor == Game.Color.WHITE) {
             for (int i = 7; i >= 0; i--) {
                 // Displaying the rank number
-                position.append(game.currentPosition.board[i][0].getRank()).append(" ");
+                position.append(Square.of(i, 0).getRank()).append(" ");
                 for (int j = 0; j < 8; j++) position.append(toStringRank(i, j, game));
                 position.append(RESET + "\n");
             }
             // Displaying the file
             position.append("  ");
-            for (int i = 0; i < 8; i++) position.append(" ").append(game.currentPosition.board[0][i].getFile()).append(" ");
+            for (int i = 0; i < 8; i++) position.append(" ").append(Square.of(0, i).getFile()).append(" ");
         } else {
             for (int i = 0; i < 8; i++) {
                 // Displaying the rank number
-                position.append(game.currentPosition.board[i][0].getRank()).append(" ");
+                position.append(Square.of(i, 0).getRank()).append(" ");
                 for (int j = 7; j >= 0; j--) position.append(toStringRank(i, j, game));
                 position.append(RESET + "\n");
             }
             // Displaying the file
             position.append("  ");
-            for (int i = 7; i >= 0; i--) position.append(" ").append(game.currentPosition.board[0][i].getFile()).append(" ");
+            for (int i = 7; i >= 0; i--) position.append(" ").append(Square.of(0, i).getFile()).append(" ");
         }
 
         StringBuilder myCapturedPieces = new StringBuilder();
@@ -175,22 +240,12 @@ public class Position {
     }
 
     /**
-     * Creates a copy of the current position, including the state of each square and the position number.
+     * Creates a copy of the current position, including the piece on each square, the position number and the
+     * castling rights. Pieces and squares are immutable, so copying a position only copies the piece array.
      *
      * @return A new Position object that is a copy of the current position.
      */
     public Position copy() {
-        Position copy = new Position();
-
-        copy.board = new Square[8][8];
-        for (int rank = 0; rank < 8; rank++) {
-            for (int file = 0; file < 8; file++) {
-                copy.board[rank][file] = this.board[rank][file].copy();
-            }
-        }
-
-        copy.positionNumber = this.positionNumber;
-
-        return copy;
+        return new Position(pieces.clone(), positionNumber, castlingRights);
     }
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+package elements;
+
+import pieces.Piece;
+
+/// @author dana
+
+/**
+ * A compact binary key of a position, for use as a map key in place of its FEN: the placement packed in 32 bytes
+ * (4 bits per square) followed by 2 bytes of state (side to move, castling rights and en passant file).
+ * <p>
+ * Two keys are equal when their positions have the same pieces on the same squares, the same side to move, the
+ * same castling rights and the same en passant square, whatever the move counters are. Building a key reads each
+ * square once and allocates only the key itself.
+ */
+public final class PositionKey {
+    /// The number of bytes of a key written with {@link #writeTo(byte[], int)}.
+    public static final int BYTES = 34;
+
+    /// The piece codes of the squares a1 to h2, 4 bits per square from the lowest bits.
+    private final long placement0;
+    /// The piece codes of the squares a3 to h4.
+    private final long placement1;
+    /// The piece codes of the squares a5 to h6.
+    private final long placement2;
+    /// The piece codes of the squares a7 to h8.
+    private final long placement3;
+    /// Bit 0: black to move; bits 1 to 4: castling rights; bits 5 to 8: en passant file plus one, or 0.
+    private final int state;
+
+    /**
+     * Constructs a {@code PositionKey} from its packed fields.
+     *
+     * @param placement0 The piece codes of the first two ranks.
+     * @param placement1 The piece codes of the third and fourth ranks.
+     * @param placement2 The piece codes of the fifth and sixth ranks.
+     * @param placement3 The piece codes of the last two ranks.
+     * @param state The side to move, castling rights and en passant file.
+     */
+    private PositionKey(long placement0, long placement1, long placement2, long placement3, int state) {
+        this.placement0 = placement0;
+        this.placement1 = placement1;
+        this.placement2 = placement2;
+        this.placement3 = placement3;
+        this.state = state;
+    }
+
+    /**
+     * Returns the key of the current position of a game.
+     *
+     * @param game The game.
+     * @return The key of its position.
+     */
+    public static PositionKey of(Game game) {
+        Position position = game.currentPosition;
+        Square enPassantTarget = game.enPassantTarget();
+        int state = (game.whiteMoves ? 0 : 1)
+                | position.castlingRights << 1
+                | (enPassantTarget == null ? 0 : enPassantTarget.getFile() - 'a' + 1) << 5;
+        return new PositionKey(pack(position, 0), pack(position, 16), pack(position, 32), pack(position, 48), state);
+    }
+
+    /**
+     * Reads a key written with {@link #writeTo(byte[], int)}.
+     *
+     * @param buffer The array holding the key.
+     * @param offset The index of the first byte of the key.
+     * @return The key.
+     */
+    public static PositionKey fromBytes(byte[] buffer, int offset) {
+        return new PositionKey(
+                readLong(buffer, offset),
+                readLong(buffer, offset + 8),
+                readLong(buffer, offset + 16),
+                readLong(buffer, offset + 24),
+                (buffer[offset + 32] & 0xFF) << 8 | buffer[offset + 33] & 0xFF
+        );
+    }
+
+    /**
+     * Writes the key in {@link #BYTES} bytes, big-endian.
+     *
+     * @param buffer The array the key is written to.
+     * @param offset The index of the first byte written.
+     * @return The index after the last byte written.
+     */
+    public int writeTo(byte[] buffer, int offset) {
+        writeLong(placement0, buffer, offset);
+        writeLong(placement1, buffer, offset + 8);
+        writeLong(placement2, buffer, offset + 16);
+        writeLong(placement3, buffer, offset + 24);
+        buffer[offset + 32] = (byte) (state >>> 8);
+        buffer[offset + 33] = (byte) state;
+        return offset + BYTES;
+    }
+
+    /**
+     * Returns the key as a new array of {@link #BYTES} bytes.
+     *
+     * @return The bytes of the key.
+     */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[BYTES];
+        writeTo(bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Returns a 64-bit hash of the key, e.g., to index positions in a database table. Distinct positions
+     * rarely share a hash, but they may: a stored hash identifies a position only together with its FEN.
+     *
+     * @return The hash of the key.
+     */
+    public long longHash() {
+        long hash = mix(placement0);
+        hash = mix(hash ^ placement1);
+        hash = mix(hash ^ placement2);
+        hash = mix(hash ^ placement3);
+        return mix(hash ^ state);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof PositionKey)) return false;
+        PositionKey key = (PositionKey) other;
+        return placement0 == key.placement0 && placement1 == key.placement1 && placement2 == key.placement2
+                && placement3 == key.placement3 && state == key.state;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = placement0 * 31 + placement1;
+        hash = hash * 31 + placement2;
+        hash = hash * 31 + placement3;
+        hash = hash * 31 + state;
+        return (int) (hash ^ hash >>> 32);
+    }
+
+    /**
+     * Packs the piece codes of 16 consecutive squares: 0 for an empty square, the piece type ordinal plus one
+     * for a white piece, and the same plus 8 for a black piece.
+     *
+     * @param position The position.
+     * @param firstIndex The index of the first square, stored in the lowest 4 bits.
+     * @return The packed piece codes.
+     */
+    private static long pack(Position position, int firstIndex) {
+        long packed = 0;
+        for (int index = firstIndex + 15; index >= firstIndex; index--) {
+            Piece piece = position.getPiece(Square.of(index));
+            int code = piece == null ? 0 : piece.getType().ordinal() + 1 + (piece.color == Game.Color.BLACK ? 8 : 0);
+            packed = packed << 4 | code;
+        }
+        return packed;
+    }
+
+    /**
+     * Writes a long in 8 bytes, big-endian.
+     *
+     * @param value The value.
+     * @param buffer The array.
+     * @param offset The index of the first byte.
+     */
+    private static void writeLong(long value, byte[] buffer, int offset) {
+        for (int i = 7; i >= 0; i--) {
+            buffer[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * Reads a long from 8 bytes, big-endian.
+     *
+     * @param buffer The array.
+     * @param offset The index of the first byte.
+     * @return The value.
+     */
+    private static long readLong(byte[] buffer, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) value = value << 8 | buffer[offset + i] & 0xFF;
+        return value;
+    }
+
+    /**
+     * Scrambles the bits of a value, so that a change of any input bit changes about half of the output bits
+     * (the finalizer of SplitMix64).
+     *
+     * @param value The value.
+     * @return The scrambled value.
+     */
+    private static long mix(long value) {
+        value = (value ^ value >>> 30) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ value >>> 27) * 0x94D049BB133111EBL;
+        return value ^ value >>> 31;
+    }
+}
@@ -0,0 +1,342 @@
+package elements;
+
+import notation.San;
+import pieces.Piece;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/// @author dana
+
+/**
+ * A cursor moving back and forth through the moves of a game, e.g., to review or analyze a stored game.
+ * <p>
+ * The game is replayed once, when the cursor is created, recording for each ply the squares it changes with the
+ * pieces on them before and after, its castling rights and its half-move clocks. Stepping forward or backward then
+ * only writes those few squares back, without checking legality. A snapshot of the board is also kept every
+ * {@code checkpointInterval} plies, so {@link #seek(int)} restores the nearest snapshot and steps at most
+ * {@code checkpointInterval - 1} plies, whatever the length of the game.
+ * <p>
+ * The cursor shows its current position as a {@link Game} whose board and history follow the cursor. That game
+ * must not be played on: {@link #copyGame()} gives an independent game at the current ply. The moves of the
+ * history keep no board: the position after a move is rebuilt from the nearest snapshot when it is asked for,
+ * so the moves can be shared by the games of the cursor.
+ */
+public final class ReplayCursor {
+    /// The default number of plies between two snapshots.
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 16;
+
+    /// The game showing the current position, whose board and history follow the cursor.
+    private final Game game;
+    /// The moves of the game, whose positions are rebuilt from the snapshots.
+    private final List<Move> moves;
+    /// The changes made by each ply.
+    private final Step[] steps;
+    /// The snapshots of the board, one every {@link #checkpointInterval} plies from the starting position.
+    private final Position[] checkpoints;
+    /// The half-move clock of each snapshot.
+    private final int[] checkpointClocks;
+    /// The number of plies between two snapshots.
+    private final int checkpointInterval;
+    /// The number of moves played in the current position.
+    private int ply;
+
+    /**
+     * Creates a cursor over a game from the starting position, at ply 0, with the default checkpoint interval.
+     *
+     * @param moves The moves of the game, in SAN or UCI notation.
+     * @throws IllegalArgumentException If a move is not legal.
+     */
+    public ReplayCursor(List<String> moves) {
+        this(moves, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Creates a cursor over a game from the starting position, at ply 0.
+     *
+     * @param moves The moves of the game, in SAN or UCI notation.
+     * @param checkpointInterval The number of plies between two snapshots of the board.
+     * @throws IllegalArgumentException If a move is not legal or the interval is not positive.
+     */
+    public ReplayCursor(List<String> moves, int checkpointInterval) {
+        if (checkpointInterval < 1) throw new IllegalArgumentException("The checkpoint interval must be positive: " + checkpointInterval);
+        this.checkpointInterval = checkpointInterval;
+        this.steps = new Step[moves.size()];
+        this.checkpoints = new Position[moves.size() / checkpointInterval + 1];
+        this.checkpointClocks = new int[checkpoints.length];
+
+        Game replay = new Game(Player.ColorOption.WHITE);
+        for (int i = 0; i < moves.size(); i++) {
+            if (i % checkpointInterval == 0) checkpoint(i / checkpointInterval, replay);
+            Position before = replay.currentPosition.copy();
+            int clockBefore = replay.halfMoveClock;
+            String uciMove = San.toUci(replay, moves.get(i));
+            if (uciMove == null || !replay.playMove(uciMove)) {
+                throw new IllegalArgumentException("Illegal move " + moves.get(i) + " at ply " + (i + 1) + ".");
+            }
+            steps[i] = new Step(before, replay.currentPosition, clockBefore, replay.halfMoveClock);
+        }
+        if (moves.size() % checkpointInterval == 0) checkpoint(moves.size() / checkpointInterval, replay);
+        this.moves = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) this.moves.add(new ReplayedMove(replay.gameHistory.get(i), i + 1));
+
+        this.game = new Game(Player.ColorOption.WHITE);
+        this.game.gameHistory = new PlayedMoves();
+    }
+
+    /**
+     * Returns the number of moves played in the current position.
+     *
+     * @return The current ply, from 0 to {@link #length()}.
+     */
+    public int ply() {
+        return ply;
+    }
+
+    /**
+     * Returns the number of moves of the game.
+     *
+     * @return The last ply.
+     */
+    public int length() {
+        return steps.length;
+    }
+
+    /**
+     * Plays the next move.
+     *
+     * @return True if a move was played, false at the end of the game.
+     */
+    public boolean forward() {
+        if (ply == steps.length) return false;
+        steps[ply].apply(game);
+        ply++;
+        return true;
+    }
+
+    /**
+     * Takes the last move back.
+     *
+     * @return True if a move was taken back, false at the start of the game.
+     */
+    public boolean back() {
+        if (ply == 0) return false;
+        ply--;
+        steps[ply].undo(game);
+        return true;
+    }
+
+    /**
+     * Moves to a ply: steps from the current position if it is close, otherwise restores the snapshot at or
+     * before the ply and plays the remaining moves.
+     *
+     * @param target The ply, from 0 to {@link #length()}.
+     * @throws IndexOutOfBoundsException If the ply is out of range.
+     */
+    public void seek(int target) {
+        Objects.checkIndex(target, steps.length + 1);
+        int checkpoint = target / checkpointInterval;
+        if (Math.abs(target - ply) > target - checkpoint * checkpointInterval) {
+            game.currentPosition.restore(checkpoints[checkpoint]);
+            game.halfMoveClock = checkpointClocks[checkpoint];
+            ply = checkpoint * checkpointInterval;
+            game.whiteMoves = ply % 2 == 0;
+        }
+        while (ply < target) forward();
+        while (ply > target) back();
+    }
+
+    /**
+     * Returns the game in the current position. Its board and history follow the cursor and must not be
+     * changed; the captured pieces are not tracked.
+     *
+     * @return The game.
+     */
+    public Game game() {
+        return game;
+    }
+
+    /**
+     * Returns an independent copy of the game in the current position, which can be played on. The copy shares
+     * the moves of the history, which never change, instead of copying a board per move.
+     *
+     * @return The game.
+     */
+    public Game copyGame() {
+        List<Move> history = game.gameHistory;
+        game.gameHistory = new ArrayList<>();
+        Game copy;
+        try {
+            copy = game.copy();
+        } finally {
+            game.gameHistory = history;
+        }
+        copy.gameHistory = new ArrayList<>(history);
+        return copy;
+    }
+
+    /**
+     * Returns the FEN of the current position.
+     *
+     * @return The FEN.
+     */
+    public String fen() {
+        return game.FENNotation();
+    }
+
+    /**
+     * Rebuilds the board after a number of moves from the snapshot at or before it.
+     *
+     * @param target The number of moves played, from 0 to {@link #length()}.
+     * @return A new position.
+     */
+    private Position positionAt(int target) {
+        int checkpoint = target / checkpointInterval;
+        Position position = checkpoints[checkpoint].copy();
+        for (int i = checkpoint * checkpointInterval; i < target; i++) steps[i].apply(position);
+        return position;
+    }
+
+    /**
+     * Stores a snapshot of the board of the replayed game.
+     *
+     * @param index The index of the snapshot.
+     * @param replay The replayed game.
+     */
+    private void checkpoint(int index, Game replay) {
+        checkpoints[index] = replay.currentPosition.copy();
+        checkpointClocks[index] = replay.halfMoveClock;
+    }
+
+    /**
+     * The changes made to the board by a ply.
+     */
+    private static final class Step {
+        /// The indexes of the squares the ply changes.
+        private final int[] squares;
+        /// The piece on each changed square before the ply, or null for an empty square.
+        private final Piece[] piecesBefore;
+        /// The piece on each changed square after the ply, or null for an empty square.
+        private final Piece[] piecesAfter;
+        /// The castling rights before the ply.
+        private final int castlingBefore;
+        /// The castling rights after the ply.
+        private final int castlingAfter;
+        /// The half-move clock before the ply.
+        private final int clockBefore;
+        /// The half-move clock after the ply.
+        private final int clockAfter;
+
+        /**
+         * Records the changes between two positions.
+         *
+         * @param before The position before the ply.
+         * @param after The position after the ply.
+         * @param clockBefore The half-move clock before the ply.
+         * @param clockAfter The half-move clock after the ply.
+         */
+        Step(Position before, Position after, int clockBefore, int clockAfter) {
+            int count = 0;
+            int[] changed = new int[4];
+            for (int index = 0; index < 64; index++) {
+                Square square = Square.of(index);
+                if (before.getPiece(square) != after.getPiece(square)) changed[count++] = index;
+            }
+            this.squares = Arrays.copyOf(changed, count);
+            this.piecesBefore = new Piece[count];
+            this.piecesAfter = new Piece[count];
+            for (int i = 0; i < count; i++) {
+                piecesBefore[i] = before.getPiece(Square.of(squares[i]));
+                piecesAfter[i] = after.getPiece(Square.of(squares[i]));
+            }
+            this.castlingBefore = before.castlingRights;
+            this.castlingAfter = after.castlingRights;
+            this.clockBefore = clockBefore;
+            this.clockAfter = clockAfter;
+        }
+
+        /**
+         * Plays the ply on the board of a game.
+         *
+         * @param game The game, in the position before the ply.
+         */
+        void apply(Game game) {
+            apply(game.currentPosition);
+            game.halfMoveClock = clockAfter;
+            game.whiteMoves = !game.whiteMoves;
+        }
+
+        /**
+         * Plays the ply on a board.
+         *
+         * @param position The position before the ply.
+         */
+        void apply(Position position) {
+            for (int i = 0; i < squares.length; i++) position.setPiece(Square.of(squares[i]), piecesAfter[i]);
+            position.castlingRights = castlingAfter;
+            position.positionNumber++;
+        }
+
+        /**
+         * Takes the ply back on the board of a game.
+         *
+         * @param game The game, in the position after the ply.
+         */
+        void undo(Game game) {
+            Position position = game.currentPosition;
+            for (int i = 0; i < squares.length; i++) position.setPiece(Square.of(squares[i]), piecesBefore[i]);
+            position.castlingRights = castlingBefore;
+            position.positionNumber--;
+            game.halfMoveClock = clockBefore;
+            game.whiteMoves = !game.whiteMoves;
+        }
+    }
+
+    /**
+     * A move of the game whose position is rebuilt from the snapshots when it is asked for.
+     */
+    private final class ReplayedMove extends Move {
+        /// The number of moves played after this move.
+        private final int plyAfterMove;
+
+        /**
+         * Constructs a {@code ReplayedMove} from a move of the replay.
+         *
+         * @param move The move of the replay.
+         * @param plyAfterMove The number of moves played after this move.
+         */
+        ReplayedMove(Move move, int plyAfterMove) {
+            super(move.getStart(), move.getEnd(), move.getMoveNumber(), move.getMovedPiece(), move.getMoveNotation(), null);
+            this.plyAfterMove = plyAfterMove;
+        }
+
+        /**
+         * Rebuilds the board after this move.
+         *
+         * @return A new position, which the caller owns.
+         */
+        @Override
+        public Position getPositionAfterMove() {
+            return positionAt(plyAfterMove);
+        }
+    }
+
+    /**
+     * The moves played up to the current ply, as the history of the game of the cursor.
+     */
+    private final class PlayedMoves extends AbstractList<Move> {
+        @Override
+        public Move get(int index) {
+            Objects.checkIndex(index, ply);
+            return moves.get(index);
+        }
+
+        @Override
+        public int size() {
+            return ply;
+        }
+    }
+}
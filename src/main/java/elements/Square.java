@@ -1,136 +1,121 @@
 package elements;
 
-import pieces.Piece;
-
 /// @author dana
 
 /**
- * Represents a single square on the chessboard. A square contains information about its color,
- * rank, file, whether it is empty, and the piece occupying it (if any).
+ * Represents a single square on the chessboard: its index, rank, file and color.
+ * <p>
+ * Squares are immutable and interned: there is exactly one instance per square, obtained with {@link #of(int)},
+ * {@link #of(int, int)} or {@link #fromName(String)}, so squares can be compared with {@code ==}.
+ * The piece standing on a square is part of the {@link Position}, not of the square.
  */
-public class Square{
-    /// The color of the square (either black or white).
-    private Game.Color color;
-    /// The rank (row) of the square on the chessboard (1 to 8).
-    private int rank;
-    /// The file (column) of the square on the chessboard (a to h).
-    private char file;
-    /// Indicates whether the square is empty (i.e., contains no piece).
-    private boolean isEmpty;
-    /// The piece occupying the square, if any.
-    private Piece piece;
-
-    /**
-     * Constructs a new {@code Square}, initially empty with no piece placed on it.
-     */
-    public Square() {
-        this.isEmpty = true;
-        this.piece = null;
-    }
-
-    /**
-     * Returns the color of the square.
-     *
-     * @return The color of the square.
-     */
-    public Game.Color getColor() {
-        return color;
-    }
+public final class Square {
+    /// The 64 squares, indexed by rank * 8 + file from a1.
+    private static final Square[] SQUARES = new Square[64];
 
-    /**
-     * Returns the rank (row) of the square.
-     *
-     * @return The rank of the square.
-     */
-    public int getRank() {
-        return rank;
+    static {
+        for (int index = 0; index < 64; index++) SQUARES[index] = new Square(index);
     }
 
-    /**
-     * Returns the file (column) of the square.
-     *
-     * @return The file of the square.
-     */
-    public char getFile() {
-        return file;
-    }
+    /// The index of the square (rank * 8 + file from a1, 0 to 63).
+    private final int index;
+    /// The color of the square (either black or white).
+    private final Game.Color color;
+    /// The rank (row) of the square on the chessboard (1 to 8).
+    private final int rank;
+    /// The file (column) of the square on the chessboard (a to h).
+    private final char file;
+    /// The name of the square (e.g., "e4").
+    private final String name;
 
     /**
-     * Returns whether the square is empty (i.e., contains no piece).
+     * Constructs the square of an index. Only used to build the interned squares.
      *
-     * @return True if the square is empty, false otherwise.
+     * @param index The index of the square (rank * 8 + file from a1).
      */
-    public boolean getIsEmpty() {
-        return isEmpty;
+    private Square(int index) {
+        this.index = index;
+        this.rank = index / 8 + 1;
+        this.file = (char) ('a' + index % 8);
+        this.color = (index / 8 + index % 8) % 2 == 0 ? Game.Color.BLACK : Game.Color.WHITE;
+        this.name = file + String.valueOf(rank);
     }
 
     /**
-     * Returns the piece occupying the square, if any.
+     * Returns the square of an index.
      *
-     * @return The piece on the square, or null if the square is empty.
+     * @param index The index of the square (rank * 8 + file from a1, 0 to 63).
+     * @return The square.
+     * @throws IndexOutOfBoundsException If the index is not between 0 and 63.
      */
-    public Piece getPiece() {
-        return piece;
+    public static Square of(int index) {
+        return SQUARES[index];
     }
 
     /**
-     * Sets the color of the square.
+     * Returns the square on a rank and a file, both counted from 0 (a1 is {@code of(0, 0)}).
      *
-     * @param color The color of the square.
+     * @param rank The rank of the square, from 0 to 7.
+     * @param file The file of the square, from 0 to 7.
+     * @return The square.
+     * @throws IndexOutOfBoundsException If the rank or the file is not between 0 and 7.
      */
-    public void setColor(Game.Color color) {
-        this.color = color;
+    public static Square of(int rank, int file) {
+        if (rank < 0 || rank > 7 || file < 0 || file > 7) {
+            throw new IndexOutOfBoundsException("No square on rank " + rank + " and file " + file);
+        }
+        return SQUARES[rank * 8 + file];
     }
 
     /**
-     * Sets the rank (row) of the square.
+     * Returns the square with a name.
      *
-     * @param rank The rank of the square.
+     * @param name The name of the square (e.g., "e4").
+     * @return The square.
+     * @throws IllegalArgumentException If the name is not a square.
      */
-    public void setRank(int rank) {
-        this.rank = rank;
+    public static Square fromName(String name) {
+        if (name == null || name.length() != 2 || name.charAt(0) < 'a' || name.charAt(0) > 'h'
+                || name.charAt(1) < '1' || name.charAt(1) > '8') {
+            throw new IllegalArgumentException("Not a square: " + name);
+        }
+        return SQUARES[(name.charAt(1) - '1') * 8 + name.charAt(0) - 'a'];
     }
 
     /**
-     * Sets the file (column) of the square.
+     * Returns the index of the square.
      *
-     * @param file The file of the square.
+     * @return The index of the square (rank * 8 + file from a1).
      */
-    public void setFile(char file) {
-        this.file = file;
+    public int getIndex() {
+        return index;
     }
 
     /**
-     * Sets whether the square is empty or not.
+     * Returns the color of the square.
      *
-     * @param empty True if the square is empty, false otherwise.
+     * @return The color of the square.
      */
-    public void setIsEmpty(boolean empty) {
-        this.isEmpty = empty;
+    public Game.Color getColor() {
+        return color;
     }
 
     /**
-     * Sets the piece occupying the square.
+     * Returns the rank (row) of the square.
      *
-     * @param piece The piece to place on the square, or null to leave it empty.
+     * @return The rank of the square.
      */
-    public void setPiece(Piece piece) {
-        this.piece = piece;
+    public int getRank() {
+        return rank;
     }
 
     /**
-     * Creates a copy of the current square, including all its properties and piece (if any).
+     * Returns the file (column) of the square.
      *
-     * @return A new Square object that is a copy of the current square.
+     * @return The file of the square.
      */
-    public Square copy() {
-        Square copy = new Square();
-        copy.setIsEmpty(this.getIsEmpty());
-        copy.setRank(this.getRank());
-        copy.setFile(this.getFile());
-        copy.setColor(this.getColor());
-        copy.setPiece(this.getPiece() != null ? this.getPiece().copy() : null);
-        return copy;
+    public char getFile() {
+        return file;
     }
 
     /**
@@ -140,6 +125,6 @@ public class Square{
      */
     @Override
     public String toString() {
-        return file + String.valueOf(rank);
+        return name;
     }
-}
\ No newline at end of file
+}
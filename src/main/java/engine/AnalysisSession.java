@@ -0,0 +1,261 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/// @author dana
+
+/**
+ * Streaming MultiPV analysis with a Stockfish process: the engine searches the best lines of a position until
+ * it is stopped, and each {@code info} line it sends is turned into an {@link AnalysisUpdate} pushed to the
+ * subscribers as the search deepens.
+ * <p>
+ * The output of the engine is read by a thread of the session, which never waits for a subscriber. Each
+ * subscriber receives its updates on its own executor and keeps only the latest update of each line until it
+ * is delivered, so a slow subscriber skips the intermediate updates instead of slowing the engine down or
+ * piling them up: it holds at most one pending update per line.
+ */
+public class AnalysisSession implements Closeable {
+    /// The engine, owned by the session.
+    private final Stockfish engine;
+    /// The number of best lines searched.
+    private final int multiPv;
+    /// The subscribers to the updates.
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    /// The best move of the running analysis, completed when the engine has stopped; {@code null} before the
+    /// first analysis.
+    private CompletableFuture<String> bestMove;
+
+    /**
+     * A subscription to the updates of a session.
+     */
+    public interface Subscription {
+
+        /**
+         * Stops the deliveries to the subscriber. An update being delivered is not interrupted.
+         */
+        void cancel();
+    }
+
+    /**
+     * Starts a Stockfish process for analyzing positions.
+     *
+     * @param multiPv The number of best lines to search.
+     * @throws IOException If the engine cannot be started.
+     */
+    public AnalysisSession(int multiPv) throws IOException {
+        this(new Stockfish(), multiPv);
+    }
+
+    /**
+     * Creates a session around an engine that is not started yet. The session starts it and closes it.
+     *
+     * @param engine The engine.
+     * @param multiPv The number of best lines to search.
+     * @throws IOException If the engine cannot be started.
+     */
+    AnalysisSession(Stockfish engine, int multiPv) throws IOException {
+        if (multiPv < 1) throw new IllegalArgumentException("The number of lines must be positive: " + multiPv);
+        this.engine = engine;
+        this.multiPv = multiPv;
+        if (!engine.startEngine()) throw new IOException("Failed to start Stockfish engine.");
+        try {
+            engine.initialize();
+            engine.setMultiPv(multiPv);
+        } catch (IOException e) {
+            engine.stopEngine();
+            throw e;
+        }
+    }
+
+    /**
+     * Subscribes to the updates of the analyses.
+     *
+     * @param executor The executor the updates are delivered on, e.g., {@code SwingUtilities::invokeLater}.
+     * @param consumer The consumer of the updates, called once at a time.
+     * @return The subscription.
+     */
+    public Subscription subscribe(Executor executor, Consumer<AnalysisUpdate> consumer) {
+        Subscriber subscriber = new Subscriber(executor, consumer);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * Starts analyzing a position until {@link #stop()} is called, after stopping the running analysis. The
+     * updates of the previous position not delivered yet are dropped.
+     *
+     * @param fen The FEN of the position.
+     * @throws IOException If an error occurs while interacting with the engine.
+     */
+    public synchronized void analyze(String fen) throws IOException {
+        stop();
+        for (Subscriber subscriber : subscribers) subscriber.clear();
+        engine.sendCommand("position fen " + fen);
+        engine.sendCommand(SearchLimits.infinite().toGoCommand());
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        bestMove = result;
+        Thread reader = new Thread(() -> readAnalysis(result), "stockfish-analysis");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Stops the running analysis, if any, and waits for the engine's best move.
+     *
+     * @return The best move in UCI notation, or {@code null} if no analysis was running or the position has no
+     *         legal move.
+     * @throws IOException If an error occurs while interacting with the engine.
+     */
+    public synchronized String stop() throws IOException {
+        CompletableFuture<String> result = bestMove;
+        if (result == null) return null;
+        bestMove = null;
+        if (!result.isDone()) engine.stopSearch();
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the best move.", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Stops the running analysis and the engine.
+     *
+     * @throws IOException If the analysis cannot be stopped.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            stop();
+        } finally {
+            engine.stopEngine();
+        }
+    }
+
+    /**
+     * Reads the output of the engine up to the "bestmove" line, publishing each update. If publishing fails
+     * (e.g., a subscriber's executor rejects a delivery), the search is stopped and the rest of its output is
+     * skipped, so the engine is idle again when the result completes exceptionally.
+     *
+     * @param result The best move of the analysis, completed at the end.
+     */
+    private void readAnalysis(CompletableFuture<String> result) {
+        try {
+            RuntimeException failure = null;
+            String line;
+            while (!(line = engine.readLine()).startsWith("bestmove")) {
+                AnalysisUpdate update = AnalysisUpdate.parse(line);
+                if (failure != null || update == null || update.getMultiPv() < 1 || update.getMultiPv() > multiPv) {
+                    continue;
+                }
+                try {
+                    for (Subscriber subscriber : subscribers) subscriber.offer(update);
+                } catch (RuntimeException e) {
+                    failure = e;
+                    engine.stopSearch();
+                }
+            }
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(UciEngine.parseBestMove(line));
+            }
+        } catch (IOException | RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * A subscriber holding the latest undelivered update of each line. An update replaces the pending one of
+     * its line, and a delivery is scheduled only if none is pending, so the engine's thread never waits.
+     */
+    private final class Subscriber implements Subscription {
+        /// The executor the updates are delivered on.
+        private final Executor executor;
+        /// The consumer of the updates.
+        private final Consumer<AnalysisUpdate> consumer;
+        /// The latest undelivered update of each line, indexed by rank minus one.
+        private final AtomicReferenceArray<AnalysisUpdate> pending = new AtomicReferenceArray<>(multiPv);
+        /// Set while a delivery is scheduled on the executor.
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        /// Set when the subscription is cancelled.
+        private volatile boolean cancelled;
+
+        /**
+         * Creates a subscriber.
+         *
+         * @param executor The executor the updates are delivered on.
+         * @param consumer The consumer of the updates.
+         */
+        Subscriber(Executor executor, Consumer<AnalysisUpdate> consumer) {
+            this.executor = executor;
+            this.consumer = consumer;
+        }
+
+        /**
+         * Keeps an update for delivery, replacing the pending update of its line.
+         *
+         * @param update The update.
+         */
+        void offer(AnalysisUpdate update) {
+            pending.set(update.getMultiPv() - 1, update);
+            if (scheduled.compareAndSet(false, true)) executor.execute(this::deliver);
+        }
+
+        /**
+         * Drops the pending updates, e.g., those of a position that is no longer analyzed. A delivery already
+         * scheduled finds nothing to deliver.
+         */
+        void clear() {
+            for (int i = 0; i < pending.length(); i++) pending.set(i, null);
+        }
+
+        /**
+         * Delivers the pending updates, best line first, then schedules the next delivery if updates were
+         * offered meanwhile. Deliveries never overlap, even on an executor with several threads. If the consumer
+         * throws, the exception reaches the executor and the updates not delivered yet are delivered next time.
+         */
+        private void deliver() {
+            try {
+                for (int i = 0; i < pending.length(); i++) {
+                    AnalysisUpdate update = pending.getAndSet(i, null);
+                    if (update != null && !cancelled) consumer.accept(update);
+                }
+            } finally {
+                scheduled.set(false);
+                if (hasPending() && scheduled.compareAndSet(false, true)) executor.execute(this::deliver);
+            }
+        }
+
+        /**
+         * Checks if an update is waiting for delivery.
+         *
+         * @return True if a line has a pending update, false otherwise.
+         */
+        private boolean hasPending() {
+            for (int i = 0; i < pending.length(); i++) {
+                if (pending.get(i) != null) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscribers.remove(this);
+        }
+    }
+}
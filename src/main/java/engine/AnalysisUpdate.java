@@ -0,0 +1,174 @@
+package engine;
+
+import analysis.Evaluation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/// @author dana
+
+/**
+ * One line of a MultiPV analysis as the engine deepens: the depth, the score and the moves of one of the best
+ * lines, read from an {@code info} line of the engine (e.g.,
+ * "info depth 18 seldepth 24 multipv 2 score cp 31 nodes 1200000 nps 950000 time 1263 pv e2e4 e7e5 g1f3").
+ * <p>
+ * Updates are immutable, so they can be handed to other threads as they are.
+ */
+public final class AnalysisUpdate {
+    /// The rank of the line among the best lines, from 1.
+    private final int multiPv;
+    /// The depth of the search, in half-moves.
+    private final int depth;
+    /// The score from the point of view of the side to move, with mates as in {@link Evaluation#mateScore(int)}.
+    private final int score;
+    /// Indicates if the score is a forced mate.
+    private final boolean mate;
+    /// The number of positions searched.
+    private final long nodes;
+    /// The time spent searching, in milliseconds.
+    private final long timeMillis;
+    /// The moves of the line, in UCI notation.
+    private final List<String> principalVariation;
+
+    /**
+     * Constructs an {@code AnalysisUpdate}.
+     *
+     * @param multiPv The rank of the line, from 1.
+     * @param depth The depth of the search.
+     * @param score The score from the point of view of the side to move.
+     * @param mate True if the score is a forced mate.
+     * @param nodes The number of positions searched.
+     * @param timeMillis The time spent searching, in milliseconds.
+     * @param principalVariation The moves of the line.
+     */
+    public AnalysisUpdate(int multiPv, int depth, int score, boolean mate, long nodes, long timeMillis, List<String> principalVariation) {
+        this.multiPv = multiPv;
+        this.depth = depth;
+        this.score = score;
+        this.mate = mate;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+        this.principalVariation = Collections.unmodifiableList(new ArrayList<>(principalVariation));
+    }
+
+    /**
+     * Reads an {@code info} line of the engine. Only the lines carrying a score and a line of moves are updates;
+     * the lines of a score bound ("lowerbound", "upperbound"), which the engine sends before it has settled on
+     * a score, are skipped as well.
+     *
+     * @param line The line of the engine's output.
+     * @return The update, or {@code null} if the line is not a complete update.
+     */
+    public static AnalysisUpdate parse(String line) {
+        if (!line.startsWith("info ")) return null;
+        String[] tokens = line.split(" ");
+
+        int multiPv = 1;
+        int depth = 0;
+        Integer score = null;
+        boolean mate = false;
+        long nodes = 0;
+        long time = 0;
+        List<String> moves = null;
+        try {
+            for (int i = 1; i < tokens.length; i++) {
+                switch (tokens[i]) {
+                    case "multipv": multiPv = Integer.parseInt(tokens[++i]); break;
+                    case "depth": depth = Integer.parseInt(tokens[++i]); break;
+                    case "nodes": nodes = Long.parseLong(tokens[++i]); break;
+                    case "time": time = Long.parseLong(tokens[++i]); break;
+                    case "lowerbound":
+                    case "upperbound":
+                        return null;
+                    case "score":
+                        mate = tokens[++i].equals("mate");
+                        int value = Integer.parseInt(tokens[++i]);
+                        score = mate ? Evaluation.mateScore(value > 0 ? 2 * value - 1 : 2 * value) : value;
+                        break;
+                    case "pv":
+                        moves = new ArrayList<>();
+                        for (i++; i < tokens.length; i++) moves.add(tokens[i]);
+                        break;
+                    case "string":
+                        return null;
+                    default:
+                        break;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+        if (score == null || moves == null || moves.isEmpty()) return null;
+        return new AnalysisUpdate(multiPv, depth, score, mate, nodes, time, moves);
+    }
+
+    /**
+     * Returns the rank of the line among the best lines.
+     *
+     * @return The rank, from 1 for the best line.
+     */
+    public int getMultiPv() {
+        return multiPv;
+    }
+
+    /**
+     * Returns the depth of the search.
+     *
+     * @return The depth, in half-moves.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the score of the line.
+     *
+     * @return The score in centipawns from the point of view of the side to move, with mates as in
+     *         {@link Evaluation#mateScore(int)}.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns whether the score is a forced mate.
+     *
+     * @return True for a mate score, false for a score in centipawns.
+     */
+    public boolean isMate() {
+        return mate;
+    }
+
+    /**
+     * Returns the number of positions searched.
+     *
+     * @return The node count.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the time spent searching.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Returns the moves of the line.
+     *
+     * @return An unmodifiable list of moves in UCI notation, the first one being the move of the line.
+     */
+    public List<String> getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    @Override
+    public String toString() {
+        return multiPv + ". depth " + depth + " score " + score + " " + String.join(" ", principalVariation);
+    }
+}
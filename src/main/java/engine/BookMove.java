@@ -0,0 +1,47 @@
+package engine;
+
+/// @author dana
+
+/**
+ * Represents a move of an opening book with its weight, i.e. how often the book recommends it.
+ */
+public class BookMove {
+    /// The move in UCI notation.
+    private final String move;
+    /// The weight of the move in the book.
+    private final int weight;
+
+    /**
+     * Constructs a {@code BookMove}.
+     *
+     * @param move The move in UCI notation.
+     * @param weight The weight of the move in the book.
+     */
+    public BookMove(String move, int weight) {
+        this.move = move;
+        this.weight = weight;
+    }
+
+    /**
+     * Returns the move.
+     *
+     * @return The move in UCI notation.
+     */
+    public String getMove() {
+        return move;
+    }
+
+    /**
+     * Returns the weight of the move.
+     *
+     * @return The weight of the move in the book.
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return move + " (" + weight + ")";
+    }
+}
@@ -0,0 +1,353 @@
+package engine;
+
+import elements.Square;
+import notation.Fen;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/// @author dana
+
+/**
+ * Opening book in the Polyglot {@code .bin} format, consulted before the engine so that book positions are
+ * answered without starting a search.
+ * <p>
+ * The book file is a sequence of 16-byte big-endian entries (key, move, weight, learn) sorted by key, where
+ * the key is the Polyglot Zobrist hash of the position. The file is memory-mapped and the entries of a
+ * position are found by binary search on the key. The hash uses the 781 "Random64" numbers of the Polyglot
+ * specification (781 big-endian 8-byte integers), read from the file named by the {@value #RANDOM_PROPERTY}
+ * system property or from the {@value #RANDOM_RESOURCE} resource, or given to the constructor. A table is only
+ * used if it gives the start position its standard key, {@link #START_POSITION_KEY}: with other numbers no
+ * position of a real book would ever be found.
+ * <p>
+ * A book is read-only and can be used by several threads at once.
+ */
+public class PolyglotBook implements Closeable {
+    /// The size of a book entry in bytes.
+    public static final int ENTRY_SIZE = 16;
+    /// The number of random numbers used by the Polyglot hash.
+    public static final int RANDOM_COUNT = 781;
+    /// The resource holding the random numbers of the Polyglot hash.
+    public static final String RANDOM_RESOURCE = "engine/polyglot-random64.bin";
+    /// The system property naming a file holding the random numbers of the Polyglot hash.
+    public static final String RANDOM_PROPERTY = "chess.book.random";
+    /// The Polyglot key of the start position with the standard random numbers.
+    public static final long START_POSITION_KEY = 0x463B96181691FC9CL;
+    /// The system property naming the book file used by the application.
+    public static final String BOOK_PROPERTY = "chess.book";
+    /// The book file used by the application when the system property is not set.
+    public static final String DEFAULT_BOOK_FILE = "book.bin";
+
+    /// The offset of the castling rights in the random numbers.
+    private static final int CASTLE_OFFSET = 768;
+    /// The offset of the en passant file in the random numbers.
+    private static final int EN_PASSANT_OFFSET = 772;
+    /// The offset of the side to move in the random numbers.
+    private static final int TURN_OFFSET = 780;
+    /// The Polyglot piece kinds in FEN letters, indexed by kind (black pawn, white pawn, black knight, ...).
+    private static final String PIECE_KINDS = "pPnNbBrRqQkK";
+    /// The promotion pieces of a book move, indexed by the promotion field (0 for none).
+    private static final String PROMOTION_PIECES = " nbrq";
+
+    /// The channel of the book file.
+    private final FileChannel channel;
+    /// The mapped entries of the book.
+    private final ByteBuffer entries;
+    /// The number of entries of the book.
+    private final int entryCount;
+    /// The random numbers of the Polyglot hash.
+    private final long[] random;
+
+    /**
+     * Opens a Polyglot book file.
+     *
+     * @param bookFile The book file.
+     * @param random The 781 random numbers of the Polyglot hash.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public PolyglotBook(Path bookFile, long[] random) throws IOException {
+        if (random.length != RANDOM_COUNT) throw new IllegalArgumentException("Polyglot needs " + RANDOM_COUNT + " random numbers.");
+        this.random = random;
+        this.channel = FileChannel.open(bookFile, StandardOpenOption.READ);
+
+        long size = channel.size() - channel.size() % ENTRY_SIZE;
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("The book is too large to be mapped.");
+        }
+        this.entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        this.entryCount = (int) (size / ENTRY_SIZE);
+    }
+
+    /**
+     * Opens the book of the application: the file named by the {@value #BOOK_PROPERTY} system property,
+     * or {@value #DEFAULT_BOOK_FILE} in the working directory, with the random numbers of {@link #loadRandom()}.
+     *
+     * @return The book, or {@code null} if the book file or the standard random numbers are missing.
+     */
+    public static PolyglotBook openDefault() {
+        Path bookFile = Paths.get(System.getProperty(BOOK_PROPERTY, DEFAULT_BOOK_FILE));
+        if (!Files.isRegularFile(bookFile)) return null;
+
+        try {
+            long[] random = loadRandom();
+            if (random == null) {
+                System.out.println("Opening book disabled: set " + RANDOM_PROPERTY + " or add " + RANDOM_RESOURCE + " to the resources.");
+                return null;
+            }
+            if (!isStandard(random)) {
+                System.out.println("Opening book disabled: the random numbers are not the standard Polyglot numbers.");
+                return null;
+            }
+            return new PolyglotBook(bookFile, random);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Loads the random numbers of the Polyglot hash from the file named by the {@value #RANDOM_PROPERTY}
+     * system property, or from the {@value #RANDOM_RESOURCE} resource when the property is not set.
+     *
+     * @return The random numbers, or {@code null} if the property is not set and the resource is missing.
+     * @throws IOException If the numbers cannot be read.
+     */
+    public static long[] loadRandom() throws IOException {
+        String randomFile = System.getProperty(RANDOM_PROPERTY);
+        if (randomFile != null) {
+            try (InputStream inputStream = Files.newInputStream(Paths.get(randomFile))) {
+                return readRandom(inputStream);
+            }
+        }
+        try (InputStream inputStream = PolyglotBook.class.getClassLoader().getResourceAsStream(RANDOM_RESOURCE)) {
+            return inputStream == null ? null : readRandom(inputStream);
+        }
+    }
+
+    /**
+     * Checks that random numbers are the standard Polyglot numbers, by the key they give the start position.
+     *
+     * @param random The 781 random numbers.
+     * @return True if the start position has the key {@link #START_POSITION_KEY}.
+     */
+    public static boolean isStandard(long[] random) {
+        return random.length == RANDOM_COUNT && key(Fen.START_FEN, random) == START_POSITION_KEY;
+    }
+
+    /**
+     * Reads the random numbers of the Polyglot hash.
+     *
+     * @param inputStream The stream of 781 big-endian 8-byte integers.
+     * @return The random numbers.
+     * @throws IOException If the stream cannot be read or is too short.
+     */
+    public static long[] readRandom(InputStream inputStream) throws IOException {
+        DataInputStream dataStream = new DataInputStream(inputStream);
+        long[] random = new long[RANDOM_COUNT];
+        try {
+            for (int i = 0; i < RANDOM_COUNT; i++) random[i] = dataStream.readLong();
+        } catch (EOFException e) {
+            throw new IOException("Polyglot needs " + RANDOM_COUNT + " random numbers.", e);
+        }
+        return random;
+    }
+
+    /**
+     * Returns the number of entries of the book.
+     *
+     * @return The entry count.
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Computes the Polyglot key of a position. The en passant file is only hashed when a pawn of the side
+     * to move can capture en passant, as the specification requires.
+     *
+     * @param fen The FEN of the position.
+     * @return The key of the position.
+     */
+    public long key(String fen) {
+        return key(fen, random);
+    }
+
+    /**
+     * Computes the Polyglot key of a position with given random numbers.
+     *
+     * @param fen The FEN of the position.
+     * @param random The 781 random numbers.
+     * @return The key of the position.
+     */
+    static long key(String fen, long[] random) {
+        String[] fields = fen.split(" ");
+        char[] board = placement(fields[0]);
+        boolean whiteMoves = fields.length < 2 || fields[1].equals("w");
+        long key = 0;
+
+        for (int square = 0; square < 64; square++) {
+            if (board[square] != 0) key ^= random[64 * PIECE_KINDS.indexOf(board[square]) + square];
+        }
+
+        String castling = fields.length > 2 ? fields[2] : "-";
+        for (int i = 0; i < 4; i++) {
+            if (castling.indexOf("KQkq".charAt(i)) >= 0) key ^= random[CASTLE_OFFSET + i];
+        }
+
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            int file = fields[3].charAt(0) - 'a';
+            int rank = whiteMoves ? 4 : 3;
+            char pawn = whiteMoves ? 'P' : 'p';
+            if ((file > 0 && board[rank * 8 + file - 1] == pawn) || (file < 7 && board[rank * 8 + file + 1] == pawn)) {
+                key ^= random[EN_PASSANT_OFFSET + file];
+            }
+        }
+
+        if (whiteMoves) key ^= random[TURN_OFFSET];
+        return key;
+    }
+
+    /**
+     * Returns the moves of the book for a position.
+     *
+     * @param fen The FEN of the position.
+     * @return The book moves in the order of the book (usually by decreasing weight); empty if the position is not in the book.
+     */
+    public List<BookMove> lookup(String fen) {
+        long key = key(fen);
+        char[] board = placement(fen.split(" ")[0]);
+
+        // Find the first entry whose key is not lower than the key of the position
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(entries.getLong(middle * ENTRY_SIZE), key) < 0) low = middle + 1;
+            else high = middle;
+        }
+
+        List<BookMove> moves = new ArrayList<>();
+        for (int i = low; i < entryCount && entries.getLong(i * ENTRY_SIZE) == key; i++) {
+            int move = entries.getShort(i * ENTRY_SIZE + 8) & 0xFFFF;
+            int weight = entries.getShort(i * ENTRY_SIZE + 10) & 0xFFFF;
+            moves.add(new BookMove(uciMove(move, board), weight));
+        }
+        return Collections.unmodifiableList(moves);
+    }
+
+    /**
+     * Returns the move of the book with the highest weight.
+     *
+     * @param fen The FEN of the position.
+     * @return The move in UCI notation, or {@code null} if the position is not in the book.
+     */
+    public String bestMove(String fen) {
+        BookMove best = null;
+        for (BookMove move : lookup(fen)) {
+            if (best == null || move.getWeight() > best.getWeight()) best = move;
+        }
+        return best == null ? null : best.getMove();
+    }
+
+    /**
+     * Picks a move of the book at random, each move with a probability proportional to its weight.
+     *
+     * @param fen The FEN of the position.
+     * @return The move in UCI notation, or {@code null} if the position is not in the book.
+     */
+    public String weightedMove(String fen) {
+        return weightedMove(fen, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Picks a move of the book at random, each move with a probability proportional to its weight.
+     *
+     * @param fen The FEN of the position.
+     * @param randomGenerator The source of randomness.
+     * @return The move in UCI notation, or {@code null} if the position is not in the book.
+     */
+    public String weightedMove(String fen, Random randomGenerator) {
+        List<BookMove> moves = lookup(fen);
+        int totalWeight = 0;
+        for (BookMove move : moves) totalWeight += move.getWeight();
+        if (totalWeight == 0) return moves.isEmpty() ? null : moves.get(0).getMove();
+
+        int pick = randomGenerator.nextInt(totalWeight);
+        for (BookMove move : moves) {
+            pick -= move.getWeight();
+            if (pick < 0) return move.getMove();
+        }
+        return moves.get(moves.size() - 1).getMove();
+    }
+
+    /**
+     * Closes the book file.
+     *
+     * @throws IOException If an error occurs while closing.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Converts a Polyglot move to UCI notation. Polyglot encodes castling as the king capturing its own rook,
+     * which is converted to the king's two-square move.
+     *
+     * @param move The move field of a book entry.
+     * @param board The piece on each square of the position.
+     * @return The move in UCI notation.
+     */
+    static String uciMove(int move, char[] board) {
+        int to = move & 0x3F;
+        int from = (move >> 6) & 0x3F;
+        int promotion = (move >> 12) & 0x7;
+
+        char piece = board[from];
+        if ((piece == 'K' && from == 4 || piece == 'k' && from == 60) && (to == from + 3 || to == from - 4)) {
+            to = to > from ? from + 2 : from - 2;
+        }
+
+        String uciMove = Square.of(from).toString() + Square.of(to);
+        return promotion == 0 ? uciMove : uciMove + PROMOTION_PIECES.charAt(promotion);
+    }
+
+    /**
+     * Expands the piece placement of a FEN into one character per square (0 for an empty square),
+     * indexed by rank * 8 + file from a1.
+     *
+     * @param placement The piece placement field of a FEN.
+     * @return The piece on each square.
+     */
+    private static char[] placement(String placement) {
+        char[] squares = new char[64];
+        int rank = 7;
+        int file = 0;
+        for (char c : placement.toCharArray()) {
+            if (c == '/') {
+                rank--;
+                file = 0;
+            } else if (Character.isDigit(c)) {
+                file += c - '0';
+            } else {
+                squares[rank * 8 + file++] = c;
+            }
+        }
+        return squares;
+    }
+}
@@ -0,0 +1,229 @@
+package engine;
+
+import elements.Game;
+import notation.Fen;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/// @author dana
+
+/**
+ * A persistent Stockfish process playing one side of a game and thinking on the opponent's time.
+ * <p>
+ * After each move, the engine goes on searching the position after the reply it expects ({@code go ponder}).
+ * If the opponent plays that reply, the engine is told {@code ponderhit} and goes on with the search it has
+ * already started, so its move usually comes at once; otherwise the ponder search is stopped and a new search
+ * starts from the actual position. Searches are bounded by time limits ({@link SearchLimits}), enforced with a
+ * hard wall-clock limit from the moment the opponent's move arrives.
+ * <p>
+ * The methods are synchronized, so an engine can be called from any thread, one move at a time.
+ */
+public class PonderingEngine implements Closeable {
+    /// The engine, owned by this object.
+    private final Stockfish engine;
+    /// The limits of each search.
+    private final SearchLimits limits;
+    /// The position expected after the opponent's reply, as the first four fields of its FEN, or null when the
+    /// engine is not pondering.
+    private String ponderPosition;
+    /// The output of the ponder search, completed with its "bestmove" line.
+    private CompletableFuture<List<String>> ponderSearch;
+    /// The number of times the opponent played the expected reply.
+    private int ponderHitCount;
+    /// The number of times the opponent played another move.
+    private int ponderMissCount;
+
+    /**
+     * Starts a Stockfish process with pondering enabled.
+     *
+     * @param limits The limits of each search, usually a move time or clocks.
+     * @throws IOException If the engine cannot be started.
+     */
+    public PonderingEngine(SearchLimits limits) throws IOException {
+        this(new Stockfish(), limits);
+    }
+
+    /**
+     * Creates a pondering engine around an engine that is not started yet. It starts it and closes it.
+     *
+     * @param engine The engine.
+     * @param limits The limits of each search.
+     * @throws IOException If the engine cannot be started.
+     */
+    PonderingEngine(Stockfish engine, SearchLimits limits) throws IOException {
+        this.engine = engine;
+        this.limits = limits;
+        if (!engine.startEngine()) throw new IOException("Failed to start Stockfish engine.");
+        try {
+            engine.initialize();
+            engine.setOption("Ponder", "true");
+        } catch (IOException e) {
+            engine.stopEngine();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the engine's move in a position, then starts pondering on the reply it expects.
+     *
+     * @param fen The FEN of the position, with the engine to move.
+     * @return The move in UCI notation, or {@code null} if the position has no legal move.
+     * @throws IOException If an error occurs while interacting with the engine.
+     */
+    public synchronized String bestMove(String fen) throws IOException {
+        List<String> lines;
+        if (ponderSearch != null && positionOf(fen).equals(ponderPosition)) {
+            ponderHitCount++;
+            engine.sendCommand("ponderhit");
+            lines = await(ponderSearch, limits.getHardLimitMillis(isWhiteToMove(fen)));
+        } else {
+            if (ponderSearch != null) ponderMissCount++;
+            stopPondering();
+            engine.sendCommand("position fen " + fen);
+            lines = engine.search(limits, isWhiteToMove(fen));
+        }
+        ponderSearch = null;
+        ponderPosition = null;
+
+        String bestMoveLine = lines.get(lines.size() - 1);
+        String bestMove = UciEngine.parseBestMove(bestMoveLine);
+        String ponderMove = UciEngine.parsePonderMove(bestMoveLine);
+        if (ponderMove != null) startPondering(fen, bestMove, ponderMove);
+        return bestMove;
+    }
+
+    /**
+     * Stops pondering, e.g., when the game is over, and waits until the engine is idle.
+     *
+     * @throws IOException If an error occurs while interacting with the engine.
+     */
+    public synchronized void stopPondering() throws IOException {
+        if (ponderSearch == null) return;
+        engine.stopSearch();
+        await(ponderSearch, -1);
+        ponderSearch = null;
+        ponderPosition = null;
+    }
+
+    /**
+     * Returns the number of times the opponent played the reply the engine was pondering on.
+     *
+     * @return The ponder hit count.
+     */
+    public synchronized int getPonderHitCount() {
+        return ponderHitCount;
+    }
+
+    /**
+     * Returns the number of times the opponent played another move than the one the engine was pondering on.
+     *
+     * @return The ponder miss count.
+     */
+    public synchronized int getPonderMissCount() {
+        return ponderMissCount;
+    }
+
+    /**
+     * Stops pondering and the engine.
+     *
+     * @throws IOException If the ponder search cannot be stopped.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            stopPondering();
+        } finally {
+            engine.stopEngine();
+        }
+    }
+
+    /**
+     * Starts a ponder search of the position after the engine's move and the expected reply. The output of the
+     * search is read by a separate thread, so the engine never blocks on a full pipe while the opponent thinks.
+     *
+     * @param fen The FEN of the position before the engine's move.
+     * @param move The engine's move.
+     * @param expectedReply The reply the engine expects.
+     * @throws IOException If an error occurs while interacting with the engine.
+     */
+    private void startPondering(String fen, String move, String expectedReply) throws IOException {
+        Game game;
+        try {
+            game = Fen.parse(fen);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        if (!game.playMove(move) || !game.playMove(expectedReply)) return;
+
+        engine.sendCommand("position fen " + fen + " moves " + move + " " + expectedReply);
+        engine.sendCommand(limits.toPonderCommand());
+        ponderPosition = positionOf(game.FENNotation());
+
+        CompletableFuture<List<String>> search = new CompletableFuture<>();
+        ponderSearch = search;
+        Thread reader = new Thread(() -> {
+            try {
+                search.complete(engine.readUntil("bestmove"));
+            } catch (IOException e) {
+                search.completeExceptionally(e);
+            }
+        }, "stockfish-ponder");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Waits for the end of a search, sending "stop" at its hard limit.
+     *
+     * @param search The output of the search.
+     * @param hardLimitMillis The time after which the search is stopped, or a negative value to wait until it ends.
+     * @return The output of the search, ending with its "bestmove" line.
+     * @throws IOException If the search failed or the thread is interrupted.
+     */
+    private List<String> await(CompletableFuture<List<String>> search, long hardLimitMillis) throws IOException {
+        try {
+            if (hardLimitMillis >= 0) {
+                try {
+                    return search.get(hardLimitMillis, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    engine.stopSearch();
+                }
+            }
+            return search.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the engine.", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the part of a FEN identifying a position: the placement, the side to move, the castling rights and
+     * the en passant square, without the move counters.
+     *
+     * @param fen The FEN.
+     * @return The first four fields of the FEN.
+     */
+    private static String positionOf(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        return String.join(" ", Arrays.asList(fields).subList(0, Math.min(4, fields.length)));
+    }
+
+    /**
+     * Reads the side to move of a FEN.
+     *
+     * @param fen The FEN.
+     * @return True if White is to move, false otherwise.
+     */
+    private static boolean isWhiteToMove(String fen) {
+        return !fen.contains(" b ");
+    }
+}
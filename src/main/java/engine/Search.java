@@ -0,0 +1,292 @@
+package engine;
+
+import analysis.Evaluation;
+import analysis.MaterialEvaluator;
+import elements.Game;
+import elements.GameStatus;
+import elements.Move;
+import elements.Square;
+import pieces.Piece;
+import pieces.PieceType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/// @author dana
+
+/**
+ * The project's own search: an iterative-deepening alpha-beta (negamax) search over the rules of {@link Game},
+ * scoring the leaves by their material balance ({@link MaterialEvaluator#material}).
+ * <p>
+ * Each depth is searched completely before the next one starts, with the best move of the previous depth
+ * searched first and captures of valuable pieces before quiet moves. A search stops at its maximum depth, at its
+ * deadline, at its node limit or when {@link #stop()} is called from another thread; the result is then the one of the last
+ * completed depth. Moves are played on copies of the game, so the searched game is never modified. The copies
+ * only keep the last move of the history, which is all the rules need (for en passant), so a copy costs one
+ * board whatever the length of the game.
+ */
+public class Search {
+    /// The deepest search, in half-moves.
+    public static final int MAX_DEPTH = 64;
+    /// The number of nodes searched between two checks of the deadline.
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+
+    /**
+     * Receives the result of each completed depth, on the thread running the search.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a depth has been searched completely.
+         *
+         * @param depth The depth, in half-moves.
+         * @param score The score of the position, from the point of view of the side to move
+         *              (see {@link Evaluation#mateScore(int)} for mates).
+         * @param nodeCount The number of positions searched so far.
+         * @param elapsedMillis The time spent since the search started, in milliseconds.
+         * @param principalVariation The best line found, in UCI notation.
+         */
+        void onDepth(int depth, int score, long nodeCount, long elapsedMillis, List<String> principalVariation);
+    }
+
+    /// The game whose current position is searched.
+    private final Game game;
+    /// The deepest depth searched, in half-moves.
+    private final int maxDepth;
+    /// The time allowed for the search in milliseconds, or a negative value for no limit.
+    private final long timeLimitMillis;
+    /// The number of positions after which the search stops, or 0 for no limit.
+    private final long maxNodes;
+    /// The listener told about each completed depth, or {@code null}.
+    private final Listener listener;
+    /// Set when the search must stop as soon as possible.
+    private volatile boolean stopped;
+    /// The time the search must stop at, in {@link System#nanoTime()} units, or {@link Long#MAX_VALUE}.
+    private long deadline;
+    /// The number of positions searched.
+    private long nodeCount;
+    /// The best line found at each ply by the depth being searched.
+    private final String[][] principalVariations = new String[MAX_DEPTH + 1][MAX_DEPTH + 1];
+    /// The length of the best line found at each ply.
+    private final int[] principalVariationLengths = new int[MAX_DEPTH + 1];
+
+    /**
+     * Creates a search of the current position of a game.
+     *
+     * @param game The game; it is not modified.
+     * @param maxDepth The deepest depth to search, in half-moves, at most {@link #MAX_DEPTH}.
+     * @param timeLimitMillis The time allowed in milliseconds, or a negative value for no limit.
+     * @param listener The listener told about each completed depth, or {@code null}.
+     */
+    public Search(Game game, int maxDepth, long timeLimitMillis, Listener listener) {
+        this(game, maxDepth, timeLimitMillis, 0, listener);
+    }
+
+    /**
+     * Creates a search of the current position of a game within the limits of a UCI {@code go} command: its
+     * depth (or twice its mate distance), its node count and the time budget of the side to move. An infinite
+     * search only ends at {@link #MAX_DEPTH} or with {@link #stop()}.
+     *
+     * @param game The game; it is not modified.
+     * @param limits The limits of the search.
+     * @param listener The listener told about each completed depth, or {@code null}.
+     */
+    public Search(Game game, SearchLimits limits, Listener listener) {
+        this(game, limits.getDepth() > 0 ? limits.getDepth() : limits.getMate() > 0 ? 2 * limits.getMate() - 1 : MAX_DEPTH,
+                limits.getTimeBudgetMillis(game.whiteMoves), limits.getNodes(), listener);
+    }
+
+    /**
+     * Creates a search with all its limits.
+     *
+     * @param game The game; it is not modified.
+     * @param maxDepth The deepest depth to search, in half-moves.
+     * @param timeLimitMillis The time allowed in milliseconds, or a negative value for no limit.
+     * @param maxNodes The number of positions after which the search stops, or 0 for no limit.
+     * @param listener The listener told about each completed depth, or {@code null}.
+     */
+    private Search(Game game, int maxDepth, long timeLimitMillis, long maxNodes, Listener listener) {
+        this.game = game;
+        this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_DEPTH));
+        this.timeLimitMillis = timeLimitMillis;
+        this.maxNodes = maxNodes;
+        this.listener = listener;
+    }
+
+    /**
+     * Searches the position, one depth after the other, until the maximum depth, the deadline or a stop.
+     * The first depth is always completed, so that there is a move to play.
+     *
+     * @return The evaluation of the last completed depth, with a {@code null} best move if the side to move
+     *         has no legal move.
+     */
+    public Evaluation run() {
+        long start = System.nanoTime();
+        deadline = timeLimitMillis < 0 ? Long.MAX_VALUE : start + timeLimitMillis * 1_000_000;
+
+        GameStatus status = game.getStatus();
+        if (status.getLegalMoves().isEmpty()) {
+            return new Evaluation(status.isCheckmate() ? Evaluation.mateScore(0) : 0, null);
+        }
+
+        Game root = withLastMoveOnly(game.copy());
+        List<String> rootMoves = orderMoves(root, status.getLegalMoves());
+        Evaluation best = new Evaluation(0, rootMoves.get(0));
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            int score = searchRoot(root, rootMoves, depth, depth == 1);
+            if (stopped && depth > 1) break;
+
+            String[] line = Arrays.copyOf(principalVariations[0], principalVariationLengths[0]);
+            best = new Evaluation(score, line[0], Arrays.asList(line));
+            if (listener != null) {
+                listener.onDepth(depth, score, nodeCount, (System.nanoTime() - start) / 1_000_000, Collections.unmodifiableList(Arrays.asList(line)));
+            }
+
+            // Search the best move first at the next depth
+            rootMoves.remove(line[0]);
+            rootMoves.add(0, line[0]);
+
+            if (stopped || Math.abs(score) >= Evaluation.MATE_SCORE - depth) break;
+        }
+        return best;
+    }
+
+    /**
+     * Asks the search to stop. It can be called from any thread; {@link #run()} then returns the result of the
+     * last completed depth.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Searches the root position to a depth.
+     *
+     * @param root The game in the root position.
+     * @param rootMoves The legal moves, best first.
+     * @param depth The depth, in half-moves.
+     * @param mustComplete True to ignore the deadline and stop requests, so that the first depth gives a move.
+     * @return The score of the position.
+     */
+    private int searchRoot(Game root, List<String> rootMoves, int depth, boolean mustComplete) {
+        int alpha = -Evaluation.MATE_SCORE - 1;
+        principalVariationLengths[0] = 0;
+        for (String move : rootMoves) {
+            Game child = play(root, move);
+            int score = -negamax(child, depth - 1, 1, -Evaluation.MATE_SCORE - 1, -alpha, mustComplete);
+            if (stopped && !mustComplete) return alpha;
+            if (score > alpha) {
+                alpha = score;
+                updatePrincipalVariation(0, move);
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Searches a position with alpha-beta pruning.
+     *
+     * @param position The game in the position to search.
+     * @param depth The remaining depth, in half-moves.
+     * @param ply The distance from the root, in half-moves.
+     * @param alpha The score the side to move is already sure of.
+     * @param beta The score the opponent is already sure of.
+     * @param mustComplete True to ignore the deadline and stop requests.
+     * @return The score of the position from the point of view of its side to move.
+     */
+    private int negamax(Game position, int depth, int ply, int alpha, int beta, boolean mustComplete) {
+        principalVariationLengths[ply] = 0;
+        if (++nodeCount % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) stopped = true;
+        if (maxNodes > 0 && nodeCount >= maxNodes) stopped = true;
+        if (stopped && !mustComplete) return 0;
+
+        GameStatus status = position.getStatus();
+        if (status.isCheckmate()) return Evaluation.mateScore(-ply);
+        if (status.isDraw()) return 0;
+        if (depth == 0 || ply == MAX_DEPTH) return MaterialEvaluator.material(position, status.getSideToMove());
+
+        for (String move : orderMoves(position, status.getLegalMoves())) {
+            Game child = play(position, move);
+            int score = -negamax(child, depth - 1, ply + 1, -beta, -alpha, mustComplete);
+            if (stopped && !mustComplete) return 0;
+            if (score > alpha) {
+                alpha = score;
+                updatePrincipalVariation(ply, move);
+                if (alpha >= beta) break;
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Plays a move on a copy of a game whose history only holds its last move.
+     *
+     * @param position The game in the position of the move; it is not modified.
+     * @param move The legal move in UCI notation.
+     * @return The game after the move, whose history only holds the move.
+     */
+    private static Game play(Game position, String move) {
+        Game child = position.copy();
+        child.playMove(move);
+        return withLastMoveOnly(child);
+    }
+
+    /**
+     * Drops the moves of the history of a game but the last one.
+     *
+     * @param game The game, changed in place.
+     * @return The game.
+     */
+    private static Game withLastMoveOnly(Game game) {
+        int size = game.gameHistory.size();
+        if (size > 1) {
+            List<Move> history = new ArrayList<>(1);
+            history.add(game.gameHistory.get(size - 1));
+            game.gameHistory = history;
+        }
+        return game;
+    }
+
+    /**
+     * Records a new best move at a ply, followed by the best line of the next ply, which was just searched.
+     *
+     * @param ply The ply of the move.
+     * @param move The move in UCI notation.
+     */
+    private void updatePrincipalVariation(int ply, String move) {
+        int childLength = principalVariationLengths[ply + 1];
+        principalVariations[ply][0] = move;
+        System.arraycopy(principalVariations[ply + 1], 0, principalVariations[ply], 1, childLength);
+        principalVariationLengths[ply] = childLength + 1;
+    }
+
+    /**
+     * Orders moves so that captures of the most valuable pieces come first, the other moves keeping the order
+     * of the legal move list.
+     *
+     * @param position The game in the position of the moves.
+     * @param moves The legal moves.
+     * @return A new list of the moves, best candidates first.
+     */
+    private static List<String> orderMoves(Game position, List<String> moves) {
+        List<String> ordered = new ArrayList<>(moves);
+        ordered.sort((first, second) -> captureValue(position, second) - captureValue(position, first));
+        return ordered;
+    }
+
+    /**
+     * Returns the order key of a capture: the captured piece, then promotions.
+     *
+     * @param position The game in the position of the move.
+     * @param move The move in UCI notation.
+     * @return A higher value for more promising moves, 0 for a quiet move.
+     */
+    private static int captureValue(Game position, String move) {
+        Piece captured = position.currentPosition.getPiece(Square.of(move.charAt(3) - '1', move.charAt(2) - 'a'));
+        int value = captured == null ? 0 : 2 * captured.getType().ordinal() + 2;
+        if (move.length() == 5 && move.charAt(4) == PieceType.QUEEN.getUciSuffix()) value += 1;
+        return value;
+    }
+}
@@ -0,0 +1,356 @@
+package engine;
+
+/// @author dana
+
+/**
+ * The limits of an engine search, as given to the UCI {@code go} command: a depth, a node count, a mate
+ * distance, a fixed time per move, the players' clocks, or an infinite search ended by {@code stop}.
+ * <p>
+ * Besides the limits the engine is told about, a search has a hard wall-clock limit
+ * ({@link #getHardLimitMillis(boolean)}) after which the caller sends {@code stop} itself, so that the time of a
+ * move stays bounded even if the engine overruns its own time management. It comes from the move time or the
+ * clock, or from {@link #withTimeout(long)}.
+ * <p>
+ * Limits are immutable; the {@code with} methods return modified copies.
+ */
+public final class SearchLimits {
+    /// The time a move may take beyond its move time before the search is stopped, in milliseconds.
+    public static final long GRACE_MILLIS = 50;
+    /// The time kept on the clock for the communication with the engine, in milliseconds.
+    public static final long MOVE_OVERHEAD_MILLIS = 20;
+    /// The moves assumed to remain until the next time control when the moves to go are not known.
+    public static final int DEFAULT_MOVES_TO_GO = 30;
+
+    /// The maximum depth in half-moves, or 0 for no limit.
+    private final int depth;
+    /// The maximum number of nodes, or 0 for no limit.
+    private final long nodes;
+    /// The number of moves of a mate to search for, or 0.
+    private final int mate;
+    /// The time of the move in milliseconds, or -1.
+    private final long moveTimeMillis;
+    /// The time left on White's clock in milliseconds, or -1 if there is no clock.
+    private final long whiteTimeMillis;
+    /// The time left on Black's clock in milliseconds, or -1 if there is no clock.
+    private final long blackTimeMillis;
+    /// White's increment per move in milliseconds.
+    private final long whiteIncrementMillis;
+    /// Black's increment per move in milliseconds.
+    private final long blackIncrementMillis;
+    /// The moves until the next time control, or 0 if unknown.
+    private final int movesToGo;
+    /// Indicates if the search only ends with {@code stop}.
+    private final boolean infinite;
+    /// The hard wall-clock limit set by {@link #withTimeout(long)} in milliseconds, or -1.
+    private final long timeoutMillis;
+
+    /**
+     * Constructs a {@code SearchLimits}.
+     *
+     * @param depth The maximum depth, or 0.
+     * @param nodes The maximum number of nodes, or 0.
+     * @param mate The mate distance in moves, or 0.
+     * @param moveTimeMillis The time of the move, or -1.
+     * @param whiteTimeMillis White's clock, or -1.
+     * @param blackTimeMillis Black's clock, or -1.
+     * @param whiteIncrementMillis White's increment.
+     * @param blackIncrementMillis Black's increment.
+     * @param movesToGo The moves until the next time control, or 0.
+     * @param infinite True for a search ended by {@code stop}.
+     * @param timeoutMillis The hard wall-clock limit, or -1.
+     */
+    private SearchLimits(int depth, long nodes, int mate, long moveTimeMillis, long whiteTimeMillis, long blackTimeMillis,
+                         long whiteIncrementMillis, long blackIncrementMillis, int movesToGo, boolean infinite, long timeoutMillis) {
+        this.depth = depth;
+        this.nodes = nodes;
+        this.mate = mate;
+        this.moveTimeMillis = moveTimeMillis;
+        this.whiteTimeMillis = whiteTimeMillis;
+        this.blackTimeMillis = blackTimeMillis;
+        this.whiteIncrementMillis = whiteIncrementMillis;
+        this.blackIncrementMillis = blackIncrementMillis;
+        this.movesToGo = movesToGo;
+        this.infinite = infinite;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Returns the limits of a search to a fixed depth.
+     *
+     * @param depth The depth in half-moves.
+     * @return The limits.
+     */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(positive(depth, "depth"), 0, 0, -1, -1, -1, 0, 0, 0, false, -1);
+    }
+
+    /**
+     * Returns the limits of a search of a number of nodes.
+     *
+     * @param nodes The number of positions to search.
+     * @return The limits.
+     */
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, positive(nodes, "nodes"), 0, -1, -1, -1, 0, 0, 0, false, -1);
+    }
+
+    /**
+     * Returns the limits of a search for a mate.
+     *
+     * @param moves The number of moves of the mate.
+     * @return The limits.
+     */
+    public static SearchLimits mate(int moves) {
+        return new SearchLimits(0, 0, positive(moves, "mate"), -1, -1, -1, 0, 0, 0, false, -1);
+    }
+
+    /**
+     * Returns the limits of a search taking a fixed time.
+     *
+     * @param millis The time of the move in milliseconds.
+     * @return The limits.
+     */
+    public static SearchLimits moveTime(long millis) {
+        return new SearchLimits(0, 0, 0, positive(millis, "movetime"), -1, -1, 0, 0, 0, false, -1);
+    }
+
+    /**
+     * Returns the limits of a search on the clock, where the engine decides how long to think.
+     *
+     * @param whiteTimeMillis The time left on White's clock in milliseconds.
+     * @param blackTimeMillis The time left on Black's clock in milliseconds.
+     * @param whiteIncrementMillis White's increment per move in milliseconds.
+     * @param blackIncrementMillis Black's increment per move in milliseconds.
+     * @return The limits.
+     */
+    public static SearchLimits clock(long whiteTimeMillis, long blackTimeMillis, long whiteIncrementMillis, long blackIncrementMillis) {
+        if (whiteTimeMillis < 0 || blackTimeMillis < 0 || whiteIncrementMillis < 0 || blackIncrementMillis < 0) {
+            throw new IllegalArgumentException("Clock times cannot be negative.");
+        }
+        return new SearchLimits(0, 0, 0, -1, whiteTimeMillis, blackTimeMillis, whiteIncrementMillis, blackIncrementMillis, 0, false, -1);
+    }
+
+    /**
+     * Returns the limits of a search that only ends with {@code stop}.
+     *
+     * @return The limits.
+     */
+    public static SearchLimits infinite() {
+        return new SearchLimits(0, 0, 0, -1, -1, -1, 0, 0, 0, true, -1);
+    }
+
+    /**
+     * Reads the limits of a UCI {@code go} command. Unknown words and malformed numbers are ignored; a command
+     * without limits is an infinite search, as in the protocol.
+     *
+     * @param command The command (e.g., "go wtime 60000 btime 60000 winc 1000 binc 1000").
+     * @return The limits.
+     */
+    public static SearchLimits parse(String command) {
+        int depth = 0;
+        long nodes = 0;
+        int mate = 0;
+        long moveTime = -1;
+        long[] clocks = {-1, -1};
+        long[] increments = {0, 0};
+        int movesToGo = 0;
+        boolean infinite = false;
+
+        String[] tokens = command.trim().split("\\s+");
+        for (int i = 0; i < tokens.length; i++) {
+            String value = i + 1 < tokens.length ? tokens[i + 1] : "";
+            try {
+                switch (tokens[i]) {
+                    case "depth": depth = Integer.parseInt(value); i++; break;
+                    case "nodes": nodes = Long.parseLong(value); i++; break;
+                    case "mate": mate = Integer.parseInt(value); i++; break;
+                    case "movetime": moveTime = Long.parseLong(value); i++; break;
+                    case "wtime": clocks[0] = Long.parseLong(value); i++; break;
+                    case "btime": clocks[1] = Long.parseLong(value); i++; break;
+                    case "winc": increments[0] = Long.parseLong(value); i++; break;
+                    case "binc": increments[1] = Long.parseLong(value); i++; break;
+                    case "movestogo": movesToGo = Integer.parseInt(value); i++; break;
+                    case "infinite": infinite = true; break;
+                    default: break;
+                }
+            } catch (NumberFormatException ignored) {
+                // A malformed value is skipped like an unknown word
+            }
+        }
+
+        boolean hasClock = clocks[0] >= 0 || clocks[1] >= 0;
+        if (hasClock) {
+            // A clock given for one side only leaves the other side's clock unknown but not negative
+            clocks[0] = Math.max(clocks[0], 0);
+            clocks[1] = Math.max(clocks[1], 0);
+        } else {
+            clocks[0] = -1;
+            clocks[1] = -1;
+        }
+        infinite |= depth <= 0 && nodes <= 0 && mate <= 0 && moveTime < 0 && !hasClock;
+        return new SearchLimits(Math.max(depth, 0), Math.max(nodes, 0), Math.max(mate, 0), moveTime < 0 ? -1 : moveTime,
+                clocks[0], clocks[1], Math.max(increments[0], 0), Math.max(increments[1], 0), Math.max(movesToGo, 0), infinite, -1);
+    }
+
+    /**
+     * Returns a copy of these limits with a hard wall-clock limit, after which the search is stopped whatever
+     * the engine is doing. It replaces the limit derived from the move time or the clock.
+     *
+     * @param millis The hard limit in milliseconds.
+     * @return The new limits.
+     */
+    public SearchLimits withTimeout(long millis) {
+        return new SearchLimits(depth, nodes, mate, moveTimeMillis, whiteTimeMillis, blackTimeMillis,
+                whiteIncrementMillis, blackIncrementMillis, movesToGo, infinite, positive(millis, "timeout"));
+    }
+
+    /**
+     * Returns a copy of these limits with the number of moves until the next time control.
+     *
+     * @param movesToGo The number of moves.
+     * @return The new limits.
+     */
+    public SearchLimits withMovesToGo(int movesToGo) {
+        return new SearchLimits(depth, nodes, mate, moveTimeMillis, whiteTimeMillis, blackTimeMillis,
+                whiteIncrementMillis, blackIncrementMillis, positive(movesToGo, "movestogo"), infinite, timeoutMillis);
+    }
+
+    /**
+     * Returns the maximum depth.
+     *
+     * @return The depth in half-moves, or 0 for no limit.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the maximum number of nodes.
+     *
+     * @return The node count, or 0 for no limit.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the length of the mate searched for.
+     *
+     * @return The number of moves, or 0.
+     */
+    public int getMate() {
+        return mate;
+    }
+
+    /**
+     * Returns whether the search only ends with {@code stop}.
+     *
+     * @return True for an infinite search, false otherwise.
+     */
+    public boolean isInfinite() {
+        return infinite;
+    }
+
+    /**
+     * Returns the time the side to move should spend on its move: the move time, or a share of its clock.
+     *
+     * @param whiteToMove True if White is to move, false otherwise.
+     * @return The time in milliseconds, or -1 if the time is not limited.
+     */
+    public long getTimeBudgetMillis(boolean whiteToMove) {
+        if (infinite) return -1;
+        if (moveTimeMillis >= 0) return moveTimeMillis;
+        long clock = whiteToMove ? whiteTimeMillis : blackTimeMillis;
+        if (clock < 0) return -1;
+        long increment = whiteToMove ? whiteIncrementMillis : blackIncrementMillis;
+        long time = clock / (movesToGo > 0 ? movesToGo : DEFAULT_MOVES_TO_GO) + increment * 3 / 4;
+        return Math.max(1, Math.min(time, clock - MOVE_OVERHEAD_MILLIS));
+    }
+
+    /**
+     * Returns the wall-clock time after which the caller stops the search: the timeout if one was set, else the
+     * move time plus {@link #GRACE_MILLIS}, else the clock of the side to move less {@link #MOVE_OVERHEAD_MILLIS},
+     * so that the engine never loses on time.
+     *
+     * @param whiteToMove True if White is to move, false otherwise.
+     * @return The limit in milliseconds, or -1 if the search is only bounded by its depth, nodes, mate or
+     *         {@code stop}.
+     */
+    public long getHardLimitMillis(boolean whiteToMove) {
+        if (timeoutMillis >= 0) return timeoutMillis;
+        if (infinite) return -1;
+        if (moveTimeMillis >= 0) return moveTimeMillis + GRACE_MILLIS;
+        long clock = whiteToMove ? whiteTimeMillis : blackTimeMillis;
+        return clock < 0 ? -1 : Math.max(1, clock - MOVE_OVERHEAD_MILLIS);
+    }
+
+    /**
+     * Returns the UCI {@code go} command of these limits.
+     *
+     * @return The command (e.g., "go movetime 500").
+     */
+    public String toGoCommand() {
+        return goCommand("go");
+    }
+
+    /**
+     * Returns the UCI command of a ponder search with these limits, which only start to apply at
+     * {@code ponderhit}.
+     *
+     * @return The command (e.g., "go ponder movetime 500").
+     */
+    public String toPonderCommand() {
+        return goCommand("go ponder");
+    }
+
+    /**
+     * Builds a search command with these limits.
+     *
+     * @param prefix The start of the command.
+     * @return The command.
+     */
+    private String goCommand(String prefix) {
+        StringBuilder command = new StringBuilder(prefix);
+        if (infinite) command.append(" infinite");
+        if (depth > 0) command.append(" depth ").append(depth);
+        if (nodes > 0) command.append(" nodes ").append(nodes);
+        if (mate > 0) command.append(" mate ").append(mate);
+        if (moveTimeMillis >= 0) command.append(" movetime ").append(moveTimeMillis);
+        if (whiteTimeMillis >= 0) {
+            command.append(" wtime ").append(whiteTimeMillis).append(" btime ").append(blackTimeMillis)
+                    .append(" winc ").append(whiteIncrementMillis).append(" binc ").append(blackIncrementMillis);
+            if (movesToGo > 0) command.append(" movestogo ").append(movesToGo);
+        }
+        return command.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toGoCommand();
+    }
+
+    /**
+     * Checks that a limit is positive.
+     *
+     * @param value The value of the limit.
+     * @param name The name of the limit, for the error message.
+     * @return The value.
+     * @throws IllegalArgumentException If the value is not positive.
+     */
+    private static long positive(long value, String name) {
+        if (value <= 0) throw new IllegalArgumentException("The " + name + " limit must be positive: " + value);
+        return value;
+    }
+
+    /**
+     * Checks that a limit is positive.
+     *
+     * @param value The value of the limit.
+     * @param name The name of the limit, for the error message.
+     * @return The value.
+     * @throws IllegalArgumentException If the value is not positive.
+     */
+    private static int positive(int value, String name) {
+        return (int) positive((long) value, name);
+    }
+}
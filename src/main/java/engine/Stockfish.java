@@ -2,127 +2,177 @@ package engine;
 
 import java.io.*;
 import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
 
 /// @author dana
 
 /**
  * This class interacts with the Stockfish chess engine to make moves, get engine output, and manage its lifecycle.
+ * <p>
+ * The binary is the one given by the {@value #BINARY_PROPERTY} system property if it is set (e.g., a native
+ * build tuned for the host's CPU), otherwise the one bundled in the resources: {@code engine/stockfish} on
+ * Linux and macOS, {@code engine/stockfish.exe} otherwise. The bundled binary is extracted once to a file named
+ * after its SHA-256 checksum in a directory of the user's cache ({@code $XDG_CACHE_HOME/jchess}, or
+ * {@code %LOCALAPPDATA%\jchess} on Windows, falling back to {@code ~/.cache/jchess}), and reused by later engines
+ * and later runs as long as its checksum matches. On POSIX file systems the directory and the binary are only
+ * accessible to the user, and they are refused if another user owns them or can write to them, so no other
+ * local user can swap the binary that is launched.
  */
-public class Stockfish {
-    /// Process instance for the running Stockfish engine.
-    private Process stockfishProcess;
-    /// Buffered reader for reading output from the Stockfish engine.
-    private BufferedReader reader;
-    /// Buffered writer for sending commands to the Stockfish engine.
-    private BufferedWriter writer;
+public class Stockfish extends UciEngine {
+    /// The system property giving the path of a Stockfish binary to use instead of the bundled one.
+    public static final String BINARY_PROPERTY = "chess.stockfish.path";
 
-    /**
-     * Extracts the Stockfish executable from the resources and saves it as a temporary file.
-     *
-     * @return The temporary file containing the Stockfish executable.
-     * @throws IOException If an error occurs while reading the executable or writing the temporary file.
-     */
-    File extractStockfishExe() throws IOException {
-        InputStream inputStream = getClass().getClassLoader().getResourceAsStream("engine/stockfish.exe");
+    /// The permissions of the extraction directory and of the extracted binary.
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
 
-        if (inputStream == null) {
-            throw new FileNotFoundException("Stockfish executable not found in resources.");
-        }
-
-        // Create a temporary file for stockfish.exe
-        Path tempPath = Files.createTempFile("stockfish", ".exe");
-        tempPath.toFile().deleteOnExit(); // Ensure it gets deleted on exit
+    /// The extracted binary, whose checksum is verified once per JVM.
+    private static File extractedBinary;
 
-        try (FileOutputStream outputStream = new FileOutputStream(tempPath.toFile())) {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                outputStream.write(buffer, 0, length);
-            }
-        }
+    /**
+     * Creates a Stockfish engine. The engine is not started yet.
+     */
+    public Stockfish() {
+        super(null);
+    }
 
-        return tempPath.toFile();
+    @Override
+    File executable() throws IOException {
+        String path = System.getProperty(BINARY_PROPERTY);
+        if (path != null && !path.isBlank()) return new File(path);
+        return extractStockfishExe();
     }
 
     /**
-     * Starts the Stockfish engine by extracting the executable and launching a process.
+     * Extracts the Stockfish executable from the resources, unless a previous extraction with the same checksum
+     * exists in the user's cache. The directory and the binary are checked before every launch.
      *
-     * @return True if the engine started successfully, false otherwise.
+     * @return The file containing the Stockfish executable.
+     * @throws IOException If an error occurs while reading the executable or writing the file, or if the directory
+     *                     or the binary could have been changed by another user.
      */
-    public boolean startEngine() {
-        try {
-            File stockfishExe = extractStockfishExe();
-            stockfishProcess = new ProcessBuilder(stockfishExe.getAbsolutePath()).start();
-            reader = new BufferedReader(new InputStreamReader(stockfishProcess.getInputStream()));
-            writer = new BufferedWriter(new OutputStreamWriter(stockfishProcess.getOutputStream()));
-            return true;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
+    File extractStockfishExe() throws IOException {
+        synchronized (Stockfish.class) {
+            if (extractedBinary != null && extractedBinary.canExecute()) {
+                Path binary = extractedBinary.toPath();
+                checkPrivate(binary.getParent());
+                checkPrivate(binary);
+                return extractedBinary;
+            }
+
+            boolean windows = System.getProperty("os.name", "").startsWith("Windows");
+            String resource = windows ? "engine/stockfish.exe" : "engine/stockfish";
+            if (getClass().getClassLoader().getResource(resource) == null) resource = "engine/stockfish.exe";
+            InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resource);
+            if (inputStream == null) {
+                throw new FileNotFoundException("Stockfish executable not found in resources.");
+            }
+
+            byte[] bytes;
+            try (inputStream) {
+                bytes = inputStream.readAllBytes();
+            }
+            String checksum = sha256(bytes);
+            String suffix = resource.endsWith(".exe") ? ".exe" : "";
+            Path directory = privateDirectory(windows);
+            Path target = directory.resolve("stockfish-" + checksum.substring(0, 16) + suffix);
+
+            // A file left by an interrupted extraction is replaced
+            if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) checkPrivate(target);
+            if (!Files.isRegularFile(target) || !checksum.equals(sha256(Files.readAllBytes(target)))) {
+                Path partial = Files.createTempFile(directory, "stockfish", ".part");
+                try {
+                    Files.write(partial, bytes);
+                    if (isPosix(partial)) Files.setPosixFilePermissions(partial, OWNER_ONLY);
+                    Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(partial);
+                }
+            }
+            File file = target.toFile();
+            if (!file.canExecute() && !file.setExecutable(true)) {
+                throw new IOException("Cannot make " + file + " executable.");
+            }
+            checkPrivate(target);
+            extractedBinary = file;
+            return file;
         }
     }
 
     /**
-     * Sends a command to the Stockfish engine.
+     * Gets the directory the bundled binary is extracted to, creating it with owner-only permissions if needed.
      *
-     * @param command The command to send to the engine.
-     * @throws IOException If an error occurs while sending the command.
+     * @param windows True if the host runs Windows.
+     * @return The directory, private to the user.
+     * @throws IOException If the directory cannot be created, or if another user owns it or can write to it.
      */
-    public void sendCommand(String command) throws IOException {
-        writer.write(command + "\n");
-        writer.flush();
+    private static Path privateDirectory(boolean windows) throws IOException {
+        String cache = System.getenv(windows ? "LOCALAPPDATA" : "XDG_CACHE_HOME");
+        Path base = cache != null && !cache.isBlank()
+                ? Paths.get(cache) : Paths.get(System.getProperty("user.home"), ".cache");
+        Path directory = base.resolve("jchess");
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+            Files.createDirectories(base);
+            if (isPosix(base)) {
+                Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            } else {
+                Files.createDirectory(directory);
+            }
+        }
+        checkPrivate(directory);
+        return directory;
     }
 
     /**
-     * Reads the output from the Stockfish engine for a specified amount of time.
+     * Checks that a file or directory cannot have been changed by another user: on a POSIX file system, it must
+     * not be a symbolic link, it must be owned by the user, and neither its group nor others may write to it.
+     * Other file systems are trusted to keep the user's cache private.
      *
-     * @param timeoutMillis The maximum time (in milliseconds) to wait for output.
-     * @return The engine's output as a string.
-     * @throws IOException If an error occurs while reading the output.
+     * @param path The file or directory.
+     * @throws IOException If the path fails a check, or if its attributes cannot be read.
      */
-    public String getOutput(int timeoutMillis) throws IOException {
-        StringBuilder output = new StringBuilder();
-        long startTime = System.currentTimeMillis();
-
-        while (System.currentTimeMillis() - startTime < timeoutMillis) {
-            if (reader.ready()) {
-                output.append(reader.readLine()).append("\n");
-            }
+    static void checkPrivate(Path path) throws IOException {
+        if (!isPosix(path)) return;
+        if (Files.isSymbolicLink(path)) throw new IOException(path + " is a symbolic link.");
+        UserPrincipal owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS);
+        UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!owner.equals(user)) {
+            throw new IOException(path + " is owned by " + owner.getName() + ", not by " + user.getName() + ".");
+        }
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS);
+        if (permissions.contains(PosixFilePermission.GROUP_WRITE)
+                || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+            throw new IOException(path + " can be written by other users.");
         }
-
-        return output.toString();
     }
 
     /**
-     * Stops the Stockfish engine by sending the quit command and destroying the process.
+     * Checks if the file system of a path supports POSIX permissions.
+     *
+     * @param path The path.
+     * @return True if POSIX permissions are supported, false otherwise.
      */
-    public void stopEngine() {
-        try {
-            sendCommand("quit");
-            stockfishProcess.destroy();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    private static boolean isPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
     }
 
     /**
-     * Gets the best move from the Stockfish engine for a given board position and search depth.
+     * Computes the SHA-256 checksum of some bytes.
      *
-     * @param fen The FEN (Forsyth-Edwards Notation) string representing the board position.
-     * @param depth The search depth for Stockfish to analyze.
-     * @return The best move in UCI format, or null if no move is found.
-     * @throws IOException If an error occurs while interacting with the engine.
+     * @param bytes The bytes.
+     * @return The checksum in lower-case hexadecimal.
      */
-    public String getBestMove(String fen, int depth) throws IOException {
-        sendCommand("position fen " + fen);
-        sendCommand("go depth " + depth);
-        String output = getOutput(1000);
-
-        for (String line : output.split("\n")) {
-            if (line.startsWith("bestmove")) {
-                return line.split(" ")[1]; // Extract the best move
-            }
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
         }
-        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,345 @@
+package engine;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/// @author dana
+
+/**
+ * An adapter for any local engine speaking the UCI protocol: it starts the binary, sends commands, reads the
+ * output and runs searches within {@link SearchLimits}.
+ * <p>
+ * After {@link #initialize()}, the options declared by the engine are known, and {@link #setOption(String, String)}
+ * checks each value against its declaration, so a misspelled option or an out-of-range value (e.g., more threads
+ * than the build allows) fails at once instead of being ignored by the engine.
+ */
+public class UciEngine {
+    /// The path of the engine's binary, or null if a subclass locates it.
+    private final Path binary;
+    /// The options declared by the engine, by lower-case name (UCI option names are case-insensitive).
+    private final Map<String, UciOption> options = new LinkedHashMap<>();
+    /// The name of the engine from its "id name" line, or null before {@link #initialize()}.
+    private String name;
+    /// Indicates if the engine has answered "uci", so its options are known.
+    private boolean initialized;
+    /// Process instance for the running engine.
+    private Process process;
+    /// Buffered reader for reading output from the engine.
+    private BufferedReader reader;
+    /// Buffered writer for sending commands to the engine.
+    private BufferedWriter writer;
+
+    /**
+     * Creates an adapter for a UCI engine. The engine is not started yet.
+     *
+     * @param binary The path of the engine's binary (e.g., a native build tuned for the host's CPU).
+     */
+    public UciEngine(Path binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * Returns the executable to start.
+     *
+     * @return The engine's binary.
+     * @throws IOException If the binary cannot be located.
+     */
+    File executable() throws IOException {
+        if (binary == null) throw new FileNotFoundException("No engine binary given.");
+        return binary.toFile();
+    }
+
+    /**
+     * Starts the engine by launching a process.
+     *
+     * @return True if the engine started successfully, false otherwise.
+     */
+    public boolean startEngine() {
+        try {
+            File executable = executable();
+            process = new ProcessBuilder(executable.getAbsolutePath()).start();
+            reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Switches the engine to UCI mode and reads its name and the options it declares, up to "uciok".
+     *
+     * @throws IOException If an error occurs while interacting with the engine.
+     */
+    public void initialize() throws IOException {
+        sendCommand("uci");
+        options.clear();
+        for (String line : readUntil("uciok")) {
+            if (line.startsWith("id name ")) {
+                name = line.substring("id name ".length()).trim();
+            } else if (line.startsWith("option ")) {
+                UciOption option = UciOption.parse(line);
+                if (option != null) options.put(option.getName().toLowerCase(Locale.ROOT), option);
+            }
+        }
+        initialized = true;
+    }
+
+    /**
+     * Returns the name of the engine.
+     *
+     * @return The name from the engine's "id name" line, or null if it is unknown.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the options declared by the engine.
+     *
+     * @return An unmodifiable list of the options, in the order the engine declared them, empty before
+     *         {@link #initialize()}.
+     */
+    public List<UciOption> getOptions() {
+        return List.copyOf(options.values());
+    }
+
+    /**
+     * Returns an option declared by the engine.
+     *
+     * @param name The name of the option, in any case.
+     * @return The option, or null if the engine does not declare it.
+     */
+    public UciOption getOption(String name) {
+        return options.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Sends a command to the engine. Commands may be sent from several threads, e.g., "stop" while
+     * another thread waits for the result of a search.
+     *
+     * @param command The command to send to the engine.
+     * @throws IOException If an error occurs while sending the command.
+     */
+    public synchronized void sendCommand(String command) throws IOException {
+        writer.write(command + "\n");
+        writer.flush();
+    }
+
+    /**
+     * Reads the output from the engine for a specified amount of time.
+     *
+     * @param timeoutMillis The maximum time (in milliseconds) to wait for output.
+     * @return The engine's output as a string.
+     * @throws IOException If an error occurs while reading the output.
+     */
+    public String getOutput(int timeoutMillis) throws IOException {
+        StringBuilder output = new StringBuilder();
+        long startTime = System.currentTimeMillis();
+
+        while (System.currentTimeMillis() - startTime < timeoutMillis) {
+            if (reader.ready()) {
+                output.append(reader.readLine()).append("\n");
+            }
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * Reads the output from the engine until a line starting with the given prefix, blocking
+     * as long as the engine is computing (e.g., until "bestmove" after a "go" command).
+     *
+     * @param prefix The prefix of the last line to read.
+     * @return The lines read, the last one starting with the prefix.
+     * @throws IOException If an error occurs while reading the output, or if the engine exits first.
+     */
+    public List<String> readUntil(String prefix) throws IOException {
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+            if (line.startsWith(prefix)) return lines;
+        }
+        throw new EOFException("The engine exited before sending " + prefix + ".");
+    }
+
+    /**
+     * Reads the next line of output of the engine, blocking until the engine sends it.
+     *
+     * @return The line.
+     * @throws IOException If an error occurs while reading the output, or if the engine has exited.
+     */
+    public String readLine() throws IOException {
+        String line = reader.readLine();
+        if (line == null) throw new EOFException("The engine has exited.");
+        return line;
+    }
+
+    /**
+     * Sets an option of the engine (e.g., "MultiPV") and waits until the engine has applied it. After
+     * {@link #initialize()}, the option must be one the engine declares and the value must fit its declaration.
+     *
+     * @param name The name of the option.
+     * @param value The value of the option, or null for a button.
+     * @throws IllegalArgumentException If the engine does not declare the option or the value is invalid.
+     * @throws IOException If an error occurs while interacting with the engine.
+     */
+    public void setOption(String name, String value) throws IOException {
+        if (initialized) {
+            UciOption option = getOption(name);
+            if (option == null) throw new IllegalArgumentException("Unknown option " + name + " for engine " + this.name + ".");
+            option.validate(value);
+        }
+        sendCommand("setoption name " + name + (value != null ? " value " + value : ""));
+        sendCommand("isready");
+        readUntil("readyok");
+    }
+
+    /**
+     * Sets the number of search threads of the engine.
+     *
+     * @param threads The number of threads, usually at most the number of cores of the host.
+     * @throws IOException If an error occurs while interacting with the engine.
+     */
+    public void setThreads(int threads) throws IOException {
+        setOption("Threads", String.valueOf(threads));
+    }
+
+    /**
+     * Sets the size of the engine's transposition table.
+     *
+     * @param megabytes The size in megabytes.
+     * @throws IOException If an error occurs while interacting with the engine.
+     */
+    public void setHash(int megabytes) throws IOException {
+        setOption("Hash", String.valueOf(megabytes));
+    }
+
+    /**
+     * Sets the number of best lines the engine searches.
+     *
+     * @param lines The number of lines.
+     * @throws IOException If an error occurs while interacting with the engine.
+     */
+    public void setMultiPv(int lines) throws IOException {
+        setOption("MultiPV", String.valueOf(lines));
+    }
+
+    /**
+     * Stops the engine by sending the quit command and destroying the process.
+     */
+    public void stopEngine() {
+        try {
+            sendCommand("quit");
+            process.destroy();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts a search with the given limits and reads its output up to the "bestmove" line. If the search is
+     * still running at the hard limit of the limits ({@link SearchLimits#getHardLimitMillis(boolean)}), "stop"
+     * is sent and the final "bestmove" is collected, so the call lasts at most that long plus the time the
+     * engine needs to answer "stop". A search without hard limit (e.g., an infinite one) lasts until another
+     * thread calls {@link #stopSearch()}.
+     *
+     * @param limits The limits of the search.
+     * @param whiteToMove True if White is to move in the current position, to pick the clock of the limits.
+     * @return The lines of the search, the last one starting with "bestmove".
+     * @throws IOException If an error occurs while interacting with the engine, or if it exits.
+     */
+    public List<String> search(SearchLimits limits, boolean whiteToMove) throws IOException {
+        sendCommand(limits.toGoCommand());
+        long hardLimit = limits.getHardLimitMillis(whiteToMove);
+        if (hardLimit < 0) return readUntil("bestmove");
+
+        List<String> lines = new ArrayList<>();
+        long deadline = System.nanoTime() + hardLimit * 1_000_000;
+        while (System.nanoTime() < deadline) {
+            if (!reader.ready()) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                continue;
+            }
+            String line = reader.readLine();
+            if (line == null) throw new EOFException("The engine exited before sending bestmove.");
+            lines.add(line);
+            if (line.startsWith("bestmove")) return lines;
+        }
+
+        // The hard limit is reached: the engine must give its move now
+        stopSearch();
+        lines.addAll(readUntil("bestmove"));
+        return lines;
+    }
+
+    /**
+     * Asks the engine to end the running search and send its best move. It can be called from another thread
+     * than the one waiting in {@link #search(SearchLimits, boolean)}.
+     *
+     * @throws IOException If an error occurs while sending the command.
+     */
+    public void stopSearch() throws IOException {
+        sendCommand("stop");
+    }
+
+    /**
+     * Gets the best move from the engine for a given board position and search limits.
+     *
+     * @param fen The FEN (Forsyth-Edwards Notation) string representing the board position.
+     * @param limits The limits of the search.
+     * @return The best move in UCI format, or null if there is no legal move.
+     * @throws IOException If an error occurs while interacting with the engine.
+     */
+    public String getBestMove(String fen, SearchLimits limits) throws IOException {
+        sendCommand("position fen " + fen);
+        List<String> lines = search(limits, !fen.contains(" b "));
+        return parseBestMove(lines.get(lines.size() - 1));
+    }
+
+    /**
+     * Reads the best move of a "bestmove" line ("bestmove e2e4 ponder e7e5").
+     *
+     * @param line The line.
+     * @return The best move in UCI format, or null if the line has none or it is "(none)" (no legal move).
+     */
+    public static String parseBestMove(String line) {
+        String[] tokens = line.split(" ");
+        return tokens.length > 1 && !tokens[1].equals("(none)") ? tokens[1] : null;
+    }
+
+    /**
+     * Reads the move the engine expects in reply to its best move, from a "bestmove" line.
+     *
+     * @param line The line.
+     * @return The ponder move in UCI format, or null if the line has none.
+     */
+    public static String parsePonderMove(String line) {
+        String[] tokens = line.split(" ");
+        return parseBestMove(line) != null && tokens.length > 3 && tokens[2].equals("ponder") ? tokens[3] : null;
+    }
+
+    /**
+     * Gets the best move from the engine for a given board position and search depth.
+     *
+     * @param fen The FEN (Forsyth-Edwards Notation) string representing the board position.
+     * @param depth The search depth for the engine to analyze.
+     * @return The best move in UCI format, or null if no move is found.
+     * @throws IOException If an error occurs while interacting with the engine.
+     */
+    public String getBestMove(String fen, int depth) throws IOException {
+        return getBestMove(fen, SearchLimits.depth(depth));
+    }
+}
@@ -0,0 +1,217 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/// @author dana
+
+/**
+ * An option declared by a UCI engine in its answer to {@code uci}, e.g.,
+ * "option name Hash type spin default 16 min 1 max 33554432". Options are checked against their declaration
+ * before they are sent to the engine, so a wrong name or an out-of-range value fails at once instead of being
+ * silently ignored by the engine.
+ */
+public final class UciOption {
+    /**
+     * The types of UCI options.
+     */
+    public enum Type {
+        /// A boolean, "true" or "false".
+        CHECK,
+        /// An integer between a minimum and a maximum.
+        SPIN,
+        /// One of a list of strings.
+        COMBO,
+        /// An action without value.
+        BUTTON,
+        /// Any string.
+        STRING
+    }
+
+    /// The keywords of an option declaration after its name.
+    private static final List<String> KEYWORDS = List.of("type", "default", "min", "max", "var");
+
+    /// The name of the option (e.g., "Hash").
+    private final String name;
+    /// The type of the option.
+    private final Type type;
+    /// The default value, or an empty string if there is none.
+    private final String defaultValue;
+    /// The minimum of a spin option.
+    private final long min;
+    /// The maximum of a spin option.
+    private final long max;
+    /// The values of a combo option.
+    private final List<String> values;
+
+    /**
+     * Constructs a {@code UciOption}.
+     *
+     * @param name The name of the option.
+     * @param type The type of the option.
+     * @param defaultValue The default value, or an empty string.
+     * @param min The minimum of a spin option.
+     * @param max The maximum of a spin option.
+     * @param values The values of a combo option.
+     */
+    UciOption(String name, Type type, String defaultValue, long min, long max, List<String> values) {
+        this.name = name;
+        this.type = type;
+        this.defaultValue = defaultValue;
+        this.min = min;
+        this.max = max;
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    /**
+     * Reads an {@code option} line of a UCI engine. Names and values may contain spaces.
+     *
+     * @param line The line (e.g., "option name Clear Hash type button").
+     * @return The option, or {@code null} if the line is not a valid option declaration.
+     */
+    public static UciOption parse(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        if (tokens.length < 5 || !tokens[0].equals("option") || !tokens[1].equals("name")) return null;
+
+        StringBuilder name = new StringBuilder();
+        Type type = null;
+        String defaultValue = "";
+        long min = Long.MIN_VALUE;
+        long max = Long.MAX_VALUE;
+        List<String> values = new ArrayList<>();
+
+        // Each keyword starts a field running to the next keyword
+        String field = "name";
+        StringBuilder value = new StringBuilder();
+        for (int i = 2; i <= tokens.length; i++) {
+            String token = i < tokens.length ? tokens[i] : null;
+            // Only "type" ends a name, which may contain the other keywords
+            boolean isKeyword = token == null || (field.equals("name") ? token.equals("type") : KEYWORDS.contains(token));
+            if (!isKeyword) {
+                if (value.length() > 0) value.append(' ');
+                value.append(token);
+                continue;
+            }
+
+            String text = value.toString();
+            try {
+                switch (field) {
+                    case "name": name.append(text); break;
+                    case "type": type = Type.valueOf(text.toUpperCase()); break;
+                    case "default": defaultValue = text; break;
+                    case "min": min = Long.parseLong(text); break;
+                    case "max": max = Long.parseLong(text); break;
+                    case "var": values.add(text); break;
+                    default: break;
+                }
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            field = token;
+            value.setLength(0);
+        }
+        if (name.length() == 0 || type == null) return null;
+        return new UciOption(name.toString(), type, defaultValue, min, max, values);
+    }
+
+    /**
+     * Checks that a value is valid for this option.
+     *
+     * @param value The value, or {@code null} for a button.
+     * @throws IllegalArgumentException If the value does not fit the type of the option.
+     */
+    public void validate(String value) {
+        switch (type) {
+            case CHECK:
+                if (!"true".equals(value) && !"false".equals(value)) throw invalid(value);
+                break;
+            case SPIN:
+                try {
+                    long number = Long.parseLong(value);
+                    if (number < min || number > max) throw invalid(value);
+                } catch (NumberFormatException e) {
+                    throw invalid(value);
+                }
+                break;
+            case COMBO:
+                if (values.stream().noneMatch(option -> option.equalsIgnoreCase(value))) throw invalid(value);
+                break;
+            case BUTTON:
+                if (value != null) throw invalid(value);
+                break;
+            default:
+                if (value == null) throw invalid(null);
+                break;
+        }
+    }
+
+    /**
+     * Returns the name of the option.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the type of the option.
+     *
+     * @return The type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the default value of the option.
+     *
+     * @return The default value, or an empty string if there is none.
+     */
+    public String getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Returns the minimum of a spin option.
+     *
+     * @return The minimum, or {@link Long#MIN_VALUE} if none was declared.
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the maximum of a spin option.
+     *
+     * @return The maximum, or {@link Long#MAX_VALUE} if none was declared.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the values of a combo option.
+     *
+     * @return An unmodifiable list of the values, empty for other types.
+     */
+    public List<String> getValues() {
+        return values;
+    }
+
+    /**
+     * Returns the exception of an invalid value.
+     *
+     * @param value The value.
+     * @return The exception to throw.
+     */
+    private IllegalArgumentException invalid(String value) {
+        return new IllegalArgumentException("Invalid value " + value + " for the " + type.name().toLowerCase() + " option " + name + ".");
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + type.name().toLowerCase() + ", default " + defaultValue + ")";
+    }
+}
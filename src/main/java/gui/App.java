@@ -1,6 +1,12 @@
 package gui;
 
-import engine.Stockfish;
+import database.Database;
+import database.OpeningExplorer;
+import database.ResumedGame;
+import engine.PolyglotBook;
+import engine.PonderingEngine;
+import engine.SearchLimits;
+import session.GameSession;
 import pieces.*;
 import elements.*;
 
@@ -11,8 +17,8 @@ import java.net.URL;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-
-import static java.awt.Color.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /// @author dana
 
@@ -25,40 +31,37 @@ import static java.awt.Color.*;
  * - Communicating with the Stockfish chess engine
  * - Managing database records for games, moves, and positions
  * - Handling game logic such as player moves and captured pieces
+ * <p>
+ * The game is owned by a {@link GameSession}, which plays the user's and the engine's moves one at a time off the
+ * event dispatch thread. After each move the session publishes a {@link BoardSnapshot} to the board, so the
+ * board stays responsive whatever the cost of the rules, the database or the engine.
  */
 public class App {
-    /// The currently active game instance.
-    public static Game game;
-    /// The unique identifier for the current game in the database.
+    /// The session owning the current game, or {@code null} before the first game.
+    private static GameSession session;
+    /// The color played by the user in the current game.
+    private static Game.Color myColor;
+    /// The identifier of the current game in the database, only used on the event dispatch thread; the session
+    /// listener keeps its own copy.
     private static int gameID;
-    /// The unique identifier for the current board position in the database.
-    private static int positionID;
-    /// Flag indicating if it is the user's turn.
-    private static boolean isUserTurn;
-    /// Flag indicating if the chess engine has made a move.
-    private static boolean engineMoved;
     /// The main game frame displayed to the user.
     public static JFrame gameFrame;
-    /// The chessboard panel containing the squares and pieces.
-    private static JPanel board;
-    /// A 2D array of buttons representing the chessboard squares.
-    private static JButton[][] squareButtons;
-    /// The currently selected square on the board.
-    private static Square selectedSquare = null;
-
-    // Constants for chess piece icons
-    private static final ImageIcon WHITE_PAWN = loadIcon("pieces/white-pawn.png");
-    private static final ImageIcon BLACK_PAWN = loadIcon("pieces/black-pawn.png");
-    private static final ImageIcon WHITE_ROOK = loadIcon("pieces/white-rook.png");
-    private static final ImageIcon BLACK_ROOK = loadIcon("pieces/black-rook.png");
-    private static final ImageIcon WHITE_KNIGHT = loadIcon("pieces/white-knight.png");
-    private static final ImageIcon BLACK_KNIGHT = loadIcon("pieces/black-knight.png");
-    private static final ImageIcon WHITE_BISHOP = loadIcon("pieces/white-bishop.png");
-    private static final ImageIcon BLACK_BISHOP = loadIcon("pieces/black-bishop.png");
-    private static final ImageIcon WHITE_QUEEN = loadIcon("pieces/white-queen.png");
-    private static final ImageIcon BLACK_QUEEN = loadIcon("pieces/black-queen.png");
-    private static final ImageIcon WHITE_KING = loadIcon("pieces/white-king.png");
-    private static final ImageIcon BLACK_KING = loadIcon("pieces/black-king.png");
+    /// The chessboard component painting the squares and pieces.
+    private static BoardView board;
+    /// The opening explorer kept up to date with the games played in this application.
+    private static final OpeningExplorer openingExplorer = new OpeningExplorer(OpeningExplorer.DEFAULT_CACHE_SIZE);
+    /// The limits of the engine's searches: one second per move, on top of the time spent pondering.
+    static final SearchLimits ENGINE_LIMITS = SearchLimits.moveTime(1000);
+    /// The engine, kept running between moves so that it thinks on the user's time; null until first needed.
+    private static PonderingEngine engine;
+    /// The opening book consulted before the engine, or {@code null} if no book is installed.
+    private static final PolyglotBook openingBook = PolyglotBook.openDefault();
+    /// The threads running the game sessions and the engine searches.
+    private static final ExecutorService sessionExecutor = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "game-session");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private static final ImageIcon APP_ICON_ORIGINAL = loadIcon("app_icon.png");
     private static final Image APP_ICON;
@@ -68,9 +71,6 @@ public class App {
         APP_ICON = APP_ICON_ORIGINAL.getImage();
     }
 
-    /// Size of the chessboard (8x8).
-    private static final int BOARD_SIZE = 8;
-
     /**
      * Entry point of the application. Initializes the main menu.
      *
@@ -81,81 +81,85 @@ public class App {
     }
 
     /**
-     * Initiates the Stockfish engine to calculate the best move and performs the move.
+     * Returns the move of the opening book if the position is in the book, otherwise the best move calculated
+     * by the Stockfish engine. Called by the game session, off the event dispatch thread.
+     *
+     * @param FEN The FEN representation of the current board position.
+     * @return The move in UCI notation, or an empty string if no move was found.
      */
-    public static void stockfishMove() {
-        String FEN;
-        if (game.gameHistory.isEmpty()) {
-            FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
-        } else {
-            FEN = game.FENNotation();
-        }
-
-        // Run the engine in a separate thread
-        new Thread(() -> {
-            String bestMove = getStockfishMove(FEN);
-
-            if (!bestMove.isEmpty()) {
-                String startSquare = bestMove.substring(0, 2);
-                String endSquare = bestMove.substring(2, 4);
-
-                int startRow = Integer.parseInt(startSquare.substring(1)) - 1;
-                int startCol = startSquare.charAt(0) - 'a';
-                int endRow = Integer.parseInt(endSquare.substring(1)) - 1;
-                int endCol = endSquare.charAt(0) - 'a';
-
-                // Update UI components on the Event Dispatch Thread
-                SwingUtilities.invokeLater(() -> {
-                    System.out.println("Clicking start square: " + startRow + "," + startCol);
-                    squareButtons[startRow][startCol].doClick();  // Simulate click on start square
-                    System.out.println("Clicking end square: " + endRow + "," + endCol);
-                    squareButtons[endRow][endCol].doClick();  // Simulate click on end square
-                });
-            } else {
-                System.out.println("Failed to get Stockfish move.");
-            }
-        }).start();
+    public static String engineMove(String FEN) {
+        String bestMove = openingBook == null ? null : openingBook.weightedMove(FEN);
+        return bestMove != null ? bestMove : getStockfishMove(FEN);
     }
 
     /**
-     * Retrieves the best move from the Stockfish engine given a position in FEN format.
+     * Retrieves the best move from the Stockfish engine given a position in FEN format. The engine is started
+     * on the first call and then kept running, pondering on the user's time between moves.
      *
      * @param FEN The FEN representation of the current board position.
      * @return The best move calculated by Stockfish.
      */
-    public static String getStockfishMove(String FEN) {
-        Stockfish engine = new Stockfish();
-        String bestMove = "";
-        if (engine.startEngine()) {
-            try {
-                bestMove = engine.getBestMove(FEN, 10);  // Timeout set to 10 seconds
-            } catch (IOException e) {
-                e.printStackTrace();
-            } finally {
-                engine.stopEngine();
-            }
-        } else {
+    public static synchronized String getStockfishMove(String FEN) {
+        try {
+            if (engine == null) engine = new PonderingEngine(ENGINE_LIMITS);
+            String bestMove = engine.bestMove(FEN);
+            return bestMove != null ? bestMove : "";
+        } catch (IOException e) {
             System.out.println("Failed to start Stockfish engine.");
+            e.printStackTrace();
+            if (engine != null) {
+                try {
+                    engine.close();
+                } catch (IOException ignored) {
+                    // The engine is replaced at the next move anyway
+                }
+            }
+            engine = null;
+            return "";
+        }
+    }
+
+    /**
+     * Stops the engine's pondering, when the game it was thinking about is over.
+     */
+    private static void stopPondering() {
+        PonderingEngine current;
+        synchronized (App.class) {
+            current = engine;
+        }
+        if (current == null) return;
+        try {
+            current.stopPondering();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        return bestMove;
+    }
+
+    /**
+     * Returns the opening explorer, whose cached statistics include the games played in this application.
+     *
+     * @return The opening explorer.
+     */
+    public static OpeningExplorer getOpeningExplorer() {
+        return openingExplorer;
     }
 
     /**
      * Inserts a new game record into the database with the specified player's color.
      *
      * @param myColor The color the player has chosen ("White" or "Black").
+     * @return The GameID of the new game, or 0 if it could not be inserted.
      */
-    public static void insertNewGame(String myColor) {
+    public static int insertNewGame(String myColor) {
         if (!myColor.equalsIgnoreCase("White") && !myColor.equalsIgnoreCase("Black")) {
             System.out.println("Invalid color. Please use 'White' or 'Black'.");
-            return;
+            return 0;
         }
 
-        String jdbcURL = "jdbc:derby:D:/University/Programming/JChess/database;create=true";
         String insertSQL = "INSERT INTO Games (MyColor, Status) VALUES (?, ?)";
         String lastIDSQL = "SELECT MAX(GameID) AS LastID FROM Games";
 
-        try (Connection connection = DriverManager.getConnection(jdbcURL);
+        try (Connection connection = Database.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(insertSQL)) {
 
             // Set the parameters for the prepared statement
@@ -170,8 +174,9 @@ public class App {
                      ResultSet rs = lastIDStmt.executeQuery(lastIDSQL)) {
 
                     if (rs.next()) {
-                        gameID = rs.getInt("LastID");
-                        System.out.println("New game inserted successfully! GameID: " + gameID);
+                        int newGameID = rs.getInt("LastID");
+                        System.out.println("New game inserted successfully! GameID: " + newGameID);
+                        return newGameID;
                     }
                 }
             } else {
@@ -181,30 +186,25 @@ public class App {
             e.printStackTrace();
             System.out.println("Database connection or query execution failed.");
         }
+        return 0;
     }
 
     /**
      * Updates the game record in the database when the game ends.
      *
-     * @param myColor The color of the player.
-     * @param result  The result of the game ("White", "Black", or "Draw").
+     * @param gameID The identifier of the game.
+     * @param result The result of the game ("White", "Black", or "Draw").
      */
-    public static void editEndGame(String myColor, String result) {
-        if (!myColor.equalsIgnoreCase("White") && !myColor.equalsIgnoreCase("Black")) {
-            System.out.println("Invalid color. Please use 'White' or 'Black'.");
-            return;
-        }
+    public static void editEndGame(int gameID, String result) {
         if (!result.equalsIgnoreCase("White") && !result.equalsIgnoreCase("Black") && !result.equalsIgnoreCase("Draw")) {
             System.out.println("Invalid result. Please use 'White', 'Black', or 'Draw'.");
             return;
         }
 
-        String jdbcURL = "jdbc:derby:database;create=true";
         String updateSQL = "UPDATE Games SET EndTimestamp = ?, Status = ?, Result = ? " +
-                "WHERE GameID = (SELECT GameID FROM Games WHERE MyColor = ? AND Status = 'Not Finished' " +
-                "ORDER BY StartTimestamp DESC FETCH FIRST ROW ONLY)";
+                "WHERE GameID = ? AND Status = 'Not Finished'";
 
-        try (Connection connection = DriverManager.getConnection(jdbcURL);
+        try (Connection connection = Database.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(updateSQL)) {
 
             // Format the current timestamp for the end time
@@ -214,15 +214,16 @@ public class App {
             preparedStatement.setTimestamp(1, Timestamp.valueOf(endTimestamp)); // End timestamp
             preparedStatement.setString(2, "Finished"); // Status
             preparedStatement.setString(3, result); // Result
-            preparedStatement.setString(4, myColor); // Player's color
+            preparedStatement.setInt(4, gameID); // The game
 
             // Execute the update statement
             int rowsAffected = preparedStatement.executeUpdate();
 
             if (rowsAffected > 0) {
+                openingExplorer.recordResult(gameID, result);
                 System.out.println("Game updated successfully!");
             } else {
-                System.out.println("No unfinished game found for the given color.");
+                System.out.println("No unfinished game found with GameID " + gameID + ".");
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -233,16 +234,19 @@ public class App {
     /**
      * Inserts a new move record into the database.
      *
+     * @param gameID       The identifier of the game.
+     * @param positionID   The identifier of the position after the move.
      * @param moveNumber   The move number in the game.
      * @param playerTurn   The player who made the move ("White" or "Black").
      * @param moveNotation The move in chess notation.
+     * @param fenString    The FEN representation of the position after the move.
      */
-    public static void insertNewMove(int moveNumber, String playerTurn, String moveNotation) {
-        String jdbcURL = "jdbc:derby:D:/University/Programming/JChess/database;create=true";
+    public static void insertNewMove(int gameID, int positionID, int moveNumber, String playerTurn,
+                                     String moveNotation, String fenString) {
         String insertSQL = "INSERT INTO Moves (GameID, PositionID, MoveNumber, PlayerTurn, MoveNotation, Timestamp) "
                 + "VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (Connection connection = DriverManager.getConnection(jdbcURL);
+        try (Connection connection = Database.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(insertSQL)) {
 
             // Set the parameters for the prepared statement
@@ -256,6 +260,7 @@ public class App {
             // Execute the insert statement
             int rowsAffected = preparedStatement.executeUpdate();
             if (rowsAffected > 0) {
+                openingExplorer.recordMove(gameID, fenString, moveNotation);
                 System.out.println("Move inserted successfully!");
             } else {
                 System.out.println("Failed to insert the move.");
@@ -267,17 +272,17 @@ public class App {
     }
 
     /**
-     * Inserts player details into the database for the current game.
+     * Inserts player details into the database for a game.
      *
+     * @param gameID        The identifier of the game.
      * @param myColor       The player's color.
      * @param opponentColor The opponent's color.
      */
-    public static void insertPlayers(String myColor, String opponentColor) {
-        String jdbcURL = "jdbc:derby:D:/University/Programming/JChess/database;create=true";
+    public static void insertPlayers(int gameID, String myColor, String opponentColor) {
         String insertSQL = "INSERT INTO Players (GameID, MyColor, OpponentColor, MyCapturedPieces, OpponentCapturedPieces) "
                 + "VALUES (?, ?, ?, '', '')";
 
-        try (Connection connection = DriverManager.getConnection(jdbcURL);
+        try (Connection connection = Database.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(insertSQL)) {
 
             // Set the parameters for the prepared statement
@@ -301,16 +306,16 @@ public class App {
     /**
      * Updates the record of captured pieces for a player in the database.
      *
+     * @param gameID       The identifier of the game.
      * @param isMyCapture  Whether the piece was captured by the player.
      * @param capturedPiece The captured piece.
      */
-    public static void editCapturedPieces(boolean isMyCapture, String capturedPiece) {
-        String jdbcURL = "jdbc:derby:D:/University/Programming/JChess/database;create=true";
+    public static void editCapturedPieces(int gameID, boolean isMyCapture, String capturedPiece) {
         String updateSQL = isMyCapture
                 ? "UPDATE Players SET MyCapturedPieces = MyCapturedPieces || ? WHERE GameID = ?"
                 : "UPDATE Players SET OpponentCapturedPieces = OpponentCapturedPieces || ? WHERE GameID = ?";
 
-        try (Connection connection = DriverManager.getConnection(jdbcURL);
+        try (Connection connection = Database.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(updateSQL)) {
 
             // Set the parameters for the prepared statement
@@ -333,15 +338,16 @@ public class App {
     /**
      * Inserts a new board position record into the database.
      *
+     * @param gameID         The identifier of the game.
      * @param positionNumber The position number in the game.
      * @param fenString      The FEN representation of the position.
+     * @return The generated PositionID, or 0 if the position could not be inserted.
      */
-    public static void insertNewPosition(int positionNumber, String fenString) {
-        String jdbcURL = "jdbc:derby:D:/University/Programming/JChess/database;create=true";
+    public static int insertNewPosition(int gameID, int positionNumber, String fenString) {
         String insertSQL = "INSERT INTO Positions (GameID, PositionNumber, FENString) "
                 + "VALUES (?, ?, ?)";
 
-        try (Connection connection = DriverManager.getConnection(jdbcURL);
+        try (Connection connection = Database.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(insertSQL,
                      PreparedStatement.RETURN_GENERATED_KEYS)) {
 
@@ -358,7 +364,7 @@ public class App {
                 // Retrieve the auto-generated PositionID
                 try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
-                        positionID = generatedKeys.getInt(1); // Get the generated PositionID
+                        return generatedKeys.getInt(1); // The generated PositionID
                     }
                 }
             } else {
@@ -368,6 +374,7 @@ public class App {
             e.printStackTrace();
             System.out.println("Database connection or query execution failed.");
         }
+        return 0;
     }
 
     /**
@@ -378,15 +385,17 @@ public class App {
         JFrame mainFrame = new JFrame("Chess Game");
         mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         mainFrame.setExtendedState(JFrame.MAXIMIZED_BOTH);
-        mainFrame.setLayout(new GridLayout(3, 1));
+        mainFrame.setLayout(new GridLayout(4, 1));
         mainFrame.setIconImage(APP_ICON);
 
         JLabel welcomeLabel = new JLabel("Welcome to ChessGame!", JLabel.CENTER);
         JButton startGameButton = new JButton("Start Game");
+        JButton resumeGameButton = new JButton("Resume Game");
         JButton exitButton = new JButton("Exit");
 
         mainFrame.add(welcomeLabel);
         mainFrame.add(startGameButton);
+        mainFrame.add(resumeGameButton);
         mainFrame.add(exitButton);
 
         // Add action listener for "Start Game"
@@ -395,6 +404,12 @@ public class App {
             selectColorMenu();
         });
 
+        // Add action listener for "Resume Game"
+        resumeGameButton.addActionListener(e -> {
+            mainFrame.dispose();
+            resumeGame();
+        });
+
         // Add action listener for "Exit"
         exitButton.addActionListener(e -> System.exit(0));
 
@@ -421,23 +436,9 @@ public class App {
         colorFrame.add(blackButton);
         colorFrame.add(randomButton);
 
-        whiteButton.addActionListener(e -> {
-            insertNewGame("White");
-            insertPlayers("White", "Black");
-            startGame(Player.ColorOption.WHITE, colorFrame);
-        });
-        blackButton.addActionListener(e -> {
-            insertNewGame("Black");
-            insertPlayers("Black", "White");
-            startGame(Player.ColorOption.BLACK, colorFrame);
-        });
-        randomButton.addActionListener(e -> {
-            startGame(Player.ColorOption.RANDOM, colorFrame);
-            String myColor = game.getMe().playerColor == Game.Color.WHITE ? "White" : "Black";
-            String opponentColor = game.getMe().playerColor == Game.Color.WHITE ? "Black" : "White";
-            insertNewGame(myColor);
-            insertPlayers(myColor, opponentColor);
-        });
+        whiteButton.addActionListener(e -> startGame(Player.ColorOption.WHITE, colorFrame));
+        blackButton.addActionListener(e -> startGame(Player.ColorOption.BLACK, colorFrame));
+        randomButton.addActionListener(e -> startGame(Player.ColorOption.RANDOM, colorFrame));
 
         colorFrame.setVisible(true);
     }
@@ -452,41 +453,8 @@ public class App {
         gameFrame.setLayout(new BorderLayout());
         gameFrame.setIconImage(APP_ICON);
 
-        // Create the chessboard panel
-        JPanel boardPanel = new JPanel(new GridLayout(BOARD_SIZE, BOARD_SIZE));
-        squareButtons = new JButton[BOARD_SIZE][BOARD_SIZE];
-
-        // Initialize the board with squares
-        if (game.getMe().playerColor == Game.Color.WHITE) {
-            for (int i = 7; i >= 0; i--) for (int j = 0; j < 8; j++) addSquare(i, j, squareButtons, boardPanel);
-        } else {
-            for (int i = 0; i < 8; i++) for (int j = 7; j >= 0; j--) addSquare(i, j, squareButtons, boardPanel);
-        }
-
-        // Wrap the chessboard panel in another panel to control resizing
-        JPanel squareWrapperPanel = new JPanel(null) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-
-                // Resize the chessboard to maintain square shape
-                int size = Math.min(getWidth(), getHeight());
-                boardPanel.setBounds((getWidth() - size) / 2, (getHeight() - size) / 2, size, size);
-
-                // Ensure buttons are properly resized after layout
-                SwingUtilities.invokeLater(() -> {
-                    // Initialize the board with pieces
-                    if (game.getMe().playerColor == Game.Color.WHITE) {
-                        for (int i = 7; i >= 0; i--) for (int j = 0; j < 8; j++) addPiece(i, j, squareButtons);
-                    } else {
-                        for (int i = 0; i < 8; i++) for (int j = 7; j >= 0; j--) addPiece(i, j, squareButtons);
-                    }
-                });
-            }
-        };
-        squareWrapperPanel.add(boardPanel);
-
-        board = squareWrapperPanel;
+        // Create the chessboard, painted as a single component that keeps its squares square
+        board = new BoardView(myColor, App::handleSquareClick);
 
         // Add a control panel for additional actions
         JPanel controlPanel = new JPanel(new FlowLayout());
@@ -509,21 +477,73 @@ public class App {
 
         // Display the frame
         gameFrame.setVisible(true);
-        update(board, squareButtons);
     }
 
     /**
      * Starts a new game by disposing of the color selection frame, initializing a game with the chosen color,
-     * and opening the game frame. Also determines if it's the user's turn based on the chosen color.
+     * and opening the game frame. The game and its players are stored before the game is handed to a new
+     * session, with the engine playing the other color, so an engine move played at once is stored under the
+     * new game; the session of the previous game is closed, so its pending engine move is dropped.
      *
      * @param colorOption the selected color for the player.
      * @param colorFrame  the JFrame used for color selection.
      */
     public static void startGame(Player.ColorOption colorOption, JFrame colorFrame) {
         colorFrame.dispose();
-        game = new Game(colorOption);
+        // A random color is resolved by the game, before it is stored
+        Game game = new Game(colorOption);
+        String myColorName = game.getMe().playerColor == Game.Color.WHITE ? "White" : "Black";
+        String opponentColorName = game.getMe().playerColor == Game.Color.WHITE ? "Black" : "White";
+        int newGameID = insertNewGame(myColorName);
+        insertPlayers(newGameID, myColorName, opponentColorName);
+        startSession(game, newGameID, 0);
+    }
+
+    /**
+     * Resumes the latest unfinished game from its last stored position. The game is set up from the stored FEN
+     * without replaying its moves; the stored moves are handed to the opening explorer, and the next moves are
+     * stored as part of the same game. Shows the color selection menu if there is no game to resume.
+     */
+    public static void resumeGame() {
+        ResumedGame resumed;
+        try (Connection connection = Database.getConnection()) {
+            resumed = ResumedGame.loadLatest(connection);
+        } catch (SQLException | IllegalStateException e) {
+            e.printStackTrace();
+            System.out.println("The game could not be resumed.");
+            resumed = null;
+        }
+        if (resumed == null) {
+            selectColorMenu();
+            return;
+        }
+
+        resumed.recordMoves(openingExplorer);
+        startSession(resumed.getGame(), resumed.getGameID(), resumed.getLastPositionID());
+    }
+
+    /**
+     * Opens the game frame and hands a game to a new session, with the engine playing the other color. The
+     * session of the previous game is closed, so its pending engine move is dropped, and the opening explorer
+     * forgets the moves of the previous game if it did not finish.
+     *
+     * @param game The game to play, in its current position.
+     * @param newGameID The identifier of the game in the database.
+     * @param lastPositionID The identifier of the latest stored position of the game, or 0 if none is stored.
+     */
+    private static void startSession(Game game, int newGameID, int lastPositionID) {
+        if (session != null) session.close();
+        sessionExecutor.execute(App::stopPondering);
+        if (gameID != newGameID) openingExplorer.discardGame(gameID);
+        gameID = newGameID;
+
+        myColor = game.getMe().playerColor;
         gameFrame();
-        isUserTurn = game.getMe().playerColor == Game.Color.WHITE;
+
+        Game.Color engineColor = myColor == Game.Color.WHITE ? Game.Color.BLACK : Game.Color.WHITE;
+        session = new GameSession(game, engineColor, copy -> engineMove(copy.FENNotation()), sessionExecutor,
+                new SessionListener(board, myColor, newGameID, lastPositionID));
+        session.start();
     }
 
     /**
@@ -572,265 +592,158 @@ public class App {
     }
 
     /**
-     * Updates the board UI to reflect the current game state, including pieces, highlights, and game status.
-     * Also handles the transition between the user's and the engine's turns.
-     *
-     * @param boardPanel    the JPanel representing the chessboard.
-     * @param squareButtons the 2D array of buttons representing the board squares.
-     */
-    private static void update(JPanel boardPanel, JButton[][] squareButtons) {
-        // Clear and refresh each square
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (game.currentPosition.board[i][j] == selectedSquare) {
-                    // Highlight the selected square
-                    squareButtons[i][j].setBackground(LIGHT_GRAY);
-                } else {
-                    // Reset the square's background color
-                    squareButtons[i][j].setBackground(
-                            game.currentPosition.board[i][j].getColor() == Game.Color.WHITE ? WHITE : GRAY
-                    );
-                }
-
-                // Update the piece icon
-                addPiece(i, j, squareButtons);
-                if (game.currentPosition.board[i][j].getIsEmpty()) {
-                    squareButtons[i][j].setIcon(null);
-                }
-            }
-        }
-
-        // Check if the king is in check
-        Square kingSquare = findKingSquare(game.whiteMoves ? Game.Color.WHITE : Game.Color.BLACK);
-        if (kingSquare != null && (game.isCheckForWhite() || game.isCheckForBlack())) {
-            int kingRank = kingSquare.getRank() - 1;
-            int kingFile = kingSquare.getFile() - 'a';
-            squareButtons[kingRank][kingFile].setBackground(RED);
-        }
-
-        // Check the status of the game
-        if (game.isCheckmateForWhite()) {
-            editEndGame(game.getMe().playerColor == Game.Color.WHITE ? "White" : "Black", "Black");
-            endGame("Black wins");
-        } else if (game.isCheckmateForBlack()) {
-            editEndGame(game.getMe().playerColor == Game.Color.WHITE ? "White" : "Black", "White");
-            endGame("White wins");
-        } else if (game.isDraw()) {
-            editEndGame(game.getMe().playerColor == Game.Color.WHITE ? "White" : "Black", "Draw");
-            endGame("Draw");
-        }
-
-        // Repaint the board to reflect changes
-        boardPanel.revalidate();
-        boardPanel.repaint();
-
-        isUserTurn = (game.getMe().playerColor == Game.Color.WHITE && game.whiteMoves)
-                || game.getMe().playerColor == Game.Color.BLACK && !game.whiteMoves;
-
-        if (isUserTurn) engineMoved = false;
-
-        // Alternate turns based on current player's color and move
-        if (!isUserTurn && !engineMoved) {
-            stockfishMove();
-            isUserTurn = true;
-            engineMoved = true;
-        }
-    }
-
-    /**
-     * Finds the square containing the king of the specified color on the current board position.
-     *
-     * @param kingColor the color of the king to find.
-     * @return the Square containing the king, or null if the king is not found.
-     */
-    private static Square findKingSquare(Game.Color kingColor) {
-        Position position = game.currentPosition;
-
-        // Iterate through the board to find the king
-        for (int rank = 0; rank < 8; rank++) {
-            for (int file = 0; file < 8; file++) {
-                Piece piece = position.board[rank][file].getPiece();
-                if (piece instanceof King && piece.color == kingColor) {
-                    return position.board[rank][file];
-                }
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Adds a square to the chessboard with appropriate background color and action listeners.
+     * Handles a click on a board square, on the event dispatch thread: the first click selects a piece of the side
+     * to move, the second one submits the move to the session. The board shows the selection at once, from the
+     * snapshot it is showing, without waiting for the session.
      *
-     * @param i               the row index of the square.
-     * @param j               the column index of the square.
-     * @param squareButtons   the 2D array of buttons representing the board squares.
-     * @param chessBoardPanel the JPanel representing the chessboard.
+     * @param clickedSquare the clicked square.
      */
-    private static void addSquare(int i, int j, JButton[][] squareButtons, JPanel chessBoardPanel) {
-        JButton squareButton = new JButton();
-        squareButton.setOpaque(true);
-        squareButton.setBorderPainted(false);
-
-        squareButton.setBackground(game.currentPosition.board[i][j].getColor() == Game.Color.WHITE ? WHITE : GRAY);
-
-        // Add an action listener to handle clicks
-        squareButton.addActionListener(e -> handleSquareClick(i, j));
-
-        squareButtons[i][j] = squareButton;
-        chessBoardPanel.add(squareButton);
-    }
-
-    /**
-     * Adds a chess piece icon to a board square button, resizing the icon to fit the button.
-     *
-     * @param i               the row index of the square.
-     * @param j               the column index of the square.
-     * @param squareButtons   the 2D array of buttons representing the board squares.
-     */
-    private static void addPiece(int i, int j, JButton[][] squareButtons) {
-        JButton squareButton = squareButtons[i][j];
-        int buttonWidth = squareButton.getWidth();
-        int buttonHeight = squareButton.getHeight();
-        Square square = App.game.currentPosition.board[i][j];
-        if (!square.getIsEmpty() && buttonWidth > 0 && buttonHeight > 0) {
-            squareButton.setIcon(scaleIcon(getPieceIcon(square.getPiece()), squareButton));
-        }
-    }
-
-    /**
-     * Handles user interaction when a board square is clicked, including selecting pieces and making moves or captures.
-     *
-     * @param row the row index of the clicked square.
-     * @param col the column index of the clicked square.
-     */
-    private static void handleSquareClick(int row, int col) {
-        Square clickedSquare = game.currentPosition.board[row][col];
+    private static void handleSquareClick(Square clickedSquare) {
+        BoardSnapshot snapshot = board.getSnapshot();
+        if (snapshot == null) return;
+        Position position = snapshot.getPosition();
+        Square selectedSquare = snapshot.getSelectedSquare();
 
         if (selectedSquare == null) {
-            handleSelection(clickedSquare);
-        } else {
-            handleAction(clickedSquare);
-            selectedSquare = null; // Reset selection after the action
-        }
-        update(board, squareButtons);
-    }
-
-    /**
-     * Handles the selection of a square by the user, ensuring the selection is valid based on the game rules.
-     *
-     * @param clickedSquare the square selected by the user.
-     */
-    private static void handleSelection(Square clickedSquare) {
-        if (!clickedSquare.getIsEmpty()) {
-            Piece piece = clickedSquare.getPiece();
+            Piece piece = position.getPiece(clickedSquare);
+            if (piece == null) return;
 
             // Ensure it's the correct turn and piece color
-            if ((game.whiteMoves && piece.color == Game.Color.WHITE) || (!game.whiteMoves && piece.color == Game.Color.BLACK)) {
-                selectedSquare = clickedSquare;
+            if (piece.color == snapshot.getStatus().getSideToMove()) {
+                board.show(snapshot.withSelectedSquare(clickedSquare));
                 System.out.println("Selected piece: " + piece);
             } else {
                 System.out.println("It's not your turn or invalid piece selection.");
             }
+            return;
         }
+
+        // Reset selection and submit the move, asking for the promotion piece if needed
+        board.show(snapshot.withSelectedSquare(null));
+        String uciMove = selectedSquare.toString() + clickedSquare;
+        Piece selectedPiece = position.getPiece(selectedSquare);
+        if (selectedPiece instanceof Pawn && ((Pawn) selectedPiece).isPromotionSquare(clickedSquare)
+                && snapshot.getStatus().getLegalMoves().contains(uciMove + PieceType.QUEEN.getUciSuffix())) {
+            uciMove += askPromotionPiece().getUciSuffix();
+        }
+        session.submitMove(uciMove);
     }
 
     /**
-     * Handles the action when a previously selected piece interacts with a target square (move or capture).
+     * Asks the user which piece to promote a pawn to, with a modal dialog.
      *
-     * @param clickedSquare the target square of the action.
+     * @return the piece selected by the user, or a queen if the dialog is closed.
      */
-    private static void handleAction(Square clickedSquare) {
-        if (clickedSquare.getIsEmpty()) {
-            handleMove(clickedSquare);
-        } else {
-            handleCapture(clickedSquare);
+    private static PieceType askPromotionPiece() {
+        String[] options = {"Queen", "Rook", "Knight", "Bishop"};
+        PieceType[] pieceTypes = {PieceType.QUEEN, PieceType.ROOK, PieceType.KNIGHT, PieceType.BISHOP};
+        int choice = JOptionPane.showOptionDialog(
+                gameFrame,
+                "Promote your pawn to:",
+                "Promote Piece",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                options,
+                options[0]
+        );
+
+        if (choice < 0) {
+            JOptionPane.showMessageDialog(gameFrame, "You must select a piece for promotion.");
+            // Default to Queen if no valid selection
+            return PieceType.QUEEN;
         }
+        return pieceTypes[choice];
     }
 
     /**
-     * Handles a piece move to an empty square, validating and applying the move if it is allowed.
-     *
-     * @param clickedSquare the target empty square for the move.
+     * Receives the events of a game session: records the moves and the result in the database and publishes a
+     * snapshot to the board after each move. Runs on the session's threads, never on the event dispatch thread.
      */
-    private static void handleMove(Square clickedSquare) {
-        Piece selectedPiece = selectedSquare.getPiece();
+    private static class SessionListener implements GameSession.Listener {
+        /// The board of the game; snapshots of a closed session never reach the board of the next game.
+        private final BoardView view;
+        /// The color played by the user.
+        private final Game.Color myColor;
+        /// The identifier of the game in the database.
+        private final int gameID;
+        /// The identifier of the latest stored position, only touched by the session's mailbox.
+        private int positionID;
+
+        /**
+         * Constructs a {@code SessionListener}.
+         *
+         * @param view The board of the game.
+         * @param myColor The color played by the user.
+         * @param gameID The identifier of the game in the database.
+         * @param positionID The identifier of the latest stored position of the game, or 0 if none is stored.
+         */
+        SessionListener(BoardView view, Game.Color myColor, int gameID, int positionID) {
+            this.view = view;
+            this.myColor = myColor;
+            this.gameID = gameID;
+            this.positionID = positionID;
+        }
 
-        if (selectedPiece.allowedMove(selectedSquare, clickedSquare, game)) {
-            selectedPiece.makeMove(selectedSquare, clickedSquare, game);
+        @Override
+        public void onStart(Game game) {
+            publish(game);
+        }
 
-            Move lastMove = game.gameHistory.get(game.gameHistory.size() - 1);
-            System.out.println("Moved piece " + lastMove.getMovedPiece() +
-                    " from " + lastMove.getStart() + " to " + lastMove.getEnd());
+        @Override
+        public void onMove(Game game, Move move, Piece capturedPiece) {
+            if (capturedPiece == null) {
+                System.out.println("Moved piece " + move.getMovedPiece() + " from " + move.getStart() + " to " + move.getEnd());
+            } else {
+                System.out.println("Captured piece " + capturedPiece + " with " + move.getMovedPiece() +
+                        " from " + move.getStart() + " to " + move.getEnd());
+            }
 
-            insertNewPosition(lastMove.getPositionAfterMove().positionNumber, game.FENNotation());
-            insertNewMove(lastMove.getMoveNumber(), !game.whiteMoves ? "White" : "Black", lastMove.getMoveNotation());
+            String fen = game.FENNotation();
+            positionID = insertNewPosition(gameID, move.getPositionAfterMove().positionNumber, fen);
+            insertNewMove(gameID, positionID, move.getMoveNumber(), !game.whiteMoves ? "White" : "Black",
+                    move.getMoveNotation(), fen);
+            if (capturedPiece != null) {
+                editCapturedPieces(gameID, capturedPiece.color != myColor, capturedPiece.toString());
+            }
             game.display();
-        } else if (selectedPiece instanceof Pawn && selectedPiece.allowedCapture(selectedSquare, clickedSquare, game)) {
-            selectedPiece.makeCapture(selectedSquare, clickedSquare, game);
-
-            Move thisMove = game.gameHistory.get(game.gameHistory.size() - 1);
-            Piece capturingPiece = thisMove.getMovedPiece();
+            publish(game);
+        }
 
-            Move lastMove = game.gameHistory.get(game.gameHistory.size() - 2);
-            Piece capturedPiece = lastMove.getMovedPiece();
+        @Override
+        public void onIllegalMove(Game game, String uciMove) {
+            System.out.println("Invalid move: " + uciMove);
+        }
 
-            System.out.println("En passant move made.");
-            System.out.println("Captured piece " + capturedPiece  +
-                    " with " + capturingPiece +
-                    " from " + thisMove.getStart() + " to " + thisMove.getEnd());
-            insertNewPosition(lastMove.getPositionAfterMove().positionNumber, game.FENNotation());
-            insertNewMove(lastMove.getMoveNumber(), !game.whiteMoves ? "White" : "Black", lastMove.getMoveNotation());
-            game.display();
-        } else {
-            System.out.println("Invalid move.");
+        @Override
+        public void onEngineFailure(Game game, Exception error) {
+            System.out.println("Failed to get an engine move: " + error.getMessage());
         }
-    }
 
-    /**
-     * Handles a piece capture, ensuring it is valid based on the game rules.
-     *
-     * @param clickedSquare the square containing the target piece to be captured.
-     */
-    private static void handleCapture(Square clickedSquare) {
-        Piece selectedPiece = selectedSquare.getPiece();
-        Piece targetPiece = clickedSquare.getPiece();
-
-        if (targetPiece.color != selectedPiece.color) {
-            if (selectedPiece.allowedCapture(selectedSquare, clickedSquare, game)) {
-                selectedPiece.makeCapture(selectedSquare, clickedSquare, game);
-
-                Move lastMove = game.gameHistory.get(game.gameHistory.size() - 1);
-                System.out.println("Captured piece " + targetPiece +
-                        " with " + lastMove.getMovedPiece() +
-                        " from " + lastMove.getStart() + " to " + lastMove.getEnd());
-                insertNewPosition(lastMove.getPositionAfterMove().positionNumber, game.FENNotation());
-                insertNewMove(lastMove.getMoveNumber(), !game.whiteMoves ? "White" : "Black", lastMove.getMoveNotation());
-
-                boolean isMyCapture = selectedPiece.color == game.getMe().playerColor;
-                editCapturedPieces(isMyCapture, targetPiece.toString());
-                game.display();
+        @Override
+        public void onGameOver(Game game, GameStatus status) {
+            stopPondering();
+            if (status.isCheckmate() && status.getSideToMove() == Game.Color.WHITE) {
+                editEndGame(gameID, "Black");
+                SwingUtilities.invokeLater(() -> endGame("Black wins"));
+            } else if (status.isCheckmate()) {
+                editEndGame(gameID, "White");
+                SwingUtilities.invokeLater(() -> endGame("White wins"));
             } else {
-                System.out.println("Invalid capture.");
+                editEndGame(gameID, "Draw");
+                SwingUtilities.invokeLater(() -> endGame("Draw"));
             }
-        } else {
-            System.out.println("Invalid capture. You cannot capture your own piece.");
         }
-    }
 
-    /**
-     * Retrieves the appropriate icon for a given chess piece.
-     *
-     * @param piece the chess piece for which the icon is needed.
-     * @return the ImageIcon representing the piece.
-     */
-    private static ImageIcon getPieceIcon(Piece piece) {
-        if (piece instanceof Pawn) return piece.color == Game.Color.WHITE ? WHITE_PAWN : BLACK_PAWN;
-        if (piece instanceof Rook) return piece.color == Game.Color.WHITE ? WHITE_ROOK : BLACK_ROOK;
-        if (piece instanceof Knight) return piece.color == Game.Color.WHITE ? WHITE_KNIGHT : BLACK_KNIGHT;
-        if (piece instanceof Bishop) return piece.color == Game.Color.WHITE ? WHITE_BISHOP : BLACK_BISHOP;
-        if (piece instanceof Queen) return piece.color == Game.Color.WHITE ? WHITE_QUEEN : BLACK_QUEEN;
-        if (piece instanceof King) return piece.color == Game.Color.WHITE ? WHITE_KING : BLACK_KING;
-        return null;
+        /**
+         * Hands a snapshot of the game to the board, on the event dispatch thread.
+         *
+         * @param game The game.
+         */
+        private void publish(Game game) {
+            BoardSnapshot snapshot = BoardSnapshot.of(game, null);
+            SwingUtilities.invokeLater(() -> view.show(snapshot));
+        }
     }
 
     /**
@@ -847,30 +760,4 @@ public class App {
         }
         return new ImageIcon(resource);
     }
-
-    /**
-     * Scales an icon to fit within a button, maintaining its aspect ratio.
-     *
-     * @param originalIcon the original icon to be scaled.
-     * @param button       the button for which the icon is scaled.
-     * @return the scaled ImageIcon.
-     */
-    private static ImageIcon scaleIcon(ImageIcon originalIcon, JButton button) {
-        // Get the button's size after it's been added to the layout
-        int buttonWidth = button.getWidth();
-        int buttonHeight = button.getHeight();
-
-        // Ensure button size is valid
-        if (buttonWidth == 0 || buttonHeight == 0) {
-            // Avoid scaling to a zero size, fallback to default size
-            return originalIcon;
-        }
-
-        // Resize the icon to match button size, keeping aspect ratio
-        Image originalImage = originalIcon.getImage();
-        Image scaledImage = originalImage.getScaledInstance((int) (0.7 * buttonWidth), (int) (0.7 * buttonHeight), Image.SCALE_SMOOTH);
-
-        // Return the resized icon
-        return new ImageIcon(scaledImage);
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,214 @@
+package gui;
+
+import elements.Game;
+import elements.Position;
+import elements.Square;
+import pieces.Piece;
+import pieces.PieceType;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/// @author dana
+
+/**
+ * Paints chessboard squares and pieces, for the {@link BoardView} of the game window and for board images
+ * rendered without a display (e.g., thumbnails of the games in a listing).
+ * <p>
+ * The piece images are loaded once and scaled once per square size: the scaled sprites are cached and only
+ * regenerated when the square size changes, so painting a square is a single image copy.
+ * A renderer is not thread-safe; render thumbnails in parallel with one renderer per thread.
+ */
+public class BoardRenderer {
+    /// The color of the light squares.
+    static final Color LIGHT_SQUARE = Color.WHITE;
+    /// The color of the dark squares.
+    static final Color DARK_SQUARE = Color.GRAY;
+    /// The color of the selected square.
+    static final Color SELECTED_SQUARE = Color.LIGHT_GRAY;
+    /// The color of the square of a king in check.
+    static final Color CHECK_SQUARE = Color.RED;
+    /// The share of the square size taken by a piece.
+    private static final double PIECE_SCALE = 0.7;
+
+    /// The original piece images, indexed by {@link #spriteIndex(Piece)}.
+    private static final BufferedImage[] PIECE_IMAGES = loadPieceImages();
+
+    /// The piece sprites scaled to {@link #spriteSquareSize}, indexed by {@link #spriteIndex(Piece)}.
+    private final BufferedImage[] sprites = new BufferedImage[PIECE_IMAGES.length];
+    /// The square size the cached sprites were scaled for, or 0 if none are cached.
+    private int spriteSquareSize = 0;
+
+    /**
+     * Returns the sprite of a piece scaled for a square size, scaling the sprites again if the size changed.
+     *
+     * @param piece The piece.
+     * @param squareSize The size of a square, in pixels.
+     * @return The scaled sprite, as large as a square with the piece centered.
+     */
+    public BufferedImage getSprite(Piece piece, int squareSize) {
+        if (squareSize != spriteSquareSize) {
+            for (int i = 0; i < sprites.length; i++) sprites[i] = scale(PIECE_IMAGES[i], squareSize);
+            spriteSquareSize = squareSize;
+        }
+        return sprites[spriteIndex(piece)];
+    }
+
+    /**
+     * Paints a square and the piece standing on it.
+     *
+     * @param graphics The graphics to paint with.
+     * @param position The position holding the piece.
+     * @param square The square.
+     * @param x The left of the square, in pixels.
+     * @param y The top of the square, in pixels.
+     * @param squareSize The size of the square, in pixels.
+     * @param background The color of the square.
+     */
+    public void paintSquare(Graphics graphics, Position position, Square square, int x, int y, int squareSize, Color background) {
+        graphics.setColor(background);
+        graphics.fillRect(x, y, squareSize, squareSize);
+
+        Piece piece = position.getPiece(square);
+        if (piece != null) graphics.drawImage(getSprite(piece, squareSize), x, y, null);
+    }
+
+    /**
+     * Renders a whole board to an image, without a display.
+     *
+     * @param position The position to render.
+     * @param bottom The color whose pieces start at the bottom of the image.
+     * @param squareSize The size of a square, in pixels.
+     * @return An image of 8 squares by 8 squares.
+     */
+    public BufferedImage render(Position position, Game.Color bottom, int squareSize) {
+        BufferedImage image = new BufferedImage(8 * squareSize, 8 * squareSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            for (int index = 0; index < 64; index++) {
+                Square square = Square.of(index);
+                paintSquare(graphics, position, square, column(square, bottom) * squareSize, row(square, bottom) * squareSize,
+                        squareSize, squareColor(square));
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Renders a whole board to a PNG file, without a display.
+     *
+     * @param position The position to render.
+     * @param bottom The color whose pieces start at the bottom of the image.
+     * @param squareSize The size of a square, in pixels.
+     * @param file The PNG file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writePng(Position position, Game.Color bottom, int squareSize, File file) throws IOException {
+        ImageIO.write(render(position, bottom, squareSize), "png", file);
+    }
+
+    /**
+     * Returns the color of an empty, unhighlighted square.
+     *
+     * @param square The square.
+     * @return The light or dark square color.
+     */
+    static Color squareColor(Square square) {
+        return square.getColor() == Game.Color.WHITE ? LIGHT_SQUARE : DARK_SQUARE;
+    }
+
+    /**
+     * Returns the column a square is drawn in.
+     *
+     * @param square The square.
+     * @param bottom The color whose pieces start at the bottom of the board.
+     * @return The column, from 0 on the left.
+     */
+    static int column(Square square, Game.Color bottom) {
+        int file = square.getFile() - 'a';
+        return bottom == Game.Color.WHITE ? file : 7 - file;
+    }
+
+    /**
+     * Returns the row a square is drawn in.
+     *
+     * @param square The square.
+     * @param bottom The color whose pieces start at the bottom of the board.
+     * @return The row, from 0 at the top.
+     */
+    static int row(Square square, Game.Color bottom) {
+        int rank = square.getRank() - 1;
+        return bottom == Game.Color.WHITE ? 7 - rank : rank;
+    }
+
+    /**
+     * Returns the index of the sprite of a piece.
+     *
+     * @param piece The piece.
+     * @return The type ordinal for a white piece, plus the number of types for a black piece.
+     */
+    private static int spriteIndex(Piece piece) {
+        return piece.getType().ordinal() + (piece.color == Game.Color.BLACK ? PieceType.values().length : 0);
+    }
+
+    /**
+     * Scales a piece image to {@value #PIECE_SCALE} of a square, centered on a transparent square-sized sprite.
+     *
+     * @param image The original image.
+     * @param squareSize The size of a square, in pixels.
+     * @return The sprite.
+     */
+    private static BufferedImage scale(BufferedImage image, int squareSize) {
+        BufferedImage sprite = new BufferedImage(squareSize, squareSize, BufferedImage.TYPE_INT_ARGB);
+        int pieceSize = (int) (PIECE_SCALE * squareSize);
+        int margin = (squareSize - pieceSize) / 2;
+
+        Graphics2D graphics = sprite.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, margin, margin, pieceSize, pieceSize, null);
+        } finally {
+            graphics.dispose();
+        }
+        return sprite;
+    }
+
+    /**
+     * Loads the piece images from the resources.
+     *
+     * @return The images, indexed by {@link #spriteIndex(Piece)}.
+     */
+    private static BufferedImage[] loadPieceImages() {
+        PieceType[] types = PieceType.values();
+        BufferedImage[] images = new BufferedImage[2 * types.length];
+        for (PieceType type : types) {
+            images[type.ordinal()] = loadImage("pieces/white-" + type.name().toLowerCase() + ".png");
+            images[type.ordinal() + types.length] = loadImage("pieces/black-" + type.name().toLowerCase() + ".png");
+        }
+        return images;
+    }
+
+    /**
+     * Loads an image from the resources.
+     *
+     * @param resourcePath The path of the image resource.
+     * @return The image.
+     * @throws UncheckedIOException If the image is missing or cannot be read.
+     */
+    private static BufferedImage loadImage(String resourcePath) {
+        try (InputStream input = BoardRenderer.class.getClassLoader().getResourceAsStream(resourcePath)) {
+            if (input == null) throw new IOException("Resource not found: " + resourcePath);
+            return ImageIO.read(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package gui;
+
+import elements.Game;
+import elements.GameStatus;
+import elements.Position;
+import elements.Square;
+import pieces.King;
+
+/// @author dana
+
+/**
+ * What the board shows after a click has been processed: a copy of the position, the highlighted squares and
+ * the status of the game.
+ * <p>
+ * The game is only changed by its {@link session.GameSession}; a snapshot is built there and handed to the
+ * event dispatch thread, which paints it without ever reading the live game.
+ */
+public final class BoardSnapshot {
+    /// The position shown, a copy that is never changed.
+    private final Position position;
+    /// The selected square, or {@code null} if no square is selected.
+    private final Square selectedSquare;
+    /// The square of the king in check, or {@code null} if no king is in check.
+    private final Square checkSquare;
+    /// The status of the game in the position shown.
+    private final GameStatus status;
+
+    /**
+     * Constructs a {@code BoardSnapshot}.
+     *
+     * @param position The position shown, which must not be changed afterwards.
+     * @param selectedSquare The selected square, or {@code null}.
+     * @param checkSquare The square of the king in check, or {@code null}.
+     * @param status The status of the game.
+     */
+    BoardSnapshot(Position position, Square selectedSquare, Square checkSquare, GameStatus status) {
+        this.position = position;
+        this.selectedSquare = selectedSquare;
+        this.checkSquare = checkSquare;
+        this.status = status;
+    }
+
+    /**
+     * Takes a snapshot of a game. Must be called on the thread that changes the game.
+     *
+     * @param game The game.
+     * @param selectedSquare The selected square, or {@code null} if no square is selected.
+     * @return The snapshot.
+     */
+    static BoardSnapshot of(Game game, Square selectedSquare) {
+        GameStatus status = game.getStatus();
+        Square checkSquare = null;
+        if (status.isInCheck()) {
+            for (int index = 0; index < 64 && checkSquare == null; index++) {
+                Square square = Square.of(index);
+                if (game.currentPosition.getPiece(square) == King.of(status.getSideToMove())) checkSquare = square;
+            }
+        }
+        return new BoardSnapshot(game.currentPosition.copy(), selectedSquare, checkSquare, status);
+    }
+
+    /**
+     * Returns the same snapshot with another selected square.
+     *
+     * @param square The selected square, or {@code null} if no square is selected.
+     * @return The new snapshot, sharing the position and the status of this one.
+     */
+    public BoardSnapshot withSelectedSquare(Square square) {
+        return new BoardSnapshot(position, square, checkSquare, status);
+    }
+
+    /**
+     * Returns the position shown. The position must not be changed.
+     *
+     * @return The position.
+     */
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the selected square.
+     *
+     * @return The selected square, or {@code null} if no square is selected.
+     */
+    public Square getSelectedSquare() {
+        return selectedSquare;
+    }
+
+    /**
+     * Returns the square of the king in check.
+     *
+     * @return The square of the king in check, or {@code null} if no king is in check.
+     */
+    public Square getCheckSquare() {
+        return checkSquare;
+    }
+
+    /**
+     * Returns the status of the game in the position shown.
+     *
+     * @return The game status.
+     */
+    public GameStatus getStatus() {
+        return status;
+    }
+}
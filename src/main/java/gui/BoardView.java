@@ -0,0 +1,167 @@
+package gui;
+
+import elements.Game;
+import elements.Position;
+import elements.Square;
+import pieces.Piece;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.function.Consumer;
+
+/// @author dana
+
+/**
+ * A chessboard painted as a single component, kept square and centered in its bounds.
+ * <p>
+ * The view paints {@link BoardSnapshot snapshots} published by the game session, never the live game.
+ * It remembers what each square showed, so {@link #show(BoardSnapshot)} only repaints the squares whose piece
+ * or highlight changed. Pieces are painted from the sprites of a {@link BoardRenderer},
+ * which are scaled again only when the component is resized.
+ */
+public final class BoardView extends JComponent {
+    /// The serialization version of the component.
+    private static final long serialVersionUID = 1L;
+
+    /// The renderer painting the squares.
+    private final transient BoardRenderer renderer = new BoardRenderer();
+    /// The color whose pieces start at the bottom of the board.
+    private final Game.Color bottom;
+    /// The snapshot shown, or {@code null} before the first one arrives.
+    private transient BoardSnapshot snapshot;
+    /// The piece each square showed in the last snapshot.
+    private final transient Piece[] shownPieces = new Piece[64];
+    /// The background color each square showed in the last snapshot.
+    private final Color[] shownBackgrounds = new Color[64];
+
+    /**
+     * Constructs a {@code BoardView}.
+     *
+     * @param bottom The color whose pieces start at the bottom of the board.
+     * @param clickListener Called with the square the user clicks.
+     */
+    public BoardView(Game.Color bottom, Consumer<Square> clickListener) {
+        this.bottom = bottom;
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                Square square = squareAt(e.getX(), e.getY());
+                if (square != null) clickListener.accept(square);
+            }
+        });
+    }
+
+    /**
+     * Shows a snapshot, repainting the squares whose piece or highlight changed. Must be called on the event
+     * dispatch thread.
+     *
+     * @param snapshot The snapshot to show.
+     */
+    public void show(BoardSnapshot snapshot) {
+        this.snapshot = snapshot;
+        Position position = snapshot.getPosition();
+        int squareSize = squareSize();
+        for (int index = 0; index < 64; index++) {
+            Square square = Square.of(index);
+            Piece piece = position.getPiece(square);
+            Color background = background(square);
+            if (piece == shownPieces[index] && background.equals(shownBackgrounds[index])) continue;
+
+            shownPieces[index] = piece;
+            shownBackgrounds[index] = background;
+            repaint(left() + BoardRenderer.column(square, bottom) * squareSize,
+                    top() + BoardRenderer.row(square, bottom) * squareSize, squareSize, squareSize);
+        }
+    }
+
+    /**
+     * Returns the snapshot shown. Must be called on the event dispatch thread.
+     *
+     * @return The snapshot, or {@code null} before the first one arrives.
+     */
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        super.paintComponent(graphics);
+        int squareSize = squareSize();
+        if (squareSize == 0 || snapshot == null) return;
+
+        Position position = snapshot.getPosition();
+        Rectangle clip = graphics.getClipBounds();
+        for (int index = 0; index < 64; index++) {
+            Square square = Square.of(index);
+            int x = left() + BoardRenderer.column(square, bottom) * squareSize;
+            int y = top() + BoardRenderer.row(square, bottom) * squareSize;
+            if (clip != null && !clip.intersects(x, y, squareSize, squareSize)) continue;
+            renderer.paintSquare(graphics, position, square, x, y, squareSize, background(square));
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(640, 640);
+    }
+
+    /**
+     * Returns the background color of a square, with its highlight.
+     *
+     * @param square The square.
+     * @return The color of the square.
+     */
+    private Color background(Square square) {
+        if (square == snapshot.getSelectedSquare()) return BoardRenderer.SELECTED_SQUARE;
+        if (square == snapshot.getCheckSquare()) return BoardRenderer.CHECK_SQUARE;
+        return BoardRenderer.squareColor(square);
+    }
+
+    /**
+     * Returns the square under a point of the component.
+     *
+     * @param x The horizontal coordinate of the point.
+     * @param y The vertical coordinate of the point.
+     * @return The square, or {@code null} if the point is outside the board.
+     */
+    private Square squareAt(int x, int y) {
+        int squareSize = squareSize();
+        if (squareSize == 0 || x < left() || y < top()) return null;
+        int column = (x - left()) / squareSize;
+        int row = (y - top()) / squareSize;
+        if (column > 7 || row > 7) return null;
+
+        int file = bottom == Game.Color.WHITE ? column : 7 - column;
+        int rank = bottom == Game.Color.WHITE ? 7 - row : row;
+        return Square.of(rank, file);
+    }
+
+    /**
+     * Returns the size of a square for the current size of the component.
+     *
+     * @return The size of a square, in pixels.
+     */
+    private int squareSize() {
+        return Math.min(getWidth(), getHeight()) / 8;
+    }
+
+    /**
+     * Returns the left of the board, centered horizontally.
+     *
+     * @return The left of the board, in pixels.
+     */
+    private int left() {
+        return (getWidth() - 8 * squareSize()) / 2;
+    }
+
+    /**
+     * Returns the top of the board, centered vertically.
+     *
+     * @return The top of the board, in pixels.
+     */
+    private int top() {
+        return (getHeight() - 8 * squareSize()) / 2;
+    }
+}
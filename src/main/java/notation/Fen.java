@@ -0,0 +1,256 @@
+package notation;
+
+import elements.Game;
+import elements.Move;
+import elements.Player;
+import elements.Position;
+import elements.Square;
+import pieces.Pawn;
+import pieces.Piece;
+import pieces.PieceType;
+
+/// @author dana
+
+/**
+ * Writes the FEN (Forsyth-Edwards Notation) of a game straight from its board, into a buffer supplied by the
+ * caller: a {@link StringBuilder}, or a byte array for bytes sent to an engine or stored as is.
+ * <p>
+ * Writing reads each square once and appends the letter cached on the shared piece, so it allocates nothing
+ * besides what the caller's buffer needs to grow. {@link #parse(String)} sets up a game from a FEN.
+ */
+public final class Fen {
+    /// The maximum length of a FEN: 71 characters of placement, 13 of side, castling and en passant fields,
+    /// and a half-move clock and a move number of up to 5 digits each with their spaces.
+    public static final int MAX_LENGTH = 96;
+    /// The FEN of the starting position.
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /**
+     * This class only has static methods.
+     */
+    private Fen() {
+    }
+
+    /**
+     * Appends the FEN of a game to a string builder.
+     *
+     * @param game The game.
+     * @param out The builder the FEN is appended to.
+     * @return The builder, for chaining.
+     */
+    public static StringBuilder append(Game game, StringBuilder out) {
+        write(game, out, null, 0);
+        return out;
+    }
+
+    /**
+     * Writes the FEN of a game as ASCII bytes.
+     *
+     * @param game The game.
+     * @param buffer The array the FEN is written to, with at least {@link #MAX_LENGTH} bytes after the offset.
+     * @param offset The index of the first byte written.
+     * @return The index after the last byte written.
+     * @throws ArrayIndexOutOfBoundsException If the FEN does not fit in the array.
+     */
+    public static int write(Game game, byte[] buffer, int offset) {
+        return write(game, null, buffer, offset);
+    }
+
+    /**
+     * Sets up a game in the position of a FEN. The game has no history, except for a two-square pawn move
+     * when the FEN has an en passant square, since the rules find en passant captures from the last move.
+     * The half-move clock and the move number are optional.
+     *
+     * @param fen The FEN (e.g., "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1").
+     * @return A new game in the position of the FEN, with the user playing White.
+     * @throws IllegalArgumentException If the text is not a valid FEN.
+     */
+    public static Game parse(String fen) {
+        return parse(fen, Player.ColorOption.WHITE);
+    }
+
+    /**
+     * Sets up a game in the position of a FEN, as {@link #parse(String)} does, with the user playing the given
+     * color (e.g., to resume a stored game).
+     *
+     * @param fen The FEN.
+     * @param colorOption The color of the user.
+     * @return A new game in the position of the FEN.
+     * @throws IllegalArgumentException If the text is not a valid FEN.
+     */
+    public static Game parse(String fen, Player.ColorOption colorOption) {
+        String[] fields = fen == null ? new String[0] : fen.trim().split("\\s+");
+        if (fields.length < 4 || fields.length > 6) throw new IllegalArgumentException("Not a FEN: " + fen);
+
+        Game game = new Game(colorOption);
+        Position position = game.currentPosition;
+        parsePlacement(fields[0], position, fen);
+
+        if (!fields[1].equals("w") && !fields[1].equals("b")) throw new IllegalArgumentException("Bad side to move in FEN: " + fen);
+        game.whiteMoves = fields[1].equals("w");
+
+        position.castlingRights = 0;
+        if (!fields[2].equals("-")) {
+            for (int i = 0; i < fields[2].length(); i++) {
+                int castlingRight = "KQkq".indexOf(fields[2].charAt(i));
+                if (castlingRight < 0) throw new IllegalArgumentException("Bad castling rights in FEN: " + fen);
+                position.castlingRights |= 1 << castlingRight;
+            }
+        }
+
+        int moveNumber = 1;
+        try {
+            if (fields.length > 4) game.halfMoveClock = Integer.parseInt(fields[4]);
+            if (fields.length > 5) moveNumber = Integer.parseInt(fields[5]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad move counters in FEN: " + fen, e);
+        }
+        if (game.halfMoveClock < 0 || moveNumber < 1) throw new IllegalArgumentException("Bad move counters in FEN: " + fen);
+        position.positionNumber = 2 * (moveNumber - 1) + (game.whiteMoves ? 0 : 1);
+
+        if (!fields[3].equals("-")) recordDoublePawnMove(game, fields[3], moveNumber, fen);
+        return game;
+    }
+
+    /**
+     * Places the pieces of the placement field of a FEN on an empty board.
+     *
+     * @param placement The placement field, from the 8th rank to the 1st.
+     * @param position The position the pieces are placed in.
+     * @param fen The whole FEN, for error messages.
+     * @throws IllegalArgumentException If the placement does not describe 64 squares.
+     */
+    private static void parsePlacement(String placement, Position position, String fen) {
+        for (int index = 0; index < 64; index++) position.setPiece(Square.of(index), null);
+
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; i < placement.length(); i++) {
+            char c = placement.charAt(i);
+            if (c == '/') {
+                if (file != 8 || rank == 0) throw new IllegalArgumentException("Bad piece placement in FEN: " + fen);
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                PieceType type = PieceType.fromLetter(Character.toUpperCase(c));
+                if (type == null || file > 7) throw new IllegalArgumentException("Bad piece placement in FEN: " + fen);
+                Game.Color color = Character.isUpperCase(c) ? Game.Color.WHITE : Game.Color.BLACK;
+                position.setPiece(Square.of(rank, file++), type.getPiece(color));
+            }
+            if (file > 8) throw new IllegalArgumentException("Bad piece placement in FEN: " + fen);
+        }
+        if (rank != 0 || file != 8) throw new IllegalArgumentException("Bad piece placement in FEN: " + fen);
+    }
+
+    /**
+     * Records the two-square pawn move that made a square the en passant target, so that the rules allow
+     * the capture.
+     *
+     * @param game The game set up from the FEN.
+     * @param target The name of the en passant square.
+     * @param moveNumber The move number of the FEN.
+     * @param fen The whole FEN, for error messages.
+     * @throws IllegalArgumentException If no pawn of the side that just moved stands in front of the square.
+     */
+    private static void recordDoublePawnMove(Game game, String target, int moveNumber, String fen) {
+        Square square = game.getSquare(target);
+        int expectedRank = game.whiteMoves ? 6 : 3;
+        if (square == null || square.getRank() != expectedRank) throw new IllegalArgumentException("Bad en passant square in FEN: " + fen);
+
+        int direction = game.whiteMoves ? -8 : 8;
+        Square start = Square.of(square.getIndex() - direction);
+        Square end = Square.of(square.getIndex() + direction);
+        Piece pawn = Pawn.of(game.whiteMoves ? Game.Color.BLACK : Game.Color.WHITE);
+        if (game.currentPosition.getPiece(end) != pawn || !game.currentPosition.isEmpty(start)) {
+            throw new IllegalArgumentException("Bad en passant square in FEN: " + fen);
+        }
+        int pawnMoveNumber = game.whiteMoves ? moveNumber - 1 : moveNumber;
+        game.gameHistory.add(new Move(start, end, pawnMoveNumber, pawn, end.toString(), game.currentPosition));
+    }
+
+    /**
+     * Writes the FEN of a game to either a string builder or a byte array.
+     *
+     * @param game The game.
+     * @param out The builder the FEN is appended to, or {@code null} to write bytes.
+     * @param buffer The array the FEN is written to if there is no builder.
+     * @param offset The index of the next byte of the array.
+     * @return The index after the last byte written.
+     */
+    private static int write(Game game, StringBuilder out, byte[] buffer, int offset) {
+        Position position = game.currentPosition;
+
+        for (int rank = 7; rank >= 0; rank--) {
+            int emptySquareCount = 0;
+            for (int file = 0; file < 8; file++) {
+                Piece piece = position.getPiece(Square.of(rank, file));
+                if (piece == null) {
+                    emptySquareCount++;
+                    continue;
+                }
+                if (emptySquareCount != 0) offset = put((char) ('0' + emptySquareCount), out, buffer, offset);
+                emptySquareCount = 0;
+                offset = put(piece.getSymbol(), out, buffer, offset);
+            }
+            if (emptySquareCount != 0) offset = put((char) ('0' + emptySquareCount), out, buffer, offset);
+            offset = put(rank != 0 ? '/' : ' ', out, buffer, offset);
+        }
+
+        offset = put(game.whiteMoves ? 'w' : 'b', out, buffer, offset);
+        offset = put(' ', out, buffer, offset);
+
+        if (position.castlingRights == 0) offset = put('-', out, buffer, offset);
+        if (position.hasCastlingRight(Position.WHITE_KING_SIDE)) offset = put('K', out, buffer, offset);
+        if (position.hasCastlingRight(Position.WHITE_QUEEN_SIDE)) offset = put('Q', out, buffer, offset);
+        if (position.hasCastlingRight(Position.BLACK_KING_SIDE)) offset = put('k', out, buffer, offset);
+        if (position.hasCastlingRight(Position.BLACK_QUEEN_SIDE)) offset = put('q', out, buffer, offset);
+        offset = put(' ', out, buffer, offset);
+
+        Square enPassantTarget = game.enPassantTarget();
+        if (enPassantTarget == null) {
+            offset = put('-', out, buffer, offset);
+        } else {
+            offset = put(enPassantTarget.getFile(), out, buffer, offset);
+            offset = put((char) ('0' + enPassantTarget.getRank()), out, buffer, offset);
+        }
+        offset = put(' ', out, buffer, offset);
+
+        offset = putNumber(game.halfMoveClock, out, buffer, offset);
+        offset = put(' ', out, buffer, offset);
+        // The fullmove number is the number of the move to play, which starts with White's half-move
+        return putNumber(position.positionNumber / 2 + 1, out, buffer, offset);
+    }
+
+    /**
+     * Writes a character to the builder, or to the array if there is no builder.
+     *
+     * @param c The ASCII character.
+     * @param out The builder, or {@code null}.
+     * @param buffer The array, used if there is no builder.
+     * @param offset The index of the next byte of the array.
+     * @return The index of the next byte of the array.
+     */
+    private static int put(char c, StringBuilder out, byte[] buffer, int offset) {
+        if (out != null) out.append(c);
+        else buffer[offset] = (byte) c;
+        return offset + 1;
+    }
+
+    /**
+     * Writes the decimal digits of a number without building a string.
+     *
+     * @param number The non-negative number.
+     * @param out The builder, or {@code null}.
+     * @param buffer The array, used if there is no builder.
+     * @param offset The index of the next byte of the array.
+     * @return The index of the next byte of the array.
+     */
+    private static int putNumber(int number, StringBuilder out, byte[] buffer, int offset) {
+        int divisor = 1;
+        while (number / divisor >= 10) divisor *= 10;
+        for (; divisor > 0; divisor /= 10) offset = put((char) ('0' + number / divisor % 10), out, buffer, offset);
+        return offset;
+    }
+}
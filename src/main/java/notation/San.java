@@ -0,0 +1,245 @@
+package notation;
+
+import elements.Game;
+import elements.Position;
+import elements.Square;
+import pieces.Piece;
+import pieces.PieceType;
+
+import java.util.List;
+
+/// @author dana
+
+/**
+ * Conversions between Standard Algebraic Notation (SAN, e.g., "Nbd7", "exd8=Q+", "O-O") and UCI notation
+ * (e.g., "b8d7", "e7d8q", "e1g1") for the legal moves of a game.
+ * <p>
+ * Both directions work from the legal move list of the position, which the game computes once per move
+ * ({@link Game#legalMoves()}): reading a SAN and writing a SAN without its suffix ({@link #moveText}) cost a
+ * scan of that list and no board copy. The check suffix depends on the position after the move, so
+ * {@link #toSan} plays the move on a copy of the game to find it.
+ * Disambiguation is minimal: the file of the moving piece if it is enough, else its rank, else both.
+ */
+public final class San {
+    /// The SAN of king-side castling.
+    public static final String KING_SIDE_CASTLING = "O-O";
+    /// The SAN of queen-side castling.
+    public static final String QUEEN_SIDE_CASTLING = "O-O-O";
+
+    /**
+     * This class only has static methods.
+     */
+    private San() {
+    }
+
+    /**
+     * Returns the SAN of a legal move, including its check ("+") or checkmate ("#") suffix.
+     * The move is played on a copy of the game to find the suffix.
+     *
+     * @param game The game in the position where the move is played.
+     * @param uciMove The move in UCI notation.
+     * @return The move in SAN.
+     * @throws IllegalArgumentException If the move is not legal.
+     */
+    public static String toSan(Game game, String uciMove) {
+        Game copy = game.copy();
+        if (!copy.playMove(uciMove)) throw new IllegalArgumentException("Illegal move " + uciMove + ".");
+        return copy.gameHistory.get(copy.gameHistory.size() - 1).getMoveNotation();
+    }
+
+    /**
+     * Returns the SAN of a move without its check suffix, which depends on the position after the move.
+     *
+     * @param game The game in the position where the move is played, before the move is applied.
+     * @param start The start square of the move.
+     * @param end The end square of the move.
+     * @param promotion The piece a pawn is promoted to, or {@code null} if the move is not a promotion.
+     * @return The move in SAN, without check suffix.
+     */
+    public static String moveText(Game game, Square start, Square end, PieceType promotion) {
+        Position position = game.currentPosition;
+        Piece piece = position.getPiece(start);
+        PieceType type = PieceType.of(piece);
+        int fileDifference = end.getFile() - start.getFile();
+
+        if (type == PieceType.KING && Math.abs(fileDifference) == 2) {
+            return fileDifference > 0 ? KING_SIDE_CASTLING : QUEEN_SIDE_CASTLING;
+        }
+
+        // A pawn moving diagonally to an empty square captures en passant
+        boolean isCapture = !position.isEmpty(end) || (type == PieceType.PAWN && fileDifference != 0);
+
+        StringBuilder san = new StringBuilder(8);
+        if (type == PieceType.PAWN) {
+            if (isCapture) san.append(start.getFile());
+        } else {
+            san.append(type.getLetter());
+            appendDisambiguation(san, game, piece, start, end);
+        }
+        if (isCapture) san.append('x');
+        san.append(end.getFile()).append(end.getRank());
+        if (promotion != null) san.append('=').append(promotion.getLetter());
+        return san.toString();
+    }
+
+    /**
+     * Appends the file, the rank or both of the start square when another piece of the same kind and color
+     * can legally move to the same square.
+     *
+     * @param san The SAN being built.
+     * @param game The game before the move.
+     * @param piece The moving piece.
+     * @param start The start square of the move.
+     * @param end The end square of the move.
+     */
+    private static void appendDisambiguation(StringBuilder san, Game game, Piece piece, Square start, Square end) {
+        Position position = game.currentPosition;
+
+        // Most moves have no rival, so look for one before asking for the legal moves
+        boolean hasRival = false;
+        for (int index = 0; index < 64 && !hasRival; index++) {
+            Square square = Square.of(index);
+            hasRival = square != start && position.getPiece(square) == piece
+                    && (piece.allowedMove(square, end, game) || piece.allowedCapture(square, end, game));
+        }
+        if (!hasRival) return;
+
+        boolean sameFile = false;
+        boolean sameRank = false;
+        boolean ambiguous = false;
+        for (String move : game.legalMoves()) {
+            if (squareAt(move, 2) != end) continue;
+            Square rival = squareAt(move, 0);
+            if (rival == start || position.getPiece(rival) != piece) continue;
+
+            ambiguous = true;
+            if (rival.getFile() == start.getFile()) sameFile = true;
+            if (rival.getRank() == start.getRank()) sameRank = true;
+        }
+        if (!ambiguous) return;
+
+        if (!sameFile) san.append(start.getFile());
+        else if (!sameRank) san.append(start.getRank());
+        else san.append(start.getFile()).append(start.getRank());
+    }
+
+    /**
+     * Converts a move in SAN (e.g., "Nbd7", "exd8=Q+", "O-O") or in UCI notation (e.g., "e2e4") to UCI
+     * notation, by finding the only legal move matching it. Check suffixes and annotations ("!", "?") are
+     * ignored, and the text is read without building intermediate strings.
+     *
+     * @param game The game in the position where the move is played.
+     * @param text The move in SAN or UCI notation.
+     * @return The move in UCI notation, or {@code null} if no legal move or several legal moves match.
+     */
+    public static String toUci(Game game, String text) {
+        if (text == null) return null;
+        List<String> legalMoves = game.legalMoves();
+
+        // Ignore the check suffix and the annotations
+        int length = text.length();
+        while (length > 0 && "+#!?".indexOf(text.charAt(length - 1)) >= 0) length--;
+        if (length < 2) return null;
+
+        if (isUci(text, length)) {
+            String uciMove = text.substring(0, length);
+            return legalMoves.contains(uciMove) ? uciMove : null;
+        }
+
+        if (isCastling(text, length, 3) || isCastling(text, length, 5)) {
+            String castling = (length == 3 ? "e1g1" : "e1c1");
+            if (!game.whiteMoves) castling = castling.replace('1', '8');
+            return legalMoves.contains(castling) ? castling : null;
+        }
+
+        // Promotion, with or without '='
+        char promotion = 0;
+        char last = text.charAt(length - 1);
+        if ("QRBN".indexOf(last) >= 0 && length > 2) {
+            promotion = Character.toLowerCase(last);
+            length--;
+            if (text.charAt(length - 1) == '=') length--;
+        }
+
+        int first = 0;
+        PieceType type = PieceType.PAWN;
+        if ("KQRBN".indexOf(text.charAt(0)) >= 0) {
+            type = PieceType.fromLetter(text.charAt(0));
+            first = 1;
+        }
+        if (length - first < 2) return null;
+
+        char endFile = text.charAt(length - 2);
+        char endRank = text.charAt(length - 1);
+        if (endFile < 'a' || endFile > 'h' || endRank < '1' || endRank > '8') return null;
+
+        // The characters between the piece and the destination disambiguate, apart from the capture sign
+        char fromFile = 0;
+        char fromRank = 0;
+        for (int i = first; i < length - 2; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h') fromFile = c;
+            else if (c >= '1' && c <= '8') fromRank = c;
+            else if (c != 'x' && c != ':') return null;
+        }
+
+        Position position = game.currentPosition;
+        String match = null;
+        for (String move : legalMoves) {
+            if (move.charAt(2) != endFile || move.charAt(3) != endRank) continue;
+            if (promotion == 0 ? move.length() != 4 : move.length() != 5 || move.charAt(4) != promotion) continue;
+            if ((fromFile != 0 && move.charAt(0) != fromFile) || (fromRank != 0 && move.charAt(1) != fromRank)) continue;
+            if (PieceType.of(position.getPiece(squareAt(move, 0))) != type) continue;
+
+            if (match != null) return null;
+            match = move;
+        }
+        return match;
+    }
+
+    /**
+     * Checks if text is in UCI notation: two squares and an optional promotion suffix.
+     *
+     * @param text The text.
+     * @param length The number of characters to consider.
+     * @return True if the text is a UCI move, false otherwise.
+     */
+    private static boolean isUci(String text, int length) {
+        if (length != 4 && length != 5) return false;
+        for (int i = 0; i < 4; i += 2) {
+            char file = text.charAt(i);
+            char rank = text.charAt(i + 1);
+            if (file < 'a' || file > 'h' || rank < '1' || rank > '8') return false;
+        }
+        return length == 4 || "qrbn".indexOf(text.charAt(4)) >= 0;
+    }
+
+    /**
+     * Checks if text is a castling in SAN, written with the letter O or with zeros.
+     *
+     * @param text The text.
+     * @param length The number of characters to consider.
+     * @param castlingLength 3 for king-side castling, 5 for queen-side castling.
+     * @return True if the text is that castling, false otherwise.
+     */
+    private static boolean isCastling(String text, int length, int castlingLength) {
+        if (length != castlingLength) return false;
+        char letter = text.charAt(0);
+        if (letter != 'O' && letter != '0') return false;
+        for (int i = 1; i < length; i++) {
+            if (text.charAt(i) != (i % 2 == 1 ? '-' : letter)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a square of a UCI move.
+     *
+     * @param move The move in UCI notation.
+     * @param offset 0 for the start square, 2 for the end square.
+     * @return The square.
+     */
+    private static Square squareAt(String move, int offset) {
+        return Square.of(move.charAt(offset + 1) - '1', move.charAt(offset) - 'a');
+    }
+}
@@ -11,16 +11,30 @@ import elements.*;
 public class Bishop extends Piece {
     /// The value of a bishop piece, typically used for material evaluation in chess.
     public final int value = 3;
+    /// The white bishop, shared by every square holding one.
+    public static final Bishop WHITE = new Bishop(Game.Color.WHITE);
+    /// The black bishop, shared by every square holding one.
+    public static final Bishop BLACK = new Bishop(Game.Color.BLACK);
 
     /**
      * Constructs a {@code Bishop} with a specified color.
      *
      * @param color The color of the bishop, either WHITE or BLACK.
      */
-    public Bishop(Game.Color color) {
+    private Bishop(Game.Color color) {
         super(color);
     }
 
+    /**
+     * Returns the shared bishop of a color.
+     *
+     * @param color The color of the bishop.
+     * @return The bishop of that color.
+     */
+    public static Bishop of(Game.Color color) {
+        return color == Game.Color.WHITE ? WHITE : BLACK;
+    }
+
     /**
      * Checks if the path between the start and end squares is clear for a bishop's move.
      * A bishop can only move along diagonals, so this method checks if the path between
@@ -45,14 +59,14 @@ public class Bishop extends Piece {
             boolean emptyPath = true;
             if (endFile > startFile) {
                 for (int i = startRank + 1, j = startFile + 1; i < endRank && j < endFile; i++, j++) {
-                    if (!position.board[i][j].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(i, j))) {
                         emptyPath = false;
                         break;
                     }
                 }
             } else {
                 for (int i = startRank + 1, j = startFile - 1; i < endRank && j > endFile; i++, j--) {
-                    if (!position.board[i][j].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(i, j))) {
                         emptyPath = false;
                         break;
                     }
@@ -63,14 +77,14 @@ public class Bishop extends Piece {
             boolean emptyPath = true;
             if (endFile < startFile) {
                 for (int i = startRank - 1, j = startFile - 1; i > endRank && j > endFile; i--, j--) {
-                    if (!position.board[i][j].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(i, j))) {
                         emptyPath = false;
                         break;
                     }
                 }
             } else {
                 for (int i = startRank - 1, j = startFile + 1; i > endRank && j < endFile; i--, j++) {
-                    if (!position.board[i][j].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(i, j))) {
                         emptyPath = false;
                         break;
                     }
@@ -103,7 +117,7 @@ public class Bishop extends Piece {
 
         Position position = game.currentPosition;
 
-        if (!position.board[endRank][endFile].getIsEmpty()) return false;
+        if (!position.isEmpty(end)) return false;
 
         return checkEmptyPath(start, end, game);
     }
@@ -144,9 +158,9 @@ public class Bishop extends Piece {
 
         Position position = game.currentPosition;
 
-        if (position.board[endRank][endFile].getIsEmpty() ||
-                position.board[endRank][endFile].getPiece().color ==
-                        position.board[startRank][startFile].getPiece().color) return false;
+        if (position.isEmpty(end) ||
+                position.getPiece(end).color ==
+                        position.getPiece(start).color) return false;
 
         return checkEmptyPath(start, end, game);
     }
@@ -164,13 +178,4 @@ public class Bishop extends Piece {
         super.makeCapture(start, end, game);
     }
 
-    /**
-     * Creates a copy of this bishop piece with the same color.
-     *
-     * @return A new bishop piece of the same color.
-     */
-    @Override
-    public Piece copy() {
-        return new Bishop(color);
-    }
 }
\ No newline at end of file
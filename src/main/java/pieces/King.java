@@ -11,23 +11,34 @@ import elements.*;
 public class King extends Piece {
     /// The value of a king piece, typically used for material evaluation in chess.
     public final int value = 20;
-    /// Indicates if the king has moved for the first time, relevant for castling.
-    public boolean isFirstMove;
+    /// The white king, shared by every square holding one.
+    public static final King WHITE = new King(Game.Color.WHITE);
+    /// The black king, shared by every square holding one.
+    public static final King BLACK = new King(Game.Color.BLACK);
 
     /**
      * Constructs a {@code King} with a specified color.
      *
      * @param color The color of the king, either WHITE or BLACK.
      */
-    public King(Game.Color color) {
+    private King(Game.Color color) {
         super(color);
-        isFirstMove = true;
+    }
+
+    /**
+     * Returns the shared king of a color.
+     *
+     * @param color The color of the king.
+     * @return The king of that color.
+     */
+    public static King of(Game.Color color) {
+        return color == Game.Color.WHITE ? WHITE : BLACK;
     }
 
     /**
      * Checks if castling on the king-side is possible for the king.
-     * The conditions for castling include: the king has not moved, the rook has not moved,
-     * the path between the king and the rook are clear, and the king is not in check.
+     * The conditions for castling include: the position still has the king-side castling right (neither the king
+     * nor the rook has moved), the path between the king and the rook are clear, and the king is not in check.
      *
      * @param start The starting square of the move.
      * @param end The ending square of the move.
@@ -42,16 +53,17 @@ public class King extends Piece {
         Position position = game.currentPosition;
 
         // Basic validation
-        if (!isFirstMove || Math.abs(endFile - startFile) != 2) return false;
+        int castlingRight = color == Game.Color.WHITE ? Position.WHITE_KING_SIDE : Position.BLACK_KING_SIDE;
+        if (!position.hasCastlingRight(castlingRight) || startFile != 4 || endFile != 6) return false;
 
         // Check if the path is clear
         for (int file = startFile + 1; file < 7; file++) {
-            if (!position.board[startRank][file].getIsEmpty()) return false;
+            if (!position.isEmpty(Square.of(startRank, file))) return false;
         }
 
         // Validate the rook
-        Piece rook = position.board[startRank][7].getPiece();
-        if (!(rook instanceof Rook) || !((Rook) rook).isFirstMove) return false;
+        Piece rook = position.getPiece(Square.of(startRank, 7));
+        if (!(rook instanceof Rook) || rook.color != color) return false;
 
         // Check the king does not move through or into check
         if (wouldBeInCheck(startRank, startFile + 1, game)) return false;  // Check if moving to the intermediate position (file 5) puts the king in check
@@ -71,44 +83,29 @@ public class King extends Piece {
         Position position = game.currentPosition;
 
         // Move the king
-        position.board[startRank][6].setPiece(this);
-        position.board[startRank][6].setIsEmpty(false);
-        position.board[startRank][4].setPiece(null);
-        position.board[startRank][4].setIsEmpty(true);
+        position.setPiece(Square.of(startRank, 6), this);
+        position.setPiece(Square.of(startRank, 4), null);
 
         // Move the rook
-        Piece rook = position.board[startRank][7].getPiece();
-        position.board[startRank][5].setPiece(rook);
-        position.board[startRank][5].setIsEmpty(false);
-        position.board[startRank][7].setPiece(null);
-        position.board[startRank][7].setIsEmpty(true);
-
-        // Update state
-        isFirstMove = false;
-        if (rook instanceof Rook) ((Rook) rook).isFirstMove = false;
+        Piece rook = position.getPiece(Square.of(startRank, 7));
+        position.setPiece(Square.of(startRank, 5), rook);
+        position.setPiece(Square.of(startRank, 7), null);
 
         position.positionNumber++;
+        position.updateCastlingRights(start, end);
         game.halfMoveClock++;
         game.currentPosition = position;
 
-        int moveNumber = (int) (Math.ceil((double) game.currentPosition.positionNumber / 2));
-
         String moveNotation = "O-O";
-        if (game.isCheckmateForWhite() || game.isCheckmateForBlack()) moveNotation += "#";
-        else if (game.isCheckForWhite() || game.isCheckForBlack()) moveNotation += "+";
 
-        Move newMove = new Move(start, end, moveNumber, this, moveNotation, game.currentPosition);
-
-        // Update the game history
-        game.gameHistory.add(newMove);
-
-        game.whiteMoves = !game.whiteMoves;
+        // Update the game history and give the turn to the other side
+        game.recordMove(start, end, this, moveNotation);
     }
 
     /**
      * Checks if castling on the queen-side is possible for the king.
-     * The conditions for castling include: the king has not moved, the rook has not moved,
-     * the path between the king and the rook are clear, and the king is not in check.
+     * The conditions for castling include: the position still has the queen-side castling right (neither the king
+     * nor the rook has moved), the path between the king and the rook are clear, and the king is not in check.
      *
      * @param start The starting square of the move.
      * @param end The ending square of the move.
@@ -123,15 +120,16 @@ public class King extends Piece {
         Position position = game.currentPosition;
 
         // Basic validation
-        if (!isFirstMove || Math.abs(endFile - startFile) != 2) return false;
+        int castlingRight = color == Game.Color.WHITE ? Position.WHITE_QUEEN_SIDE : Position.BLACK_QUEEN_SIDE;
+        if (!position.hasCastlingRight(castlingRight) || startFile != 4 || endFile != 2) return false;
 
         // Validate the rook
-        Piece rook = position.board[startRank][0].getPiece();
-        if (!(rook instanceof Rook) || !((Rook) rook).isFirstMove) return false;
+        Piece rook = position.getPiece(Square.of(startRank, 0));
+        if (!(rook instanceof Rook) || rook.color != color) return false;
 
         // Check if the path is clear
         for (int file = startFile - 1; file > 0; file--) {
-            if (!position.board[startRank][file].getIsEmpty()) return false;
+            if (!position.isEmpty(Square.of(startRank, file))) return false;
         }
 
         // Check the king does not move through or into check
@@ -152,38 +150,23 @@ public class King extends Piece {
         Position position = game.currentPosition;
 
         // Move the king
-        position.board[startRank][2].setPiece(this);
-        position.board[startRank][2].setIsEmpty(false);
-        position.board[startRank][4].setPiece(null);
-        position.board[startRank][4].setIsEmpty(true);
+        position.setPiece(Square.of(startRank, 2), this);
+        position.setPiece(Square.of(startRank, 4), null);
 
         // Move the rook
-        Piece rook = position.board[startRank][0].getPiece();
-        position.board[startRank][3].setPiece(rook);
-        position.board[startRank][3].setIsEmpty(false);
-        position.board[startRank][0].setPiece(null);
-        position.board[startRank][0].setIsEmpty(true);
-
-        // Update state
-        isFirstMove = false;
-        if (rook instanceof Rook) ((Rook) rook).isFirstMove = false;
+        Piece rook = position.getPiece(Square.of(startRank, 0));
+        position.setPiece(Square.of(startRank, 3), rook);
+        position.setPiece(Square.of(startRank, 0), null);
 
         position.positionNumber++;
+        position.updateCastlingRights(start, end);
         game.halfMoveClock++;
         game.currentPosition = position;
 
-        int moveNumber = (int) (Math.ceil((double) game.currentPosition.positionNumber / 2));
-
         String moveNotation = "O-O-O";
-        if (game.isCheckmateForWhite() || game.isCheckmateForBlack()) moveNotation += "#";
-        else if (game.isCheckForWhite() || game.isCheckForBlack()) moveNotation += "+";
-
-        Move newMove = new Move(start, end, moveNumber, this, moveNotation, game.currentPosition);
-
-        // Update the game history
-        game.gameHistory.add(newMove);
 
-        game.whiteMoves = !game.whiteMoves;
+        // Update the game history and give the turn to the other side
+        game.recordMove(start, end, this, moveNotation);
     }
 
     /**
@@ -195,18 +178,15 @@ public class King extends Piece {
      * @return True if the king would be in check, false otherwise.
      */
     private boolean wouldBeInCheck(int rank, int file, Game game) {
-        Square tempSquare = game.currentPosition.board[rank][file];
-        Piece originalPiece = tempSquare.getPiece();
-        boolean originalEmptyState = tempSquare.getIsEmpty();
+        Square tempSquare = Square.of(rank, file);
+        Piece originalPiece = game.currentPosition.getPiece(tempSquare);
 
-        tempSquare.setIsEmpty(false);
-        tempSquare.setPiece(this);
+        game.currentPosition.setPiece(tempSquare, this);
 
         boolean inCheck = (color == Game.Color.WHITE && game.isCheckForWhite()) ||
                 (color == Game.Color.BLACK && game.isCheckForBlack());
 
-        tempSquare.setIsEmpty(originalEmptyState);
-        tempSquare.setPiece(originalPiece);
+        game.currentPosition.setPiece(tempSquare, originalPiece);
 
         return inCheck;
     }
@@ -232,7 +212,7 @@ public class King extends Piece {
 
         Position position = game.currentPosition;
 
-        if (!position.board[endRank][endFile].getIsEmpty()) return false;
+        if (!position.isEmpty(end)) return false;
 
         if (rankDiff == 0 && fileDiff == 2) {
             return castleKingSide(start, end, game) || castleQueenSide(start, end, game);
@@ -259,7 +239,6 @@ public class King extends Piece {
         } else {
             super.makeMove(start, end, game);
         }
-        isFirstMove = false;
     }
 
     /**
@@ -283,36 +262,11 @@ public class King extends Piece {
 
         Position position = game.currentPosition;
 
-        if (position.board[endRank][endFile].getIsEmpty() ||
-                position.board[endRank][endFile].getPiece().color ==
-                        position.board[startRank][startFile].getPiece().color) return false;
+        if (position.isEmpty(end) ||
+                position.getPiece(end).color ==
+                        position.getPiece(start).color) return false;
 
         return (rankDiff == 0 && fileDiff == 1) || (rankDiff == 1 && fileDiff == 0) || (rankDiff == 1 && fileDiff == 1);
     }
 
-    /**
-     * Executes the King's capture from the starting square to the ending square.
-     * After the capture, the King's first move state is updated.
-     *
-     * @param start The square where the King is currently located.
-     * @param end The square the King is capturing a piece from.
-     * @param game The current game object, which contains the state of the game.
-     */
-    @Override
-    public void makeCapture(Square start, Square end, Game game) {
-        super.makeCapture(start, end, game);
-        isFirstMove = false;
-    }
-
-    /**
-     * Creates a new copy of the King, including its first move state.
-     *
-     * @return A new copy of the King piece.
-     */
-    @Override
-    public Piece copy() {
-        King copy =  new King(color);
-        copy.isFirstMove = isFirstMove;
-        return copy;
-    }
 }
\ No newline at end of file
@@ -10,16 +10,30 @@ import elements.*;
 public class Knight extends Piece {
     /// The value of a knight piece, typically used for material evaluation in chess.
     public final int value = 3;
+    /// The white knight, shared by every square holding one.
+    public static final Knight WHITE = new Knight(Game.Color.WHITE);
+    /// The black knight, shared by every square holding one.
+    public static final Knight BLACK = new Knight(Game.Color.BLACK);
 
     /**
      * Constructs a new {@code Knight} with a specified color.
      *
      * @param color The color of the Knight, either white or black.
      */
-    public Knight(Game.Color color) {
+    private Knight(Game.Color color) {
         super(color);
     }
 
+    /**
+     * Returns the shared knight of a color.
+     *
+     * @param color The color of the knight.
+     * @return The knight of that color.
+     */
+    public static Knight of(Game.Color color) {
+        return color == Game.Color.WHITE ? WHITE : BLACK;
+    }
+
     /**
      * Determines if the Knight is allowed to move from the starting square to the ending square.
      * The Knight moves in an "L" shape: two squares in one direction and then one square perpendicular.
@@ -41,7 +55,7 @@ public class Knight extends Piece {
         int rankDiff = Math.abs(endRank - startRank);
         int fileDiff = Math.abs(endFile - startFile);
 
-        if (!position.board[endRank][endFile].getIsEmpty()) return false;
+        if (!position.isEmpty(end)) return false;
 
         if (rankDiff == 2 && fileDiff == 1) return true;
         else return rankDiff == 1 && fileDiff == 2;
@@ -81,9 +95,9 @@ public class Knight extends Piece {
         int rankDiff = Math.abs(endRank - startRank);
         int fileDiff = Math.abs(endFile - startFile);
 
-        if (position.board[endRank][endFile].getIsEmpty() ||
-                position.board[endRank][endFile].getPiece().color ==
-                        position.board[startRank][startFile].getPiece().color) return false;
+        if (position.isEmpty(end) ||
+                position.getPiece(end).color ==
+                        position.getPiece(start).color) return false;
 
         if (rankDiff == 2 && fileDiff == 1) return true;
         else return rankDiff == 1 && fileDiff == 2;
@@ -102,13 +116,4 @@ public class Knight extends Piece {
         super.makeCapture(start, end, game);
     }
 
-    /**
-     * Creates a new copy of the Knight with the same color.
-     *
-     * @return A new copy of the Knight piece.
-     */
-    @Override
-    public Piece copy() {
-        return new Knight(color);
-    }
 }
\ No newline at end of file
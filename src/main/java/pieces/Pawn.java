@@ -1,8 +1,7 @@
 package pieces;
 
 import elements.*;
-
-import javax.swing.*;
+import notation.San;
 
 /// @author dana
 
@@ -13,17 +12,28 @@ import javax.swing.*;
 public class Pawn extends Piece {
     /// The value of a pawn piece, typically used for material evaluation in chess.
     public final int value = 1;
-    /// Indicates if the pawn has moved for the first time, relevant for 2-squares moves.
-    public boolean isFirstMove;
+    /// The white pawn, shared by every square holding one.
+    public static final Pawn WHITE = new Pawn(Game.Color.WHITE);
+    /// The black pawn, shared by every square holding one.
+    public static final Pawn BLACK = new Pawn(Game.Color.BLACK);
 
     /**
      * Constructs a new {@code Pawn} with the specified color.
      *
      * @param color The color of the Pawn, either white or black.
      */
-    public Pawn(Game.Color color) {
+    private Pawn(Game.Color color) {
         super(color);
-        this.isFirstMove = true;
+    }
+
+    /**
+     * Returns the shared pawn of a color.
+     *
+     * @param color The color of the pawn.
+     * @return The pawn of that color.
+     */
+    public static Pawn of(Game.Color color) {
+        return color == Game.Color.WHITE ? WHITE : BLACK;
     }
 
     /**
@@ -37,6 +47,9 @@ public class Pawn extends Piece {
         int capturingRank = startSquare.getRank() - 1;
         int capturingFile = startSquare.getFile() - 'a';
 
+        // En passant needs a previous move
+        if (game.gameHistory.isEmpty()) return false;
+
         // Get the last move from the game history
         Move lastMove = game.gameHistory.get(game.gameHistory.size() - 1);
         Piece lastPieceMoved = lastMove.getMovedPiece();
@@ -62,78 +75,56 @@ public class Pawn extends Piece {
         return false;
     }
 
+    /**
+     * Checks if a capture to the end square is an en passant capture: the end square is empty and lies
+     * behind the pawn that just made a two-square move next to the capturing pawn.
+     *
+     * @param start The square where the Pawn is located.
+     * @param end The square the Pawn is moving to.
+     * @param game The current game object, which contains the state of the game.
+     * @return true if the capture is an en passant capture, false otherwise.
+     */
+    private boolean isEnPassantCapture(Square start, Square end, Game game) {
+        if (!game.currentPosition.isEmpty(end) || !enPassant(start, game)) return false;
+        Move lastMove = game.gameHistory.get(game.gameHistory.size() - 1);
+        return lastMove.getEnd().getFile() == end.getFile();
+    }
+
     /**
      * Promotes the Pawn to another piece (Queen, Rook, Knight, or Bishop) when it reaches the opponent's back rank.
+     * The piece is part of the move, as in UCI notation ("e7e8q"), so promotions need no user interaction;
+     * the GUI asks the user before calling this method.
      *
      * @param start The square where the Pawn is currently located.
      * @param end The square the Pawn is moving to.
      * @param game The current game object, which contains the state of the game.
+     * @param pieceType The piece the Pawn is promoted to.
+     * @throws IllegalArgumentException If a pawn cannot be promoted to the piece.
      */
-    public void promote(Square start, Square end, Game game) {
+    public void promote(Square start, Square end, Game game, PieceType pieceType) {
+        if (pieceType == null || !pieceType.isPromotion()) {
+            throw new IllegalArgumentException("A pawn cannot be promoted to " + pieceType + ".");
+        }
+        if (!isPromotionSquare(end) || !stopCheck(start, end, game)) return;
+
         Position position = game.currentPosition;
+        Piece promotedPiece = pieceType.getPiece(color);
 
-        if (end.getIsEmpty() && allowedMove(start, end, game)) {
-            handlePromotion(start, end, game, position, false);
-        } else if (!end.getIsEmpty() && allowedCapture(start, end, game)) {
-            handlePromotion(start, end, game, position, true);
+        if (game.currentPosition.isEmpty(end) && allowedMove(start, end, game)) {
+            updateGameAfterPromotion(start, end, game, position, promotedPiece, false);
+        } else if (!game.currentPosition.isEmpty(end) && allowedCapture(start, end, game)) {
+            updateGameAfterPromotion(start, end, game, position, promotedPiece, true);
         }
     }
 
     /**
-     * Handles the promotion of the Pawn by presenting a dialog to the user to select the new piece.
+     * Checks if a pawn of this color moving to a square is promoted.
      *
-     * @param start The square where the Pawn is located.
      * @param end The square the Pawn is moving to.
-     * @param game The current game object.
-     * @param position The current board position.
-     * @param isCapture True if the promotion occurs after a capture, false otherwise.
+     * @return True if the square is on the opponent's back rank, false otherwise.
      */
-    private void handlePromotion(Square start, Square end, Game game, Position position, boolean isCapture) {
-        // Use a modal dialog to block until the user makes a selection
-        JFrame frame = new JFrame("Promotion");
-        frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        frame.setSize(300, 200);
-        frame.setLocationRelativeTo(null);
-
-        String[] options = {"Queen", "Rook", "Knight", "Bishop"};
-        int choice = JOptionPane.showOptionDialog(
-                frame,
-                "Promote your pawn to:",
-                "Promote Piece",
-                JOptionPane.DEFAULT_OPTION,
-                JOptionPane.QUESTION_MESSAGE,
-                null,
-                options,
-                options[0]
-        );
-
-        Piece promotedPiece = null;
-
-        if (choice >= 0) {
-            switch (options[choice]) {
-                case "Queen":
-                    promotedPiece = new Queen(color);
-                    break;
-                case "Rook":
-                    promotedPiece = new Rook(color);
-                    break;
-                case "Knight":
-                    promotedPiece = new Knight(color);
-                    break;
-                case "Bishop":
-                    promotedPiece = new Bishop(color);
-                    break;
-            }
-        } else {
-            JOptionPane.showMessageDialog(frame, "You must select a piece for promotion.");
-            // Default to Queen if no valid selection
-            promotedPiece = new Queen(color);
-        }
-
-        frame.dispose();
-
-        // Update the game state after promotion
-        updateGameAfterPromotion(start, end, game, position, promotedPiece, isCapture);
+    public boolean isPromotionSquare(Square end) {
+        return (color == Game.Color.WHITE && end.getRank() == 8) || (color == Game.Color.BLACK && end.getRank() == 1);
     }
 
     /**
@@ -147,68 +138,30 @@ public class Pawn extends Piece {
      * @param isCapture True if the promotion occurs after a capture, false otherwise.
      */
     private void updateGameAfterPromotion(Square start, Square end, Game game, Position position, Piece promotedPiece, boolean isCapture) {
-        int startRank = start.getRank() - 1;
-        int startFile = start.getFile() - 'a';
-        int endRank = end.getRank() - 1;
-        int endFile = end.getFile() - 'a';
-
-        char promotedPieceNotation = getPromotedPieceNotation(promotedPiece);
-
         // Construct the move notation
-        String moveNotation = isCapture
-                ? start.getFile() + "x" + end.getFile() + end.getRank() + "=" + promotedPieceNotation
-                : end.getFile() + String.valueOf(end.getRank()) + "=" + promotedPieceNotation;
+        String moveNotation = San.moveText(game, start, end, PieceType.of(promotedPiece));
 
         if (isCapture) {
             if (color == game.getMe().playerColor) {
-                game.getMeCapturedPieces().add(position.board[endRank][endFile].getPiece());
+                game.getMeCapturedPieces().add(position.getPiece(end));
             } else {
-                game.getOpponentCapturedPieces().add(position.board[endRank][endFile].getPiece());
+                game.getOpponentCapturedPieces().add(position.getPiece(end));
             }
         }
 
         // Move the piece to the end Square
-        position.board[endRank][endFile].setIsEmpty(false);
-        position.board[endRank][endFile].setPiece(promotedPiece);
+        position.setPiece(end, promotedPiece);
 
         // Set the start Square empty
-        position.board[startRank][startFile].setIsEmpty(true);
-        position.board[startRank][startFile].setPiece(null);
+        position.setPiece(start, null);
 
         position.positionNumber++;
+        position.updateCastlingRights(start, end);
         game.halfMoveClock = 0;
         game.currentPosition = position;
 
-        int moveNumber = (int) (Math.ceil((double) game.currentPosition.positionNumber / 2));
-
-        Move newMove = new Move(start, end, moveNumber, this, moveNotation, game.currentPosition);
-
-        // Update the game history
-        game.gameHistory.add(newMove);
-
-        game.whiteMoves = !game.whiteMoves;
-    }
-
-    /**
-     * Returns the notation character for the promoted piece.
-     *
-     * @param promotedPiece The piece the Pawn has been promoted to.
-     * @return The notation character of the promoted piece (e.g., 'Q' for Queen).
-     */
-    private static char getPromotedPieceNotation(Piece promotedPiece) {
-        char promotedPieceNotation;
-        if (promotedPiece instanceof Queen) {
-            promotedPieceNotation = 'Q';
-        } else if (promotedPiece instanceof Rook) {
-            promotedPieceNotation = 'R';
-        } else if (promotedPiece instanceof Knight) {
-            promotedPieceNotation = 'N';
-        } else if (promotedPiece instanceof Bishop) {
-            promotedPieceNotation = 'B';
-        } else {
-            throw new IllegalStateException("Unknown promoted piece type.");
-        }
-        return promotedPieceNotation;
+        // Update the game history and give the turn to the other side
+        game.recordMove(start, end, this, moveNotation);
     }
 
     /**
@@ -228,17 +181,19 @@ public class Pawn extends Piece {
 
         Position position = game.currentPosition;
 
-        if (!position.board[endRank][endFile].getIsEmpty()) return false;
+        if (!position.isEmpty(end)) return false;
 
         if (startFile != endFile) return false;
 
-        if (isFirstMove) {
+        // A pawn still on its starting rank has not moved, so it may advance two squares
+        boolean onStartRank = color == Game.Color.WHITE ? startRank == 1 : startRank == 6;
+        if (onStartRank) {
             if (color == Game.Color.WHITE) {
                 if (endRank != startRank + 1 && endRank != startRank + 2) return false;
 
                 boolean emptyPath = true;
                 for (int i = startRank + 1; i < endRank; i++) {
-                    if (!position.board[i][startFile].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(i, startFile))) {
                         emptyPath = false;
                         break;
                     }
@@ -249,7 +204,7 @@ public class Pawn extends Piece {
 
                 boolean emptyPath = true;
                 for (int i = startRank - 1; i > endRank; i--) {
-                    if (!position.board[i][startFile].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(i, startFile))) {
                         emptyPath = false;
                         break;
                     }
@@ -262,7 +217,7 @@ public class Pawn extends Piece {
 
                 boolean emptyPath = true;
                 for (int i = startRank + 1; i < endRank; i++) {
-                    if (!position.board[i][startFile].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(i, startFile))) {
                         emptyPath = false;
                         break;
                     }
@@ -273,7 +228,7 @@ public class Pawn extends Piece {
 
                 boolean emptyPath = true;
                 for (int i = startRank - 1; i > endRank; i--) {
-                    if (!position.board[i][startFile].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(i, startFile))) {
                         emptyPath = false;
                         break;
                     }
@@ -284,7 +239,8 @@ public class Pawn extends Piece {
     }
 
     /**
-     * Makes the pawn move from the start square to the end square, handling promotion if needed.
+     * Makes the pawn move from the start square to the end square. A pawn reaching the back rank is promoted
+     * to a queen; use {@link #promote(Square, Square, Game, PieceType)} to choose the piece.
      *
      * @param start the starting square
      * @param end the ending square
@@ -292,10 +248,9 @@ public class Pawn extends Piece {
      */
     @Override
     public void makeMove(Square start, Square end, Game game) {
-        if ((color == Game.Color.WHITE && end.getRank() == 8) || (color == Game.Color.BLACK && end.getRank() == 1)) {
-            promote(start, end, game);
+        if (isPromotionSquare(end)) {
+            promote(start, end, game, PieceType.QUEEN);
         } else super.makeMove(start, end, game);
-        this.isFirstMove = false;
     }
 
     /**
@@ -311,7 +266,6 @@ public class Pawn extends Piece {
     public boolean allowedCapture(Square start, Square end, Game game) {
         int startRank = start.getRank() - 1;
         int endRank = end.getRank() - 1;
-        int endFile = end.getFile() - 'a';
 
         int rankDifference = Math.abs(end.getRank() - start.getRank());
         int fileDifference = Math.abs(end.getFile() - start.getFile());
@@ -322,12 +276,12 @@ public class Pawn extends Piece {
                 Position position = game.currentPosition;
 
                 // Check if the target square is empty (potential en passant)
-                if (position.board[endRank][endFile].getIsEmpty()) {
-                    return enPassant(start, game); // Validate en passant
+                if (position.isEmpty(end)) {
+                    return isEnPassantCapture(start, end, game); // Validate en passant
                 }
 
                 // Regular capture: Ensure target piece exists and is of the opposite color
-                Piece targetPiece = position.board[endRank][endFile].getPiece();
+                Piece targetPiece = position.getPiece(end);
                 return targetPiece != null && targetPiece.color != color;
             }
         } else {
@@ -336,12 +290,12 @@ public class Pawn extends Piece {
                 Position position = game.currentPosition;
 
                 // Check if the target square is empty (potential en passant)
-                if (position.board[endRank][endFile].getIsEmpty()) {
-                    return enPassant(start, game); // Validate en passant
+                if (position.isEmpty(end)) {
+                    return isEnPassantCapture(start, end, game); // Validate en passant
                 }
 
                 // Regular capture: Ensure target piece exists and is of the opposite color
-                Piece targetPiece = position.board[endRank][endFile].getPiece();
+                Piece targetPiece = position.getPiece(end);
                 return targetPiece != null && targetPiece.color != color;
             }
         }
@@ -349,7 +303,8 @@ public class Pawn extends Piece {
     }
 
     /**
-     * Makes the pawn capture an opponent's piece, handling en passant if necessary.
+     * Makes the pawn capture an opponent's piece, handling en passant if necessary. A pawn reaching the back rank
+     * is promoted to a queen; use {@link #promote(Square, Square, Game, PieceType)} to choose the piece.
      *
      * @param start the starting square
      * @param end the ending square
@@ -357,61 +312,38 @@ public class Pawn extends Piece {
      */
     @Override
     public void makeCapture(Square start, Square end, Game game) {
-        if (enPassant(start, game)) {
+        if (isEnPassantCapture(start, end, game)) {
             Position position = game.currentPosition;
-            if (allowedCapture(start, end, game)) {
+            if (allowedCapture(start, end, game) && stopCheck(start, end, game)) {
                 Move lastMove = game.gameHistory.get(game.gameHistory.size() - 1);
                 Piece lastPieceMoved = lastMove.getMovedPiece();
 
-                int startRank = start.getRank() - 1;
-                int startFile = start.getFile() - 'a';
-                int endRank = end.getRank() - 1;
-                int endFile = end.getFile() - 'a';
-
-                String moveNotation = start.getFile() + "x" + end.getFile() + end.getRank();
+                String moveNotation = San.moveText(game, start, end, null);
 
                 if (color == game.getMe().playerColor) game.getMeCapturedPieces().add(lastPieceMoved);
                 else game.getOpponentCapturedPieces().add(lastPieceMoved);
 
                 // Set the last moved piece end square empty
-                lastMove.getEnd().setIsEmpty(true);
-                lastMove.getEnd().setPiece(null);
+                position.setPiece(lastMove.getEnd(), null);
 
                 // Set the end square not empty and setting piece
-                position.board[endRank][endFile].setIsEmpty(false);
-                position.board[endRank][endFile].setPiece(position.board[startRank][startFile].getPiece());
+                position.setPiece(end, position.getPiece(start));
 
                 // Set the start Square empty
-                position.board[startRank][startFile].setIsEmpty(true);
-                position.board[startRank][startFile].setPiece(null);
+                position.setPiece(start, null);
 
                 position.positionNumber++;
+                game.halfMoveClock = 0;
                 game.currentPosition = position;
 
-                Move newMove = new Move(start, end, game.currentPosition.positionNumber, this, moveNotation, game.currentPosition);
-
-                // Update the game history
-                game.gameHistory.add(newMove);
-
-                game.whiteMoves = !game.whiteMoves;
+                // Update the game history and give the turn to the other side
+                game.recordMove(start, end, this, moveNotation);
             }
         } else {
-            if ((color == Game.Color.WHITE && end.getRank() == 8) || (color == Game.Color.BLACK && end.getRank() == 1)) {
-                promote(start, end, game);
+            if (isPromotionSquare(end)) {
+                promote(start, end, game, PieceType.QUEEN);
             } else super.makeCapture(start, end, game);
         }
-        this.isFirstMove = false;
     }
 
-    /**
-     * Creates a new copy of the current pawn.
-     *
-     * @return a new Pawn object with the same color and first move status
-     */
-    @Override
-    public Piece copy() {
-        Pawn copy =  new Pawn(color);
-        copy.isFirstMove = isFirstMove;
-        return copy;
-    }
 }
\ No newline at end of file
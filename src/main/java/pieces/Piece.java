@@ -1,13 +1,16 @@
 package pieces;
 
 import elements.*;
-
-import java.util.List;
+import notation.San;
 
 /// @author dana
 
 /**
  * Represents a chess piece and provides methods for move validation, movement, capturing, and move notation.
+ * <p>
+ * Pieces hold no state besides their color, so there is a single shared instance per kind and color
+ * (e.g., {@link Pawn#WHITE}, or {@link PieceType#getPiece(Game.Color)}); whether a king or a rook may
+ * still castle is part of the {@link Position}.
  */
 public abstract class Piece {
     // Constants for the white and black pieces' symbols.
@@ -26,15 +29,57 @@ public abstract class Piece {
     public static final String BLACK_KING = "k";
 
     /// The color of the piece (either white or black).
-    public Game.Color color;
+    public final Game.Color color;
+    /// The kind of the piece.
+    private final PieceType type;
+    /// The FEN letter of the piece (e.g., 'P' for a white pawn, 'r' for a black rook).
+    private final char symbol;
+    /// The FEN letter of the piece as a string.
+    private final String name;
 
     /**
      * Constructs a {@code Piece} with the specified color.
      *
      * @param color The color of the piece (either white or black).
      */
-    public Piece(Game.Color color) {
+    protected Piece(Game.Color color) {
         this.color = color;
+        this.type = typeOf(this);
+        this.symbol = color == Game.Color.WHITE ? type.getLetter() : Character.toLowerCase(type.getLetter());
+        this.name = String.valueOf(symbol);
+    }
+
+    /**
+     * Returns the kind of a piece from its class. Only called once per shared piece.
+     *
+     * @param piece The piece.
+     * @return The type of the piece.
+     */
+    private static PieceType typeOf(Piece piece) {
+        if (piece instanceof Pawn) return PieceType.PAWN;
+        if (piece instanceof Knight) return PieceType.KNIGHT;
+        if (piece instanceof Bishop) return PieceType.BISHOP;
+        if (piece instanceof Rook) return PieceType.ROOK;
+        if (piece instanceof Queen) return PieceType.QUEEN;
+        return PieceType.KING;
+    }
+
+    /**
+     * Returns the kind of the piece.
+     *
+     * @return The type of the piece.
+     */
+    public PieceType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the FEN letter of the piece, uppercase for white and lowercase for black.
+     *
+     * @return The letter of the piece (e.g., 'P' for a white pawn, 'r' for a black rook).
+     */
+    public char getSymbol() {
+        return symbol;
     }
 
     /**
@@ -49,19 +94,13 @@ public abstract class Piece {
         Game copiedGame = game.copy();
 
         Position position = copiedGame.currentPosition;
-        int startRank = start.getRank() - 1;
-        int startFile = start.getFile() - 'a';
-        int endRank = end.getRank() - 1;
-        int endFile = end.getFile() - 'a';
 
         if (allowedMove(start, end, copiedGame)) {
             // Move the piece to the end Square
-            position.board[endRank][endFile].setIsEmpty(false);
-            position.board[endRank][endFile].setPiece(position.board[startRank][startFile].getPiece());
+            position.setPiece(end, position.getPiece(start));
 
             // Set the start Square empty
-            position.board[startRank][startFile].setIsEmpty(true);
-            position.board[startRank][startFile].setPiece(null);
+            position.setPiece(start, null);
 
             position.positionNumber++;
             copiedGame.currentPosition = position;
@@ -71,7 +110,7 @@ public abstract class Piece {
                     end,
                     copiedGame.currentPosition.positionNumber,
                     this,
-                    moveNotation(start, end, game, false),
+                    start.toString() + end,
                     copiedGame.currentPosition
             );
 
@@ -80,16 +119,14 @@ public abstract class Piece {
 
             copiedGame.whiteMoves = !copiedGame.whiteMoves;
         } else if (allowedCapture(start, end, copiedGame)) {
-            if (color == copiedGame.getMe().playerColor) copiedGame.getMeCapturedPieces().add(position.board[endRank][endFile].getPiece());
-            else copiedGame.getOpponentCapturedPieces().add(position.board[endRank][endFile].getPiece());
+            if (color == copiedGame.getMe().playerColor) copiedGame.getMeCapturedPieces().add(position.getPiece(end));
+            else copiedGame.getOpponentCapturedPieces().add(position.getPiece(end));
 
             // Move the piece to the end Square
-            position.board[endRank][endFile].setIsEmpty(false);
-            position.board[endRank][endFile].setPiece(position.board[startRank][startFile].getPiece());
+            position.setPiece(end, position.getPiece(start));
 
             // Set the start Square empty
-            position.board[startRank][startFile].setIsEmpty(true);
-            position.board[startRank][startFile].setPiece(null);
+            position.setPiece(start, null);
 
             position.positionNumber++;
             copiedGame.currentPosition = position;
@@ -99,7 +136,7 @@ public abstract class Piece {
                     end,
                     copiedGame.currentPosition.positionNumber,
                     this,
-                    moveNotation(start, end, game, true),
+                    start.toString() + end,
                     copiedGame.currentPosition
             );
 
@@ -139,36 +176,23 @@ public abstract class Piece {
         Position position = game.currentPosition;
 
         if (allowedMove(start, end, game) && stopCheck(start, end, game)) {
-            int startRank = start.getRank() - 1;
-            int startFile = start.getFile() - 'a';
-            int endRank = end.getRank() - 1;
-            int endFile = end.getFile() - 'a';
+            // The notation depends on the other pieces that can reach the end square, so it is built before the move
+            String moveNotation = San.moveText(game, start, end, null);
 
             // Move the piece to the end Square
-            position.board[endRank][endFile].setIsEmpty(false);
-            position.board[endRank][endFile].setPiece(position.board[startRank][startFile].getPiece());
+            position.setPiece(end, position.getPiece(start));
 
             // Set the start Square empty
-            position.board[startRank][startFile].setIsEmpty(true);
-            position.board[startRank][startFile].setPiece(null);
+            position.setPiece(start, null);
 
             position.positionNumber++;
+            position.updateCastlingRights(start, end);
             if (this instanceof Pawn) game.halfMoveClock = 0;
             else game.halfMoveClock++;
             game.currentPosition = position;
 
-            int moveNumber = (int) (Math.ceil((double) game.currentPosition.positionNumber / 2));
-
-            String moveNotation = moveNotation(start, end, game, false);
-            if (game.isCheckmateForWhite() || game.isCheckmateForBlack()) moveNotation += "#";
-            else if (game.isCheckForWhite() || game.isCheckForBlack()) moveNotation += "+";
-
-            Move newMove = new Move(start, end, moveNumber, this, moveNotation, game.currentPosition);
-
-            // Update the game history
-            game.gameHistory.add(newMove);
-
-            game.whiteMoves = !game.whiteMoves;
+            // Update the game history and give the turn to the other side
+            game.recordMove(start, end, this, moveNotation);
         }
     }
 
@@ -193,179 +217,37 @@ public abstract class Piece {
         Position position = game.currentPosition;
 
         if (allowedCapture(start, end, game) && stopCheck(start, end, game)) {
-            int startRank = start.getRank() - 1;
-            int startFile = start.getFile() - 'a';
-            int endRank = end.getRank() - 1;
-            int endFile = end.getFile() - 'a';
+            // The notation depends on the other pieces that can reach the end square, so it is built before the move
+            String moveNotation = San.moveText(game, start, end, null);
 
-            if (color == game.getMe().playerColor) game.getMeCapturedPieces().add(position.board[endRank][endFile].getPiece());
-            else game.getOpponentCapturedPieces().add(position.board[endRank][endFile].getPiece());
+            if (color == game.getMe().playerColor) game.getMeCapturedPieces().add(position.getPiece(end));
+            else game.getOpponentCapturedPieces().add(position.getPiece(end));
 
             // Move the piece to the end Square
-            position.board[endRank][endFile].setIsEmpty(false);
-            position.board[endRank][endFile].setPiece(position.board[startRank][startFile].getPiece());
+            position.setPiece(end, position.getPiece(start));
 
             // Set the start Square empty
-            position.board[startRank][startFile].setIsEmpty(true);
-            position.board[startRank][startFile].setPiece(null);
+            position.setPiece(start, null);
 
             position.positionNumber++;
+            position.updateCastlingRights(start, end);
             game.halfMoveClock = 0;
             game.currentPosition = position;
 
-            int moveNumber = (int) (Math.ceil((double) game.currentPosition.positionNumber / 2));
-
-            String moveNotation = moveNotation(start, end, game, true);
-            if (game.isCheckmateForWhite() || game.isCheckmateForBlack()) moveNotation += "#";
-            else if (game.isCheckForWhite() || game.isCheckForBlack()) moveNotation += "+";
-
-            Move newMove = new Move(start, end, moveNumber, this, moveNotation, game.currentPosition);
-
-            // Update the game history
-            game.gameHistory.add(newMove);
-
-            game.whiteMoves = !game.whiteMoves;
+            // Update the game history and give the turn to the other side
+            game.recordMove(start, end, this, moveNotation);
         }
     }
 
     /**
-     * Generates the algebraic notation for a move, including any disambiguation or capture indicators.
+     * Returns a copy of the current piece. Pieces are immutable, so the piece itself is returned.
      *
-     * @param start The start square of the move.
-     * @param end The end square of the move.
-     * @param game The current game state.
-     * @param isCapture True if the move is a capture, otherwise false.
-     * @return The move notation as a string.
+     * @return The piece itself.
      */
-    private String moveNotation(Square start, Square end, Game game, boolean isCapture) {
-        StringBuilder moveNotation = new StringBuilder();
-
-        List<Square> mySquares = game.getPiecesOfColor(color);
-        if (isCapture) {
-            if (this instanceof Pawn) moveNotation.append(start.getFile()).append("x");
-            if (this instanceof Knight) {
-                moveNotation.append("N");
-                // For ambiguities
-                for (Square square : mySquares) {
-                    Piece piece = square.getPiece();
-                    if (piece instanceof Knight && piece.allowedCapture(square, end, game) && !square.equals(start)) {
-                        // Check for disambiguation by file or rank
-                        if (start.getFile() == square.getFile()) moveNotation.append(start.getRank());
-                        else moveNotation.append(start.getFile());
-                        break;
-                    }
-                }
-                moveNotation.append("x");
-            }
-            if (this instanceof Bishop) {
-                moveNotation.append("B");
-                // For ambiguities
-                for (Square square : mySquares) {
-                    Piece piece = square.getPiece();
-                    if (piece instanceof Bishop && piece.allowedCapture(square, end, game) && !square.equals(start)) {
-                        // Check for disambiguation by file or rank
-                        if (start.getFile() == square.getFile()) moveNotation.append(start.getRank());
-                        else moveNotation.append(start.getFile());
-                        break;
-                    }
-                }
-                moveNotation.append("x");
-            }
-            if (this instanceof Rook) {
-                moveNotation.append("R");
-                // For ambiguities
-                for (Square square : mySquares) {
-                    Piece piece = square.getPiece();
-                    if (piece instanceof Rook && piece.allowedCapture(square, end, game) && !square.equals(start)) {
-                        // Check for disambiguation by file or rank
-                        if (start.getFile() == square.getFile()) moveNotation.append(start.getRank());
-                        else moveNotation.append(start.getFile());
-                        break;
-                    }
-                }
-                moveNotation.append("x");
-            }
-            if (this instanceof Queen) {
-                moveNotation.append("Q");
-                // For ambiguities
-                for (Square square : mySquares) {
-                    Piece piece = square.getPiece();
-                    if (piece instanceof Queen && piece.allowedCapture(square, end, game) && !square.equals(start)) {
-                        // Check for disambiguation by file or rank
-                        if (start.getFile() == square.getFile()) moveNotation.append(start.getRank());
-                        else moveNotation.append(start.getFile());
-                        break;
-                    }
-                }
-                moveNotation.append("x");
-            }
-            if (this instanceof King) moveNotation = new StringBuilder("Kx");
-        } else {
-            if (this instanceof Knight) {
-                moveNotation.append("N");
-                // For ambiguities
-                for (Square square : mySquares) {
-                    Piece piece = square.getPiece();
-                    if (piece instanceof Knight && piece.allowedCapture(square, end, game) && !square.equals(start)) {
-                        // Check for disambiguation by file or rank
-                        if (start.getFile() == square.getFile()) moveNotation.append(start.getRank());
-                        else moveNotation.append(start.getFile());
-                        break;
-                    }
-                }
-            }
-            if (this instanceof Bishop) {
-                moveNotation.append("B");
-                // For ambiguities
-                for (Square square : mySquares) {
-                    Piece piece = square.getPiece();
-                    if (piece instanceof Bishop && piece.allowedCapture(square, end, game) && !square.equals(start)) {
-                        // Check for disambiguation by file or rank
-                        if (start.getFile() == square.getFile()) moveNotation.append(start.getRank());
-                        else moveNotation.append(start.getFile());
-                        break;
-                    }
-                }
-            }
-            if (this instanceof Rook) {
-                moveNotation.append("R");
-                // For ambiguities
-                for (Square square : mySquares) {
-                    Piece piece = square.getPiece();
-                    if (piece instanceof Rook && piece.allowedCapture(square, end, game) && !square.equals(start)) {
-                        // Check for disambiguation by file or rank
-                        if (start.getFile() == square.getFile()) moveNotation.append(start.getRank());
-                        else moveNotation.append(start.getFile());
-                        break;
-                    }
-                }
-            }
-            if (this instanceof Queen) {
-                moveNotation.append("Q");
-                // For ambiguities
-                for (Square square : mySquares) {
-                    Piece piece = square.getPiece();
-                    if (piece instanceof Queen && piece.allowedCapture(square, end, game) && !square.equals(start)) {
-                        // Check for disambiguation by file or rank
-                        if (start.getFile() == square.getFile()) moveNotation.append(start.getRank());
-                        else moveNotation.append(start.getFile());
-                        break;
-                    }
-                }
-            }
-            if (this instanceof King) moveNotation = new StringBuilder("K");
-        }
-        moveNotation.append(end.getFile()).append(end.getRank());
-        return moveNotation.toString();
+    public Piece copy() {
+        return this;
     }
 
-    /**
-     * Creates a copy of the current piece.
-     *
-     * @return A new piece that is a copy of the current one.
-     */
-    public abstract Piece copy();
-
     /**
      * Returns the string representation of the piece (e.g., "P" for white pawn, "r" for black rook).
      *
@@ -373,13 +255,6 @@ public abstract class Piece {
      */
     @Override
     public String toString() {
-        String pieceSymbol = "";
-        if (this instanceof Pawn) pieceSymbol = (this.color == Game.Color.WHITE) ? WHITE_PAWN : BLACK_PAWN;
-        if (this instanceof Rook) pieceSymbol = (this.color == Game.Color.WHITE) ? WHITE_ROOK : BLACK_ROOK;
-        if (this instanceof Knight) pieceSymbol = (this.color == Game.Color.WHITE) ? WHITE_KNIGHT : BLACK_KNIGHT;
-        if (this instanceof Bishop) pieceSymbol = (this.color == Game.Color.WHITE) ? WHITE_BISHOP : BLACK_BISHOP;
-        if (this instanceof Queen) pieceSymbol = (this.color == Game.Color.WHITE) ? WHITE_QUEEN : BLACK_QUEEN;
-        if (this instanceof King) pieceSymbol = (this.color == Game.Color.WHITE) ? WHITE_KING : BLACK_KING;
-        return pieceSymbol;
+        return name;
     }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package pieces;
+
+import elements.Game;
+
+/// @author dana
+
+/**
+ * Enum representing the kinds of chess pieces, with their letter in algebraic notation
+ * and their suffix in UCI notation when a pawn is promoted to them.
+ */
+public enum PieceType {
+    PAWN('P'), KNIGHT('N'), BISHOP('B'), ROOK('R'), QUEEN('Q'), KING('K');
+
+    /// The letter of the piece in algebraic notation.
+    private final char letter;
+
+    /**
+     * Constructs a {@code PieceType}.
+     *
+     * @param letter The letter of the piece in algebraic notation.
+     */
+    PieceType(char letter) {
+        this.letter = letter;
+    }
+
+    /**
+     * Returns the letter of the piece in algebraic notation (e.g., 'N' for a knight).
+     *
+     * @return The uppercase letter of the piece.
+     */
+    public char getLetter() {
+        return letter;
+    }
+
+    /**
+     * Returns the suffix of a promotion to this piece in UCI notation (e.g., 'n' in "e7e8n").
+     *
+     * @return The lowercase letter of the piece.
+     */
+    public char getUciSuffix() {
+        return Character.toLowerCase(letter);
+    }
+
+    /**
+     * Checks if a pawn can be promoted to this piece.
+     *
+     * @return True for a knight, a bishop, a rook or a queen, false otherwise.
+     */
+    public boolean isPromotion() {
+        return this != PAWN && this != KING;
+    }
+
+    /**
+     * Returns the shared piece of this type.
+     *
+     * @param color The color of the piece.
+     * @return The piece of this type and color.
+     */
+    public Piece getPiece(Game.Color color) {
+        switch (this) {
+            case PAWN: return Pawn.of(color);
+            case KNIGHT: return Knight.of(color);
+            case BISHOP: return Bishop.of(color);
+            case ROOK: return Rook.of(color);
+            case QUEEN: return Queen.of(color);
+            default: return King.of(color);
+        }
+    }
+
+    /**
+     * Returns the promotion piece of a UCI suffix.
+     *
+     * @param suffix The suffix of a promotion in UCI notation ('q', 'r', 'b' or 'n').
+     * @return The promotion piece, or {@code null} if the suffix is not a promotion piece.
+     */
+    public static PieceType fromUciSuffix(char suffix) {
+        for (PieceType type : values()) {
+            if (type.isPromotion() && type.getUciSuffix() == suffix) return type;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the piece type of a letter in algebraic notation.
+     *
+     * @param letter The uppercase letter of the piece (e.g., 'N' for a knight).
+     * @return The piece type, or {@code null} if the letter is not a piece.
+     */
+    public static PieceType fromLetter(char letter) {
+        for (PieceType type : values()) {
+            if (type.letter == letter) return type;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the type of a piece.
+     *
+     * @param piece The piece.
+     * @return The type of the piece.
+     */
+    public static PieceType of(Piece piece) {
+        return piece.getType();
+    }
+}
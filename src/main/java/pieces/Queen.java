@@ -10,16 +10,30 @@ import elements.*;
 public class Queen extends Piece {
     // The value of the Queen piece
     public final int value = 9;
+    /// The white queen, shared by every square holding one.
+    public static final Queen WHITE = new Queen(Game.Color.WHITE);
+    /// The black queen, shared by every square holding one.
+    public static final Queen BLACK = new Queen(Game.Color.BLACK);
 
     /**
      * Creates a new {@code Queen} piece with the specified color.
      *
      * @param color the color of the Queen (either white or black)
      */
-    public Queen(Game.Color color) {
+    private Queen(Game.Color color) {
         super(color);
     }
 
+    /**
+     * Returns the shared queen of a color.
+     *
+     * @param color The color of the queen.
+     * @return The queen of that color.
+     */
+    public static Queen of(Game.Color color) {
+        return color == Game.Color.WHITE ? WHITE : BLACK;
+    }
+
     /**
      * Checks if the path between the start square and the end square is empty for a Queen's move.
      * A Queen moves any number of squares along a rank, file, or diagonal, but cannot jump over other pieces.
@@ -44,14 +58,14 @@ public class Queen extends Piece {
             boolean emptyPath = true;
             if (startFile < endFile) {
                 for (int i = startFile + 1; i < endFile; i++) {
-                    if (!position.board[startRank][i].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(startRank, i))) {
                         emptyPath = false;
                         break;
                     }
                 }
             } else {
                 for (int i = startFile - 1; i > endFile; i--) {
-                    if (!position.board[startRank][i].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(startRank, i))) {
                         emptyPath = false;
                         break;
                     }
@@ -62,14 +76,14 @@ public class Queen extends Piece {
             boolean emptyPath = true;
             if (startRank < endRank) {
                 for (int i = startRank + 1; i < endRank; i++) {
-                    if (!position.board[i][startFile].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(i, startFile))) {
                         emptyPath = false;
                         break;
                     }
                 }
             } else {
                 for (int i = startRank - 1; i > endRank; i--) {
-                    if (!position.board[i][startFile].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(i, startFile))) {
                         emptyPath = false;
                         break;
                     }
@@ -81,14 +95,14 @@ public class Queen extends Piece {
             if (endRank > startRank) {
                 if (endFile > startFile) {
                     for (int i = startRank + 1, j = startFile + 1; i < endRank && j < endFile; i++, j++) {
-                        if (!position.board[i][j].getIsEmpty()) {
+                        if (!position.isEmpty(Square.of(i, j))) {
                             emptyPath = false;
                             break;
                         }
                     }
                 } else {
                     for (int i = startRank + 1, j = startFile - 1; i < endRank && j > endFile; i++, j--) {
-                        if (!position.board[i][j].getIsEmpty()) {
+                        if (!position.isEmpty(Square.of(i, j))) {
                             emptyPath = false;
                             break;
                         }
@@ -97,14 +111,14 @@ public class Queen extends Piece {
             } else {
                 if (endFile < startFile) {
                     for (int i = startRank - 1, j = startFile - 1; i > endRank && j > endFile; i--, j--) {
-                        if (!position.board[i][j].getIsEmpty()) {
+                        if (!position.isEmpty(Square.of(i, j))) {
                             emptyPath = false;
                             break;
                         }
                     }
                 } else {
                     for (int i = startRank - 1, j = startFile + 1; i > endRank && j < endFile; i--, j++) {
-                        if (!position.board[i][j].getIsEmpty()) {
+                        if (!position.isEmpty(Square.of(i, j))) {
                             emptyPath = false;
                             break;
                         }
@@ -127,12 +141,9 @@ public class Queen extends Piece {
      */
     @Override
     public boolean allowedMove(Square start, Square end, Game game) {
-        int endRank = end.getRank() - 1;
-        int endFile = end.getFile() - 'a';
-
         Position position = game.currentPosition;
 
-        if (!position.board[endRank][endFile].getIsEmpty()) return false;
+        if (!position.isEmpty(end)) return false;
 
         return checkEmptyPath(start, end, game);
     }
@@ -160,16 +171,11 @@ public class Queen extends Piece {
      */
     @Override
     public boolean allowedCapture(Square start, Square end, Game game) {
-        int startRank = start.getRank() - 1;
-        int startFile = start.getFile() - 'a';
-        int endRank = end.getRank() - 1;
-        int endFile = end.getFile() - 'a';
-
         Position position = game.currentPosition;
 
-        if (position.board[endRank][endFile].getIsEmpty() ||
-                position.board[endRank][endFile].getPiece().color ==
-                        position.board[startRank][startFile].getPiece().color) return false;
+        if (position.isEmpty(end) ||
+                position.getPiece(end).color ==
+                        position.getPiece(start).color) return false;
 
         return checkEmptyPath(start, end, game);
     }
@@ -186,13 +192,4 @@ public class Queen extends Piece {
         super.makeCapture(start, end, game);
     }
 
-    /**
-     * Creates and returns a new copy of the Queen with the same color.
-     *
-     * @return a new Queen piece with the same color
-     */
-    @Override
-    public Piece copy() {
-        return new Queen(color);
-    }
 }
\ No newline at end of file
@@ -11,17 +11,28 @@ import elements.*;
 public class Rook extends Piece{
     /// The value of the Rook piece
     public final int value = 5;
-    /// Flag to check if the Rook has made its first move
-    public boolean isFirstMove;
+    /// The white rook, shared by every square holding one.
+    public static final Rook WHITE = new Rook(Game.Color.WHITE);
+    /// The black rook, shared by every square holding one.
+    public static final Rook BLACK = new Rook(Game.Color.BLACK);
 
     /**
      * Creates a new {@code Rook} piece with the specified color.
      *
      * @param color the color of the Rook (either white or black)
      */
-    public Rook(Game.Color color) {
+    private Rook(Game.Color color) {
         super(color);
-        isFirstMove = true;
+    }
+
+    /**
+     * Returns the shared rook of a color.
+     *
+     * @param color The color of the rook.
+     * @return The rook of that color.
+     */
+    public static Rook of(Game.Color color) {
+        return color == Game.Color.WHITE ? WHITE : BLACK;
     }
 
     /**
@@ -47,14 +58,14 @@ public class Rook extends Piece{
             boolean emptyPath = true;
             if (startFile < endFile) {
                 for (int i = startFile + 1; i < endFile; i++) {
-                    if (!position.board[startRank][i].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(startRank, i))) {
                         emptyPath = false;
                         break;
                     }
                 }
             } else {
                 for (int i = startFile - 1; i > endFile; i--) {
-                    if (!position.board[startRank][i].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(startRank, i))) {
                         emptyPath = false;
                         break;
                     }
@@ -65,14 +76,14 @@ public class Rook extends Piece{
             boolean emptyPath = true;
             if (startRank < endRank) {
                 for (int i = startRank + 1; i < endRank; i++) {
-                    if (!position.board[i][startFile].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(i, startFile))) {
                         emptyPath = false;
                         break;
                     }
                 }
             } else {
                 for (int i = startRank - 1; i > endRank; i--) {
-                    if (!position.board[i][startFile].getIsEmpty()) {
+                    if (!position.isEmpty(Square.of(i, startFile))) {
                         emptyPath = false;
                         break;
                     }
@@ -93,30 +104,13 @@ public class Rook extends Piece{
      */
     @Override
     public boolean allowedMove(Square start, Square end, Game game) {
-        int endRank = end.getRank() - 1;
-        int endFile = end.getFile() - 'a';
-
         Position position = game.currentPosition;
 
-        if (!position.board[endRank][endFile].getIsEmpty()) return false;
+        if (!position.isEmpty(end)) return false;
 
         return checkEmptyPath(start, end, game);
     }
 
-    /**
-     * Executes the move for the Rook from the start square to the end square.
-     * The Rook's first move flag is set to false after the move is made.
-     *
-     * @param start the starting square
-     * @param end the ending square
-     * @param game the current game instance
-     */
-    @Override
-    public void makeMove(Square start, Square end, Game game) {
-        super.makeMove(start, end, game);
-        isFirstMove = false;
-    }
-
     /**
      * Determines if the Rook is allowed to capture an opponent's piece on the end square.
      * The Rook can capture an opposing piece by moving along a rank or file, provided the path is not blocked.
@@ -128,43 +122,13 @@ public class Rook extends Piece{
      */
     @Override
     public boolean allowedCapture(Square start, Square end, Game game) {
-        int startRank = start.getRank() - 1;
-        int startFile = start.getFile() - 'a';
-        int endRank = end.getRank() - 1;
-        int endFile = end.getFile() - 'a';
-
         Position position = game.currentPosition;
 
-        if (position.board[endRank][endFile].getIsEmpty() ||
-                position.board[endRank][endFile].getPiece().color ==
-                        position.board[startRank][startFile].getPiece().color) return false;
+        if (position.isEmpty(end) ||
+                position.getPiece(end).color ==
+                        position.getPiece(start).color) return false;
 
         return checkEmptyPath(start, end, game);
     }
 
-    /**
-     * Executes the capture for the Rook, removing the captured piece from the game.
-     * The Rook's first move flag is set to false after the capture is made.
-     *
-     * @param start the starting square
-     * @param end the ending square
-     * @param game the current game instance
-     */
-    @Override
-    public void makeCapture(Square start, Square end, Game game) {
-        super.makeCapture(start, end, game);
-        isFirstMove = false;
-    }
-
-    /**
-     * Creates and returns a new copy of the Rook with the same color and first move status.
-     *
-     * @return a new Rook piece with the same color and first move status
-     */
-    @Override
-    public Piece copy() {
-        Rook copy =  new Rook(color);
-        copy.isFirstMove = isFirstMove;
-        return copy;
-    }
 }
\ No newline at end of file
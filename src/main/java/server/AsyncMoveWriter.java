@@ -0,0 +1,203 @@
+package server;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/// @author dana
+
+/**
+ * Persists the moves of the server's games off the request path: {@link #append} only queues the move, and a
+ * single writer thread appends the queued moves to a log file in batches, one line per move
+ * ("gameID ply uciMove"), flushing once per batch. The log is kept across runs, and the largest game id it
+ * holds is read when it is opened, so a new run can number its games after those of the previous runs.
+ */
+public class AsyncMoveWriter implements Closeable {
+    /// The maximum number of moves written in one batch.
+    static final int MAX_BATCH_SIZE = 4096;
+
+    /**
+     * A move waiting to be written.
+     */
+    private static final class MoveRecord {
+        /// The identifier of the game.
+        final long gameID;
+        /// The number of half-moves played after the move.
+        final int ply;
+        /// The move in UCI notation.
+        final String uciMove;
+
+        /**
+         * Constructs a {@code MoveRecord}.
+         *
+         * @param gameID The identifier of the game.
+         * @param ply The number of half-moves played after the move.
+         * @param uciMove The move in UCI notation.
+         */
+        MoveRecord(long gameID, int ply, String uciMove) {
+            this.gameID = gameID;
+            this.ply = ply;
+            this.uciMove = uciMove;
+        }
+    }
+
+    /// The moves not written yet.
+    private final BlockingQueue<MoveRecord> queue = new LinkedBlockingQueue<>();
+    /// The log file writer, only used by the writer thread.
+    private final BufferedWriter writer;
+    /// The thread writing the batches.
+    private final Thread thread;
+    /// The number of moves written so far.
+    private final AtomicLong writtenCount = new AtomicLong();
+    /// The largest game id in the log when it was opened, 0 if it held no move.
+    private final long lastGameID;
+    /// Indicates if the writer was closed, set while holding the queue's lock; the queued moves are still written.
+    private volatile boolean closed;
+
+    /**
+     * Opens the log file for appending and starts the writer thread.
+     *
+     * @param file The log file, created if it does not exist.
+     * @throws IOException If the file cannot be read or opened.
+     */
+    public AsyncMoveWriter(Path file) throws IOException {
+        this.lastGameID = Files.exists(file) ? readLastGameID(file) : 0;
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.thread = new Thread(this::run, "move-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a move for writing. Returns at once.
+     *
+     * @param gameID The identifier of the game.
+     * @param ply The number of half-moves played after the move.
+     * @param uciMove The move in UCI notation.
+     * @throws IllegalStateException If the writer is closed.
+     */
+    public void append(long gameID, int ply, String uciMove) {
+        // Checking and queueing under the lock closing takes, so no move is queued once the writer is closed
+        synchronized (queue) {
+            if (closed) throw new IllegalStateException("The move writer is closed.");
+            queue.add(new MoveRecord(gameID, ply, uciMove));
+        }
+    }
+
+    /**
+     * Returns the largest game id the log held when it was opened, so new games can be numbered after it.
+     *
+     * @return The largest game id of the previous runs, or 0 if the log held no move.
+     */
+    public long getLastGameID() {
+        return lastGameID;
+    }
+
+    /**
+     * Returns the number of moves written to the file so far.
+     *
+     * @return The written move count.
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * Writes the queued moves, then closes the file. The moves the writer thread left in the queue, e.g., because
+     * it was interrupted, are written by the caller.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (queue) {
+            closed = true;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<MoveRecord> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) write(rest);
+        writer.close();
+    }
+
+    /**
+     * Writes batches of queued moves until the writer is closed and the queue is empty.
+     */
+    private void run() {
+        List<MoveRecord> batch = new ArrayList<>();
+        try {
+            while (true) {
+                MoveRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed && queue.isEmpty()) return;
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads the largest game id of a log. A line that does not start with a game id, e.g., one cut short by a
+     * crash, is skipped.
+     *
+     * @param file The log file.
+     * @return The largest game id, or 0 if the log holds no move.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long readLastGameID(Path file) throws IOException {
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.US_ASCII)) {
+            return lines.mapToLong(line -> {
+                int space = line.indexOf(' ');
+                try {
+                    return space > 0 ? Long.parseLong(line.substring(0, space)) : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }).max().orElse(0);
+        }
+    }
+
+    /**
+     * Writes a batch of moves and flushes the file.
+     *
+     * @param batch The moves.
+     */
+    private void write(List<MoveRecord> batch) {
+        try {
+            for (MoveRecord move : batch) {
+                writer.write(Long.toString(move.gameID));
+                writer.write(' ');
+                writer.write(Integer.toString(move.ply));
+                writer.write(' ');
+                writer.write(move.uciMove);
+                writer.newLine();
+            }
+            writer.flush();
+            writtenCount.addAndGet(batch.size());
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("Failed to write " + batch.size() + " moves.");
+        }
+    }
+}
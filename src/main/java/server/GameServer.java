@@ -0,0 +1,407 @@
+package server;
+
+import analysis.EvaluatorPool;
+import analysis.MaterialEvaluator;
+import analysis.PositionEvaluator;
+import analysis.StockfishEvaluator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import elements.Game;
+import elements.GameStatus;
+import elements.Move;
+import elements.Player;
+import pieces.Piece;
+import session.GameSession;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/// @author dana
+
+/**
+ * Headless HTTP server hosting many games at once, each owned by a {@link GameSession} keyed by a game id.
+ * <p>
+ * Every exchange is handled on its own virtual thread, and the sessions run their mailboxes on virtual threads
+ * too, so a waiting request or an idle game holds no platform thread. Engine replies come from one shared
+ * {@link PositionEvaluator} (typically an {@link EvaluatorPool}), and moves are persisted by an
+ * {@link AsyncMoveWriter} without delaying the response.
+ * <p>
+ * The protocol is plain text:
+ * <ul>
+ *     <li>{@code POST /games?engine=black|white|none} creates a game and answers its id;</li>
+ *     <li>{@code GET /games/{id}} answers the state of the game;</li>
+ *     <li>{@code POST /games/{id}/moves} with a UCI move as body plays it, waits for the engine's reply, and answers
+ *     the state of the game, or 409 if the move is not legal or it is the engine's turn;</li>
+ *     <li>{@code DELETE /games/{id}} closes the game.</li>
+ * </ul>
+ * A state has three lines: the FEN, the legal moves separated by spaces, and the result ("*" while the game goes
+ * on, else "1-0", "0-1" or "1/2-1/2").
+ * <p>
+ * Games nobody deletes are closed by a periodic sweep: a finished game once it has not been requested for the
+ * finished timeout, which leaves the client time to read the result, and any other game once it has not been
+ * requested for the idle timeout.
+ */
+public class GameServer implements Closeable {
+    /// The port the server listens on by default.
+    public static final int DEFAULT_PORT = 8080;
+    /// The longest a request waits for a move and the engine's reply, in seconds.
+    static final long MOVE_TIMEOUT_SECONDS = 30;
+    /// How long a game may go without requests before it is closed, by default.
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    /// How long a finished game may go without requests before it is closed, by default.
+    public static final Duration DEFAULT_FINISHED_TIMEOUT = Duration.ofMinutes(1);
+
+    /// The HTTP server.
+    private final HttpServer httpServer;
+    /// The virtual threads handling the exchanges and running the sessions.
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    /// The engine shared by every game.
+    private final PositionEvaluator engine;
+    /// The writer persisting the moves.
+    private final AsyncMoveWriter moveWriter;
+    /// The open games, by id.
+    private final Map<Long, ServerGame> games = new ConcurrentHashMap<>();
+    /// The id of the next game, after those of the previous runs in the move log.
+    private final AtomicLong nextGameID;
+    /// The time a game may go without requests before it is closed, in nanoseconds.
+    private final long idleTimeoutNanos;
+    /// The time a finished game may go without requests before it is closed, in nanoseconds.
+    private final long finishedTimeoutNanos;
+    /// The virtual thread sweeping the games that timed out.
+    private final ScheduledExecutorService sweeper =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("game-sweeper").factory());
+
+    /**
+     * A game of the server: its session, whether an engine plays in it, and when it was last requested.
+     */
+    private static final class ServerGame {
+        /// The session owning the game.
+        final GameSession session;
+        /// Indicates if an engine plays one side.
+        final boolean hasEngine;
+        /// The time of the last request to the game, from {@link System#nanoTime()}.
+        volatile long lastRequest = System.nanoTime();
+        /// Indicates if the game is over.
+        volatile boolean over;
+
+        /**
+         * Constructs a {@code ServerGame}.
+         *
+         * @param session The session owning the game.
+         * @param hasEngine True if an engine plays one side.
+         */
+        ServerGame(GameSession session, boolean hasEngine) {
+            this.session = session;
+            this.hasEngine = hasEngine;
+        }
+    }
+
+    /**
+     * Creates a server with the default timeouts. It accepts no connection until {@link #start()} is called.
+     *
+     * @param address The address to listen on; port 0 picks a free port.
+     * @param engine The engine shared by every game; not closed by the server.
+     * @param moveWriter The writer persisting the moves, whose log gives the id of the first game; not closed by
+     *                   the server.
+     * @throws IOException If the server cannot listen on the address.
+     */
+    public GameServer(InetSocketAddress address, PositionEvaluator engine, AsyncMoveWriter moveWriter) throws IOException {
+        this(address, engine, moveWriter, DEFAULT_IDLE_TIMEOUT, DEFAULT_FINISHED_TIMEOUT);
+    }
+
+    /**
+     * Creates a server. It accepts no connection until {@link #start()} is called.
+     *
+     * @param address The address to listen on; port 0 picks a free port.
+     * @param engine The engine shared by every game; not closed by the server.
+     * @param moveWriter The writer persisting the moves, whose log gives the id of the first game; not closed by
+     *                   the server.
+     * @param idleTimeout How long a game may go without requests before it is closed.
+     * @param finishedTimeout How long a finished game may go without requests before it is closed.
+     * @throws IOException If the server cannot listen on the address.
+     */
+    public GameServer(InetSocketAddress address, PositionEvaluator engine, AsyncMoveWriter moveWriter,
+                      Duration idleTimeout, Duration finishedTimeout) throws IOException {
+        this.engine = engine;
+        this.moveWriter = moveWriter;
+        this.nextGameID = new AtomicLong(moveWriter.getLastGameID() + 1);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.finishedTimeoutNanos = finishedTimeout.toNanos();
+        this.httpServer = HttpServer.create(address, 1024);
+        httpServer.createContext("/games", this::handle);
+        httpServer.setExecutor(executor);
+    }
+
+    /**
+     * Starts accepting connections.
+     */
+    public void start() {
+        long sweepPeriod = Math.max(TimeUnit.MILLISECONDS.toNanos(10), Math.min(idleTimeoutNanos, finishedTimeoutNanos) / 2);
+        sweeper.scheduleWithFixedDelay(this::closeTimedOutGames, sweepPeriod, sweepPeriod, TimeUnit.NANOSECONDS);
+        httpServer.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of open games.
+     *
+     * @return The game count.
+     */
+    public int getGameCount() {
+        return games.size();
+    }
+
+    /**
+     * Stops the server and closes every game.
+     */
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        sweeper.shutdownNow();
+        for (ServerGame game : games.values()) game.session.close();
+        games.clear();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Closes the games that have gone without requests for longer than their timeout.
+     */
+    private void closeTimedOutGames() {
+        long now = System.nanoTime();
+        games.values().removeIf(game -> {
+            if (now - game.lastRequest < (game.over ? finishedTimeoutNanos : idleTimeoutNanos)) return false;
+            game.session.close();
+            return true;
+        });
+    }
+
+    /**
+     * Handles an exchange, answering 404 for unknown paths and games and 405 for unsupported methods.
+     *
+     * @param exchange The exchange.
+     * @throws IOException If the response cannot be sent.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            if (path.length == 2) {
+                if (method.equals("POST")) createGame(exchange);
+                else send(exchange, 405, "Method not allowed.");
+                return;
+            }
+
+            ServerGame game = path.length <= 4 ? games.get(parseID(path[2])) : null;
+            if (game != null) game.lastRequest = System.nanoTime();
+            if (game == null) {
+                send(exchange, 404, "No such game.");
+            } else if (path.length == 3 && method.equals("GET")) {
+                send(exchange, 200, wait(game.session.ask(GameServer::describe)));
+            } else if (path.length == 3 && method.equals("DELETE")) {
+                games.remove(parseID(path[2]));
+                game.session.close();
+                send(exchange, 204, "");
+            } else if (path.length == 4 && path[3].equals("moves") && method.equals("POST")) {
+                playMove(exchange, game);
+            } else {
+                send(exchange, 405, "Method not allowed.");
+            }
+        } catch (TimeoutException e) {
+            send(exchange, 504, "The game did not answer in time.");
+        } catch (ExecutionException | RuntimeException e) {
+            e.printStackTrace();
+            send(exchange, 500, "Internal error.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "The server is stopping.");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Creates a game with the engine on the side given by the "engine" query parameter (black by default).
+     *
+     * @param exchange The exchange.
+     * @throws IOException If the response cannot be sent.
+     */
+    private void createGame(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        String engineSide = query != null && query.startsWith("engine=") ? query.substring("engine=".length()) : "black";
+        Game.Color engineColor;
+        switch (engineSide) {
+            case "white": engineColor = Game.Color.WHITE; break;
+            case "black": engineColor = Game.Color.BLACK; break;
+            case "none": engineColor = null; break;
+            default:
+                send(exchange, 400, "The engine side must be white, black or none.");
+                return;
+        }
+
+        long gameID = nextGameID.getAndIncrement();
+        Game game = new Game(engineColor == Game.Color.WHITE ? Player.ColorOption.BLACK : Player.ColorOption.WHITE);
+        GameSession session = new GameSession(game, engineColor, copy -> engine.evaluate(copy).getBestMove(), executor,
+                new GameSession.Listener() {
+                    @Override
+                    public void onMove(Game game, Move move, Piece capturedPiece) {
+                        moveWriter.append(gameID, game.gameHistory.size(), move.getUciNotation());
+                    }
+
+                    @Override
+                    public void onGameOver(Game game, GameStatus status) {
+                        ServerGame finished = games.get(gameID);
+                        if (finished != null) finished.over = true;
+                    }
+                });
+        games.put(gameID, new ServerGame(session, engineColor != null));
+        session.start();
+        send(exchange, 201, Long.toString(gameID));
+    }
+
+    /**
+     * Plays the move in the body of the request, then waits for the engine's reply if an engine plays.
+     *
+     * @param exchange The exchange.
+     * @param game The game.
+     * @throws IOException If the request cannot be read or the response cannot be sent.
+     * @throws ExecutionException If the session failed to handle the move, other than for the turn.
+     * @throws TimeoutException If the session did not answer in time.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    private void playMove(HttpExchange exchange, ServerGame game)
+            throws IOException, ExecutionException, TimeoutException, InterruptedException {
+        String uciMove;
+        try (InputStream body = exchange.getRequestBody()) {
+            uciMove = new String(body.readAllBytes(), StandardCharsets.US_ASCII).trim();
+        }
+
+        int ply;
+        try {
+            ply = wait(game.session.submitMove(uciMove));
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof GameSession.WrongTurnException)) throw e;
+            send(exchange, 409, "It is the engine's turn to move.");
+            return;
+        }
+        if (ply < 0) {
+            send(exchange, 409, "Illegal move " + uciMove + ".");
+            return;
+        }
+        if (game.hasEngine) wait(game.session.awaitPly(ply + 1));
+        send(exchange, 200, wait(game.session.ask(GameServer::describe)));
+    }
+
+    /**
+     * Returns the state of a game, as sent to the clients.
+     *
+     * @param game The game.
+     * @return The FEN, the legal moves and the result, on three lines.
+     */
+    static String describe(Game game) {
+        GameStatus status = game.getStatus();
+        String result = "*";
+        if (status.isCheckmate()) result = status.getSideToMove() == Game.Color.WHITE ? "0-1" : "1-0";
+        else if (status.isDraw()) result = "1/2-1/2";
+        return game.FENNotation() + "\n" + String.join(" ", status.getLegalMoves()) + "\n" + result + "\n";
+    }
+
+    /**
+     * Waits for a future of a session.
+     *
+     * @param future The future.
+     * @param <T> The type of the result.
+     * @return The result.
+     * @throws ExecutionException If the future failed.
+     * @throws TimeoutException If the future is not done in time.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    private static <T> T wait(CompletableFuture<T> future) throws ExecutionException, TimeoutException, InterruptedException {
+        return future.get(MOVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Parses a game id.
+     *
+     * @param text The id in the path.
+     * @return The id, or -1 if the text is not a number.
+     */
+    private static long parseID(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Sends a plain text response.
+     *
+     * @param exchange The exchange.
+     * @param status The HTTP status code.
+     * @param body The body of the response.
+     * @throws IOException If the response cannot be sent.
+     */
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Starts a server until the process is stopped.
+     *
+     * @param args The port (8080 by default), then "stockfish" to play with a pool of Stockfish processes, one
+     *             per core, instead of the in-process material evaluator. Moves are appended to "server-moves.log".
+     * @throws IOException If the server, the engines or the log file cannot be started.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int cores = Runtime.getRuntime().availableProcessors();
+        EvaluatorPool engines = args.length > 1 && args[1].equals("stockfish")
+                ? new EvaluatorPool(cores, () -> new StockfishEvaluator(8))
+                : new EvaluatorPool(cores, MaterialEvaluator::new);
+        AsyncMoveWriter moveWriter = new AsyncMoveWriter(Paths.get("server-moves.log"));
+
+        GameServer server = new GameServer(new InetSocketAddress(port), engines, moveWriter);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                moveWriter.close();
+                engines.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        server.start();
+        System.out.println("Game server listening on port " + server.getPort() + ".");
+    }
+}
@@ -0,0 +1,225 @@
+package server;
+
+import analysis.EvaluatorPool;
+import analysis.MaterialEvaluator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/// @author dana
+
+/**
+ * Local load generator for the {@link GameServer}: it plays many games at once against the engine, one virtual
+ * thread per game, each picking random legal moves, and reports the throughput and the latency of the moves.
+ * <p>
+ * The latency of a move is measured from sending it to receiving the position after the engine's reply, so it
+ * includes the rules, the engine and the wait in the session's mailbox.
+ */
+public class LoadGenerator {
+    /// The address of the server.
+    private final URI server;
+    /// The client shared by the simulated players.
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    /**
+     * The measurements of a run.
+     */
+    public static final class Report {
+        /// The number of games played.
+        private final int gameCount;
+        /// The latency of each move, in nanoseconds, sorted.
+        private final long[] latencies;
+        /// The duration of the run, in nanoseconds.
+        private final long elapsedNanos;
+
+        /**
+         * Constructs a {@code Report}.
+         *
+         * @param gameCount The number of games played.
+         * @param latencies The latency of each move, in nanoseconds.
+         * @param elapsedNanos The duration of the run, in nanoseconds.
+         */
+        Report(int gameCount, long[] latencies, long elapsedNanos) {
+            this.gameCount = gameCount;
+            this.latencies = latencies.clone();
+            Arrays.sort(this.latencies);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of moves played by the simulated players.
+         *
+         * @return The move count.
+         */
+        public int getMoveCount() {
+            return latencies.length;
+        }
+
+        /**
+         * Returns a percentile of the move latencies.
+         *
+         * @param percentile The percentile, from 0 to 100.
+         * @return The latency, in milliseconds, or 0 if no move was played.
+         */
+        public double getLatencyMillis(double percentile) {
+            if (latencies.length == 0) return 0;
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e6;
+        }
+
+        /**
+         * Returns the number of moves played per second.
+         *
+         * @return The move throughput.
+         */
+        public double getMovesPerSecond() {
+            return latencies.length / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * Returns the number of concurrent games per core of this machine.
+         *
+         * @return The game count divided by the number of cores.
+         */
+        public double getSessionsPerCore() {
+            return (double) gameCount / Runtime.getRuntime().availableProcessors();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games (%.1f per core), %d moves in %.1f s: %.0f moves/s, p50 %.1f ms, p99 %.1f ms",
+                    gameCount, getSessionsPerCore(), getMoveCount(), elapsedNanos / 1e9, getMovesPerSecond(),
+                    getLatencyMillis(50), getLatencyMillis(99));
+        }
+    }
+
+    /**
+     * Creates a load generator for a server.
+     *
+     * @param server The address of the server (e.g., "http://localhost:8080").
+     */
+    public LoadGenerator(URI server) {
+        this.server = server;
+    }
+
+    /**
+     * Plays games at once against the engine playing black, until they end or reach a number of moves.
+     *
+     * @param gameCount The number of concurrent games.
+     * @param movesPerGame The maximum number of moves of the simulated player in each game.
+     * @param seed The seed of the random move choices.
+     * @return The measurements of the run.
+     * @throws IOException If a game fails.
+     * @throws InterruptedException If the thread is interrupted while waiting for the games.
+     */
+    public Report run(int gameCount, int movesPerGame, long seed) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        List<Future<long[]>> games = new ArrayList<>();
+        try (ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < gameCount; i++) {
+                Random random = new Random(seed + i);
+                games.add(players.submit(() -> playGame(movesPerGame, random)));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long[] latencies = new long[0];
+        for (Future<long[]> game : games) {
+            try {
+                long[] gameLatencies = game.get();
+                int length = latencies.length;
+                latencies = Arrays.copyOf(latencies, length + gameLatencies.length);
+                System.arraycopy(gameLatencies, 0, latencies, length, gameLatencies.length);
+            } catch (ExecutionException e) {
+                throw new IOException("A game failed.", e.getCause());
+            }
+        }
+        return new Report(gameCount, latencies, elapsed);
+    }
+
+    /**
+     * Plays a game with random legal moves.
+     *
+     * @param movesPerGame The maximum number of moves.
+     * @param random The source of the move choices.
+     * @return The latency of each move, in nanoseconds.
+     * @throws IOException If a request fails.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    private long[] playGame(int movesPerGame, Random random) throws IOException, InterruptedException {
+        String gameID = send(HttpRequest.newBuilder(server.resolve("/games?engine=black"))
+                .POST(HttpRequest.BodyPublishers.noBody()), 201).trim();
+        URI game = server.resolve("/games/" + gameID);
+        String[] state = send(HttpRequest.newBuilder(game).GET(), 200).split("\n", -1);
+
+        long[] latencies = new long[movesPerGame];
+        int moveCount = 0;
+        while (moveCount < movesPerGame && state[2].equals("*") && !state[1].isEmpty()) {
+            String[] legalMoves = state[1].split(" ");
+            String move = legalMoves[random.nextInt(legalMoves.length)];
+
+            long start = System.nanoTime();
+            state = send(HttpRequest.newBuilder(server.resolve("/games/" + gameID + "/moves"))
+                    .POST(HttpRequest.BodyPublishers.ofString(move)), 200).split("\n", -1);
+            latencies[moveCount++] = System.nanoTime() - start;
+        }
+
+        send(HttpRequest.newBuilder(game).DELETE(), 204);
+        return Arrays.copyOf(latencies, moveCount);
+    }
+
+    /**
+     * Sends a request and checks the status of the response.
+     *
+     * @param request The request.
+     * @param expectedStatus The expected HTTP status code.
+     * @return The body of the response.
+     * @throws IOException If the request fails or the status is not the expected one.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    private String send(HttpRequest.Builder request, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != expectedStatus) {
+            throw new IOException("Unexpected status " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    /**
+     * Starts a local server with the material evaluator, one per core, and runs a load against it.
+     *
+     * @param args The number of concurrent games (1000 by default) and the moves per game (20 by default).
+     * @throws IOException If the server cannot be started or a game fails.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int gameCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int movesPerGame = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Path moveLog = Files.createTempFile("load-moves", ".log");
+        try (EvaluatorPool engines = new EvaluatorPool(cores, MaterialEvaluator::new);
+             AsyncMoveWriter moveWriter = new AsyncMoveWriter(moveLog);
+             GameServer server = new GameServer(new InetSocketAddress("localhost", 0), engines, moveWriter)) {
+            server.start();
+            Report report = new LoadGenerator(URI.create("http://localhost:" + server.getPort())).run(gameCount, movesPerGame, 1);
+            System.out.println(report);
+        } finally {
+            Files.deleteIfExists(moveLog);
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package session;
+
+import elements.Game;
+import elements.GameStatus;
+import elements.Move;
+import elements.Square;
+import pieces.Pawn;
+import pieces.Piece;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/// @author dana
+
+/**
+ * A game played by a user, and optionally an engine, as an actor: the session owns its {@link Game} and changes
+ * it only from its mailbox, which handles one message at a time. User moves and engine replies are posted to the
+ * mailbox from any thread, so they never race and no lock is needed.
+ * <p>
+ * A user move is only accepted on the user's turn. Each engine request is tied to the ply it was made for; a reply
+ * arriving after another move was played, or after the session was closed, is dropped. Closing the session
+ * completes every future it handed out and has not completed yet exceptionally. The mailbox runs on a shared
+ * executor, so one process can host many sessions without a thread per game. The executor needs more than one
+ * thread if an engine is used, since the engine searches on it too.
+ */
+public class GameSession {
+    /**
+     * Receives the events of a session. The methods are called from the mailbox, one at a time, and may read the
+     * game they are given but must not keep it or change it.
+     */
+    public interface Listener {
+        /**
+         * Called once when the session starts.
+         *
+         * @param game The game.
+         */
+        default void onStart(Game game) {
+        }
+
+        /**
+         * Called after a move was played.
+         *
+         * @param game The game after the move.
+         * @param move The move played.
+         * @param capturedPiece The piece captured by the move, or {@code null} if it is not a capture.
+         */
+        default void onMove(Game game, Move move, Piece capturedPiece) {
+        }
+
+        /**
+         * Called when a submitted move is not legal.
+         *
+         * @param game The game, unchanged.
+         * @param uciMove The rejected move.
+         */
+        default void onIllegalMove(Game game, String uciMove) {
+        }
+
+        /**
+         * Called after the move that ended the game. No move is accepted afterwards.
+         *
+         * @param game The game after its last move.
+         * @param status The final status, a checkmate or a draw.
+         */
+        default void onGameOver(Game game, GameStatus status) {
+        }
+
+        /**
+         * Called when the engine failed to find a move. The game waits for a move of the engine that will not
+         * come; the futures waiting for it are completed exceptionally.
+         *
+         * @param game The game, unchanged.
+         * @param error The error of the engine.
+         */
+        default void onEngineFailure(Game game, Exception error) {
+        }
+    }
+
+    /**
+     * Chooses the moves of the engine side.
+     */
+    public interface Engine {
+        /**
+         * Searches the best move of a position. Called on the executor of the session, never from the mailbox.
+         *
+         * @param game A copy of the game, owned by the engine.
+         * @return The move in UCI notation, or {@code null} or an empty string if no move was found.
+         * @throws Exception If the search fails.
+         */
+        String bestMove(Game game) throws Exception;
+    }
+
+    /**
+     * Thrown, through the future of {@link #submitMove(String)}, when the user submits a move on the engine's turn.
+     */
+    public static class WrongTurnException extends IllegalStateException {
+        /// The serialization version of the exception.
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs a {@code WrongTurnException}.
+         *
+         * @param message The detail message.
+         */
+        public WrongTurnException(String message) {
+            super(message);
+        }
+    }
+
+    /// The game, only read and changed from the mailbox.
+    private final Game game;
+    /// The color played by the engine, or {@code null} if both sides are played by the user.
+    private final Game.Color engineColor;
+    /// The engine, or {@code null} if there is none.
+    private final Engine engine;
+    /// The executor running the mailbox and the engine searches.
+    private final Executor executor;
+    /// The receiver of the events.
+    private final Listener listener;
+    /// The messages not handled yet.
+    private final Queue<Message> mailbox = new ConcurrentLinkedQueue<>();
+    /// Indicates if a task draining the mailbox is scheduled or running.
+    private final AtomicBoolean draining = new AtomicBoolean();
+    /// Indicates if the session was closed; later messages are dropped.
+    private volatile boolean closed;
+    /// Indicates if the game is over. Only used from the mailbox.
+    private boolean over;
+    /// The futures waiting for a number of half-moves, by number. Only used from the mailbox.
+    private final Map<Integer, List<CompletableFuture<Integer>>> plyWaiters = new HashMap<>();
+    /// The error of the engine if it failed to find its move, or {@code null}. Only used from the mailbox.
+    private Exception engineFailure;
+
+    /**
+     * Constructs a {@code GameSession}. Nothing happens until {@link #start()} is called.
+     *
+     * @param game The game, which must not be used outside the session afterwards.
+     * @param engineColor The color played by the engine, or {@code null} if there is no engine.
+     * @param engine The engine, or {@code null} if there is no engine.
+     * @param executor The executor running the mailbox and the engine searches.
+     * @param listener The receiver of the events.
+     */
+    public GameSession(Game game, Game.Color engineColor, Engine engine, Executor executor, Listener listener) {
+        this.game = game;
+        this.engineColor = engine == null ? null : engineColor;
+        this.engine = engine;
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts the session: the listener receives {@link Listener#onStart(Game)}, and the engine is asked for a
+     * move if it plays first.
+     */
+    public void start() {
+        post(() -> {
+            listener.onStart(game);
+            requestEngineMove();
+        }, null);
+    }
+
+    /**
+     * Submits a move of the user. The move is played from the mailbox if it is legal when its turn comes.
+     *
+     * @param uciMove The move in UCI notation (e.g., "e2e4", "e7e8q").
+     * @return A future completed with the number of half-moves played after the move, or -1 if it was not legal;
+     *         completed exceptionally with a {@link WrongTurnException} if it is the engine's turn.
+     */
+    public CompletableFuture<Integer> submitMove(String uciMove) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        post(() -> {
+            if (isEngineTurn()) result.completeExceptionally(new WrongTurnException("It is the engine's turn to move."));
+            else result.complete(play(uciMove) ? game.gameHistory.size() : -1);
+        }, result);
+        return result;
+    }
+
+    /**
+     * Waits until a number of half-moves have been played, or the game is over.
+     *
+     * @param ply The number of half-moves to wait for.
+     * @return A future completed with the number of half-moves played when the wait ends, or completed
+     *         exceptionally with the error of the engine if it failed to find its move.
+     */
+    public CompletableFuture<Integer> awaitPly(int ply) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        post(() -> {
+            if (over || game.gameHistory.size() >= ply) result.complete(game.gameHistory.size());
+            else if (engineFailure != null) result.completeExceptionally(engineFailure);
+            else plyWaiters.computeIfAbsent(ply, key -> new ArrayList<>()).add(result);
+        }, result);
+        return result;
+    }
+
+    /**
+     * Reads the game from the mailbox.
+     *
+     * @param query Computes a result from the game, without keeping or changing it.
+     * @param <T> The type of the result.
+     * @return A future completed with the result of the query.
+     */
+    public <T> CompletableFuture<T> ask(Function<Game, T> query) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        post(() -> result.complete(query.apply(game)), result);
+        return result;
+    }
+
+    /**
+     * Closes the session. Messages not handled yet and pending engine replies are dropped, and the futures not
+     * completed yet are completed exceptionally with an {@link IllegalStateException}.
+     */
+    public void close() {
+        closed = true;
+        // Fail the pending futures now unless a drain is running, which fails them when it stops
+        if (draining.compareAndSet(false, true)) drain();
+    }
+
+    /**
+     * Posts a message to the mailbox. The future of a message posted after the session was closed is completed
+     * exceptionally at once.
+     *
+     * @param action The message, run from the mailbox.
+     * @param result The future completed by the message, or {@code null} if it has none.
+     */
+    private void post(Runnable action, CompletableFuture<?> result) {
+        if (closed) {
+            if (result != null) result.completeExceptionally(closedException());
+            return;
+        }
+        mailbox.add(new Message(action, result));
+        schedule();
+    }
+
+    /**
+     * Schedules a task draining the mailbox, unless one is already scheduled or running.
+     */
+    private void schedule() {
+        if (draining.compareAndSet(false, true)) executor.execute(this::drain);
+    }
+
+    /**
+     * Handles the messages of the mailbox in order, or fails them once the session is closed, then schedules again
+     * if messages arrived meanwhile.
+     */
+    private void drain() {
+        try {
+            Message message;
+            while (!closed && (message = mailbox.poll()) != null) {
+                try {
+                    message.action.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    if (message.result != null) message.result.completeExceptionally(e);
+                }
+            }
+            if (closed) failPending();
+        } finally {
+            draining.set(false);
+        }
+        if (!mailbox.isEmpty()) schedule();
+    }
+
+    /**
+     * Completes the futures of the messages left in the mailbox and of the waits for half-moves exceptionally.
+     * Runs from the mailbox, after the session was closed.
+     */
+    private void failPending() {
+        IllegalStateException error = closedException();
+        Message message;
+        while ((message = mailbox.poll()) != null) {
+            if (message.result != null) message.result.completeExceptionally(error);
+        }
+        for (List<CompletableFuture<Integer>> waiters : plyWaiters.values()) {
+            for (CompletableFuture<Integer> waiter : waiters) waiter.completeExceptionally(error);
+        }
+        plyWaiters.clear();
+    }
+
+    /**
+     * Returns the error of the futures of a closed session.
+     *
+     * @return The error.
+     */
+    private static IllegalStateException closedException() {
+        return new IllegalStateException("The session is closed.");
+    }
+
+    /**
+     * Checks if the engine is to move. Runs from the mailbox.
+     *
+     * @return True if an engine plays the side to move and the game is not over.
+     */
+    private boolean isEngineTurn() {
+        Game.Color sideToMove = game.whiteMoves ? Game.Color.WHITE : Game.Color.BLACK;
+        return engine != null && !over && sideToMove == engineColor;
+    }
+
+    /**
+     * Plays a move, tells the listener, and asks the engine for its reply if it is its turn. Runs from the mailbox.
+     *
+     * @param uciMove The move in UCI notation.
+     * @return True if the move was played, false if it is not legal.
+     */
+    private boolean play(String uciMove) {
+        Square start = uciMove == null || uciMove.length() < 4 ? null : game.getSquare(uciMove.substring(0, 2));
+        Square end = start == null ? null : game.getSquare(uciMove.substring(2, 4));
+        Piece capturedPiece = end == null ? null : capturedPiece(start, end);
+
+        if (over || end == null || !game.playMove(uciMove)) {
+            listener.onIllegalMove(game, uciMove);
+            return false;
+        }
+        listener.onMove(game, game.gameHistory.get(game.gameHistory.size() - 1), capturedPiece);
+
+        GameStatus status = game.getStatus();
+        if (status.isOver()) {
+            over = true;
+            listener.onGameOver(game, status);
+        } else {
+            requestEngineMove();
+        }
+        wakePlyWaiters();
+        return true;
+    }
+
+    /**
+     * Completes the futures waiting for the half-moves played so far, or for any number if the game is over.
+     * Runs from the mailbox.
+     */
+    private void wakePlyWaiters() {
+        if (plyWaiters.isEmpty()) return;
+        int ply = game.gameHistory.size();
+        Iterator<Map.Entry<Integer, List<CompletableFuture<Integer>>>> waiters = plyWaiters.entrySet().iterator();
+        while (waiters.hasNext()) {
+            Map.Entry<Integer, List<CompletableFuture<Integer>>> entry = waiters.next();
+            if (!over && entry.getKey() > ply) continue;
+            for (CompletableFuture<Integer> waiter : entry.getValue()) waiter.complete(ply);
+            waiters.remove();
+        }
+    }
+
+    /**
+     * Returns the piece a move would capture, including a pawn taken en passant.
+     *
+     * @param start The start square of the move.
+     * @param end The end square of the move.
+     * @return The captured piece, or {@code null} if the move is not a capture.
+     */
+    private Piece capturedPiece(Square start, Square end) {
+        Piece captured = game.currentPosition.getPiece(end);
+        if (captured == null && game.currentPosition.getPiece(start) instanceof Pawn && start.getFile() != end.getFile()) {
+            captured = game.currentPosition.getPiece(Square.of(start.getRank() - 1, end.getFile() - 'a'));
+        }
+        return captured;
+    }
+
+    /**
+     * Asks the engine for a move if it is its turn. The search runs on the executor, and its result is posted
+     * back to the mailbox with the ply it was made for. Runs from the mailbox.
+     */
+    private void requestEngineMove() {
+        if (!isEngineTurn()) return;
+
+        int ply = game.gameHistory.size();
+        Game copy = game.copy();
+        executor.execute(() -> {
+            if (closed) return;
+            String bestMove = null;
+            Exception error = null;
+            try {
+                bestMove = engine.bestMove(copy);
+            } catch (Exception e) {
+                error = e;
+            }
+            String engineMove = bestMove;
+            Exception engineError = error;
+            post(() -> playEngineMove(ply, engineMove, engineError), null);
+        });
+    }
+
+    /**
+     * Plays the move found by the engine, unless the game moved on since it was requested. If the engine found
+     * no move, the listener is told and the futures waiting for the move are completed exceptionally.
+     * Runs from the mailbox.
+     *
+     * @param ply The number of half-moves played when the move was requested.
+     * @param uciMove The move found by the engine, or {@code null} or an empty string if none was found.
+     * @param error The error of the search, or {@code null} if it did not fail.
+     */
+    private void playEngineMove(int ply, String uciMove, Exception error) {
+        if (ply != game.gameHistory.size() || over) return;
+        if (error == null && (uciMove == null || uciMove.isEmpty())) error = new IllegalStateException("The engine found no move.");
+        if (error == null && !play(uciMove)) error = new IllegalStateException("The engine played the illegal move " + uciMove + ".");
+        if (error == null) return;
+
+        engineFailure = error;
+        listener.onEngineFailure(game, error);
+        for (List<CompletableFuture<Integer>> waiters : plyWaiters.values()) {
+            for (CompletableFuture<Integer> waiter : waiters) waiter.completeExceptionally(error);
+        }
+        plyWaiters.clear();
+    }
+
+    /**
+     * A message of the mailbox, with the future it completes.
+     */
+    private static final class Message {
+        /// The action run from the mailbox.
+        private final Runnable action;
+        /// The future completed by the action, or {@code null} if it has none.
+        private final CompletableFuture<?> result;
+
+        /**
+         * Constructs a {@code Message}.
+         *
+         * @param action The action run from the mailbox.
+         * @param result The future completed by the action, or {@code null} if it has none.
+         */
+        Message(Runnable action, CompletableFuture<?> result) {
+            this.action = action;
+            this.result = result;
+        }
+    }
+}
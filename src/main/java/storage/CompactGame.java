@@ -0,0 +1,215 @@
+package storage;
+
+import elements.Game;
+import elements.Move;
+import elements.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/// @author dana
+
+/**
+ * Represents a game in the compact binary storage format: the header of the game (identifier, timestamps,
+ * color, status and result) and its moves, each stored as its index in the list of legal moves of the
+ * position where it was played ({@link Game#legalMoves()}). As a position never has more than 218 legal
+ * moves, every half-move fits in a single byte.
+ * <p>
+ * Use {@link CompactGameWriter} and {@link CompactGameReader} to convert a compact game to and from bytes.
+ */
+public class CompactGame {
+    /// The identifier of the game in the database.
+    private final int gameID;
+    /// The start of the game, in milliseconds since the epoch.
+    private final long startTimestamp;
+    /// The end of the game, in milliseconds since the epoch, or 0 if the game is not finished.
+    private final long endTimestamp;
+    /// The color the user played in this game.
+    private final Game.Color myColor;
+    /// The result of the game ("White", "Black" or "Draw"), or {@code null} if the game is not finished.
+    private final String result;
+    /// The index of each half-move in the legal moves of its position.
+    private final byte[] moveIndexes;
+    /// The milliseconds elapsed before each half-move, or {@code null} if the move times are not stored.
+    private final int[] moveTimes;
+
+    /**
+     * Constructs a {@code CompactGame} from its header and encoded moves.
+     *
+     * @param gameID The identifier of the game.
+     * @param startTimestamp The start of the game, in milliseconds since the epoch.
+     * @param endTimestamp The end of the game, in milliseconds since the epoch, or 0 if not finished.
+     * @param myColor The color the user played.
+     * @param result The result of the game, or {@code null} if not finished.
+     * @param moveIndexes The index of each half-move in the legal moves of its position.
+     * @param moveTimes The milliseconds elapsed before each half-move, or {@code null}.
+     */
+    public CompactGame(int gameID, long startTimestamp, long endTimestamp, Game.Color myColor, String result,
+                       byte[] moveIndexes, int[] moveTimes) {
+        if (moveTimes != null && moveTimes.length != moveIndexes.length) {
+            throw new IllegalArgumentException("There must be one move time per move.");
+        }
+        this.gameID = gameID;
+        this.startTimestamp = startTimestamp;
+        this.endTimestamp = endTimestamp;
+        this.myColor = myColor;
+        this.result = result;
+        this.moveIndexes = moveIndexes;
+        this.moveTimes = moveTimes;
+    }
+
+    /**
+     * Encodes a game from its moves in UCI notation, by replaying them from the starting position.
+     *
+     * @param gameID The identifier of the game.
+     * @param startTimestamp The start of the game, in milliseconds since the epoch.
+     * @param endTimestamp The end of the game, in milliseconds since the epoch, or 0 if not finished.
+     * @param myColor The color the user played.
+     * @param result The result of the game, or {@code null} if not finished.
+     * @param uciMoves The moves of the game in UCI notation.
+     * @param moveTimes The milliseconds elapsed before each half-move, or {@code null}.
+     * @return The compact game.
+     * @throws IllegalArgumentException If one of the moves is not legal.
+     */
+    public static CompactGame fromUciMoves(int gameID, long startTimestamp, long endTimestamp, Game.Color myColor,
+                                           String result, List<String> uciMoves, int[] moveTimes) {
+        Game game = new Game(myColor == Game.Color.WHITE ? Player.ColorOption.WHITE : Player.ColorOption.BLACK);
+        byte[] moveIndexes = new byte[uciMoves.size()];
+
+        for (int ply = 0; ply < uciMoves.size(); ply++) {
+            String uciMove = uciMoves.get(ply);
+            int index = game.legalMoves().indexOf(uciMove);
+            if (index < 0 || !game.playMove(uciMove)) {
+                throw new IllegalArgumentException("Illegal move " + uciMove + " at half-move " + (ply + 1) + ".");
+            }
+            moveIndexes[ply] = (byte) index;
+        }
+        return new CompactGame(gameID, startTimestamp, endTimestamp, myColor, result, moveIndexes, moveTimes);
+    }
+
+    /**
+     * Encodes a game played with the rules of this project.
+     *
+     * @param game The game to encode.
+     * @param gameID The identifier of the game.
+     * @param startTimestamp The start of the game, in milliseconds since the epoch.
+     * @param endTimestamp The end of the game, in milliseconds since the epoch, or 0 if not finished.
+     * @param result The result of the game, or {@code null} if not finished.
+     * @return The compact game.
+     */
+    public static CompactGame fromGame(Game game, int gameID, long startTimestamp, long endTimestamp, String result) {
+        List<String> uciMoves = new ArrayList<>();
+        for (Move move : game.gameHistory) uciMoves.add(move.getUciNotation());
+        return fromUciMoves(gameID, startTimestamp, endTimestamp, game.getMe().playerColor, result, uciMoves, null);
+    }
+
+    /**
+     * Decodes the moves of the game in UCI notation, by replaying them from the starting position.
+     *
+     * @return The moves of the game in UCI notation.
+     */
+    public List<String> getUciMoves() {
+        List<String> uciMoves = new ArrayList<>();
+        Game game = new Game(Player.ColorOption.WHITE);
+        for (byte moveIndex : moveIndexes) {
+            String uciMove = game.legalMoves().get(moveIndex & 0xFF);
+            game.playMove(uciMove);
+            uciMoves.add(uciMove);
+        }
+        return uciMoves;
+    }
+
+    /**
+     * Rebuilds the game by replaying its moves from the starting position.
+     *
+     * @return The game after its last move.
+     */
+    public Game toGame() {
+        Game game = new Game(myColor == Game.Color.WHITE ? Player.ColorOption.WHITE : Player.ColorOption.BLACK);
+        for (byte moveIndex : moveIndexes) {
+            game.playMove(game.legalMoves().get(moveIndex & 0xFF));
+        }
+        return game;
+    }
+
+    /**
+     * Returns the identifier of the game in the database.
+     *
+     * @return The game identifier.
+     */
+    public int getGameID() {
+        return gameID;
+    }
+
+    /**
+     * Returns the start of the game.
+     *
+     * @return The start timestamp, in milliseconds since the epoch.
+     */
+    public long getStartTimestamp() {
+        return startTimestamp;
+    }
+
+    /**
+     * Returns the end of the game.
+     *
+     * @return The end timestamp, in milliseconds since the epoch, or 0 if the game is not finished.
+     */
+    public long getEndTimestamp() {
+        return endTimestamp;
+    }
+
+    /**
+     * Returns the color the user played in this game.
+     *
+     * @return The user's color.
+     */
+    public Game.Color getMyColor() {
+        return myColor;
+    }
+
+    /**
+     * Returns the result of the game.
+     *
+     * @return "White", "Black" or "Draw", or {@code null} if the game is not finished.
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Returns whether the game is finished.
+     *
+     * @return {@code true} if the game has a result, {@code false} otherwise.
+     */
+    public boolean isFinished() {
+        return result != null;
+    }
+
+    /**
+     * Returns the number of half-moves of the game.
+     *
+     * @return The number of half-moves.
+     */
+    public int getPlyCount() {
+        return moveIndexes.length;
+    }
+
+    /**
+     * Returns the index of each half-move in the legal moves of its position.
+     *
+     * @return The encoded moves.
+     */
+    public byte[] getMoveIndexes() {
+        return moveIndexes;
+    }
+
+    /**
+     * Returns the milliseconds elapsed before each half-move.
+     *
+     * @return The move times, or {@code null} if they are not stored.
+     */
+    public int[] getMoveTimes() {
+        return moveTimes;
+    }
+}
@@ -0,0 +1,98 @@
+package storage;
+
+import elements.Game;
+
+import java.nio.ByteBuffer;
+
+/// @author dana
+
+/**
+ * Reads games written by {@link CompactGameWriter}.
+ * Games are read from a {@link ByteBuffer}, so they can be decoded in place from a byte array or a mapped file.
+ */
+public class CompactGameReader {
+    /// The results, indexed by their code in the flags.
+    static final String[] RESULTS = {null, "White", "Black", "Draw"};
+
+    /**
+     * Reads a game from a byte array.
+     *
+     * @param bytes The encoded game.
+     * @return The decoded game.
+     * @throws IllegalArgumentException If the bytes are not a game in the compact format.
+     */
+    public static CompactGame read(byte[] bytes) {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads a game from the current position of a buffer, and advances the position past the game.
+     *
+     * @param buffer The buffer to read from.
+     * @return The decoded game.
+     * @throws IllegalArgumentException If the buffer does not hold a game in the compact format.
+     */
+    public static CompactGame read(ByteBuffer buffer) {
+        int flags = readHeader(buffer);
+
+        int gameID = (int) readVarLong(buffer);
+        long startTimestamp = readVarLong(buffer);
+        long duration = readVarLong(buffer);
+        int plyCount = (int) readVarLong(buffer);
+
+        byte[] moveIndexes = new byte[plyCount];
+        buffer.get(moveIndexes);
+
+        int[] moveTimes = null;
+        if ((flags & CompactGameWriter.MOVE_TIMES_FLAG) != 0) {
+            moveTimes = new int[plyCount];
+            for (int ply = 0; ply < plyCount; ply++) moveTimes[ply] = (int) readVarLong(buffer);
+        }
+
+        return new CompactGame(
+                gameID,
+                startTimestamp,
+                duration == 0 ? 0 : startTimestamp + duration - 1,
+                (flags & CompactGameWriter.BLACK_FLAG) != 0 ? Game.Color.BLACK : Game.Color.WHITE,
+                RESULTS[flags & CompactGameWriter.RESULT_MASK],
+                moveIndexes,
+                moveTimes
+        );
+    }
+
+    /**
+     * Reads and validates the 4-byte header of a game.
+     *
+     * @param buffer The buffer to read from.
+     * @return The flags of the game.
+     * @throws IllegalArgumentException If the header is not valid.
+     */
+    static int readHeader(ByteBuffer buffer) {
+        if (buffer.get() != CompactGameWriter.MAGIC_1 || buffer.get() != CompactGameWriter.MAGIC_2) {
+            throw new IllegalArgumentException("Not a game in the compact format.");
+        }
+        byte version = buffer.get();
+        if (version != CompactGameWriter.VERSION) {
+            throw new IllegalArgumentException("Unsupported compact game version: " + version);
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Reads a non-negative integer written by {@link CompactGameWriter#writeVarLong}.
+     *
+     * @param buffer The buffer to read from.
+     * @return The value read.
+     */
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,108 @@
+package storage;
+
+import elements.Game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/// @author dana
+
+/**
+ * Writes games in the compact binary storage format.
+ * <p>
+ * A game is written as a 4-byte header ('J', 'G', version, flags), followed by the game identifier, the start
+ * timestamp, the game duration and the number of half-moves as variable-length integers, one byte per half-move
+ * (its index in the legal moves of the position) and, if present, the time of each half-move as a variable-length
+ * integer. The flags hold the result (2 bits), the user's color and whether the move times are present.
+ */
+public class CompactGameWriter {
+    /// The first byte of every game.
+    static final byte MAGIC_1 = 'J';
+    /// The second byte of every game.
+    static final byte MAGIC_2 = 'G';
+    /// The version of the format.
+    static final byte VERSION = 1;
+    /// The bits of the flags holding the result: 0 not finished, 1 White, 2 Black, 3 draw.
+    static final int RESULT_MASK = 0x03;
+    /// The flag set when the user played Black.
+    static final int BLACK_FLAG = 0x04;
+    /// The flag set when the move times are present.
+    static final int MOVE_TIMES_FLAG = 0x08;
+
+    /**
+     * Writes a game to a new byte array.
+     *
+     * @param game The game to write.
+     * @return The encoded game.
+     */
+    public static byte[] toBytes(CompactGame game) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(16 + 2 * game.getPlyCount());
+        try {
+            write(game, output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Writes a game to an output stream.
+     *
+     * @param game The game to write.
+     * @param output The stream to write to.
+     * @throws IOException If an error occurs while writing.
+     */
+    public static void write(CompactGame game, OutputStream output) throws IOException {
+        int flags = resultCode(game.getResult());
+        if (game.getMyColor() == Game.Color.BLACK) flags |= BLACK_FLAG;
+        if (game.getMoveTimes() != null) flags |= MOVE_TIMES_FLAG;
+
+        output.write(MAGIC_1);
+        output.write(MAGIC_2);
+        output.write(VERSION);
+        output.write(flags);
+
+        writeVarLong(output, game.getGameID());
+        writeVarLong(output, game.getStartTimestamp());
+        writeVarLong(output, game.getEndTimestamp() == 0 ? 0 : game.getEndTimestamp() - game.getStartTimestamp() + 1);
+        writeVarLong(output, game.getPlyCount());
+        output.write(game.getMoveIndexes());
+
+        if (game.getMoveTimes() != null) {
+            for (int moveTime : game.getMoveTimes()) writeVarLong(output, moveTime);
+        }
+    }
+
+    /**
+     * Writes a non-negative integer in 7-bit groups, least significant first, with the high bit of each byte
+     * set when more bytes follow.
+     *
+     * @param output The stream to write to.
+     * @param value The value to write.
+     * @throws IOException If an error occurs while writing.
+     */
+    static void writeVarLong(OutputStream output, long value) throws IOException {
+        if (value < 0) throw new IllegalArgumentException("Negative values cannot be written: " + value);
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    /**
+     * Returns the code of a result in the flags.
+     *
+     * @param result The result of the game, or {@code null}.
+     * @return The result code.
+     */
+    private static int resultCode(String result) {
+        if (result == null) return 0;
+        if (result.equalsIgnoreCase("White")) return 1;
+        if (result.equalsIgnoreCase("Black")) return 2;
+        if (result.equalsIgnoreCase("Draw")) return 3;
+        throw new IllegalArgumentException("Invalid result: " + result);
+    }
+}
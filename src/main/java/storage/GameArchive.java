@@ -0,0 +1,342 @@
+package storage;
+
+import elements.Game;
+import elements.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/// @author dana
+
+/**
+ * Read-only view of a game archive written by {@link GameArchiveWriter}, for bulk analytics without going
+ * through the database.
+ * <p>
+ * The data and index files are memory-mapped with {@link FileChannel#map}, so games are decoded straight from
+ * the page cache. The data file is mapped in regions of at most {@value #MAX_REGION_SIZE} bytes that always
+ * start at a game boundary, so archives larger than a single mapping are supported.
+ * A {@link Cursor} scans the games sequentially without allocating anything per game.
+ */
+public class GameArchive implements Closeable, Iterable<CompactGame> {
+    /// The maximum size of a mapped region of the data file.
+    static final int MAX_REGION_SIZE = 1 << 30;
+
+    /// The data file channel, kept open while the archive is in use.
+    private final FileChannel dataChannel;
+    /// The offset of each game in the data file.
+    private final LongBuffer offsets;
+    /// The number of games in the archive.
+    private final int gameCount;
+    /// The mapped regions of the data file.
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+    /// The offset in the data file of each mapped region.
+    private final List<Long> regionOffsets = new ArrayList<>();
+    /// The index of the first game of each mapped region.
+    private final List<Integer> regionFirstGames = new ArrayList<>();
+
+    /**
+     * Opens a game archive for reading. Games appended after opening are not visible.
+     *
+     * @param dataFile The data file of the archive; the index file is the same path with ".idx" appended.
+     * @throws IOException If the files cannot be opened or mapped.
+     */
+    public GameArchive(Path dataFile) throws IOException {
+        this.dataChannel = FileChannel.open(dataFile, StandardOpenOption.READ);
+
+        try (FileChannel indexChannel = FileChannel.open(GameArchiveWriter.indexFile(dataFile), StandardOpenOption.READ)) {
+            long indexSize = indexChannel.size() - indexChannel.size() % Long.BYTES;
+            if (indexSize > Integer.MAX_VALUE) throw new IOException("The archive index is too large to be mapped.");
+            this.offsets = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexSize).asLongBuffer();
+            this.gameCount = (int) (indexSize / Long.BYTES);
+        }
+
+        mapRegions();
+    }
+
+    /**
+     * Returns the number of games in the archive.
+     *
+     * @return The game count.
+     */
+    public int size() {
+        return gameCount;
+    }
+
+    /**
+     * Decodes the game at the given index.
+     *
+     * @param index The index of the game, in the order the games were appended.
+     * @return The decoded game.
+     * @throws IndexOutOfBoundsException If there is no game at the index.
+     */
+    public CompactGame get(int index) {
+        if (index < 0 || index >= gameCount) throw new IndexOutOfBoundsException("No game at index " + index);
+        ByteBuffer buffer = bufferAt(index);
+        return CompactGameReader.read(buffer);
+    }
+
+    /**
+     * Returns a cursor positioned before the first game.
+     *
+     * @return A new cursor over the games of the archive.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Returns an iterator decoding every game of the archive.
+     *
+     * @return An iterator over the games.
+     */
+    @Override
+    public Iterator<CompactGame> iterator() {
+        return new Iterator<CompactGame>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < gameCount;
+            }
+
+            @Override
+            public CompactGame next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return get(next++);
+            }
+        };
+    }
+
+    /**
+     * Closes the data file. Mapped regions stay valid until they are garbage collected.
+     *
+     * @throws IOException If an error occurs while closing.
+     */
+    @Override
+    public void close() throws IOException {
+        dataChannel.close();
+    }
+
+    /**
+     * Maps the data file in regions starting at a game boundary, each as large as possible
+     * without exceeding {@link #MAX_REGION_SIZE}.
+     *
+     * @throws IOException If a region cannot be mapped.
+     */
+    private void mapRegions() throws IOException {
+        int first = 0;
+        while (first < gameCount) {
+            long regionStart = offsets.get(first);
+            int last = first;
+            while (last + 1 < gameCount && gameEnd(last + 1) - regionStart <= MAX_REGION_SIZE) last++;
+
+            long regionSize = gameEnd(last) - regionStart;
+            if (regionSize > MAX_REGION_SIZE) throw new IOException("Game " + first + " is too large to be mapped.");
+
+            regions.add(dataChannel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionSize));
+            regionOffsets.add(regionStart);
+            regionFirstGames.add(first);
+            first = last + 1;
+        }
+    }
+
+    /**
+     * Returns the offset right after a game in the data file.
+     *
+     * @param index The index of the game.
+     * @return The end offset of the game.
+     * @throws IOException If the size of the data file cannot be read.
+     */
+    private long gameEnd(int index) throws IOException {
+        return index + 1 < gameCount ? offsets.get(index + 1) : dataChannel.size();
+    }
+
+    /**
+     * Returns the mapped region holding a game.
+     *
+     * @param index The index of the game.
+     * @return The index of the region.
+     */
+    private int regionOf(int index) {
+        int low = 0;
+        int high = regionFirstGames.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (regionFirstGames.get(middle) <= index) low = middle;
+            else high = middle - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Returns a buffer over the region of a game, positioned at the start of the game.
+     *
+     * @param index The index of the game.
+     * @return The positioned buffer.
+     */
+    private ByteBuffer bufferAt(int index) {
+        int region = regionOf(index);
+        ByteBuffer buffer = regions.get(region).duplicate();
+        buffer.position((int) (offsets.get(index) - regionOffsets.get(region)));
+        return buffer;
+    }
+
+    /**
+     * Sequential cursor over the games of the archive. The header and the moves of the current game are read
+     * directly from the mapped data, so a scan allocates nothing per game unless a game is decoded.
+     */
+    public class Cursor {
+        /// The index of the current game, or -1 before the first game.
+        private int index = -1;
+        /// The index of the region of the current game.
+        private int region = -1;
+        /// The buffer over the region of the current game.
+        private ByteBuffer buffer;
+        /// The flags of the current game.
+        private int flags;
+        /// The identifier of the current game.
+        private int gameID;
+        /// The start timestamp of the current game.
+        private long startTimestamp;
+        /// The duration of the current game plus one, or 0 if it is not finished.
+        private long duration;
+        /// The number of half-moves of the current game.
+        private int plyCount;
+        /// The position of the first move of the current game in the buffer.
+        private int movesPosition;
+
+        /**
+         * Moves the cursor to the next game.
+         *
+         * @return {@code true} if the cursor is on a game, {@code false} if there are no more games.
+         */
+        public boolean next() {
+            if (index + 1 >= gameCount) {
+                index = gameCount;
+                return false;
+            }
+            index++;
+
+            int gameRegion = regionOf(index);
+            if (gameRegion != region) {
+                region = gameRegion;
+                buffer = regions.get(region).duplicate();
+            }
+            buffer.position((int) (offsets.get(index) - regionOffsets.get(region)));
+
+            flags = CompactGameReader.readHeader(buffer);
+            gameID = (int) CompactGameReader.readVarLong(buffer);
+            startTimestamp = CompactGameReader.readVarLong(buffer);
+            duration = CompactGameReader.readVarLong(buffer);
+            plyCount = (int) CompactGameReader.readVarLong(buffer);
+            movesPosition = buffer.position();
+            return true;
+        }
+
+        /**
+         * Returns the index of the current game in the archive.
+         *
+         * @return The index of the game.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the identifier of the current game.
+         *
+         * @return The game identifier.
+         */
+        public int getGameID() {
+            return gameID;
+        }
+
+        /**
+         * Returns the start of the current game.
+         *
+         * @return The start timestamp, in milliseconds since the epoch.
+         */
+        public long getStartTimestamp() {
+            return startTimestamp;
+        }
+
+        /**
+         * Returns the end of the current game.
+         *
+         * @return The end timestamp, in milliseconds since the epoch, or 0 if the game is not finished.
+         */
+        public long getEndTimestamp() {
+            return duration == 0 ? 0 : startTimestamp + duration - 1;
+        }
+
+        /**
+         * Returns the color the user played in the current game.
+         *
+         * @return The user's color.
+         */
+        public Game.Color getMyColor() {
+            return (flags & CompactGameWriter.BLACK_FLAG) != 0 ? Game.Color.BLACK : Game.Color.WHITE;
+        }
+
+        /**
+         * Returns the result of the current game.
+         *
+         * @return "White", "Black" or "Draw", or {@code null} if the game is not finished.
+         */
+        public String getResult() {
+            return CompactGameReader.RESULTS[flags & CompactGameWriter.RESULT_MASK];
+        }
+
+        /**
+         * Returns the number of half-moves of the current game.
+         *
+         * @return The number of half-moves.
+         */
+        public int getPlyCount() {
+            return plyCount;
+        }
+
+        /**
+         * Returns the index of a half-move of the current game in the legal moves of its position.
+         *
+         * @param ply The half-move, from 0.
+         * @return The index of the move in {@link Game#legalMoves()}.
+         */
+        public int getMoveIndex(int ply) {
+            if (ply < 0 || ply >= plyCount) throw new IndexOutOfBoundsException("No half-move " + ply);
+            return buffer.get(movesPosition + ply) & 0xFF;
+        }
+
+        /**
+         * Decodes the current game in the compact format.
+         *
+         * @return The decoded game.
+         */
+        public CompactGame toCompactGame() {
+            return get(index);
+        }
+
+        /**
+         * Decodes the current game into the game model, by replaying its moves.
+         *
+         * @return The game after its last move.
+         */
+        public Game toGame() {
+            Game game = new Game(getMyColor() == Game.Color.WHITE ? Player.ColorOption.WHITE : Player.ColorOption.BLACK);
+            for (int ply = 0; ply < plyCount; ply++) {
+                game.playMove(game.legalMoves().get(getMoveIndex(ply)));
+            }
+            return game;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/// @author dana
+
+/**
+ * Appends games in the compact binary format to a game archive: a data file holding the encoded games one
+ * after the other, and an index file holding the offset of each game in the data file as an 8-byte integer.
+ * <p>
+ * Games are only ever appended. The data of a game is written before its offset, so a reader never sees a
+ * game whose data is incomplete. Use {@link GameArchive} to read the archive.
+ */
+public class GameArchiveWriter implements Closeable {
+    /// An upper bound of the size of an encoded game.
+    private static final int MAX_GAME_SIZE = 1 << 20;
+    /// The channel of the data file.
+    private final FileChannel dataChannel;
+    /// The channel of the index file.
+    private final FileChannel indexChannel;
+    /// The buffer used to write an offset to the index file.
+    private final ByteBuffer offsetBuffer = ByteBuffer.allocate(Long.BYTES);
+    /// The offset at which the next game is written.
+    private long dataSize;
+
+    /**
+     * Opens an archive for appending, creating its files if they do not exist.
+     *
+     * @param dataFile The data file of the archive; the index file is the same path with ".idx" appended.
+     * @throws IOException If the files cannot be opened.
+     */
+    public GameArchiveWriter(Path dataFile) throws IOException {
+        this.dataChannel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.indexChannel = FileChannel.open(indexFile(dataFile), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        // Drop a partial offset and the data of games whose offset was never written
+        long indexSize = indexChannel.size() - indexChannel.size() % Long.BYTES;
+        indexChannel.truncate(indexSize);
+        indexChannel.position(indexSize);
+        dataSize = indexSize == 0 ? 0 : lastGameEnd(indexSize);
+        dataChannel.truncate(dataSize);
+        dataChannel.position(dataSize);
+    }
+
+    /**
+     * Returns the index file of an archive.
+     *
+     * @param dataFile The data file of the archive.
+     * @return The index file of the archive.
+     */
+    public static Path indexFile(Path dataFile) {
+        return Paths.get(dataFile.toString() + ".idx");
+    }
+
+    /**
+     * Appends a game to the archive.
+     *
+     * @param game The game to append.
+     * @throws IOException If an error occurs while writing.
+     */
+    public void append(CompactGame game) throws IOException {
+        append(CompactGameWriter.toBytes(game));
+    }
+
+    /**
+     * Appends a game already encoded by {@link CompactGameWriter} (e.g., read from the {@code CompactGames} table).
+     *
+     * @param encodedGame The encoded game.
+     * @throws IOException If an error occurs while writing.
+     */
+    public void append(byte[] encodedGame) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(encodedGame);
+        while (data.hasRemaining()) dataChannel.write(data);
+
+        offsetBuffer.clear();
+        offsetBuffer.putLong(dataSize).flip();
+        while (offsetBuffer.hasRemaining()) indexChannel.write(offsetBuffer);
+
+        dataSize += encodedGame.length;
+    }
+
+    /**
+     * Forces the appended games to the storage device.
+     *
+     * @throws IOException If an error occurs while writing.
+     */
+    public void flush() throws IOException {
+        dataChannel.force(false);
+        indexChannel.force(false);
+    }
+
+    /**
+     * Flushes and closes the archive files.
+     *
+     * @throws IOException If an error occurs while writing.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            dataChannel.close();
+            indexChannel.close();
+        }
+    }
+
+    /**
+     * Returns the end of the last indexed game, by reading its offset and skipping over its data.
+     *
+     * @param indexSize The size of the index file.
+     * @return The offset right after the last indexed game.
+     * @throws IOException If an error occurs while reading.
+     */
+    private long lastGameEnd(long indexSize) throws IOException {
+        ByteBuffer offset = ByteBuffer.allocate(Long.BYTES);
+        indexChannel.read(offset, indexSize - Long.BYTES);
+        long lastOffset = offset.getLong(0);
+
+        ByteBuffer lastGame = ByteBuffer.allocate((int) Math.min(dataChannel.size() - lastOffset, MAX_GAME_SIZE));
+        dataChannel.read(lastGame, lastOffset);
+        lastGame.flip();
+        CompactGameReader.read(lastGame);
+        return lastOffset + lastGame.position();
+    }
+}
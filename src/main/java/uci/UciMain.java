@@ -0,0 +1,248 @@
+package uci;
+
+import analysis.Evaluation;
+import elements.Game;
+import elements.Player;
+import engine.Search;
+import engine.SearchLimits;
+import notation.Fen;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/// @author dana
+
+/**
+ * Runs the project as a UCI engine, so that tournament managers and batch tools can drive its rules and its
+ * {@link Search} like any other engine. It answers {@code uci}, {@code isready}, {@code ucinewgame},
+ * {@code position startpos|fen ... [moves ...]}, {@code go} (with the limits read by {@link SearchLimits#parse}),
+ * {@code stop} and {@code quit}; other commands are ignored, as the protocol asks.
+ * <p>
+ * The input is read on the calling thread and a {@code go} only starts the search on a separate search thread,
+ * so reading never waits for a search: {@code isready} and {@code stop} are answered while the engine thinks.
+ * The search streams an {@code info} line per completed depth and ends with {@code bestmove}.
+ */
+public class UciMain {
+    /// The name the engine gives in its {@code id} line.
+    public static final String ENGINE_NAME = "JChess";
+    /// The author the engine gives in its {@code id} line.
+    public static final String ENGINE_AUTHOR = "dana";
+
+    /// The commands from the GUI.
+    private final BufferedReader in;
+    /// The answers to the GUI.
+    private final PrintStream out;
+    /// The thread running the searches, one at a time.
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uci-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /// The game in the position set by the last {@code position} command.
+    private Game game = new Game(Player.ColorOption.WHITE);
+    /// The running search, or {@code null}.
+    private Search search;
+    /// The task of the running search, or {@code null}.
+    private Future<?> searchTask;
+    /// Released by {@code stop}; an infinite search waits for it before giving its best move.
+    private CountDownLatch stopSignal;
+
+    /**
+     * Creates an engine front-end.
+     *
+     * @param in The commands from the GUI, one per line.
+     * @param out The answers to the GUI.
+     */
+    public UciMain(Reader in, PrintStream out) {
+        this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        this.out = out;
+    }
+
+    /**
+     * Reads and executes commands until {@code quit} or the end of the input.
+     *
+     * @throws IOException If the input cannot be read.
+     */
+    public void run() throws IOException {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!execute(line)) break;
+            }
+        } finally {
+            stopSearch();
+            searchThread.shutdownNow();
+        }
+    }
+
+    /**
+     * Executes a command.
+     *
+     * @param line The command line.
+     * @return {@code false} if the command is {@code quit}, {@code true} otherwise.
+     */
+    boolean execute(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        switch (tokens[0]) {
+            case "uci":
+                out.println("id name " + ENGINE_NAME);
+                out.println("id author " + ENGINE_AUTHOR);
+                out.println("uciok");
+                break;
+            case "isready":
+                out.println("readyok");
+                break;
+            case "ucinewgame":
+                stopSearch();
+                game = new Game(Player.ColorOption.WHITE);
+                break;
+            case "position":
+                stopSearch();
+                setPosition(tokens);
+                break;
+            case "go":
+                stopSearch();
+                go(line);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "quit":
+                return false;
+            default:
+                break;
+        }
+        out.flush();
+        return true;
+    }
+
+    /**
+     * Sets up the position of a {@code position} command. An invalid FEN or an illegal move leaves the
+     * position before it, or the moves before it, and is reported in an {@code info string} line.
+     *
+     * @param tokens The words of the command.
+     */
+    private void setPosition(String[] tokens) {
+        int movesIndex = tokens.length;
+        for (int i = 1; i < tokens.length; i++) {
+            if (tokens[i].equals("moves")) {
+                movesIndex = i;
+                break;
+            }
+        }
+
+        if (tokens.length > 1 && tokens[1].equals("startpos")) {
+            game = new Game(Player.ColorOption.WHITE);
+        } else if (tokens.length > 1 && tokens[1].equals("fen")) {
+            try {
+                game = Fen.parse(String.join(" ", List.of(tokens).subList(2, movesIndex)));
+            } catch (IllegalArgumentException e) {
+                out.println("info string " + e.getMessage());
+                return;
+            }
+        } else {
+            return;
+        }
+
+        for (int i = movesIndex + 1; i < tokens.length; i++) {
+            if (!game.playMove(tokens[i])) {
+                out.println("info string Illegal move " + tokens[i]);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts a search with the limits of a {@code go} command.
+     *
+     * @param line The command.
+     */
+    private void go(String line) {
+        SearchLimits limits = SearchLimits.parse(line);
+        Search newSearch = new Search(game.copy(), limits, this::printInfo);
+        CountDownLatch newStopSignal = new CountDownLatch(1);
+        search = newSearch;
+        stopSignal = newStopSignal;
+        searchTask = searchThread.submit(() -> {
+            Evaluation result = newSearch.run();
+
+            // An infinite search gives its move only when the GUI asks for it
+            if (limits.isInfinite()) {
+                try {
+                    newStopSignal.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            out.println("bestmove " + (result.getBestMove() == null ? "0000" : result.getBestMove()));
+            out.flush();
+        });
+    }
+
+    /**
+     * Stops the running search, if any, and waits until it has given its best move, so that the next command
+     * is executed on a quiet engine.
+     */
+    private void stopSearch() {
+        if (searchTask == null) return;
+        search.stop();
+        stopSignal.countDown();
+        try {
+            searchTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            out.println("info string Search failed: " + e.getCause());
+        }
+        searchTask = null;
+        search = null;
+        stopSignal = null;
+    }
+
+    /**
+     * Prints the {@code info} line of a completed depth.
+     *
+     * @param depth The depth, in half-moves.
+     * @param score The score from the point of view of the side to move.
+     * @param nodeCount The number of positions searched.
+     * @param elapsedMillis The time spent, in milliseconds.
+     * @param principalVariation The best line.
+     */
+    private void printInfo(int depth, int score, long nodeCount, long elapsedMillis, List<String> principalVariation) {
+        StringBuilder info = new StringBuilder("info depth ").append(depth).append(" score ");
+        if (Math.abs(score) > Evaluation.MATE_SCORE - Search.MAX_DEPTH - 1) {
+            int plies = Evaluation.MATE_SCORE - Math.abs(score);
+            info.append("mate ").append(score > 0 ? (plies + 1) / 2 : -(plies / 2));
+        } else {
+            info.append("cp ").append(score);
+        }
+        info.append(" nodes ").append(nodeCount)
+                .append(" nps ").append(nodeCount * 1000 / Math.max(1, elapsedMillis))
+                .append(" time ").append(elapsedMillis)
+                .append(" pv ").append(String.join(" ", principalVariation));
+        out.println(info);
+        out.flush();
+    }
+
+    /**
+     * Runs the engine on the standard input and output.
+     *
+     * @param args Not used.
+     * @throws IOException If the standard input cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.US_ASCII);
+        new UciMain(new InputStreamReader(System.in, StandardCharsets.US_ASCII), out).run();
+        out.flush();
+    }
+}
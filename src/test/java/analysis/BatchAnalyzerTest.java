@@ -0,0 +1,52 @@
+package analysis;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class BatchAnalyzerTest {
+
+    // Scholar's mate: 7. Qxf7# after black ignores the threat
+    private static final List<String> SCHOLARS_MATE = Arrays.asList("e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6", "h5f7");
+
+    @Test
+    void testAnalyzeGameFindsBlunder() throws Exception {
+        AnnotatedGame annotated = BatchAnalyzer.analyzeGame(new GameRecord("test", 1, SCHOLARS_MATE), new MaterialEvaluator());
+
+        assertEquals(SCHOLARS_MATE.size(), annotated.getAnnotations().size(), "Every half-move should be annotated.");
+        assertEquals(SCHOLARS_MATE.size() + 1, annotated.getPositionCount());
+
+        MoveAnnotation nf6 = annotated.getAnnotations().get(5);
+        assertTrue(nf6.getCentipawnLoss() >= MoveAnnotation.MISTAKE_THRESHOLD, "Leaving f7 to the queen should lose at least a pawn.");
+        MoveAnnotation qxf7 = annotated.getAnnotations().get(6);
+        assertEquals(0, qxf7.getCentipawnLoss(), "The mating move should not lose anything.");
+    }
+
+    @Test
+    void testRunWritesEveryGameInBatches() throws Exception {
+        List<GameRecord> games = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) games.add(new GameRecord("test", i, SCHOLARS_MATE.subList(0, i)));
+        games.add(new GameRecord("test", 6, Collections.singletonList("e2e5")));
+
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Integer> written = new ArrayList<>();
+        try (EvaluatorPool pool = new EvaluatorPool(3, MaterialEvaluator::new)) {
+            AnalysisReport report = new BatchAnalyzer(pool, 2).run(games, batch -> {
+                batchSizes.add(batch.size());
+                for (AnnotatedGame game : batch) written.add(game.getGame().getGameID());
+            });
+
+            assertEquals(5, report.getGames());
+            assertEquals(1, report.getFailedGames(), "The game with an illegal move should be skipped.");
+            assertEquals(1 + 2 + 3 + 4 + 5 + 5, report.getPositions());
+        }
+
+        Collections.sort(written);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), written);
+        assertEquals(Arrays.asList(2, 2, 1), batchSizes, "The games should be written in batches of two.");
+    }
+}
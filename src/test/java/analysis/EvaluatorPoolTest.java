@@ -0,0 +1,45 @@
+package analysis;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+
+class EvaluatorPoolTest {
+
+    private int created;
+    private int closed;
+
+    private PositionEvaluator countingEvaluator() {
+        created++;
+        return new MaterialEvaluator() {
+            @Override
+            public void close() {
+                closed++;
+            }
+        };
+    }
+
+    @Test
+    void testBorrowAndRelease() throws Exception {
+        try (EvaluatorPool pool = new EvaluatorPool(2, this::countingEvaluator)) {
+            PositionEvaluator first = pool.borrow();
+            PositionEvaluator second = pool.borrow();
+            assertNotSame(first, second, "Each borrower should get its own evaluator.");
+
+            pool.release(first);
+            assertSame(first, pool.borrow(), "A released evaluator should be borrowed again.");
+        }
+        assertEquals(2, created);
+        assertEquals(2, closed, "Closing the pool should close every evaluator.");
+    }
+
+    @Test
+    void testFailedCreationClosesEvaluators() {
+        assertThrows(IOException.class, () -> new EvaluatorPool(3, () -> {
+            if (created == 2) throw new IOException("no engine");
+            return countingEvaluator();
+        }));
+        assertEquals(2, closed, "The evaluators already created should be closed.");
+    }
+}
@@ -0,0 +1,36 @@
+package analysis;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveAnnotationTest {
+
+    @Test
+    void testCentipawnLoss() {
+        // White was 50 up and is 120 down after the move, so black scores 120
+        MoveAnnotation annotation = MoveAnnotation.of(1, "e2e4", new Evaluation(50, "d2d4"), new Evaluation(120, "e7e5"));
+        assertEquals(50, annotation.getScoreBefore());
+        assertEquals(-120, annotation.getScoreAfter());
+        assertEquals(170, annotation.getCentipawnLoss());
+        assertTrue(annotation.isMistake());
+        assertFalse(annotation.isBlunder());
+    }
+
+    @Test
+    void testBestMoveLosesNothing() {
+        MoveAnnotation annotation = MoveAnnotation.of(1, "d2d4", new Evaluation(50, "d2d4"), new Evaluation(-20, "d7d5"));
+        assertEquals(0, annotation.getCentipawnLoss(), "The best move should have no loss even if the evaluation changes.");
+    }
+
+    @Test
+    void testScoresAreCapped() {
+        // Missing a mate in a completely won position is not a blunder
+        MoveAnnotation annotation = MoveAnnotation.of(9, "a2a3", new Evaluation(Evaluation.mateScore(3), "d1h5"),
+                new Evaluation(-1500, "a7a6"));
+        assertEquals(0, annotation.getCentipawnLoss());
+
+        MoveAnnotation blunder = MoveAnnotation.of(9, "a2a3", new Evaluation(200, "d1h5"), new Evaluation(Evaluation.mateScore(1), null));
+        assertEquals(MoveAnnotation.SCORE_CAP + 200, blunder.getCentipawnLoss());
+        assertTrue(blunder.isBlunder());
+    }
+}
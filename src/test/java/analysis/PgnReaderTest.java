@@ -0,0 +1,41 @@
+package analysis;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+class PgnReaderTest {
+
+    private static final String PGN =
+            "[Event \"Test\"]\n" +
+            "[Result \"1-0\"]\n" +
+            "\n" +
+            "1. e4 e5 {A comment} 2. Bc4 (2. Nf3 Nc6) 2... Nc6 3. Qh5 $2 Nf6?? 4. Qxf7# 1-0\n" +
+            "\n" +
+            "[Event \"Second\"]\n" +
+            "\n" +
+            "1. Nf3 d5 2. O-O *\n";
+
+    @Test
+    void testReadGames() throws Exception {
+        try (PgnReader reader = new PgnReader(new BufferedReader(new StringReader(PGN)), "test.pgn")) {
+            GameRecord first = reader.next();
+            assertEquals(1, first.getGameID());
+            assertEquals("test.pgn", first.getSource());
+            assertEquals(Arrays.asList("e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6", "h5f7"), first.getUciMoves(),
+                    "Comments, variations and glyphs should be skipped.");
+            assertEquals("White", first.getResult(), "The result should be read from the Result tag.");
+
+            assertThrows(IllegalArgumentException.class, reader::next, "Castling with pieces in the way is illegal.");
+            assertNull(reader.next(), "There should be no third game.");
+        }
+    }
+
+    @Test
+    void testSanMoves() {
+        assertEquals(Arrays.asList("e4", "e5", "Nf3"), PgnReader.sanMoves("1.e4 e5 ; line comment\n2.Nf3 (2.d4 (2.c4)) 1/2-1/2"));
+    }
+}
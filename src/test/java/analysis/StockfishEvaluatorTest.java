@@ -0,0 +1,32 @@
+package analysis;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+class StockfishEvaluatorTest {
+
+    @Test
+    void testParseCentipawnScore() {
+        Evaluation evaluation = StockfishEvaluator.parseOutput(Arrays.asList(
+                "info depth 1 seldepth 1 score cp 12 nodes 20 pv e2e4",
+                "info depth 2 seldepth 2 score cp 35 nodes 80 pv d2d4 d7d5",
+                "bestmove d2d4 ponder d7d5"));
+        assertEquals(35, evaluation.getScore(), "The score of the deepest search should be used.");
+        assertEquals("d2d4", evaluation.getBestMove());
+        assertEquals(List.of("d2d4", "d7d5"), evaluation.getPrincipalVariation(), "The line of the deepest search should be kept.");
+    }
+
+    @Test
+    void testParseMateScore() {
+        Evaluation winning = StockfishEvaluator.parseOutput(Arrays.asList("info depth 5 score mate 2 pv d1h5", "bestmove d1h5"));
+        assertEquals(Evaluation.MATE_SCORE - 3, winning.getScore());
+        assertTrue(winning.isMate());
+
+        Evaluation mated = StockfishEvaluator.parseOutput(Arrays.asList("info depth 0 score mate 0", "bestmove (none)"));
+        assertEquals(-Evaluation.MATE_SCORE, mated.getScore());
+        assertNull(mated.getBestMove(), "A mated side has no best move.");
+    }
+}
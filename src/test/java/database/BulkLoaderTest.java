@@ -0,0 +1,160 @@
+package database;
+
+import analysis.GameRecord;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class BulkLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testStagedRows() throws Exception {
+        // Identifiers follow the given ones, as if the database already held 9 games, 99 positions and 199 moves
+        try (BulkLoader loader = new BulkLoader(directory, 10, 100, 200)) {
+            loader.add(new GameRecord("test.pgn", 1, Arrays.asList("f2f3", "e7e5", "g2g4", "d8h4")));
+            loader.add(new GameRecord("test.pgn", 2, Arrays.asList("d2d4", "d7d5"), "Draw"));
+            assertEquals(2, loader.getGameCount());
+            assertEquals(6, loader.getMoveCount());
+        }
+
+        List<String> games = Files.readAllLines(directory.resolve(BulkLoader.GAMES_FILE));
+        assertEquals(2, games.size());
+        assertTrue(games.get(0).startsWith("10,") && games.get(0).endsWith(",\"White\",\"Finished\",\"Black\""),
+                "A mate on the board should give the result: " + games.get(0));
+        assertTrue(games.get(1).startsWith("11,") && games.get(1).endsWith(",\"Draw\""), "The recorded result should be kept: " + games.get(1));
+
+        List<String> positions = Files.readAllLines(directory.resolve(BulkLoader.POSITIONS_FILE));
+        assertEquals("100,10,1,\"rnbqkbnr/pppppppp/8/8/8/5P2/PPPPP1PP/RNBQKBNR b KQkq - 0 1\"", positions.get(0));
+        assertTrue(positions.get(4).startsWith("104,11,1,"), "The positions of a game should be numbered from 1.");
+
+        List<String> moves = Files.readAllLines(directory.resolve(BulkLoader.MOVES_FILE));
+        assertEquals(6, moves.size());
+        assertTrue(moves.get(3).startsWith("10,203,103,2,\"Black\",\"Qh4#\","), "Each move should point to the position it reaches: " + moves.get(3));
+    }
+
+    @Test
+    void testIllegalGameIsNotStaged() throws Exception {
+        try (BulkLoader loader = new BulkLoader(directory, 1, 1, 1)) {
+            assertThrows(IllegalArgumentException.class, () -> loader.add(new GameRecord("test.pgn", 1, Arrays.asList("e2e4", "e2e4"))));
+            loader.add(new GameRecord("test.pgn", 2, Collections.singletonList("e2e4")));
+        }
+
+        assertEquals(List.of("1,1,1,\"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1\""),
+                Files.readAllLines(directory.resolve(BulkLoader.POSITIONS_FILE)), "The illegal game should leave no row nor use an identifier.");
+        String game = Files.readAllLines(directory.resolve(BulkLoader.GAMES_FILE)).get(0);
+        assertTrue(game.endsWith(",\"Not Finished\","), "An unfinished game should be staged as such, without result: " + game);
+    }
+
+    @Test
+    void testImportIntoDerby() throws Exception {
+        try (Connection connection = DriverManager.getConnection(MemoryDatabase.create("bulk"))) {
+            // A game already stored by the application, whose foreign keys are named by Derby
+            MemoryDatabase.insertGame(connection, "Finished", "White", "e2e4", "e7e5");
+
+            Path first = directory.resolve("first");
+            try (BulkLoader loader = BulkLoader.open(connection, first)) {
+                loader.add(new GameRecord("test.pgn", 1, Arrays.asList("f2f3", "e7e5", "g2g4", "d8h4")));
+                loader.add(new GameRecord("test.pgn", 2, Arrays.asList("d2d4", "d7d5", "c2c4")));
+            }
+            BulkLoader.importStaged(connection, first);
+
+            assertEquals(3, count(connection, "SELECT COUNT(*) FROM Games"));
+            assertEquals(9, count(connection, "SELECT COUNT(*) FROM Positions"));
+            assertEquals(9, count(connection, "SELECT COUNT(*) FROM Moves"));
+            assertEquals(4, count(connection, "SELECT COUNT(*) FROM Moves m JOIN Positions p ON p.PositionID = m.PositionID WHERE m.GameID = 2 AND p.GameID = 2"),
+                    "Each imported move should point to a position of its game.");
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT Status, Result, EndTimestamp FROM Games WHERE GameID = 3")) {
+                assertTrue(rs.next());
+                assertEquals("Not Finished", rs.getString("Status"));
+                assertNull(rs.getString("Result"));
+                assertNull(rs.getTimestamp("EndTimestamp"));
+            }
+            assertRestored(connection);
+
+            // The identity columns restart after the imported identifiers
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO Games (MyColor) VALUES ('Black')", Statement.RETURN_GENERATED_KEYS)) {
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    assertTrue(keys.next());
+                    assertEquals(4, keys.getInt(1), "A new game should follow the imported ones.");
+                }
+            }
+            assertEquals(10, count(connection, "SELECT MAX(PositionID) + 1 FROM Positions"));
+
+            // A second load finds the foreign keys under the names the first one gave them
+            Path second = directory.resolve("second");
+            try (BulkLoader loader = BulkLoader.open(connection, second)) {
+                loader.add(new GameRecord("test.pgn", 3, Collections.singletonList("g1f3"), "Draw"));
+            }
+            BulkLoader.importStaged(connection, second);
+            assertEquals(5, count(connection, "SELECT COUNT(*) FROM Games"));
+            assertRestored(connection);
+        } finally {
+            MemoryDatabase.drop("bulk");
+        }
+    }
+
+    @Test
+    void testFailedImportRestoresTheTables() throws Exception {
+        try (Connection connection = DriverManager.getConnection(MemoryDatabase.create("bulkFailure"))) {
+            MemoryDatabase.insertGame(connection, "Finished", "White", "e2e4", "e7e5");
+            try (BulkLoader loader = BulkLoader.open(connection, directory)) {
+                loader.add(new GameRecord("test.pgn", 1, Arrays.asList("d2d4", "d7d5")));
+            }
+            // A move row breaking a check constraint makes the import fail after the games and positions are imported
+            Files.writeString(directory.resolve(BulkLoader.MOVES_FILE), "2,3,3,1,\"Red\",\"d4\",\"2024-01-01 00:00:00.0\"\n");
+
+            assertThrows(SQLException.class, () -> BulkLoader.importStaged(connection, directory));
+            assertEquals(1, count(connection, "SELECT COUNT(*) FROM Games"), "A failed import should leave only the stored game.");
+            assertEquals(2, count(connection, "SELECT COUNT(*) FROM Positions"));
+            assertEquals(2, count(connection, "SELECT COUNT(*) FROM Moves"));
+            assertTrue(connection.getAutoCommit(), "The auto-commit mode should be restored.");
+            assertRestored(connection);
+        } finally {
+            MemoryDatabase.drop("bulkFailure");
+        }
+    }
+
+    /**
+     * Checks that the foreign keys are enforced again, the secondary indexes exist and the statistics are set.
+     */
+    private static void assertRestored(Connection connection) throws Exception {
+        assertEquals(3, count(connection, "SELECT COUNT(*) FROM SYS.SYSCONSTRAINTS c JOIN SYS.SYSTABLES t ON t.TABLEID = c.TABLEID "
+                + "WHERE c.TYPE = 'F' AND t.TABLENAME IN ('POSITIONS', 'MOVES')"), "The foreign keys should be rebuilt.");
+        assertEquals(3, count(connection, "SELECT COUNT(*) FROM SYS.SYSCONGLOMERATES "
+                + "WHERE CONGLOMERATENAME IN ('IDX_POSITIONS_FEN', 'IDX_POSITIONS_GAME', 'IDX_MOVES_GAME')"),
+                "The secondary indexes should be rebuilt.");
+        assertTrue(count(connection, "SELECT COUNT(*) FROM SYS.SYSSTATISTICS s JOIN SYS.SYSTABLES t ON t.TABLEID = s.TABLEID "
+                + "WHERE t.TABLENAME = 'POSITIONS'") > 0, "The statistics of the loaded tables should be updated.");
+        try (Statement statement = connection.createStatement()) {
+            assertThrows(SQLException.class, () -> statement.executeUpdate("INSERT INTO Positions (GameID, PositionNumber, FENString) VALUES (999, 1, 'x')"),
+                    "A position of a missing game should be refused.");
+        }
+    }
+
+    private static int count(Connection connection, String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package database;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+class CompactGameMigrationTest {
+
+    @Test
+    void testPawnMove() {
+        String before = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+        String after = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1";
+        assertEquals("e2e4", CompactGameMigration.uciMove(before, after));
+    }
+
+    @Test
+    void testCastling() {
+        String before = "r1bqk2r/pppp1ppp/2n2n2/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4";
+        String after = "r1bqk2r/pppp1ppp/2n2n2/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQ1RK1 b kq - 5 4";
+        assertEquals("e1g1", CompactGameMigration.uciMove(before, after), "Castling should be recovered from the king's squares.");
+    }
+
+    @Test
+    void testPromotionWithCapture() {
+        String before = "1n2k3/P7/8/8/8/8/8/4K3 w - - 0 1";
+        String after = "1N2k3/8/8/8/8/8/8/4K3 b - - 0 1";
+        assertEquals("a7b8n", CompactGameMigration.uciMove(before, after));
+    }
+
+    @Test
+    void testNoMove() {
+        String fen = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+        assertNull(CompactGameMigration.uciMove(fen, fen));
+    }
+
+    @Test
+    void testGameThatCannotBeEncodedIsSkipped() throws Exception {
+        try (Connection connection = DriverManager.getConnection(MemoryDatabase.create("migration"))) {
+            int first = MemoryDatabase.insertGame(connection, "Finished", "White", "e2e4", "e7e5");
+            int broken = MemoryDatabase.insertGame(connection, "Finished", "Black", "d2d4");
+            int last = MemoryDatabase.insertGame(connection, "Finished", "Draw", "c2c4");
+            int playing = MemoryDatabase.insertGame(connection, "Not Finished", null, "g1f3");
+            try (Statement statement = connection.createStatement()) {
+                // A game ending before its start has a negative duration, which the compact format cannot encode
+                statement.executeUpdate("UPDATE Games SET EndTimestamp = {fn TIMESTAMPADD(SQL_TSI_DAY, -1, StartTimestamp)} WHERE GameID = " + broken);
+                statement.executeUpdate("UPDATE Games SET EndTimestamp = CURRENT_TIMESTAMP WHERE GameID <> " + broken);
+            }
+
+            CompactGameMigration.Report report = CompactGameMigration.migrate(connection);
+            assertEquals(2, report.getMigrated());
+            assertEquals(1, report.getSkipped().size());
+            assertTrue(report.getSkipped().containsKey(broken), "The game that cannot be encoded should be reported.");
+            assertTrue(connection.getAutoCommit(), "The auto-commit mode should be restored.");
+
+            assertEquals(2, CompactGameStore.load(connection, first).getPlyCount());
+            assertNull(CompactGameStore.load(connection, broken), "A skipped game should leave no row.");
+            assertEquals(1, CompactGameStore.load(connection, last).getPlyCount(), "The games after a skipped one should be migrated.");
+            assertNull(CompactGameStore.load(connection, playing), "A game still being played should not be migrated.");
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM CompactGames")) {
+                rs.next();
+                assertEquals(2, rs.getInt(1));
+            }
+        } finally {
+            MemoryDatabase.drop("migration");
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package database;
+
+import analysis.Evaluation;
+import elements.Game;
+import elements.Player;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class EvaluationCacheTest {
+
+    private int loads;
+    private List<List<EvaluationCache.Entry>> batches;
+    private Map<Long, EvaluationCache.Entry> table;
+    private EvaluationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        // Cache whose table is replaced by a map, keeping the deepest evaluation of each position
+        loads = 0;
+        batches = new ArrayList<>();
+        table = new HashMap<>();
+        cache = new EvaluationCache("test", 2, 2) {
+            @Override
+            protected Entry load(long hash, String fen) {
+                loads++;
+                Entry entry = table.get(hash);
+                return entry != null && entry.fen.equals(fen) ? entry : null;
+            }
+
+            @Override
+            protected void write(List<Entry> batch) {
+                batches.add(batch);
+                for (Entry entry : batch) {
+                    Entry stored = table.get(entry.hash);
+                    if (stored == null || stored.depth < entry.depth) table.put(entry.hash, entry);
+                }
+            }
+        };
+    }
+
+    private static Game gameAfter(String... moves) {
+        Game game = new Game(Player.ColorOption.WHITE);
+        for (String move : moves) assertTrue(game.playMove(move), move);
+        return game;
+    }
+
+    @Test
+    void testReadThroughAtGreaterOrEqualDepth() throws Exception {
+        Game game = gameAfter("e2e4");
+        assertNull(cache.lookup(game, 12), "An unknown position should be a miss.");
+
+        cache.store(game, 16, new Evaluation(-30, "c7c5", List.of("c7c5", "g1f3")));
+        Evaluation cached = cache.lookup(game, 12);
+        assertNotNull(cached, "A deeper evaluation should answer a shallower lookup.");
+        assertEquals("c7c5", cached.getBestMove());
+        assertEquals(List.of("c7c5", "g1f3"), cached.getPrincipalVariation());
+        assertNull(cache.lookup(game, 20), "A shallower evaluation should not answer a deeper lookup.");
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void testTranspositionsShareTheirEvaluation() throws Exception {
+        cache.store(gameAfter("g1f3", "g8f6", "b1c3"), 10, new Evaluation(20, "d7d5"));
+        assertNotNull(cache.lookup(gameAfter("b1c3", "g8f6", "g1f3"), 10), "A transposition should hit the cache.");
+        assertEquals(0, loads, "A position cached in memory should not be read from the database.");
+    }
+
+    @Test
+    void testBatchedWritesKeepTheDeepestEvaluation() throws Exception {
+        Game game = gameAfter("d2d4");
+        cache.store(game, 8, new Evaluation(10, "d7d5"));
+        assertTrue(batches.isEmpty(), "Evaluations should be written in batches.");
+        cache.store(game, 6, new Evaluation(50, "g8f6"));
+        cache.store(gameAfter("e2e4"), 8, new Evaluation(25, "e7e5"));
+        assertEquals(1, batches.size(), "A full batch should be written at once.");
+        assertEquals(2, batches.get(0).size(), "A shallower evaluation should not replace a cached one.");
+
+        cache.store(gameAfter("c2c4"), 8, new Evaluation(15, "e7e5"));
+        cache.close();
+        assertEquals(2, batches.size(), "Closing the cache should write the last batch.");
+        assertEquals(3, table.size());
+    }
+
+    @Test
+    void testStoredEvaluationsOutliveTheMemoryCache() throws Exception {
+        Game game = gameAfter("e2e4", "e7e5");
+        cache.store(game, 12, new Evaluation(35, "g1f3"));
+        cache.flush();
+
+        // A new cache, e.g., in the next job, starts with an empty memory
+        EvaluationCache reopened = new EvaluationCache("test", 2, 2) {
+            @Override
+            protected Entry load(long hash, String fen) {
+                loads++;
+                return table.get(hash);
+            }
+        };
+        Evaluation stored = reopened.lookup(game, 12);
+        assertNotNull(stored, "The evaluation should be read from the database.");
+        assertEquals(35, stored.getScore());
+        reopened.lookup(game, 12);
+        assertEquals(1, loads, "A position read from the database should then be cached in memory.");
+    }
+
+    @Test
+    void testWritesAgainstDerby() throws Exception {
+        String previousURL = Database.getJdbcURL();
+        Database.setJdbcURL(MemoryDatabase.create("evaluations"));
+        try {
+            Game game = gameAfter("e2e4", "c7c5");
+            store(new EvaluationCache("stockfish", 2, 2), game, 12, new Evaluation(30, "g1f3", List.of("g1f3", "d7d6")));
+            store(new EvaluationCache("other", 2, 2), game, 20, new Evaluation(-10, "b1c3"));
+
+            // Each cache starts with an empty memory, so only the guards of the SQL keep the deepest evaluation
+            store(new EvaluationCache("stockfish", 2, 2), game, 8, new Evaluation(90, "d2d4"));
+            Evaluation stored = new EvaluationCache("stockfish", 2, 2).lookup(game, 12);
+            assertNotNull(stored, "The first evaluation should have been inserted.");
+            assertEquals("g1f3", stored.getBestMove(), "A shallower evaluation should neither replace nor duplicate the stored one.");
+            assertEquals(List.of("g1f3", "d7d6"), stored.getPrincipalVariation());
+
+            store(new EvaluationCache("stockfish", 2, 2), game, 16, new Evaluation(45, "b1c3"));
+            stored = new EvaluationCache("stockfish", 2, 2).lookup(game, 16);
+            assertNotNull(stored, "A deeper evaluation should replace the stored one.");
+            assertEquals(45, stored.getScore());
+            assertEquals(-10, new EvaluationCache("other", 2, 2).lookup(game, 20).getScore(), "Engines should keep their own evaluations.");
+
+            try (Connection connection = Database.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM EngineEvaluations")) {
+                rs.next();
+                assertEquals(2, rs.getInt(1), "Each engine should have one row for the position.");
+            }
+        } finally {
+            Database.setJdbcURL(previousURL);
+            MemoryDatabase.drop("evaluations");
+        }
+    }
+
+    private static void store(EvaluationCache cache, Game game, int depth, Evaluation evaluation) throws Exception {
+        cache.store(game, depth, evaluation);
+        cache.close();
+    }
+}
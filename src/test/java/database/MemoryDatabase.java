@@ -0,0 +1,101 @@
+package database;
+
+import elements.Game;
+import elements.Move;
+import elements.Player;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * In-memory Derby databases created from the schema script, for the tests running the SQL of the application.
+ */
+final class MemoryDatabase {
+
+    private MemoryDatabase() {
+    }
+
+    /**
+     * Creates an empty in-memory database with the tables of CreatingDatabase.sql.
+     *
+     * @param name The name of the database, unique to the test.
+     * @return The JDBC URL of the database.
+     */
+    static String create(String name) throws Exception {
+        String url = "jdbc:derby:memory:" + name + ";create=true";
+        String script = new String(Files.readAllBytes(Paths.get("database", "CreatingDatabase.sql")), StandardCharsets.UTF_8);
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            for (String sql : script.replaceAll("--[^\n]*", "").split(";")) {
+                if (!sql.isBlank()) statement.execute(sql);
+            }
+        }
+        return url;
+    }
+
+    /**
+     * Drops an in-memory database.
+     *
+     * @param name The name of the database.
+     */
+    static void drop(String name) {
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:" + name + ";drop=true").close();
+        } catch (SQLException e) {
+            // Derby reports a successful drop with an exception
+        }
+    }
+
+    /**
+     * Stores a game the way the application does: a position row per move, and the move pointing at it.
+     *
+     * @return The identifier of the game.
+     */
+    static int insertGame(Connection connection, String status, String result, String... uciMoves) throws Exception {
+        int gameID;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO Games (MyColor, Status, Result) VALUES ('White', ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            insert.setString(1, status);
+            insert.setString(2, result);
+            insert.executeUpdate();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                keys.next();
+                gameID = keys.getInt(1);
+            }
+        }
+        Game game = new Game(Player.ColorOption.WHITE);
+        for (String uciMove : uciMoves) {
+            if (!game.playMove(uciMove)) throw new IllegalArgumentException(uciMove);
+            Move move = game.gameHistory.get(game.gameHistory.size() - 1);
+            int positionID;
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO Positions (GameID, PositionNumber, FENString) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                insert.setInt(1, gameID);
+                insert.setInt(2, game.gameHistory.size());
+                insert.setString(3, game.FENNotation());
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    positionID = keys.getInt(1);
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO Moves (GameID, PositionID, MoveNumber, PlayerTurn, MoveNotation) VALUES (?, ?, ?, ?, ?)")) {
+                insert.setInt(1, gameID);
+                insert.setInt(2, positionID);
+                insert.setInt(3, move.getMoveNumber());
+                insert.setString(4, game.whiteMoves ? "Black" : "White");
+                insert.setString(5, move.getMoveNotation());
+                insert.executeUpdate();
+            }
+        }
+        return gameID;
+    }
+}
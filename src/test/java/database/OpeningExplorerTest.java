@@ -0,0 +1,139 @@
+package database;
+
+import elements.Game;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+class OpeningExplorerTest {
+
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String E4_FEN = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1";
+
+    private int loads;
+    private OpeningExplorer explorer;
+
+    @BeforeEach
+    void setUp() {
+        // Explorer whose database query is replaced by fixed statistics
+        loads = 0;
+        explorer = new OpeningExplorer(2) {
+            @Override
+            protected List<ExplorerMove> loadContinuations(String key) {
+                loads++;
+                List<ExplorerMove> moves = new ArrayList<>();
+                if (key.equals(START_POSITION_KEY)) {
+                    moves.add(new ExplorerMove("d4", 1, 0, 1));
+                    moves.add(new ExplorerMove("e4", 3, 1, 0));
+                }
+                return moves;
+            }
+        };
+    }
+
+    @Test
+    void testPositionKey() {
+        assertEquals(OpeningExplorer.START_POSITION_KEY, OpeningExplorer.positionKey(START_FEN), "The key should drop the move counters.");
+    }
+
+    @Test
+    void testLookupSortedByGameCount() throws Exception {
+        List<ExplorerMove> moves = explorer.lookup(START_FEN);
+        assertEquals(2, moves.size());
+        assertEquals("e4", moves.get(0).getMoveNotation(), "The most played move should come first.");
+        assertEquals(4, moves.get(0).getGameCount());
+    }
+
+    @Test
+    void testLookupIsCached() throws Exception {
+        explorer.lookup(START_FEN);
+        explorer.lookup(START_FEN);
+        assertEquals(1, loads, "A cached position should not be queried again.");
+    }
+
+    @Test
+    void testCacheIsSizeBounded() throws Exception {
+        explorer.lookup(START_FEN);
+        explorer.lookup(E4_FEN);
+        explorer.lookup("8/8/8/8/8/8/8/K6k w - - 0 1");
+        assertEquals(2, explorer.getCacheSize(), "The cache should not grow past its size.");
+
+        explorer.lookup(START_FEN);
+        assertEquals(4, loads, "The least recently used position should have been evicted.");
+    }
+
+    @Test
+    void testRecordedResultInvalidatesCachedPositions() throws Exception {
+        explorer.lookup(START_FEN);
+        explorer.lookup(E4_FEN);
+
+        explorer.recordMove(1, E4_FEN, "e4");
+        explorer.lookup(START_FEN);
+        assertEquals(2, loads, "Moves should not change the cache before the game has a result.");
+
+        explorer.recordResult(1, "Black");
+        assertEquals(1, explorer.getCacheSize(), "Only the positions of the game should be dropped.");
+        explorer.lookup(START_FEN);
+        assertEquals(3, loads, "A dropped position should be read again from the database.");
+    }
+
+    @Test
+    void testLookupOverlappingAResultIsNotCached() throws Exception {
+        // The result is recorded while the query of the position runs
+        OpeningExplorer overlapped = new OpeningExplorer(2) {
+            @Override
+            protected List<ExplorerMove> loadContinuations(String key) {
+                loads++;
+                if (loads == 1) recordResult(1, "White");
+                return new ArrayList<>();
+            }
+        };
+        overlapped.recordMove(1, E4_FEN, "e4");
+        overlapped.lookup(START_FEN);
+        assertEquals(0, overlapped.getCacheSize(), "Statistics loaded across a result may be stale and should not be cached.");
+        overlapped.lookup(START_FEN);
+        assertEquals(1, overlapped.getCacheSize());
+        assertEquals(2, loads);
+    }
+
+    @Test
+    void testAggregationQueries() throws Exception {
+        String previousURL = Database.getJdbcURL();
+        Database.setJdbcURL(MemoryDatabase.create("explorer"));
+        try (Connection connection = Database.getConnection()) {
+            MemoryDatabase.insertGame(connection, "Finished", "White", "e2e4", "e7e5", "g1f3");
+            MemoryDatabase.insertGame(connection, "Finished", "Draw", "e2e4", "c7c5");
+            MemoryDatabase.insertGame(connection, "Finished", "Black", "d2d4", "d7d5");
+            MemoryDatabase.insertGame(connection, "Not Finished", null, "e2e4", "e7e5");
+
+            OpeningExplorer explorer = new OpeningExplorer(OpeningExplorer.DEFAULT_CACHE_SIZE);
+            List<ExplorerMove> firstMoves = explorer.lookup(START_FEN);
+            assertEquals(2, firstMoves.size());
+            assertEquals("e4", firstMoves.get(0).getMoveNotation());
+            assertEquals(2, firstMoves.get(0).getGameCount(), "Unfinished games should not count.");
+            assertEquals(1, firstMoves.get(0).getWhiteWins());
+            assertEquals(1, firstMoves.get(0).getDraws());
+            assertEquals(1, firstMoves.get(1).getBlackWins());
+
+            List<ExplorerMove> replies = explorer.lookup(E4_FEN);
+            assertEquals(2, replies.size(), "The replies to e4 should be found from the position that follows it.");
+            assertTrue(replies.stream().allMatch(move -> move.getGameCount() == 1));
+        } finally {
+            Database.setJdbcURL(previousURL);
+            MemoryDatabase.drop("explorer");
+        }
+    }
+
+    @Test
+    void testScoreAndAverageResult() {
+        ExplorerMove move = new ExplorerMove("e4", 3, 1, 0);
+        assertEquals(87.5, move.getScorePercentage(Game.Color.WHITE), 1e-9);
+        assertEquals(12.5, move.getScorePercentage(Game.Color.BLACK), 1e-9);
+        assertEquals(0.75, move.getAverageResult(), 1e-9);
+    }
+}
@@ -0,0 +1,124 @@
+package database;
+
+import analysis.GameRecord;
+import analysis.PgnReader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+class PgnExporterTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes the fool's mate, won by Black, and an unfinished game without moves.
+     */
+    private static void writeGames(PgnExporter exporter) throws Exception {
+        exporter.beginGame(7, Timestamp.valueOf("2024-03-05 10:15:30"), Timestamp.valueOf("2024-03-05 10:20:00"), "Black", "Black");
+        for (String move : Arrays.asList("f3", "e5", "g4", "Qh4#")) exporter.addMove(move);
+        exporter.endGame();
+        exporter.beginGame(8, Timestamp.valueOf("2024-03-06 09:00:00"), null, "White", null);
+        exporter.endGame();
+    }
+
+    @Test
+    void testGameFormat() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PgnExporter exporter = new PgnExporter(Channels.newChannel(out))) {
+            writeGames(exporter);
+            assertEquals(2, exporter.getGameCount());
+        }
+        String pgn = out.toString(StandardCharsets.UTF_8);
+
+        assertTrue(pgn.startsWith("[Event \"ChessGame\"]\n[Site \"?\"]\n[Date \"2024.03.05\"]\n[Round \"-\"]\n"
+                + "[White \"Stockfish\"]\n[Black \"Player\"]\n[Result \"0-1\"]\n"), "The seven tag roster should come first: " + pgn);
+        assertTrue(pgn.contains("[Time \"10:15:30\"]\n[EndDate \"2024.03.05\"]\n[EndTime \"10:20:00\"]\n[GameID \"7\"]\n\n"));
+        assertTrue(pgn.contains("\n1. f3 e5 2. g4 Qh4# 0-1\n\n"), "The movetext should end with the result.");
+        assertTrue(pgn.endsWith("[GameID \"8\"]\n\n*\n\n"), "An unfinished game without moves has only its result.");
+        assertFalse(pgn.contains("[EndTime \"09"), "An unfinished game has no end.");
+    }
+
+    @Test
+    void testLongMovetextIsWrapped() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PgnExporter exporter = new PgnExporter(Channels.newChannel(out))) {
+            exporter.beginGame(1, Timestamp.valueOf("2024-01-01 00:00:00"), null, "White", null);
+            for (int i = 0; i < 25; i++) {
+                for (String move : Arrays.asList("Nf3", "Nf6", "Ng1", "Ng8")) exporter.addMove(move);
+            }
+            exporter.endGame();
+        }
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        for (String line : lines) assertTrue(line.length() <= 80, "Lines should not exceed 80 characters: " + line);
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains(" 50. Ng1 Ng8 *\n"));
+    }
+
+    @Test
+    void testGzipExportIsReadBack() throws Exception {
+        Path file = directory.resolve("games.pgn.gz");
+        try (PgnExporter exporter = PgnExporter.open(file, true)) {
+            writeGames(exporter);
+        }
+
+        try (BufferedReader fileReader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8));
+             PgnReader reader = new PgnReader(fileReader, "games.pgn.gz")) {
+            GameRecord game = reader.next();
+            assertEquals(Arrays.asList("f2f3", "e7e5", "g2g4", "d8h4"), game.getUciMoves(), "The exported moves should be read back.");
+            assertEquals("Black", game.getResult());
+            GameRecord unfinished = reader.next();
+            assertNotNull(unfinished, "The unfinished game should be exported too.");
+            assertTrue(unfinished.getUciMoves().isEmpty());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void testPlainExportIsNotCompressed() throws Exception {
+        Path file = directory.resolve("games.pgn");
+        try (PgnExporter exporter = PgnExporter.open(file, false)) {
+            writeGames(exporter);
+        }
+        try (PgnReader reader = new PgnReader(new BufferedReader(new StringReader(Files.readString(file))), "games.pgn")) {
+            assertEquals(4, reader.next().getUciMoves().size());
+        }
+    }
+
+    @Test
+    void testExportFromDerby() throws Exception {
+        try (Connection connection = DriverManager.getConnection(MemoryDatabase.create("export"))) {
+            // Two moves share each move number, so the moves of a game are ordered by MoveID within it
+            MemoryDatabase.insertGame(connection, "Finished", "Black", "f2f3", "e7e5", "g2g4", "d8h4");
+            MemoryDatabase.insertGame(connection, "Not Finished", null);
+            MemoryDatabase.insertGame(connection, "Not Finished", null, "e2e4", "c7c5");
+            PgnExporter.createIndex(connection);
+            PgnExporter.createIndex(connection);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (PgnExporter exporter = new PgnExporter(Channels.newChannel(out))) {
+                assertEquals(3, exporter.export(connection, 2), "Every game should be exported, with or without moves.");
+            }
+            String pgn = out.toString(StandardCharsets.UTF_8);
+            assertTrue(pgn.contains("\n1. f3 e5 2. g4 Qh4# 0-1\n\n[Event"), "The moves should be in order: " + pgn);
+            assertTrue(pgn.contains("[GameID \"2\"]\n\n*\n\n"), "A game without moves has only its result.");
+            assertTrue(pgn.endsWith("[GameID \"3\"]\n\n1. e4 c5 *\n\n"), "A game in progress ends with '*'.");
+        } finally {
+            MemoryDatabase.drop("export");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package database;
+
+import elements.Game;
+import elements.LazyHistory;
+import elements.Player;
+import pieces.PieceType;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class ResumedGameTest {
+
+    @Test
+    void testSetUpFromLastPosition() {
+        // 1. e4 d5 2. exd5: the user plays Black and has lost a pawn
+        Game game = ResumedGame.setUp("rnbqkbnr/ppp1pppp/8/3P4/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2",
+                "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2", Arrays.asList("e4", "d5", "exd5"), "Black");
+        assertEquals(Game.Color.BLACK, game.getMe().playerColor);
+        assertFalse(game.whiteMoves, "Black should be to move.");
+        assertTrue(game.gameHistory instanceof LazyHistory);
+        assertEquals(3, game.gameHistory.size());
+        assertEquals(1, game.getOpponentCapturedPieces().size(), "The missing black pawn was captured by the opponent.");
+        assertEquals(PieceType.PAWN, game.getOpponentCapturedPieces().get(0).getType());
+        assertTrue(game.getMeCapturedPieces().isEmpty());
+        assertTrue(game.legalMoves().contains("d8d5"));
+    }
+
+    @Test
+    void testPromotedPieceIsNotACapture() {
+        // White has promoted a pawn to a second queen, so only seven of its pawns were captured
+        Game game = ResumedGame.setUp("k7/8/8/8/8/8/8/QQ2K3 b - - 0 60", null, Collections.emptyList(), "White");
+        assertEquals(13, game.getOpponentCapturedPieces().size(), "The promoted pawn should not count as captured.");
+        assertEquals(7, game.getOpponentCapturedPieces().stream().filter(piece -> piece.getType() == PieceType.PAWN).count());
+        assertEquals(15, game.getMeCapturedPieces().size(), "Every black piece but the king was captured.");
+    }
+
+    @Test
+    void testInvalidFEN() {
+        assertThrows(IllegalStateException.class, () -> ResumedGame.setUp("not a fen", null, Collections.emptyList(), "White"));
+    }
+
+    @Test
+    void testStoredMovesReachTheOpeningExplorer() throws Exception {
+        String previousURL = Database.getJdbcURL();
+        Database.setJdbcURL(MemoryDatabase.create("resumed"));
+        try (Connection connection = Database.getConnection()) {
+            int gameID = MemoryDatabase.insertGame(connection, "Not Finished", null, "e2e4", "e7e5", "g1f3");
+            ResumedGame resumed = ResumedGame.loadLatest(connection);
+            assertEquals(gameID, resumed.getGameID());
+            assertEquals(3, resumed.getGame().gameHistory.size());
+
+            // Explorer answering every position with no continuation, so that lookups fill its cache
+            OpeningExplorer explorer = new OpeningExplorer(OpeningExplorer.DEFAULT_CACHE_SIZE) {
+                @Override
+                protected List<ExplorerMove> loadContinuations(String key) {
+                    return new ArrayList<>();
+                }
+            };
+            Game replay = new Game(Player.ColorOption.WHITE);
+            explorer.lookup(replay.FENNotation());
+            for (String move : new String[]{"e2e4", "e7e5"}) {
+                replay.playMove(move);
+                explorer.lookup(replay.FENNotation());
+            }
+            assertEquals(3, explorer.getCacheSize());
+
+            resumed.recordMoves(explorer);
+            explorer.recordResult(gameID, "White");
+            assertEquals(0, explorer.getCacheSize(), "The result should drop the positions played before the resume.");
+        } finally {
+            Database.setJdbcURL(previousURL);
+            MemoryDatabase.drop("resumed");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package elements;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameStatusTest {
+
+    @Test
+    void testStartPosition() {
+        // Test the status of the starting position
+        GameStatus status = new Game(Player.ColorOption.WHITE).getStatus();
+        assertEquals(Game.Color.WHITE, status.getSideToMove());
+        assertFalse(status.isInCheck(), "No side is in check at the start.");
+        assertFalse(status.isOver(), "The game is not over at the start.");
+        assertEquals(20, status.getLegalMoveCount());
+    }
+
+    @Test
+    void testStatusIsCachedUntilNextMove() {
+        // Test that the status is computed once per move
+        Game game = new Game(Player.ColorOption.WHITE);
+        GameStatus status = game.getStatus();
+        assertSame(status, game.getStatus(), "The status should be cached while no move is played.");
+        assertSame(status.getLegalMoves(), game.legalMoves(), "The legal moves should come from the cached status.");
+
+        game.playMove("e2e4");
+        assertNotSame(status, game.getStatus(), "A move should replace the cached status.");
+        assertEquals(Game.Color.BLACK, game.getStatus().getSideToMove());
+    }
+
+    @Test
+    void testCheckmate() {
+        // Test the fool's mate: the status and the notation of the last move show the checkmate
+        Game game = new Game(Player.ColorOption.WHITE);
+        for (String move : new String[]{"f2f3", "e7e5", "g2g4", "d8h4"}) assertTrue(game.playMove(move), move + " should be legal.");
+
+        GameStatus status = game.getStatus();
+        assertTrue(status.isInCheck(), "White should be in check.");
+        assertTrue(status.isCheckmate(), "White should be checkmated.");
+        assertFalse(status.isDraw(), "A checkmate is not a draw.");
+        assertEquals(0, status.getLegalMoveCount());
+        assertEquals("Qh4#", game.gameHistory.get(3).getMoveNotation());
+    }
+
+    @Test
+    void testStalemate() {
+        // Test a black king on h8 stalemated by a white queen on g6 and a white king on f7
+        Game game = new Game(Player.ColorOption.WHITE);
+        Position position = game.currentPosition;
+        for (int index = 0; index < 64; index++) position.setPiece(Square.of(index), null);
+        position.setPiece(Square.fromName("h8"), pieces.King.BLACK);
+        position.setPiece(Square.fromName("f7"), pieces.King.WHITE);
+        position.setPiece(Square.fromName("g6"), pieces.Queen.WHITE);
+        game.whiteMoves = false;
+
+        GameStatus status = game.getStatus();
+        assertFalse(status.isInCheck(), "Black should not be in check.");
+        assertTrue(status.isStalemate(), "Black should be stalemated.");
+        assertEquals(GameStatus.DrawReason.STALEMATE, status.getDrawReason());
+        assertTrue(game.isDraw(), "A stalemate is a draw.");
+        assertTrue(game.isStalemateForBlack(), "The side to move should be stalemated.");
+        assertFalse(game.isStalemateForWhite(), "The side not to move is never stalemated.");
+
+        game.whiteMoves = true;
+        assertFalse(game.isStalemateForWhite(), "White has legal moves.");
+    }
+}
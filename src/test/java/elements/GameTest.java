@@ -80,5 +80,44 @@ class GameTest {
         assertFalse(game.possibleMoveFromCheck(Game.Color.WHITE), "White should not have possible moves to escape check initially.");
         assertFalse(game.possibleMoveFromCheck(Game.Color.BLACK), "Black should not have possible moves to escape check initially.");
     }
-}
 
+    @Test
+    public void testLegalMoves() {
+        // Test that the starting position has the 20 legal moves of chess
+        assertEquals(20, game.legalMoves().size(), "White should have 20 legal moves at the start of the game.");
+        assertTrue(game.legalMoves().contains("g1f3"), "The knight should be able to move to f3.");
+    }
+
+    @Test
+    public void testPlayMove() {
+        // Test playing legal and illegal moves in UCI notation
+        assertTrue(game.playMove("e2e4"), "e2e4 should be played.");
+        assertFalse(game.whiteMoves, "It should be Black's turn after White's move.");
+        assertFalse(game.playMove("e4e5"), "White cannot move twice in a row.");
+        assertFalse(game.playMove("e7e4"), "A pawn cannot move three squares.");
+        assertEquals("e2e4", game.gameHistory.get(0).getUciNotation());
+    }
+
+    @Test
+    public void testPlayPromotion() {
+        // Put a white pawn on a7 with an empty a8 and a black knight on b8
+        game.currentPosition.setPiece(Square.of(6, 0), pieces.Pawn.WHITE);
+        game.currentPosition.setPiece(Square.of(7, 0), null);
+
+        assertFalse(game.playMove("a7a8"), "A promotion needs the piece as a suffix.");
+        assertFalse(game.playMove("a7a8k"), "A pawn cannot be promoted to a king.");
+        assertTrue(game.playMove("a7b8n"), "The pawn should capture on b8 and become a knight.");
+        assertTrue(game.currentPosition.getPiece(Square.of(7, 1)) instanceof pieces.Knight, "The promoted piece should be a knight.");
+        assertEquals("a7b8n", game.gameHistory.get(0).getUciNotation());
+        assertFalse(game.playMove("e7e5q"), "Only a promotion can have a suffix.");
+    }
+
+    @Test
+    public void testFENCastlingRights() {
+        // A rook leaving its corner removes its castling right from the FEN
+        game.playMove("h2h4");
+        game.playMove("a7a5");
+        game.playMove("h1h3");
+        assertEquals("rnbqkbnr/1ppppppp/8/p7/7P/7R/PPPPPPP1/RNBQKBN1 b Qkq - 1 2", game.FENNotation());
+    }
+}
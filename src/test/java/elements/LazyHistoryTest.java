@@ -0,0 +1,78 @@
+package elements;
+
+import notation.Fen;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class LazyHistoryTest {
+
+    /**
+     * Resumes a game after the given moves the way a stored game is resumed: from the FEN of its last position,
+     * with the notation of its moves and the FEN of the position before the last one.
+     */
+    private static Game resume(String... uciMoves) {
+        Game game = new Game(Player.ColorOption.WHITE);
+        String fenBeforeLastMove = null;
+        List<String> notations = new ArrayList<>();
+        for (String uciMove : uciMoves) {
+            fenBeforeLastMove = game.FENNotation();
+            assertTrue(game.playMove(uciMove), "The test moves should be legal: " + uciMove);
+            notations.add(game.gameHistory.get(game.gameHistory.size() - 1).getMoveNotation());
+        }
+        Game resumed = Fen.parse(game.FENNotation());
+        resumed.gameHistory = new LazyHistory(notations, fenBeforeLastMove);
+        resumed.currentPosition.positionNumber = uciMoves.length;
+        return resumed;
+    }
+
+    @Test
+    void testSizeWithoutReplay() {
+        Game game = resume("e2e4", "a7a6", "e4e5", "d7d5");
+        LazyHistory history = (LazyHistory) game.gameHistory;
+        assertEquals(4, history.size());
+        assertFalse(history.isReplayed(), "The size should be known without replaying the moves.");
+    }
+
+    @Test
+    void testLastMoveEnablesEnPassant() {
+        // The double pawn move d7d5 is rebuilt from the position before it to allow exd6
+        Game game = resume("e2e4", "a7a6", "e4e5", "d7d5");
+        assertTrue(game.legalMoves().contains("e5d6"), "En passant should be legal after the resumed double pawn move.");
+        assertTrue(game.playMove("e5d6"));
+        assertEquals(5, game.gameHistory.size());
+        assertFalse(((LazyHistory) game.gameHistory).isReplayed(), "Playing on should not replay the stored moves.");
+        assertEquals(Fen.parse("rnbqkbnr/1pp1pppp/p2P4/8/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 3").FENNotation(), game.FENNotation());
+    }
+
+    @Test
+    void testCopyDoesNotReplay() {
+        Game game = resume("e2e4", "e7e5", "g1f3");
+        Game copy = game.copy();
+        assertTrue(copy.gameHistory instanceof LazyHistory, "A copy should keep the history lazy.");
+        assertFalse(((LazyHistory) copy.gameHistory).isReplayed());
+        assertTrue(copy.playMove("b8c6"));
+        assertEquals(3, game.gameHistory.size(), "A move played in the copy should not reach the original.");
+        assertEquals(4, copy.gameHistory.size());
+    }
+
+    @Test
+    void testReadingAnEarlyMoveReplays() {
+        Game game = resume("e2e4", "e7e5", "g1f3", "b8c6");
+        Move first = game.gameHistory.get(0);
+        assertTrue(((LazyHistory) game.gameHistory).isReplayed());
+        assertEquals(Square.fromName("e2"), first.getStart());
+        assertEquals(Square.fromName("e4"), first.getEnd());
+        assertEquals(Square.fromName("c6"), game.gameHistory.get(3).getEnd());
+    }
+
+    @Test
+    void testStoredMovesCannotBeRemoved() {
+        Game game = resume("e2e4");
+        assertThrows(UnsupportedOperationException.class, () -> game.gameHistory.remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> game.gameHistory.add(0, game.gameHistory.get(0)));
+    }
+}
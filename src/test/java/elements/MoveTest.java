@@ -15,10 +15,10 @@ class MoveTest {
     private Piece movedPiece;
     private Position positionAfterMove;
     private Move move = new Move(
-            game.currentPosition.board[4][1],
-            game.currentPosition.board[4][3],
+            Square.of(4, 1),
+            Square.of(4, 3),
             1,
-            game.currentPosition.board[4][1].getPiece(),
+            game.currentPosition.getPiece(Square.of(4, 1)),
             "e4",
             game.currentPosition
     );
@@ -26,9 +26,9 @@ class MoveTest {
     @BeforeEach
     public void setUp() {
         // Setup mock or real objects required for testing.
-        startSquare = new Square();
-        endSquare = new Square();
-        movedPiece = new Pawn(Game.Color.WHITE); // Example piece.
+        startSquare = Square.fromName("e2");
+        endSquare = Square.fromName("e4");
+        movedPiece = Pawn.WHITE; // Example piece.
         positionAfterMove = new Position(); // Assuming Position class has a constructor.
 
         // Creating a Move object
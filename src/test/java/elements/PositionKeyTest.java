@@ -0,0 +1,75 @@
+package elements;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+class PositionKeyTest {
+
+    /**
+     * Returns a new game after the given moves.
+     */
+    private static Game play(String... moves) {
+        Game game = new Game(Player.ColorOption.WHITE);
+        for (String move : moves) assertTrue(game.playMove(move), move + " should be legal.");
+        return game;
+    }
+
+    @Test
+    void testTranspositionsHaveEqualKeys() {
+        // Test that move orders reaching the same position give equal keys, whatever the move counters
+        PositionKey first = PositionKey.of(play("g1f3", "g8f6", "b1c3", "b8c6"));
+        PositionKey second = PositionKey.of(play("b1c3", "b8c6", "g1f3", "g8f6"));
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(first.longHash(), second.longHash());
+
+        Map<PositionKey, String> positions = new HashMap<>();
+        positions.put(first, "Four Knights");
+        assertEquals("Four Knights", positions.get(second), "Keys should work as map keys.");
+    }
+
+    @Test
+    void testStateIsPartOfTheKey() {
+        // Test that the side to move, the castling rights and the en passant square are part of the key
+        assertNotEquals(PositionKey.of(play("g1f3", "g8f6", "f3g1")), PositionKey.of(play("g1f3", "g8f6", "f3g1", "f6g8", "g1f3", "g8f6", "f3g1", "f6g8")),
+                "The side to move differs.");
+        assertEquals(PositionKey.of(play("g1f3", "g8f6", "f3g1", "f6g8")), PositionKey.of(new Game(Player.ColorOption.WHITE)),
+                "The knights are back and nothing else changed.");
+        assertNotEquals(PositionKey.of(play("h2h3", "h7h6", "h1h2", "h8h7", "h2h1", "h7h8")), PositionKey.of(play("h2h3", "h7h6")),
+                "Moving the rooks loses the castling rights.");
+        assertNotEquals(PositionKey.of(play("e2e4")), PositionKey.of(play("e2e4", "g8f6", "g1f3", "f6g8", "f3g1")),
+                "Only a two-square pawn move gives an en passant square.");
+    }
+
+    @Test
+    void testBytesRoundTrip() {
+        // Test that a key read back from its bytes is equal to the original
+        PositionKey key = PositionKey.of(play("e2e4", "e7e5", "g1f3"));
+        byte[] buffer = new byte[2 + PositionKey.BYTES];
+        assertEquals(buffer.length, key.writeTo(buffer, 2));
+        assertEquals(key, PositionKey.fromBytes(buffer, 2));
+        assertArrayEquals(key.toBytes(), Arrays.copyOfRange(buffer, 2, buffer.length));
+    }
+
+    @Test
+    void testLongHashSpreadsNearbyPositions() {
+        // Test that positions differing by one move or by the side to move have different 64-bit hashes
+        Set<Long> hashes = new HashSet<>();
+        Game game = new Game(Player.ColorOption.WHITE);
+        hashes.add(PositionKey.of(game).longHash());
+        for (String move : game.legalMoves()) {
+            Game next = game.copy();
+            assertTrue(next.playMove(move));
+            hashes.add(PositionKey.of(next).longHash());
+        }
+        assertEquals(21, hashes.size(), "The starting position and its 20 successors should not collide.");
+        assertNotEquals(PositionKey.of(play("g1f3", "g8f6", "f3g1")).longHash(), PositionKey.of(play("g1f3", "g8f6", "f3g1", "f6g8")).longHash());
+    }
+}
@@ -23,25 +23,25 @@ class PositionTest {
         // Test if the initial board setup is correct
         // Check pawns' positions
         for (int i = 0; i < 8; i++) {
-            assertNotNull(position.board[1][i].getPiece()); // White pawns should be at row 1
-            assertNotNull(position.board[6][i].getPiece()); // Black pawns should be at row 6
+            assertNotNull(position.getPiece(Square.of(1, i))); // White pawns should be at row 1
+            assertNotNull(position.getPiece(Square.of(6, i))); // Black pawns should be at row 6
         }
 
         // Check other pieces' positions
-        assertTrue(position.board[0][0].getPiece() instanceof Rook); // White Rooks at (0, 0) and (0, 7)
-        assertTrue(position.board[0][7].getPiece() instanceof Rook);
-        assertTrue(position.board[7][0].getPiece() instanceof Rook); // Black Rooks at (7, 0) and (7, 7)
-        assertTrue(position.board[7][7].getPiece() instanceof Rook);
+        assertTrue(position.getPiece(Square.of(0, 0)) instanceof Rook); // White Rooks at (0, 0) and (0, 7)
+        assertTrue(position.getPiece(Square.of(0, 7)) instanceof Rook);
+        assertTrue(position.getPiece(Square.of(7, 0)) instanceof Rook); // Black Rooks at (7, 0) and (7, 7)
+        assertTrue(position.getPiece(Square.of(7, 7)) instanceof Rook);
 
-        assertTrue(position.board[0][4].getPiece() instanceof King); // White King at (0, 4)
-        assertTrue(position.board[7][4].getPiece() instanceof King); // Black King at (7, 4)
+        assertTrue(position.getPiece(Square.of(0, 4)) instanceof King); // White King at (0, 4)
+        assertTrue(position.getPiece(Square.of(7, 4)) instanceof King); // Black King at (7, 4)
     }
 
     @Test
     public void testToStringRankWithPiece() {
         // Test that non-empty squares display correctly with the piece
-        Square square = position.board[0][1]; // Should be a white knight at (0, 1)
-        String expected = Position.WHITE_BACKGROUND + " " + square.getPiece().toString() + " ";
+        Square square = Square.of(0, 1); // Should be a white knight at (0, 1)
+        String expected = Position.WHITE_BACKGROUND + " " + position.getPiece(square).toString() + " ";
         assertEquals(expected, position.toStringRank(0, 1, game));
     }
 
@@ -50,4 +50,25 @@ class PositionTest {
         // Test if the toString method handles null game correctly
         assertEquals("Error: Game instance is null!", position.toString(null));
     }
+
+    @Test
+    public void testCastlingRights() {
+        // Moving the h1 rook loses only White's king-side castling
+        assertEquals(Position.ALL_CASTLING_RIGHTS, position.castlingRights, "Every castling right should be available at the start.");
+        position.updateCastlingRights(Square.of(0, 7), Square.of(2, 7));
+        assertFalse(position.hasCastlingRight(Position.WHITE_KING_SIDE), "White should lose the king-side castling.");
+        assertTrue(position.hasCastlingRight(Position.WHITE_QUEEN_SIDE), "White should keep the queen-side castling.");
+
+        // Moving the black king loses both of Black's rights, and the copy keeps the mask
+        position.updateCastlingRights(Square.of(7, 4), Square.of(6, 4));
+        assertEquals(Position.WHITE_QUEEN_SIDE, position.copy().castlingRights, "Only White's queen-side castling should remain.");
+    }
+
+    @Test
+    public void testCopySharesPieces() {
+        // Pieces are immutable flyweights, so a copied position shares them
+        Position copy = position.copy();
+        assertSame(position.getPiece(Square.of(0, 4)), copy.getPiece(Square.of(0, 4)), "The copy should share the white king.");
+        assertSame(King.WHITE, copy.getPiece(Square.of(0, 4)), "The white king should be the shared instance.");
+    }
 }
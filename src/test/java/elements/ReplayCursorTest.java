@@ -0,0 +1,122 @@
+package elements;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class ReplayCursorTest {
+
+    // En passant, both castlings and a long knight shuffle raising the half-move clock
+    private static final List<String> MOVES = moves();
+
+    private static List<String> moves() {
+        List<String> moves = new ArrayList<>(Arrays.asList("e2e4", "a7a6", "e4e5", "d7d5", "e5d6", "e7d6", "g1f3", "c8g4",
+                "f1e2", "b8c6", "e1g1", "d8e7", "d2d4", "e8c8", "b1c3", "h7h6"));
+        for (int i = 0; i < 10; i++) moves.addAll(Arrays.asList("c3b1", "c6b8", "b1c3", "b8c6"));
+        return moves;
+    }
+
+    /**
+     * Returns the FEN of each ply of a game, played move by move.
+     */
+    private static List<String> fens(List<String> moves) {
+        Game game = new Game(Player.ColorOption.WHITE);
+        List<String> fens = new ArrayList<>();
+        fens.add(game.FENNotation());
+        for (String move : moves) {
+            assertTrue(game.playMove(move), "The test moves should be legal: " + move);
+            fens.add(game.FENNotation());
+        }
+        return fens;
+    }
+
+    @Test
+    void testStepping() {
+        List<String> fens = fens(MOVES);
+        ReplayCursor cursor = new ReplayCursor(MOVES, 8);
+        assertEquals(MOVES.size(), cursor.length());
+        assertEquals(fens.get(0), cursor.fen());
+
+        while (cursor.forward()) assertEquals(fens.get(cursor.ply()), cursor.fen(), "Forward to ply " + cursor.ply());
+        assertEquals(MOVES.size(), cursor.ply());
+        while (cursor.back()) assertEquals(fens.get(cursor.ply()), cursor.fen(), "Back to ply " + cursor.ply());
+        assertEquals(0, cursor.ply());
+    }
+
+    @Test
+    void testSeek() {
+        List<String> fens = fens(MOVES);
+        ReplayCursor cursor = new ReplayCursor(MOVES, 8);
+        List<Integer> plies = new ArrayList<>();
+        for (int ply = 0; ply <= MOVES.size(); ply++) plies.add(ply);
+        Collections.shuffle(plies, new java.util.Random(7));
+        for (int ply : plies) {
+            cursor.seek(ply);
+            assertEquals(ply, cursor.ply());
+            assertEquals(fens.get(ply), cursor.fen(), "Seek to ply " + ply);
+            assertEquals(ply, cursor.game().gameHistory.size(), "The history should follow the cursor.");
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> cursor.seek(MOVES.size() + 1));
+    }
+
+    @Test
+    void testEnPassantAfterSeek() {
+        ReplayCursor cursor = new ReplayCursor(MOVES);
+        cursor.seek(20);
+        cursor.seek(4);
+        assertTrue(cursor.game().legalMoves().contains("e5d6"), "The double pawn move before ply 4 should allow en passant.");
+    }
+
+    @Test
+    void testCopyGameCanBePlayedOn() {
+        ReplayCursor cursor = new ReplayCursor(Arrays.asList("e4", "e5", "Nf3", "Nc6", "Bc4", "Nf6"));
+        cursor.seek(5);
+        Game copy = cursor.copyGame();
+        assertTrue(copy.playMove("g8f6"));
+        assertEquals(6, copy.gameHistory.size());
+        assertEquals(5, cursor.ply(), "Playing on the copy should not move the cursor.");
+        assertTrue(cursor.fen().startsWith("r1bqkbnr/pppp1ppp/2n5/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R b KQkq"));
+    }
+
+    @Test
+    void testHistoryFollowsThePlies() {
+        // Reference boards after each move, from a game played move by move
+        Game reference = new Game(Player.ColorOption.WHITE);
+        List<Position> positions = new ArrayList<>();
+        for (String move : MOVES) {
+            reference.playMove(move);
+            positions.add(reference.currentPosition.copy());
+        }
+
+        ReplayCursor cursor = new ReplayCursor(MOVES, 8);
+        cursor.seek(MOVES.size());
+        Game copy = cursor.copyGame();
+        for (int i = 0; i < MOVES.size(); i++) {
+            Move move = cursor.game().gameHistory.get(i);
+            assertEquals(reference.gameHistory.get(i).getMoveNotation(), move.getMoveNotation(), "Notation of ply " + (i + 1));
+            assertSamePosition(positions.get(i), move.getPositionAfterMove(), "Position after ply " + (i + 1));
+            assertSamePosition(positions.get(i), copy.gameHistory.get(i).getPositionAfterMove(), "Copied position after ply " + (i + 1));
+        }
+
+        cursor.seek(3);
+        assertSamePosition(positions.get(2), cursor.game().gameHistory.get(2).getPositionAfterMove(), "Moving the cursor should not change a move.");
+    }
+
+    private static void assertSamePosition(Position expected, Position actual, String message) {
+        for (int index = 0; index < 64; index++) {
+            assertSame(expected.getPiece(Square.of(index)), actual.getPiece(Square.of(index)), message + " on " + Square.of(index));
+        }
+        assertEquals(expected.castlingRights, actual.castlingRights, message);
+        assertEquals(expected.positionNumber, actual.positionNumber, message);
+    }
+
+    @Test
+    void testIllegalMove() {
+        assertThrows(IllegalArgumentException.class, () -> new ReplayCursor(Arrays.asList("e2e4", "e2e4")));
+        assertThrows(IllegalArgumentException.class, () -> new ReplayCursor(MOVES, 0));
+    }
+}
@@ -1,102 +1,50 @@
 package elements;
 
-import pieces.*;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class SquareTest {
 
-    private Square square;
-
-    @BeforeEach
-    public void setUp() {
-        // Initialize a square for testing
-        square = new Square();
-    }
-
-    @Test
-    public void testConstructor() {
-        // Test that a new square is empty and has no piece
-        assertTrue(square.getIsEmpty());
-        assertNull(square.getPiece());
-    }
-
-    @Test
-    public void testSetColor() {
-        // Test setting the color of the square
-        square.setColor(Game.Color.WHITE);
-        assertEquals(Game.Color.WHITE, square.getColor());
-
-        square.setColor(Game.Color.BLACK);
-        assertEquals(Game.Color.BLACK, square.getColor());
-    }
-
     @Test
-    public void testSetRankAndFile() {
-        // Test setting the rank and file of the square
-        square.setRank(5);
-        square.setFile('d');
-
-        assertEquals(5, square.getRank());
-        assertEquals('d', square.getFile());
+    public void testIndexRankAndFile() {
+        // Test that the index, rank and file of a square agree
+        Square square = Square.of(3, 4);
+        assertEquals(28, square.getIndex());
+        assertEquals(4, square.getRank());
+        assertEquals('e', square.getFile());
     }
 
     @Test
-    public void testSetIsEmpty() {
-        // Test changing the state of whether the square is empty
-        square.setIsEmpty(false);
-        assertFalse(square.getIsEmpty());
-
-        square.setIsEmpty(true);
-        assertTrue(square.getIsEmpty());
+    public void testSquaresAreInterned() {
+        // Test that every way of getting a square returns the same instance
+        assertSame(Square.of(28), Square.of(3, 4));
+        assertSame(Square.of(28), Square.fromName("e4"));
+        for (int index = 0; index < 64; index++) {
+            assertSame(Square.of(index), Square.fromName(Square.of(index).toString()), "The name of a square should lead back to it.");
+        }
     }
 
     @Test
-    public void testSetPiece() {
-        // Test setting a piece on the square
-        Piece pawn = new Pawn(Game.Color.WHITE);
-        square.setPiece(pawn);
-
-        assertEquals(pawn, square.getPiece());
-        assertTrue(square.getIsEmpty());
-
-        // Test removing the piece
-        square.setPiece(null);
-        assertNull(square.getPiece());
-        assertTrue(square.getIsEmpty());
+    public void testColor() {
+        // Test the colors of the corners of the board
+        assertEquals(Game.Color.BLACK, Square.fromName("a1").getColor());
+        assertEquals(Game.Color.WHITE, Square.fromName("h1").getColor());
+        assertEquals(Game.Color.BLACK, Square.fromName("h8").getColor());
     }
 
     @Test
-    public void testCopy() {
-        // Test copying the square
-        square.setRank(3);
-        square.setFile('c');
-        square.setColor(Game.Color.BLACK);
-        square.setIsEmpty(false);
-        square.setPiece(new Pawn(Game.Color.BLACK));
-
-        Square copiedSquare = square.copy();
-
-        // Ensure that the copied square is not the same object
-        assertNotSame(square, copiedSquare);
-
-        // Ensure that all properties are copied correctly
-        assertEquals(square.getRank(), copiedSquare.getRank());
-        assertEquals(square.getFile(), copiedSquare.getFile());
-        assertEquals(square.getColor(), copiedSquare.getColor());
+    public void testInvalidSquare() {
+        // Test that squares outside the board are rejected
+        assertThrows(IllegalArgumentException.class, () -> Square.fromName("i1"));
+        assertThrows(IllegalArgumentException.class, () -> Square.fromName("a9"));
+        assertThrows(IndexOutOfBoundsException.class, () -> Square.of(8, 0));
     }
 
     @Test
     public void testToString() {
         // Test the toString method for square position representation
-        square.setRank(1);
-        square.setFile('a');
-        assertEquals("a1", square.toString());
-
-        square.setRank(8);
-        square.setFile('h');
-        assertEquals("h8", square.toString());
+        assertEquals("a1", Square.of(0, 0).toString());
+        assertEquals("h8", Square.of(7, 7).toString());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,221 @@
+package engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class AnalysisSessionTest {
+
+    @TempDir
+    Path directory;
+
+    private AnalysisSession fakeSession() throws Exception {
+        // A fake engine: "go" sends two depths of two lines and lines that are not updates, "stop" the best move.
+        // The time of each update is the number of the search, to tell the updates of two analyses apart, and
+        // after 1.e4 only the best line is sent.
+        Path script = directory.resolve("fake-engine.sh");
+        Files.writeString(script, "#!/bin/sh\n"
+                + "n=0\n"
+                + "while read line; do\n"
+                + "  case \"$line\" in\n"
+                + "    uci) echo \"id name fake\"; echo \"option name MultiPV type spin default 1 min 1 max 500\"; echo \"uciok\" ;;\n"
+                + "    isready) echo \"readyok\" ;;\n"
+                + "    position*) single=; case \"$line\" in *4P3*) single=1 ;; esac ;;\n"
+                + "    go*) n=$((n+1))\n"
+                + "         echo \"info depth 1 multipv 1 score cp 30 nodes 20 time $n pv e2e4\"\n"
+                + "         echo \"info depth 1 multipv 0 score cp 10 nodes 30 time $n pv a2a3\"\n"
+                + "         [ -n \"$single\" ] || echo \"info depth 1 multipv 2 score cp 20 nodes 40 time $n pv d2d4\"\n"
+                + "         echo \"info depth 2 currmove g1f3 currmovenumber 3\"\n"
+                + "         echo \"info depth 2 multipv 1 score cp 25 lowerbound nodes 90 time $n pv e2e4\"\n"
+                + "         echo \"info depth 2 multipv 1 score mate 3 nodes 100 time $n pv e2e4 e7e5\"\n"
+                + "         [ -n \"$single\" ] || echo \"info depth 2 multipv 2 score cp 15 nodes 120 time $n pv d2d4 d7d5\" ;;\n"
+                + "    stop) echo \"bestmove e2e4 ponder e7e5\" ;;\n"
+                + "    quit) exit 0 ;;\n"
+                + "  esac\n"
+                + "done\n");
+        assertTrue(script.toFile().setExecutable(true));
+        return new AnalysisSession(new Stockfish() {
+            @Override
+            File extractStockfishExe() {
+                return script.toFile();
+            }
+        }, 2);
+    }
+
+    @Test
+    void testParseInfoLines() {
+        AnalysisUpdate update = AnalysisUpdate.parse("info depth 18 seldepth 24 multipv 2 score cp -31 nodes 1200 nps 9500 time 126 pv e2e4 e7e5");
+        assertNotNull(update);
+        assertEquals(2, update.getMultiPv());
+        assertEquals(18, update.getDepth());
+        assertEquals(-31, update.getScore());
+        assertFalse(update.isMate());
+        assertEquals(1200, update.getNodes());
+        assertEquals(126, update.getTimeMillis());
+        assertEquals(List.of("e2e4", "e7e5"), update.getPrincipalVariation());
+
+        AnalysisUpdate mate = AnalysisUpdate.parse("info depth 5 score mate -2 pv e1e2 d8h4");
+        assertEquals(1, mate.getMultiPv(), "A line without multipv is the best line.");
+        assertTrue(mate.isMate());
+        assertTrue(mate.getScore() < 0, "Being mated should score negatively.");
+
+        assertNull(AnalysisUpdate.parse("info depth 5 currmove e2e4 currmovenumber 1"), "A line without score is not an update.");
+        assertNull(AnalysisUpdate.parse("info depth 5 score cp 10 upperbound pv e2e4"), "A bound is not an update.");
+        assertNull(AnalysisUpdate.parse("info string NNUE evaluation enabled"));
+        assertNull(AnalysisUpdate.parse("bestmove e2e4"));
+    }
+
+    @Test
+    void testStreamsUpdatesAndStops() throws Exception {
+        try (AnalysisSession session = fakeSession()) {
+            List<AnalysisUpdate> updates = new ArrayList<>();
+            CountDownLatch lastUpdate = new CountDownLatch(1);
+            session.subscribe(Runnable::run, update -> {
+                synchronized (updates) {
+                    updates.add(update);
+                }
+                if (update.getDepth() == 2 && update.getMultiPv() == 2) lastUpdate.countDown();
+            });
+
+            session.analyze("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+            assertTrue(lastUpdate.await(5, TimeUnit.SECONDS));
+            assertEquals("e2e4", session.stop());
+
+            synchronized (updates) {
+                assertEquals(4, updates.size(), "Each scored line should be pushed, without the bound and the line 0: " + updates);
+                assertTrue(updates.get(2).isMate());
+            }
+            assertNull(session.stop(), "No analysis is running any more.");
+        }
+    }
+
+    @Test
+    void testSlowSubscriberSeesLatestUpdatePerLine() throws Exception {
+        try (AnalysisSession session = fakeSession()) {
+            // The subscriber's executor only runs its deliveries when the test asks for it
+            Queue<Runnable> deliveries = new ArrayDeque<>();
+            List<AnalysisUpdate> updates = new ArrayList<>();
+            session.subscribe(task -> {
+                synchronized (deliveries) {
+                    deliveries.add(task);
+                }
+            }, updates::add);
+
+            session.analyze("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+            session.stop();
+
+            Runnable delivery;
+            synchronized (deliveries) {
+                assertEquals(1, deliveries.size(), "A single delivery should be scheduled while one is pending.");
+                delivery = deliveries.poll();
+            }
+            delivery.run();
+            assertEquals(2, updates.size(), "Only the latest update of each line should be delivered: " + updates);
+            assertEquals(2, updates.get(0).getDepth());
+            assertEquals(1, updates.get(0).getMultiPv(), "The best line should be delivered first.");
+            assertEquals(List.of("d2d4", "d7d5"), updates.get(1).getPrincipalVariation());
+        }
+    }
+
+    @Test
+    void testFailingSubscriberKeepsReceiving() throws Exception {
+        try (AnalysisSession session = fakeSession()) {
+            Queue<Runnable> deliveries = new ArrayDeque<>();
+            List<AnalysisUpdate> updates = new ArrayList<>();
+            AtomicBoolean failed = new AtomicBoolean();
+            session.subscribe(task -> {
+                synchronized (deliveries) {
+                    deliveries.add(task);
+                }
+            }, update -> {
+                // The consumer fails on the first update it receives
+                if (failed.compareAndSet(false, true)) throw new IllegalStateException("The consumer failed.");
+                updates.add(update);
+            });
+
+            session.analyze("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+            session.stop();
+
+            Runnable delivery;
+            synchronized (deliveries) {
+                delivery = deliveries.poll();
+            }
+            assertThrows(IllegalStateException.class, delivery::run, "The consumer's exception should reach the executor.");
+            synchronized (deliveries) {
+                assertEquals(1, deliveries.size(), "The update not delivered yet should be rescheduled.");
+                delivery = deliveries.poll();
+            }
+            delivery.run();
+            assertEquals(1, updates.size(), "The second line should be delivered after the failure: " + updates);
+            assertEquals(2, updates.get(0).getMultiPv());
+
+            // A new analysis schedules a new delivery, so the subscriber was not left marked as scheduled
+            session.analyze("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+            session.stop();
+            synchronized (deliveries) {
+                assertEquals(1, deliveries.size(), "The next updates should be scheduled.");
+            }
+        }
+    }
+
+    @Test
+    void testNewAnalysisDropsStaleUpdates() throws Exception {
+        try (AnalysisSession session = fakeSession()) {
+            Queue<Runnable> deliveries = new ArrayDeque<>();
+            List<AnalysisUpdate> updates = new ArrayList<>();
+            session.subscribe(task -> {
+                synchronized (deliveries) {
+                    deliveries.add(task);
+                }
+            }, updates::add);
+
+            // The updates of the first analysis are still pending when the second one starts
+            session.analyze("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+            session.stop();
+            session.analyze("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+            session.stop();
+
+            Runnable delivery;
+            synchronized (deliveries) {
+                delivery = deliveries.poll();
+            }
+            delivery.run();
+            assertEquals(1, updates.size(), "Only the line of the second analysis should be delivered: " + updates);
+            assertEquals(2, updates.get(0).getTimeMillis(), "An update of the first analysis was delivered.");
+        }
+    }
+
+    @Test
+    void testFailingExecutorDoesNotBlockTheSession() throws Exception {
+        try (AnalysisSession session = fakeSession()) {
+            AnalysisSession.Subscription rejecting = session.subscribe(task -> {
+                throw new RejectedExecutionException("The executor is shut down.");
+            }, update -> { });
+
+            // The reader fails on the first update, yet the best move is completed and the engine is idle again
+            session.analyze("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+            IOException error = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> assertThrows(IOException.class, session::stop));
+            assertTrue(error.getCause() instanceof RejectedExecutionException, "The cause should be the rejection: " + error);
+
+            rejecting.cancel();
+            session.analyze("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+            assertEquals("e2e4", assertTimeoutPreemptively(Duration.ofSeconds(5), session::stop),
+                    "The session should analyze again after the failure.");
+        }
+    }
+}
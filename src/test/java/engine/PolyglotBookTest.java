@@ -0,0 +1,160 @@
+package engine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+class PolyglotBookTest {
+
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String E4_FEN = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1";
+    private static final String CASTLE_FEN = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1";
+
+    @TempDir
+    Path directory;
+
+    // Synthetic random numbers: the real Polyglot numbers are not needed to test the book mechanics
+    private long[] random;
+
+    @BeforeEach
+    void setUp() {
+        random = new long[PolyglotBook.RANDOM_COUNT];
+        Random generator = new Random(42);
+        for (int i = 0; i < random.length; i++) random[i] = generator.nextLong();
+    }
+
+    private static int move(String from, String to) {
+        int fromSquare = (from.charAt(1) - '1') * 8 + from.charAt(0) - 'a';
+        int toSquare = (to.charAt(1) - '1') * 8 + to.charAt(0) - 'a';
+        return fromSquare << 6 | toSquare;
+    }
+
+    private PolyglotBook writeBook(long[] keys, int[] moves, int[] weights) throws IOException {
+        // Entries must be sorted by unsigned key
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compareUnsigned(keys[a], keys[b]));
+
+        ByteBuffer buffer = ByteBuffer.allocate(keys.length * PolyglotBook.ENTRY_SIZE);
+        for (int i : order) {
+            buffer.putLong(keys[i]).putShort((short) moves[i]).putShort((short) weights[i]).putInt(0);
+        }
+        Path bookFile = directory.resolve("book.bin");
+        Files.write(bookFile, buffer.array());
+        return new PolyglotBook(bookFile, random);
+    }
+
+    @Test
+    void testLookupAndBestMove() throws IOException {
+        PolyglotBook probe = writeBook(new long[0], new int[0], new int[0]);
+        long start = probe.key(START_FEN);
+        long e4 = probe.key(E4_FEN);
+        probe.close();
+
+        try (PolyglotBook book = writeBook(
+                new long[]{start, e4, start, start},
+                new int[]{move("e2", "e4"), move("e7", "e5"), move("d2", "d4"), move("g1", "f3")},
+                new int[]{10, 5, 30, 1})) {
+
+            assertEquals(4, book.size());
+            List<BookMove> moves = book.lookup(START_FEN);
+            assertEquals(3, moves.size(), "Only the entries of the position should be returned.");
+            assertEquals("d2d4", book.bestMove(START_FEN), "The move with the highest weight should be the best move.");
+            assertEquals("e7e5", book.bestMove(E4_FEN));
+            assertNull(book.bestMove(CASTLE_FEN), "A position out of the book has no move.");
+        }
+    }
+
+    @Test
+    void testWeightedMoveFollowsWeights() throws IOException {
+        PolyglotBook probe = writeBook(new long[0], new int[0], new int[0]);
+        long start = probe.key(START_FEN);
+        probe.close();
+
+        try (PolyglotBook book = writeBook(new long[]{start, start}, new int[]{move("e2", "e4"), move("d2", "d4")}, new int[]{3, 1})) {
+            Map<String, Integer> counts = new HashMap<>();
+            Random generator = new Random(7);
+            for (int i = 0; i < 4000; i++) counts.merge(book.weightedMove(START_FEN, generator), 1, Integer::sum);
+            assertEquals(3.0, counts.get("e2e4") / (double) counts.get("d2d4"), 0.3, "Moves should be picked in proportion to their weight.");
+        }
+    }
+
+    @Test
+    void testCastlingAndPromotionMoves() {
+        char[] board = new char[64];
+        board[4] = 'K';
+        board[60] = 'k';
+        assertEquals("e1g1", PolyglotBook.uciMove(move("e1", "h1"), board), "King takes rook should become castling.");
+        assertEquals("e8c8", PolyglotBook.uciMove(move("e8", "a8"), board));
+
+        board[4] = 'Q';
+        assertEquals("e1h1", PolyglotBook.uciMove(move("e1", "h1"), board), "A queen move should not be converted.");
+        assertEquals("a7a8q", PolyglotBook.uciMove(4 << 12 | move("a7", "a8"), board));
+    }
+
+    @Test
+    void testEnPassantOnlyHashedWhenCapturePossible() throws IOException {
+        try (PolyglotBook book = writeBook(new long[0], new int[0], new int[0])) {
+            assertEquals(book.key(E4_FEN), book.key(E4_FEN.replace("e3", "-")), "No black pawn can take on e3.");
+
+            String capturable = "rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 3";
+            assertNotEquals(book.key(capturable), book.key(capturable.replace("e3", "-")), "The d4 pawn can take on e3.");
+            assertNotEquals(book.key(START_FEN), book.key(START_FEN.replace(" w ", " b ")), "The side to move should be hashed.");
+        }
+    }
+
+    @Test
+    void testReadRandom() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PolyglotBook.RANDOM_COUNT * 8);
+        for (long value : random) buffer.putLong(value);
+        assertArrayEquals(random, PolyglotBook.readRandom(new ByteArrayInputStream(buffer.array())));
+        assertThrows(IOException.class, () -> PolyglotBook.readRandom(new ByteArrayInputStream(new byte[8])));
+    }
+
+    @Test
+    void testStandardKeys() throws IOException {
+        long[] standard = PolyglotBook.loadRandom();
+        // The standard numbers are not part of the tree: the test runs when they are supplied
+        assumeTrue(standard != null, "Set " + PolyglotBook.RANDOM_PROPERTY + " to the Polyglot Random64 table to run this test.");
+
+        assertEquals(0x463B96181691FC9CL, PolyglotBook.key(START_FEN, standard), "Start position key of the Polyglot specification.");
+        assertEquals(0x823C9B50FD114196L, PolyglotBook.key(E4_FEN, standard), "Key after e2e4 of the Polyglot specification.");
+        assertTrue(PolyglotBook.isStandard(standard));
+    }
+
+    @Test
+    void testOnlyStandardNumbersAreAccepted() throws IOException {
+        assertFalse(PolyglotBook.isStandard(random), "Arbitrary numbers should be rejected.");
+
+        // Adjust the side to move number so that the start position gets the standard key
+        random[780] ^= PolyglotBook.key(START_FEN, random) ^ PolyglotBook.START_POSITION_KEY;
+        assertTrue(PolyglotBook.isStandard(random), "Numbers giving the standard start key should be accepted.");
+
+        ByteBuffer buffer = ByteBuffer.allocate(PolyglotBook.RANDOM_COUNT * 8);
+        for (long value : random) buffer.putLong(value);
+        Path randomFile = directory.resolve("random64.bin");
+        Files.write(randomFile, buffer.array());
+
+        String previous = System.getProperty(PolyglotBook.RANDOM_PROPERTY);
+        System.setProperty(PolyglotBook.RANDOM_PROPERTY, randomFile.toString());
+        try {
+            assertArrayEquals(random, PolyglotBook.loadRandom(), "The numbers should be read from the file of the property.");
+        } finally {
+            if (previous == null) System.clearProperty(PolyglotBook.RANDOM_PROPERTY);
+            else System.setProperty(PolyglotBook.RANDOM_PROPERTY, previous);
+        }
+    }
+}
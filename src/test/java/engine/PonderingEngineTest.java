@@ -0,0 +1,74 @@
+package engine;
+
+import elements.Game;
+import elements.Player;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class PonderingEngineTest {
+
+    @TempDir
+    Path directory;
+
+    private static String fenAfter(String... moves) {
+        Game game = new Game(Player.ColorOption.WHITE);
+        for (String move : moves) assertTrue(game.playMove(move));
+        return game.FENNotation();
+    }
+
+    @Test
+    void testPonderHitAndMiss() throws Exception {
+        // A fake engine logging its commands: a search plays e2e4 expecting e7e5, a ponder hit plays g1f3
+        // expecting b8c6, and a stopped ponder search plays d2d4
+        Path log = directory.resolve("commands.log");
+        Path script = directory.resolve("fake-engine.sh");
+        Files.writeString(script, "#!/bin/sh\n"
+                + "while read line; do\n"
+                + "  echo \"$line\" >> '" + log + "'\n"
+                + "  case \"$line\" in\n"
+                + "    uci) echo \"option name Ponder type check default false\"; echo \"uciok\" ;;\n"
+                + "    isready) echo \"readyok\" ;;\n"
+                + "    \"go ponder\"*) echo \"info depth 1 score cp 5 pv b8c6\" ;;\n"
+                + "    go*) echo \"bestmove e2e4 ponder e7e5\" ;;\n"
+                + "    ponderhit) echo \"bestmove g1f3 ponder b8c6\" ;;\n"
+                + "    stop) echo \"bestmove d2d4\" ;;\n"
+                + "    quit) exit 0 ;;\n"
+                + "  esac\n"
+                + "done\n");
+        assertTrue(script.toFile().setExecutable(true));
+
+        String start = fenAfter();
+        try (PonderingEngine engine = new PonderingEngine(new Stockfish() {
+            @Override
+            File extractStockfishExe() {
+                return script.toFile();
+            }
+        }, SearchLimits.moveTime(1000))) {
+            assertEquals("e2e4", engine.bestMove(start));
+
+            // The user plays the expected reply: the ponder search gives the move
+            assertEquals("g1f3", engine.bestMove(fenAfter("e2e4", "e7e5")));
+            assertEquals(1, engine.getPonderHitCount());
+
+            // The user plays another reply: the ponder search is dropped and a new search gives the move
+            assertEquals("e2e4", engine.bestMove(fenAfter("e2e4", "e7e5", "g1f3", "d7d6")));
+            assertEquals(1, engine.getPonderMissCount());
+        }
+
+        List<String> commands = Files.readAllLines(log);
+        assertTrue(commands.contains("setoption name Ponder value true"));
+        assertTrue(commands.contains("position fen " + start + " moves e2e4 e7e5"), "The engine should ponder on the expected reply: " + commands);
+        assertEquals(2, commands.stream().filter(command -> command.equals("go ponder movetime 1000")).count(), commands.toString());
+        assertEquals(1, commands.stream().filter(command -> command.equals("ponderhit")).count());
+        assertEquals(1, commands.stream().filter(command -> command.equals("stop")).count(), "Only the missed ponder search should be stopped.");
+        List<String> searches = commands.stream().filter(command -> command.startsWith("go")).toList();
+        assertEquals("go movetime 1000", searches.get(searches.size() - 1), "The last search should be a normal one.");
+    }
+}
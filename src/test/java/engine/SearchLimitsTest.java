@@ -0,0 +1,60 @@
+package engine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchLimitsTest {
+
+    @Test
+    void testGoCommands() {
+        // Test the go command of each kind of limit
+        assertEquals("go depth 12", SearchLimits.depth(12).toGoCommand());
+        assertEquals("go nodes 50000", SearchLimits.nodes(50000).toGoCommand());
+        assertEquals("go mate 3", SearchLimits.mate(3).toGoCommand());
+        assertEquals("go movetime 250", SearchLimits.moveTime(250).toGoCommand());
+        assertEquals("go infinite", SearchLimits.infinite().toGoCommand());
+        assertEquals("go ponder movetime 250", SearchLimits.moveTime(250).toPonderCommand());
+        assertEquals("go wtime 60000 btime 55000 winc 1000 binc 1000 movestogo 10",
+                SearchLimits.clock(60000, 55000, 1000, 1000).withMovesToGo(10).toGoCommand());
+        assertThrows(IllegalArgumentException.class, () -> SearchLimits.depth(0));
+    }
+
+    @Test
+    void testHardLimits() {
+        // Test the wall-clock limit after which the caller stops the search
+        assertEquals(250 + SearchLimits.GRACE_MILLIS, SearchLimits.moveTime(250).getHardLimitMillis(true));
+        assertEquals(-1, SearchLimits.depth(10).getHardLimitMillis(true), "A depth search has no time limit.");
+        assertEquals(2000, SearchLimits.depth(10).withTimeout(2000).getHardLimitMillis(false));
+        assertEquals(-1, SearchLimits.infinite().getHardLimitMillis(true), "An infinite search ends with stop.");
+
+        SearchLimits clock = SearchLimits.clock(60000, 3000, 0, 0);
+        assertEquals(60000 - SearchLimits.MOVE_OVERHEAD_MILLIS, clock.getHardLimitMillis(true));
+        assertEquals(3000 - SearchLimits.MOVE_OVERHEAD_MILLIS, clock.getHardLimitMillis(false), "Each side has its own clock.");
+    }
+
+    @Test
+    void testTimeBudgets() {
+        // Test the time the side to move should spend on its move
+        assertEquals(2000 + 750, SearchLimits.clock(60000, 60000, 1000, 1000).getTimeBudgetMillis(true));
+        assertEquals(60000 / 10, SearchLimits.clock(60000, 1, 0, 0).withMovesToGo(10).getTimeBudgetMillis(true));
+        assertEquals(30 - SearchLimits.MOVE_OVERHEAD_MILLIS, SearchLimits.clock(0, 30, 0, 1000).getTimeBudgetMillis(false),
+                "The move overhead should be kept on the clock.");
+        assertEquals(1, SearchLimits.clock(5, 5, 0, 0).getTimeBudgetMillis(true));
+        assertEquals(400, SearchLimits.moveTime(400).getTimeBudgetMillis(false));
+        assertEquals(-1, SearchLimits.nodes(1000).getTimeBudgetMillis(true));
+    }
+
+    @Test
+    void testParse() {
+        // Test reading the limits of go commands
+        SearchLimits limits = SearchLimits.parse("go wtime 1000 btime 2000 winc 10 binc 20 movestogo 5");
+        assertEquals("go wtime 1000 btime 2000 winc 10 binc 20 movestogo 5", limits.toGoCommand());
+        assertFalse(limits.isInfinite());
+
+        assertEquals(7, SearchLimits.parse("go depth 7 searchmoves e2e4").getDepth(), "Unknown words should be ignored.");
+        assertEquals(0, SearchLimits.parse("go depth x").getDepth(), "A malformed value should be ignored.");
+        assertTrue(SearchLimits.parse("go").isInfinite(), "A go without limits searches until stop.");
+        assertTrue(SearchLimits.parse("go infinite").isInfinite());
+        assertEquals(SearchLimits.parse("go mate 2").getMate(), 2);
+    }
+}
@@ -0,0 +1,87 @@
+package engine;
+
+import analysis.Evaluation;
+import elements.Game;
+import elements.Player;
+import notation.Fen;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class SearchTest {
+
+    @Test
+    void testFindsMateInOne() {
+        // Back-rank mate: the rook mates on the 8th rank
+        Game game = Fen.parse("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1");
+        String fen = game.FENNotation();
+        List<Integer> depths = new ArrayList<>();
+        Evaluation evaluation = new Search(game, 3, -1, (depth, score, nodes, millis, line) -> depths.add(depth)).run();
+
+        assertEquals("a1a8", evaluation.getBestMove());
+        assertEquals(Evaluation.mateScore(1), evaluation.getScore());
+        assertEquals(List.of(1), depths, "A mate in one should end the search after the first depth.");
+        assertEquals(fen, game.FENNotation(), "The searched game should not be modified.");
+    }
+
+    @Test
+    void testWinsHangingQueen() {
+        // The black queen on d5 can be taken by the knight on c3
+        Game game = Fen.parse("4k3/p7/8/3q4/8/2N5/P7/4K3 w - - 0 1");
+        List<List<String>> lines = new ArrayList<>();
+        Evaluation evaluation = new Search(game, 2, -1, (depth, score, nodes, millis, line) -> lines.add(line)).run();
+
+        assertEquals("c3d5", evaluation.getBestMove());
+        assertEquals(2, lines.size());
+        assertEquals(2, lines.get(1).size(), "The principal variation of depth 2 should have two moves.");
+        assertEquals("c3d5", lines.get(1).get(0));
+    }
+
+    @Test
+    void testStopKeepsLastCompletedDepth() throws Exception {
+        // A stopped search should still return the move of its first depth
+        Game game = new Game(Player.ColorOption.WHITE);
+        Search search = new Search(game, Search.MAX_DEPTH, -1, null);
+        Thread stopper = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {
+            }
+            search.stop();
+        });
+        stopper.start();
+        Evaluation evaluation = search.run();
+        stopper.join();
+        assertTrue(game.legalMoves().contains(evaluation.getBestMove()));
+    }
+
+    @Test
+    void testNoLegalMove() {
+        // Checkmated side: no move and a mate score against it
+        Game game = new Game(Player.ColorOption.WHITE);
+        for (String move : new String[]{"f2f3", "e7e5", "g2g4", "d8h4"}) game.playMove(move);
+        Evaluation evaluation = new Search(game, 3, 100, null).run();
+        assertNull(evaluation.getBestMove());
+        assertEquals(Evaluation.mateScore(0), evaluation.getScore());
+    }
+
+    @Test
+    void testEnPassantAfterLongGame() {
+        // The searched copies keep the last move of a long game, so the en passant capture is still found
+        Game game = new Game(Player.ColorOption.WHITE);
+        for (String move : new String[]{"g1f3", "g8f6", "f3g1", "f6g8", "g1f3", "g8f6", "f3g1", "f6g8",
+                "e2e4", "h7h6", "e4e5", "d7d5"}) {
+            assertTrue(game.playMove(move), move);
+        }
+        List<List<String>> lines = new ArrayList<>();
+        Evaluation evaluation = new Search(game, 1, -1, (depth, score, nodes, millis, line) -> lines.add(line)).run();
+
+        assertEquals("e5d6", evaluation.getBestMove(), "Taking en passant should be the only capture.");
+        assertEquals(12, game.gameHistory.size(), "The searched game should keep its history.");
+        assertEquals(lines.get(lines.size() - 1), evaluation.getPrincipalVariation(),
+                "The evaluation should carry the principal variation of the last depth.");
+    }
+}
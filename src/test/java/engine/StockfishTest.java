@@ -5,6 +5,10 @@ import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
 
 class StockfishTest {
 
@@ -74,6 +78,35 @@ class StockfishTest {
         assertTrue(tempFile.getName().contains("stockfish"), "The file name should contain 'stockfish'.");
     }
 
+    @Test
+    void testCheckPrivateRefusesFilesOthersCanWrite() throws IOException {
+        Path file = Files.createTempFile("stockfish", ".bin");
+        try {
+            // A file only the user can write is accepted, one the group or others can write is refused
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwx------"));
+            Stockfish.checkPrivate(file);
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxrwxrwx"));
+            assertThrows(IOException.class, () -> Stockfish.checkPrivate(file), "A file others can write should be refused.");
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxrwx---"));
+            assertThrows(IOException.class, () -> Stockfish.checkPrivate(file), "A file the group can write should be refused.");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testCheckPrivateRefusesSymbolicLinks() throws IOException {
+        Path file = Files.createTempFile("stockfish", ".bin");
+        Path link = file.resolveSibling(file.getFileName() + ".link");
+        try {
+            Files.createSymbolicLink(link, file);
+            assertThrows(IOException.class, () -> Stockfish.checkPrivate(link), "A link could point to another user's file.");
+        } finally {
+            Files.deleteIfExists(link);
+            Files.delete(file);
+        }
+    }
+
     @Test
     void testStartEngineFailure() {
         // Simulate the failure of extracting the Stockfish executable by deleting it from resources
@@ -87,4 +120,39 @@ class StockfishTest {
         boolean started = stockfish.startEngine();
         assertFalse(started, "Stockfish engine should fail to start if executable is not found.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testHardLimitSendsStop() throws Exception {
+        // A fake engine that never ends its search on its own, but answers stop
+        Path script = Files.createTempFile("fake-engine", ".sh");
+        Files.writeString(script, "#!/bin/sh\n"
+                + "while read line; do\n"
+                + "  case \"$line\" in\n"
+                + "    go*) echo \"info depth 1 score cp 20 pv e2e4\" ;;\n"
+                + "    stop) echo \"bestmove e2e4\" ;;\n"
+                + "    quit) exit 0 ;;\n"
+                + "  esac\n"
+                + "done\n");
+        assertTrue(script.toFile().setExecutable(true));
+        script.toFile().deleteOnExit();
+
+        stockfish = new Stockfish() {
+            @Override
+            File extractStockfishExe() {
+                return script.toFile();
+            }
+        };
+        assertTrue(stockfish.startEngine());
+        try {
+            long start = System.nanoTime();
+            List<String> lines = stockfish.search(SearchLimits.moveTime(100), true);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals("bestmove e2e4", lines.get(lines.size() - 1), "The final best move should be collected after stop.");
+            assertTrue(lines.contains("info depth 1 score cp 20 pv e2e4"));
+            assertTrue(elapsedMillis >= 100 && elapsedMillis < 2000, "The search should end at its hard limit: " + elapsedMillis + " ms");
+        } finally {
+            stockfish.stopEngine();
+        }
+    }
+}
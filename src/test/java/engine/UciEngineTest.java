@@ -0,0 +1,119 @@
+package engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class UciEngineTest {
+
+    @TempDir
+    Path directory;
+
+    private Path log;
+    private UciEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // A fake engine declaring the usual options and logging the commands it receives
+        log = directory.resolve("commands.log");
+        Path script = directory.resolve("fake-engine.sh");
+        Files.writeString(script, "#!/bin/sh\n"
+                + "while read line; do\n"
+                + "  echo \"$line\" >> '" + log + "'\n"
+                + "  case \"$line\" in\n"
+                + "    uci) echo \"id name Fake 1.0\"\n"
+                + "         echo \"option name Threads type spin default 1 min 1 max 1024\"\n"
+                + "         echo \"option name Hash type spin default 16 min 1 max 33554432\"\n"
+                + "         echo \"option name Clear Hash type button\"\n"
+                + "         echo \"option name Ponder type check default false\"\n"
+                + "         echo \"option name MultiPV type spin default 1 min 1 max 500\"\n"
+                + "         echo \"option name Style type combo default Normal var Solid var Normal var Risky\"\n"
+                + "         echo \"option name Debug Log File type string default <empty>\"\n"
+                + "         echo \"uciok\" ;;\n"
+                + "    isready) echo \"readyok\" ;;\n"
+                + "    go*) echo \"bestmove e2e4\" ;;\n"
+                + "    quit) exit 0 ;;\n"
+                + "  esac\n"
+                + "done\n");
+        assertTrue(script.toFile().setExecutable(true));
+
+        engine = new UciEngine(script);
+        assertTrue(engine.startEngine(), "The engine should start from its binary path.");
+        engine.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.stopEngine();
+    }
+
+    @Test
+    void testParsesOptions() {
+        assertEquals("Fake 1.0", engine.getName());
+        assertEquals(7, engine.getOptions().size(), "Every declared option should be read: " + engine.getOptions());
+
+        UciOption hash = engine.getOption("hash");
+        assertNotNull(hash, "Option names should be case-insensitive.");
+        assertEquals(UciOption.Type.SPIN, hash.getType());
+        assertEquals("16", hash.getDefaultValue());
+        assertEquals(1, hash.getMin());
+        assertEquals(33554432, hash.getMax());
+
+        // Names may contain spaces and keywords
+        assertEquals(UciOption.Type.BUTTON, engine.getOption("Clear Hash").getType());
+        assertEquals("<empty>", engine.getOption("Debug Log File").getDefaultValue());
+        assertEquals(List.of("Solid", "Normal", "Risky"), engine.getOption("Style").getValues());
+    }
+
+    @Test
+    void testSetOptions() throws Exception {
+        engine.setThreads(8);
+        engine.setHash(1024);
+        engine.setMultiPv(3);
+        engine.setOption("Clear Hash", null);
+        engine.setOption("Style", "Risky");
+
+        List<String> commands = Files.readAllLines(log);
+        assertTrue(commands.contains("setoption name Threads value 8"), "Commands: " + commands);
+        assertTrue(commands.contains("setoption name Hash value 1024"), "Commands: " + commands);
+        assertTrue(commands.contains("setoption name MultiPV value 3"), "Commands: " + commands);
+        assertTrue(commands.contains("setoption name Clear Hash"), "A button has no value: " + commands);
+        assertEquals("e2e4", engine.getBestMove("8/8/8/8/8/8/4P3/4K2k w - - 0 1", 1));
+    }
+
+    @Test
+    void testRejectsInvalidOptions() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> engine.setOption("Contempt", "20"), "Unknown options should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> engine.setThreads(0), "Values below the minimum should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> engine.setMultiPv(501), "Values above the maximum should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> engine.setOption("Ponder", "yes"), "A check option takes true or false.");
+        assertThrows(IllegalArgumentException.class, () -> engine.setOption("Style", "Wild"), "A combo option takes one of its values.");
+
+        // Nothing invalid should have reached the engine
+        assertTrue(Files.readAllLines(log).stream().noneMatch(command -> command.startsWith("setoption")));
+    }
+
+    @Test
+    void testParseBestMoveLines() {
+        assertEquals("e2e4", UciEngine.parseBestMove("bestmove e2e4 ponder e7e5"));
+        assertEquals("e7e5", UciEngine.parsePonderMove("bestmove e2e4 ponder e7e5"));
+        assertEquals("e7e8q", UciEngine.parseBestMove("bestmove e7e8q"));
+        assertNull(UciEngine.parsePonderMove("bestmove e7e8q"), "A line without ponder move has none.");
+        assertNull(UciEngine.parseBestMove("bestmove (none)"), "A position without legal move has no best move.");
+        assertNull(UciEngine.parsePonderMove("bestmove (none)"));
+        assertNull(UciEngine.parseBestMove("bestmove"));
+    }
+
+    @Test
+    void testParseInvalidOptionLines() {
+        assertNull(UciOption.parse("option name Hash"), "A declaration without type is invalid.");
+        assertNull(UciOption.parse("option name Hash type spin default 16 min one max 2"), "Bounds should be numbers.");
+        assertNull(UciOption.parse("info depth 1"));
+    }
+}
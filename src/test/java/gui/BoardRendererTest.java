@@ -0,0 +1,58 @@
+package gui;
+
+import elements.Game;
+import elements.Position;
+import elements.Square;
+import org.junit.jupiter.api.Test;
+import pieces.Knight;
+import pieces.Queen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+
+class BoardRendererTest {
+
+    @Test
+    void testSpritesAreCachedPerSquareSize() {
+        // Test that sprites are scaled once per square size
+        BoardRenderer renderer = new BoardRenderer();
+        BufferedImage sprite = renderer.getSprite(Queen.WHITE, 40);
+        assertEquals(40, sprite.getWidth());
+        assertSame(sprite, renderer.getSprite(Queen.WHITE, 40), "The sprite should be reused for the same size.");
+        assertNotSame(renderer.getSprite(Queen.WHITE, 40), renderer.getSprite(Queen.BLACK, 40), "Each piece has its own sprite.");
+
+        BufferedImage resized = renderer.getSprite(Queen.WHITE, 60);
+        assertEquals(60, resized.getWidth(), "A new square size should scale the sprites again.");
+    }
+
+    @Test
+    void testRenderWithoutDisplay() {
+        // Test an image of the starting position with white at the bottom, then with black at the bottom
+        BoardRenderer renderer = new BoardRenderer();
+        Position position = new Position();
+        BufferedImage image = renderer.render(position, Game.Color.WHITE, 20);
+        assertEquals(160, image.getWidth());
+        assertEquals(160, image.getHeight());
+
+        // The corners of the squares are not covered by the pieces
+        assertEquals(BoardRenderer.DARK_SQUARE.getRGB(), image.getRGB(0, 159), "a1 is a dark square at the bottom left.");
+        assertEquals(BoardRenderer.LIGHT_SQUARE.getRGB(), image.getRGB(159, 159), "h1 is a light square at the bottom right.");
+        assertEquals(BoardRenderer.LIGHT_SQUARE.getRGB(), image.getRGB(90, 90), "e4 is an empty light square.");
+        assertNotEquals(BoardRenderer.DARK_SQUARE.getRGB(), image.getRGB(30, 150), "A knight stands on b1.");
+
+        BufferedImage flipped = renderer.render(position, Game.Color.BLACK, 20);
+        assertEquals(image.getRGB(30, 150), flipped.getRGB(130, 10), "The knight on b1 is at the top right when black is at the bottom.");
+    }
+
+    @Test
+    void testBoardCoordinates() {
+        // Test the row and the column of squares from each side
+        Square b1 = Square.fromName("b1");
+        assertEquals(1, BoardRenderer.column(b1, Game.Color.WHITE));
+        assertEquals(7, BoardRenderer.row(b1, Game.Color.WHITE));
+        assertEquals(6, BoardRenderer.column(b1, Game.Color.BLACK));
+        assertEquals(0, BoardRenderer.row(b1, Game.Color.BLACK));
+        assertNotNull(new BoardRenderer().getSprite(Knight.BLACK, 1), "Tiny squares still get a sprite.");
+    }
+}
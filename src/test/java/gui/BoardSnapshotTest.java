@@ -0,0 +1,35 @@
+package gui;
+
+import elements.Game;
+import elements.Player;
+import elements.Square;
+import org.junit.jupiter.api.Test;
+import pieces.Pawn;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardSnapshotTest {
+
+    @Test
+    void testSnapshotIsNotChangedByLaterMoves() {
+        // Test that a snapshot keeps showing its position after the game goes on
+        Game game = new Game(Player.ColorOption.WHITE);
+        BoardSnapshot snapshot = BoardSnapshot.of(game, Square.fromName("e2"));
+        game.playMove("e2e4");
+
+        assertSame(Pawn.WHITE, snapshot.getPosition().getPiece(Square.fromName("e2")), "The snapshot should keep the pawn on e2.");
+        assertNull(snapshot.getPosition().getPiece(Square.fromName("e4")));
+        assertEquals(Square.fromName("e2"), snapshot.getSelectedSquare());
+        assertEquals(Game.Color.WHITE, snapshot.getStatus().getSideToMove());
+    }
+
+    @Test
+    void testCheckSquare() {
+        // Test that the king in check is highlighted, after 1. e4 f6 2. Qh5+
+        Game game = new Game(Player.ColorOption.WHITE);
+        assertNull(BoardSnapshot.of(game, null).getCheckSquare(), "No king is in check at the start.");
+
+        for (String move : new String[]{"e2e4", "f7f6", "d1h5"}) game.playMove(move);
+        assertEquals(Square.fromName("e8"), BoardSnapshot.of(game, null).getCheckSquare());
+    }
+}
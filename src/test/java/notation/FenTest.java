@@ -0,0 +1,105 @@
+package notation;
+
+import elements.Game;
+import elements.Player;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+class FenTest {
+
+    @Test
+    void testStartPosition() {
+        // Test the FEN of the starting position
+        Game game = new Game(Player.ColorOption.WHITE);
+        assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", Fen.append(game, new StringBuilder()).toString());
+    }
+
+    @Test
+    void testEnPassantTarget() {
+        // Test that a two-square pawn move sets the en passant square and a one-square move clears it
+        Game game = new Game(Player.ColorOption.WHITE);
+        game.playMove("e2e4");
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", game.FENNotation());
+        game.playMove("d7d6");
+        assertTrue(game.FENNotation().contains(" w KQkq - "), "A one-square pawn move has no en passant square.");
+    }
+
+    @Test
+    void testAppendsToBuilder() {
+        // Test that the FEN is appended after the existing content of the builder
+        Game game = new Game(Player.ColorOption.WHITE);
+        StringBuilder command = new StringBuilder("position fen ");
+        assertSame(command, Fen.append(game, command));
+        assertEquals("position fen " + game.FENNotation(), command.toString());
+    }
+
+    @Test
+    void testWriteBytes() {
+        // Test that the bytes written match the string, at an offset in the array
+        Game game = new Game(Player.ColorOption.WHITE);
+        for (String move : Arrays.asList("e2e4", "c7c5", "g1f3", "d7d6", "f1b5", "c8d7", "e1g1")) game.playMove(move);
+
+        byte[] buffer = new byte[4 + Fen.MAX_LENGTH];
+        int end = Fen.write(game, buffer, 4);
+        assertEquals(game.FENNotation(), new String(buffer, 4, end - 4, StandardCharsets.US_ASCII));
+        assertTrue(game.FENNotation().contains(" b kq - 3 4"), "White has castled and the last move was not a pawn move.");
+    }
+
+    @Test
+    void testParseRoundTrip() {
+        // Test that parsing a FEN and writing it back gives the same FEN
+        String[] fens = {
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "r1bqk2r/pppp1ppp/2n2n2/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4",
+                "rnbqkbnr/pppp1ppp/8/8/3pP3/8/PPP2PPP/RNBQKBNR b Kq e3 0 3",
+                "8/8/8/8/8/8/8/K6k w - - 12 60"
+        };
+        for (String fen : fens) assertEquals(fen, Fen.parse(fen).FENNotation());
+    }
+
+    @Test
+    void testPlayedGameRoundTrip() {
+        // Test that the fullmove number of a played game counts the moves to play, so its FEN parses back to it
+        Game game = new Game(Player.ColorOption.WHITE);
+        assertTrue(game.playMove("e2e4"));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", game.FENNotation());
+        assertTrue(game.playMove("e7e5"));
+        assertEquals("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e6 0 2", game.FENNotation(),
+                "The fullmove number should be incremented after Black's move.");
+
+        for (String move : new String[]{"g1f3", "b8c6", "f1c4"}) {
+            assertTrue(game.playMove(move));
+            Game parsed = Fen.parse(game.FENNotation());
+            assertEquals(game.FENNotation(), parsed.FENNotation(), "The FEN after " + move + " should parse back to itself.");
+            assertEquals(game.currentPosition.positionNumber, parsed.currentPosition.positionNumber,
+                    "The parsed game should be at the same ply.");
+        }
+    }
+
+    @Test
+    void testParsedGameFollowsTheRules() {
+        // Test that the side to move, castling rights and en passant square of a parsed FEN are played by the rules
+        Game game = Fen.parse("rnbqkbnr/pppp1ppp/8/8/3pP3/8/PPP2PPP/RNBQKBNR b Kq e3 0 3");
+        assertTrue(game.legalMoves().contains("d4e3"), "The en passant capture should be legal.");
+        assertTrue(game.playMove("d4e3"));
+        assertNull(game.currentPosition.getPiece(game.getSquare("e4")), "The captured pawn should be removed.");
+
+        game = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w Kq - 0 1");
+        assertTrue(game.legalMoves().contains("e1g1"));
+        assertFalse(game.legalMoves().contains("e1c1"), "White has lost its queen-side castling right.");
+    }
+
+    @Test
+    void testParseRejectsInvalidFen() {
+        // Test that malformed FENs are rejected
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e3 0 1"));
+    }
+}
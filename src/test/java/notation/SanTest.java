@@ -0,0 +1,123 @@
+package notation;
+
+import elements.Game;
+import elements.Player;
+import elements.Position;
+import elements.Square;
+import org.junit.jupiter.api.Test;
+import pieces.King;
+import pieces.Pawn;
+import pieces.PieceType;
+import pieces.Queen;
+import pieces.Rook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+class SanTest {
+
+    /**
+     * Returns a game with white to move and only the two kings on e1 and e8.
+     */
+    private static Game emptyGame() {
+        Game game = new Game(Player.ColorOption.WHITE);
+        Position position = game.currentPosition;
+        for (int index = 0; index < 64; index++) position.setPiece(Square.of(index), null);
+        position.castlingRights = 0;
+        position.setPiece(Square.fromName("e1"), King.WHITE);
+        position.setPiece(Square.fromName("e8"), King.BLACK);
+        return game;
+    }
+
+    @Test
+    void testMoveText() {
+        // Test pawn moves, piece moves and captures from the starting position
+        Game game = new Game(Player.ColorOption.WHITE);
+        assertEquals("e4", San.toSan(game, "e2e4"));
+        assertEquals("Nf3", San.toSan(game, "g1f3"));
+
+        for (String move : Arrays.asList("e2e4", "d7d5")) game.playMove(move);
+        assertEquals("exd5", San.toSan(game, "e4d5"));
+        assertEquals("Bb5+", San.toSan(game, "f1b5"));
+        assertThrows(IllegalArgumentException.class, () -> San.toSan(game, "e4e6"), "An illegal move has no SAN.");
+    }
+
+    @Test
+    void testDisambiguation() {
+        // Test queens on a1, a3 and c1, which can all move to b2
+        Game game = emptyGame();
+        Position position = game.currentPosition;
+        for (String square : Arrays.asList("a1", "a3", "c1")) position.setPiece(Square.fromName(square), Queen.WHITE);
+
+        assertEquals("Qa1b2", San.toSan(game, "a1b2"), "Both the file and the rank are needed.");
+        assertEquals("Q3b2", San.toSan(game, "a3b2"), "The rank is needed.");
+        assertEquals("Qcb2", San.toSan(game, "c1b2"), "The file is enough.");
+        assertEquals("Qd1", San.toSan(game, "c1d1"), "No other queen can reach d1.");
+    }
+
+    @Test
+    void testCastling() {
+        // Test both castlings once the squares between the king and the rooks are empty
+        Game game = emptyGame();
+        Position position = game.currentPosition;
+        position.setPiece(Square.fromName("a1"), Rook.WHITE);
+        position.setPiece(Square.fromName("h1"), Rook.WHITE);
+        position.castlingRights = Position.WHITE_KING_SIDE | Position.WHITE_QUEEN_SIDE;
+
+        assertEquals(San.KING_SIDE_CASTLING, San.toSan(game, "e1g1"));
+        assertEquals(San.QUEEN_SIDE_CASTLING, San.toSan(game, "e1c1"));
+        assertEquals("e1g1", San.toUci(game, "O-O"));
+        assertEquals("e1c1", San.toUci(game, "0-0-0"), "Castling can be written with zeros.");
+    }
+
+    @Test
+    void testPromotion() {
+        // Test a pawn on e7 promoting on e8 or capturing a rook on d8
+        Game game = emptyGame();
+        Position position = game.currentPosition;
+        position.setPiece(Square.fromName("e8"), null);
+        position.setPiece(Square.fromName("h8"), King.BLACK);
+        position.setPiece(Square.fromName("e7"), Pawn.WHITE);
+        position.setPiece(Square.fromName("d8"), Rook.BLACK);
+
+        assertEquals("e8=Q", San.moveText(game, Square.fromName("e7"), Square.fromName("e8"), PieceType.QUEEN));
+        assertEquals("exd8=N", San.moveText(game, Square.fromName("e7"), Square.fromName("d8"), PieceType.KNIGHT));
+        assertEquals("e7e8q", San.toUci(game, "e8=Q"));
+        assertEquals("e7d8r", San.toUci(game, "exd8R"), "The '=' of a promotion is optional.");
+    }
+
+    @Test
+    void testCheckmateSuffix() {
+        // Test the fool's mate
+        Game game = new Game(Player.ColorOption.WHITE);
+        for (String move : Arrays.asList("f2f3", "e7e5", "g2g4")) game.playMove(move);
+        assertEquals("Qh4#", San.toSan(game, "d8h4"));
+        assertEquals("d8h4", San.toUci(game, "Qh4#"));
+    }
+
+    @Test
+    void testToUciDisambiguation() {
+        // Test two knights that can both reach d4
+        Game game = new Game(Player.ColorOption.WHITE);
+        for (String move : Arrays.asList("g1f3", "h7h6", "b1c3", "h6h5", "c3b5", "h5h4")) game.playMove(move);
+
+        assertNull(San.toUci(game, "Nd4"), "Two knights can reach d4.");
+        assertEquals("f3d4", San.toUci(game, "Nfd4"));
+        assertEquals("b5d4", San.toUci(game, "Nbd4"));
+        assertEquals("b5c7", San.toUci(game, "Nxc7"));
+        assertEquals("e2e4", San.toUci(game, "e2e4"), "UCI moves are accepted as they are.");
+        assertNull(San.toUci(game, "Ke3"), "An illegal move has no UCI notation.");
+    }
+
+    @Test
+    void testRoundTrip() {
+        // Test that the SAN of every legal move parses back to the same move
+        Game game = new Game(Player.ColorOption.WHITE);
+        for (String move : Arrays.asList("e2e4", "d7d5", "e4d5", "g8f6", "b1c3", "b8d7", "g1e2")) game.playMove(move);
+
+        for (String move : game.legalMoves()) {
+            assertEquals(move, San.toUci(game, San.toSan(game, move)), "The SAN of " + move + " should parse back.");
+        }
+    }
+}
@@ -11,7 +11,7 @@ class KingTest {
 
     @BeforeEach
     void setUp() {
-        whiteKing = new King(Game.Color.WHITE);  // Create white King
+        whiteKing = King.WHITE;  // Create white King
     }
 
     @Test
@@ -20,6 +20,6 @@ class KingTest {
         King copiedKing = (King) whiteKing.copy();
         assertNotNull(copiedKing, "Copy of the King should not be null.");
         assertEquals(copiedKing.color, whiteKing.color, "Copied King should have the same color.");
-        assertEquals(copiedKing.isFirstMove, whiteKing.isFirstMove, "Copied King should have the same first move status.");
+        assertSame(whiteKing, copiedKing, "Pieces are immutable, so the copy should be the shared King.");
     }
 }
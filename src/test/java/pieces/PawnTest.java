@@ -18,59 +18,93 @@ class PawnTest {
         game = new Game(Player.ColorOption.WHITE);
         position = new Position();
         game.currentPosition = position;
-        startSquare = position.board[1][0];  // White pawn starting position
-        endSquareWhite = position.board[2][0]; // White pawn moves 1 square
+        startSquare = Square.of(1, 0);  // White pawn starting position
+        endSquareWhite = Square.of(2, 0); // White pawn moves 1 square
     }
 
     @Test
     void testPawnInitialMoveWhite() {
-        Pawn pawn = new Pawn(Game.Color.WHITE);
+        Pawn pawn = Pawn.WHITE;
         assertTrue(pawn.allowedMove(startSquare, endSquareWhite, game), "Pawn should be able to move 2 squares forward on first move.");
     }
 
     @Test
     void testPawnInitialMoveBlack() {
-        Pawn pawn = new Pawn(Game.Color.BLACK);
-        assertTrue(pawn.allowedMove(position.board[6][0], position.board[5][0], game), "Black pawn should be able to move 1 square forward.");
+        Pawn pawn = Pawn.BLACK;
+        assertTrue(pawn.allowedMove(Square.of(6, 0), Square.of(5, 0), game), "Black pawn should be able to move 1 square forward.");
     }
 
     @Test
     void testPawnMoveAfterFirst() {
-        Pawn pawn = new Pawn(Game.Color.WHITE);
-        pawn.isFirstMove = false;
-        assertTrue(pawn.allowedMove(startSquare, position.board[2][0], game), "Pawn should be able to move 1 square after its first move.");
+        // A pawn off its starting rank has already moved, so it may only advance one square
+        Pawn pawn = Pawn.WHITE;
+        position.setPiece(Square.of(2, 0), pawn);
+        position.setPiece(Square.of(1, 0), null);
+        assertTrue(pawn.allowedMove(Square.of(2, 0), Square.of(3, 0), game), "Pawn should be able to move 1 square after its first move.");
+        assertFalse(pawn.allowedMove(Square.of(2, 0), Square.of(4, 0), game), "Pawn should not be able to move 2 squares after its first move.");
     }
 
     @Test
     void testEnPassantWhite() {
         // Simulate opponent's pawn moving two squares
-        Pawn opponentPawn = new Pawn(Game.Color.BLACK);
-        opponentPawn.makeMove(position.board[6][1], position.board[4][1], game);
+        Pawn opponentPawn = Pawn.BLACK;
+        opponentPawn.makeMove(Square.of(6, 1), Square.of(4, 1), game);
 
         // Now check if White pawn can perform en passant
-        Pawn whitePawn = new Pawn(Game.Color.WHITE);
-        boolean enPassant = whitePawn.enPassant(position.board[4][0], game);
+        Pawn whitePawn = Pawn.WHITE;
+        boolean enPassant = whitePawn.enPassant(Square.of(4, 0), game);
         assertTrue(enPassant, "White pawn should be able to perform en passant.");
     }
 
     @Test
     void testEnPassantBlack() {
         // Simulate opponent's pawn moving two squares
-        Pawn opponentPawn = new Pawn(Game.Color.WHITE);
-        opponentPawn.makeMove(position.board[1][1], position.board[3][1], game);
+        Pawn opponentPawn = Pawn.WHITE;
+        opponentPawn.makeMove(Square.of(1, 1), Square.of(3, 1), game);
 
         // Now check if Black pawn can perform en passant
-        Pawn blackPawn = new Pawn(Game.Color.BLACK);
-        boolean enPassant = blackPawn.enPassant(position.board[3][0], game);
+        Pawn blackPawn = Pawn.BLACK;
+        boolean enPassant = blackPawn.enPassant(Square.of(3, 0), game);
         assertTrue(enPassant, "Black pawn should be able to perform en passant.");
     }
 
     @Test
     void testCopyPawn() {
-        Pawn originalPawn = new Pawn(Game.Color.WHITE);
+        Pawn originalPawn = Pawn.WHITE;
         Pawn copiedPawn = (Pawn) originalPawn.copy();
 
         assertEquals(originalPawn.color, copiedPawn.color, "The copied pawn should have the same color.");
-        assertEquals(originalPawn.isFirstMove, copiedPawn.isFirstMove, "The copied pawn should have the same first move status.");
+        assertSame(originalPawn, copiedPawn, "Pieces are immutable, so the copy should be the shared pawn.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testPromoteWithoutDialog() {
+        // Clear a8 and put a white pawn on a7: the promotion piece is part of the move, so no dialog is needed
+        Pawn pawn = Pawn.WHITE;
+        position.setPiece(Square.of(6, 0), pawn);
+        position.setPiece(Square.of(7, 0), null);
+
+        pawn.promote(Square.of(6, 0), Square.of(7, 0), game, PieceType.ROOK);
+
+        assertTrue(position.getPiece(Square.of(7, 0)) instanceof Rook, "The pawn should be promoted to the chosen piece.");
+        assertTrue(position.isEmpty(Square.of(6, 0)), "The pawn should have left its square.");
+        assertEquals("a8=R", game.gameHistory.get(0).getMoveNotation());
+    }
+
+    @Test
+    void testPromoteRejectsPawnAndKing() {
+        Pawn pawn = Pawn.WHITE;
+        assertThrows(IllegalArgumentException.class, () -> pawn.promote(Square.of(6, 0), Square.of(7, 0), game, PieceType.KING));
+    }
+
+    @Test
+    void testMakeMoveToBackRankPromotesToQueen() {
+        Pawn pawn = Pawn.BLACK;
+        position.setPiece(Square.of(1, 7), pawn);
+        position.setPiece(Square.of(0, 7), null);
+        game.whiteMoves = false;
+
+        pawn.makeMove(Square.of(1, 7), Square.of(0, 7), game);
+        assertTrue(position.getPiece(Square.of(0, 7)) instanceof Queen, "Without a choice, the pawn should become a queen.");
+    }
+}
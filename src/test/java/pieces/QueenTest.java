@@ -16,15 +16,15 @@ class QueenTest {
     void setUp() {
         // Initialize the game and pieces
         game = new Game(Player.ColorOption.WHITE);
-        whiteQueen = new Queen(Game.Color.WHITE);
-        startSquare = new Square(); // Example start square for Queen (White Queen starting position)
-        endSquare = new Square(); // Example end square for Queen
+        whiteQueen = Queen.WHITE;
+        startSquare = Square.fromName("d3"); // Example start square for Queen, on an empty rank
+        endSquare = Square.fromName("d3"); // Example end square for Queen
     }
 
     @Test
     void testCheckEmptyPathHorizontal() {
         // Set up a situation where the path is empty horizontally
-        endSquare = new Square(); // Horizontal move from 'd' to 'h'
+        endSquare = Square.fromName("h3"); // Horizontal move from 'd' to 'h'
         boolean result = whiteQueen.checkEmptyPath(startSquare, endSquare, game);
         assertTrue(result, "The path should be empty horizontally.");
     }
@@ -32,7 +32,7 @@ class QueenTest {
     @Test
     void testCheckEmptyPathVertical() {
         // Set up a situation where the path is empty vertically
-        endSquare = new Square(); // Vertical move from '1d' to '4d'
+        endSquare = Square.fromName("d6"); // Vertical move from '3d' to '6d'
         boolean result = whiteQueen.checkEmptyPath(startSquare, endSquare, game);
         assertTrue(result, "The path should be empty vertically.");
     }
@@ -40,7 +40,7 @@ class QueenTest {
     @Test
     void testCheckEmptyPathDiagonal() {
         // Set up a situation where the path is empty diagonally
-        endSquare = new Square(); // Diagonal move from '1d' to '4g'
+        endSquare = Square.fromName("g6"); // Diagonal move from '3d' to '6g'
         boolean result = whiteQueen.checkEmptyPath(startSquare, endSquare, game);
         assertTrue(result, "The path should be empty diagonally.");
     }
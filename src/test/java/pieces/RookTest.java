@@ -16,15 +16,15 @@ class RookTest {
     void setUp() {
         // Initialize the game and pieces
         game = new Game(Player.ColorOption.WHITE);
-        whiteRook = new Rook(Game.Color.WHITE);
-        startSquare = new Square(); // Example start square for Rook (White Rook starting position)
-        endSquare = new Square(); // Example end square for Rook
+        whiteRook = Rook.WHITE;
+        startSquare = Square.fromName("a3"); // Example start square for Rook, on an empty rank
+        endSquare = Square.fromName("a3"); // Example end square for Rook
     }
 
     @Test
     void testCheckEmptyPathHorizontal() {
         // Set up a situation where the path is empty horizontally
-        endSquare = new Square(); // Horizontal move from 'a' to 'd'
+        endSquare = Square.fromName("d3"); // Horizontal move from 'a' to 'd'
         boolean result = whiteRook.checkEmptyPath(startSquare, endSquare, game);
         assertTrue(result, "The path should be empty horizontally.");
     }
@@ -32,7 +32,7 @@ class RookTest {
     @Test
     void testCheckEmptyPathVertical() {
         // Set up a situation where the path is empty vertically
-        endSquare = new Square(); // Vertical move from '1a' to '4a'
+        endSquare = Square.fromName("a6"); // Vertical move from '3a' to '6a'
         boolean result = whiteRook.checkEmptyPath(startSquare, endSquare, game);
         assertTrue(result, "The path should be empty vertically.");
     }
@@ -44,6 +44,6 @@ class RookTest {
         assertNotNull(copiedRook, "The copied Rook should not be null.");
         assertEquals(whiteRook.getClass(), copiedRook.getClass(), "The copied piece should be of the same class.");
         assertEquals(whiteRook.color, copiedRook.color, "The copied Rook should have the same color.");
-        assertEquals(whiteRook.isFirstMove, ((Rook)copiedRook).isFirstMove, "The copied Rook should have the same first move status.");
+        assertSame(whiteRook, copiedRook, "Pieces are immutable, so the copy should be the shared Rook.");
     }
 }
\ No newline at end of file
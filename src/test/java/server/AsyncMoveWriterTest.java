@@ -0,0 +1,57 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+class AsyncMoveWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testCloseWritesEveryMove() throws Exception {
+        Path file = directory.resolve("moves.log");
+        AsyncMoveWriter writer = new AsyncMoveWriter(file);
+
+        // More moves than a batch, appended from two threads
+        int count = AsyncMoveWriter.MAX_BATCH_SIZE + 100;
+        Thread other = new Thread(() -> {
+            for (int ply = 1; ply <= count; ply++) writer.append(2, ply, "e7e5");
+        });
+        other.start();
+        for (int ply = 1; ply <= count; ply++) writer.append(1, ply, "e2e4");
+        other.join();
+        writer.close();
+
+        assertEquals(2L * count, writer.getWrittenCount());
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2 * count, lines.size(), "Every appended move should be written before close returns.");
+        assertTrue(lines.contains("1 1 e2e4"));
+        assertTrue(lines.contains("2 " + count + " e7e5"));
+        assertEquals("1 2 e2e4", lines.stream().filter(line -> line.startsWith("1 ")).skip(1).findFirst().orElse(null),
+                "The moves of a game should be written in order.");
+    }
+
+    @Test
+    void testReopenedLogGivesLastGameID() throws Exception {
+        Path file = directory.resolve("moves.log");
+        AsyncMoveWriter writer = new AsyncMoveWriter(file);
+        assertEquals(0, writer.getLastGameID(), "A new log holds no game.");
+        writer.append(7, 1, "e2e4");
+        writer.append(3, 1, "d2d4");
+        writer.close();
+        // A line cut short by a crash is skipped
+        Files.writeString(file, "12", StandardOpenOption.APPEND);
+
+        AsyncMoveWriter reopened = new AsyncMoveWriter(file);
+        reopened.close();
+        assertEquals(7, reopened.getLastGameID(), "The largest game id of the previous run should be read.");
+        assertThrows(IllegalStateException.class, () -> reopened.append(8, 1, "e2e4"), "A closed writer should refuse moves.");
+    }
+}
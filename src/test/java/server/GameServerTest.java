@@ -0,0 +1,166 @@
+package server;
+
+import analysis.EvaluatorPool;
+import analysis.MaterialEvaluator;
+import elements.Game;
+import elements.Player;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+class GameServerTest {
+
+    @TempDir
+    Path directory;
+
+    private EvaluatorPool engines;
+    private AsyncMoveWriter moveWriter;
+    private GameServer server;
+    private URI base;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        engines = new EvaluatorPool(2, MaterialEvaluator::new);
+        moveWriter = new AsyncMoveWriter(directory.resolve("moves.log"));
+        server = new GameServer(new InetSocketAddress("localhost", 0), engines, moveWriter);
+        server.start();
+        base = URI.create("http://localhost:" + server.getPort());
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        server.close();
+        moveWriter.close();
+        engines.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve(path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testPlayAgainstEngine() throws Exception {
+        HttpResponse<String> created = send("POST", "/games?engine=black", null);
+        assertEquals(201, created.statusCode());
+        String gameID = created.body().trim();
+        assertEquals(1, server.getGameCount());
+
+        // The engine's reply is in the position returned for the move
+        HttpResponse<String> moved = send("POST", "/games/" + gameID + "/moves", "e2e4");
+        assertEquals(200, moved.statusCode());
+        String[] state = moved.body().split("\n", -1);
+        assertTrue(state[0].contains(" w "), "White should be to move after the engine's reply: " + state[0]);
+        assertEquals("*", state[2]);
+
+        assertEquals(409, send("POST", "/games/" + gameID + "/moves", "e2e5").statusCode(), "An illegal move should be rejected.");
+        assertEquals(moved.body(), send("GET", "/games/" + gameID, null).body(), "The rejected move should not change the game.");
+
+        assertEquals(204, send("DELETE", "/games/" + gameID, null).statusCode());
+        assertEquals(0, server.getGameCount());
+        assertEquals(404, send("GET", "/games/" + gameID, null).statusCode(), "A deleted game should be gone.");
+
+        // Both moves were persisted by the writer
+        moveWriter.close();
+        List<String> lines = Files.readAllLines(directory.resolve("moves.log"));
+        assertEquals(2, lines.size());
+        assertEquals(gameID + " 1 e2e4", lines.get(0));
+    }
+
+    @Test
+    void testGameIDsContinueAcrossRuns() throws Exception {
+        String first = send("POST", "/games?engine=none", null).body().trim();
+        assertEquals(200, send("POST", "/games/" + first + "/moves", "e2e4").statusCode());
+
+        // A new run on the same log numbers its games after those of the previous run
+        server.close();
+        moveWriter.close();
+        moveWriter = new AsyncMoveWriter(directory.resolve("moves.log"));
+        server = new GameServer(new InetSocketAddress("localhost", 0), engines, moveWriter);
+        server.start();
+        base = URI.create("http://localhost:" + server.getPort());
+        String second = send("POST", "/games?engine=none", null).body().trim();
+        assertEquals(Long.parseLong(first) + 1, Long.parseLong(second), "A game id of the previous run should not be reused.");
+    }
+
+    @Test
+    void testBadRequests() throws Exception {
+        assertEquals(404, send("GET", "/games/42", null).statusCode(), "An unknown game should not be found.");
+        assertEquals(404, send("GET", "/games/abc", null).statusCode(), "A malformed identifier should not be found.");
+        assertEquals(400, send("POST", "/games?engine=green", null).statusCode(), "An unknown engine side should be rejected.");
+        assertEquals(405, send("PUT", "/games", null).statusCode());
+    }
+
+    @Test
+    void testDescribe() {
+        Game game = new Game(Player.ColorOption.WHITE);
+        String[] state = GameServer.describe(game).split("\n", -1);
+        assertEquals(game.FENNotation(), state[0]);
+        assertEquals(20, state[1].split(" ").length, "The starting position has 20 legal moves.");
+        assertEquals("*", state[2]);
+
+        for (String move : new String[]{"f2f3", "e7e5", "g2g4", "d8h4"}) game.playMove(move);
+        state = GameServer.describe(game).split("\n", -1);
+        assertEquals("", state[1], "A checkmated side has no legal move.");
+        assertEquals("0-1", state[2]);
+    }
+
+    @Test
+    void testMoveOnEngineTurnIsRejected() throws Exception {
+        // The engine plays white: a move for white is either on the engine's turn or, after its reply, illegal
+        String gameID = send("POST", "/games?engine=white", null).body().trim();
+        long start = System.nanoTime();
+        assertEquals(409, send("POST", "/games/" + gameID + "/moves", "e2e4").statusCode(), "A move for the engine's side should be rejected.");
+        assertTrue(System.nanoTime() - start < 10_000_000_000L, "The rejection should not wait for a timeout.");
+    }
+
+    @Test
+    void testTimedOutGamesAreClosed() throws Exception {
+        try (GameServer sweptServer = new GameServer(new InetSocketAddress("localhost", 0), engines, moveWriter,
+                Duration.ofMillis(1500), Duration.ofMillis(300))) {
+            sweptServer.start();
+            base = URI.create("http://localhost:" + sweptServer.getPort());
+
+            // A game played to the fool's mate is closed soon, and an untouched game after the idle timeout
+            String finished = send("POST", "/games?engine=none", null).body().trim();
+            for (String move : new String[]{"f2f3", "e7e5", "g2g4", "d8h4"}) send("POST", "/games/" + finished + "/moves", move);
+            String idle = send("POST", "/games?engine=none", null).body().trim();
+            assertEquals(2, sweptServer.getGameCount());
+
+            assertTrue(waitForGameCount(sweptServer, 1), "The finished game should be closed first.");
+            assertEquals(404, send("GET", "/games/" + finished, null).statusCode(), "The finished game should be gone.");
+            assertTrue(waitForGameCount(sweptServer, 0), "The idle game should be closed.");
+            assertEquals(404, send("GET", "/games/" + idle, null).statusCode(), "The idle game should be gone.");
+        }
+    }
+
+    private static boolean waitForGameCount(GameServer server, int count) throws InterruptedException {
+        for (int i = 0; i < 250 && server.getGameCount() != count; i++) Thread.sleep(20);
+        return server.getGameCount() == count;
+    }
+
+    @Test
+    void testLoadGenerator() throws Exception {
+        LoadGenerator.Report report = new LoadGenerator(base).run(4, 3, 7);
+        assertEquals(12, report.getMoveCount(), "Each game should play its three moves.");
+        assertTrue(report.getLatencyMillis(99) >= report.getLatencyMillis(50));
+        assertTrue(report.getMovesPerSecond() > 0);
+        assertEquals(0, server.getGameCount(), "The load generator should delete its games.");
+    }
+}
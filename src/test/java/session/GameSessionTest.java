@@ -0,0 +1,227 @@
+package session;
+
+import elements.Game;
+import elements.GameStatus;
+import elements.Move;
+import elements.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pieces.Piece;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class GameSessionTest {
+    /// The executor running the sessions of a test.
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /**
+     * A listener recording the moves as events, for the test thread to wait on.
+     */
+    private static class RecordingListener implements GameSession.Listener {
+        /// The events received: "start", the move notations, "illegal <move>" and "over".
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        /// The pieces captured by the moves.
+        final List<Piece> capturedPieces = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onStart(Game game) {
+            events.add("start");
+        }
+
+        @Override
+        public void onMove(Game game, Move move, Piece capturedPiece) {
+            if (capturedPiece != null) capturedPieces.add(capturedPiece);
+            events.add(move.getMoveNotation());
+        }
+
+        @Override
+        public void onIllegalMove(Game game, String uciMove) {
+            events.add("illegal " + uciMove);
+        }
+
+        @Override
+        public void onGameOver(Game game, GameStatus status) {
+            events.add("over");
+        }
+
+        /**
+         * Waits for the next event.
+         */
+        String next() throws InterruptedException {
+            String event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "An event should arrive.");
+            return event;
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testUserMovesAreSerialized() throws InterruptedException {
+        // Test moves submitted without an engine, including an illegal one and a capture
+        RecordingListener listener = new RecordingListener();
+        GameSession session = new GameSession(new Game(Player.ColorOption.WHITE), null, null, executor, listener);
+        session.start();
+        for (String move : new String[]{"e2e4", "e2e4", "d7d5", "e4d5"}) session.submitMove(move);
+
+        assertEquals("start", listener.next());
+        assertEquals("e4", listener.next());
+        assertEquals("illegal e2e4", listener.next(), "The pawn already left e2.");
+        assertEquals("d5", listener.next());
+        assertEquals("exd5", listener.next());
+        assertEquals(1, listener.capturedPieces.size(), "The capture should report the captured pawn.");
+    }
+
+    @Test
+    void testEngineReplies() throws InterruptedException {
+        // Test that the engine plays black after each white move, until the fool's mate
+        RecordingListener listener = new RecordingListener();
+        GameSession.Engine engine = copy -> copy.gameHistory.size() == 1 ? "e7e5" : "d8h4";
+        GameSession session = new GameSession(new Game(Player.ColorOption.WHITE), Game.Color.BLACK, engine, executor, listener);
+        session.start();
+        assertEquals("start", listener.next());
+
+        session.submitMove("f2f3");
+        assertEquals("f3", listener.next());
+        assertEquals("e5", listener.next());
+        session.submitMove("g2g4");
+        assertEquals("g4", listener.next());
+        assertEquals("Qh4#", listener.next());
+        assertEquals("over", listener.next());
+
+        session.submitMove("a2a3");
+        assertEquals("illegal a2a3", listener.next(), "No move is accepted after the game is over.");
+    }
+
+    @Test
+    void testStaleEngineMoveIsDropped() throws Exception {
+        // Test an engine reply arriving after the session was closed during the search
+        RecordingListener listener = new RecordingListener();
+        CountDownLatch searching = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        CountDownLatch replied = new CountDownLatch(1);
+        GameSession.Engine engine = copy -> {
+            searching.countDown();
+            closed.await();
+            replied.countDown();
+            return "e7e5";
+        };
+        GameSession session = new GameSession(new Game(Player.ColorOption.WHITE), Game.Color.BLACK, engine, executor, listener);
+        session.start();
+        session.submitMove("e2e4");
+        assertEquals("start", listener.next());
+        assertEquals("e4", listener.next());
+
+        assertTrue(searching.await(5, TimeUnit.SECONDS), "The engine should be searching.");
+        session.close();
+        closed.countDown();
+        assertTrue(replied.await(5, TimeUnit.SECONDS), "The engine should reply.");
+        assertNull(listener.events.poll(200, TimeUnit.MILLISECONDS), "The engine's e5 should be dropped.");
+    }
+
+    @Test
+    void testUserMoveOnEngineTurnIsRejected() throws Exception {
+        // Test a move submitted for white while the engine plays white and is searching
+        RecordingListener listener = new RecordingListener();
+        CountDownLatch searching = new CountDownLatch(1);
+        CountDownLatch rejected = new CountDownLatch(1);
+        GameSession.Engine engine = copy -> {
+            searching.countDown();
+            rejected.await();
+            return "d2d4";
+        };
+        GameSession session = new GameSession(new Game(Player.ColorOption.BLACK), Game.Color.WHITE, engine, executor, listener);
+        session.start();
+        assertEquals("start", listener.next());
+        assertTrue(searching.await(5, TimeUnit.SECONDS), "The engine should be searching.");
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> session.submitMove("e2e4").get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof GameSession.WrongTurnException, "A move on the engine's turn should be rejected.");
+        rejected.countDown();
+        assertEquals("d4", listener.next(), "The engine should still play its move.");
+        assertEquals(2, session.submitMove("d7d5").get(5, TimeUnit.SECONDS), "The user should play on the user's turn.");
+    }
+
+    @Test
+    void testFutures() throws Exception {
+        // Test the futures of a submitted move, of a wait for the engine's reply and of a query
+        GameSession.Engine engine = copy -> "e7e5";
+        GameSession session = new GameSession(new Game(Player.ColorOption.WHITE), Game.Color.BLACK, engine, executor, new RecordingListener());
+        session.start();
+
+        assertEquals(-1, session.submitMove("e2e5").get(5, TimeUnit.SECONDS), "An illegal move should complete with -1.");
+        int ply = session.submitMove("e2e4").get(5, TimeUnit.SECONDS);
+        assertEquals(1, ply);
+        assertEquals(2, session.awaitPly(ply + 1).get(5, TimeUnit.SECONDS), "The engine should reply.");
+        assertEquals("e5", session.ask(game -> game.gameHistory.get(1).getMoveNotation()).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testClosedSessionDropsMessages() throws InterruptedException {
+        // Test that nothing happens after a session is closed
+        RecordingListener listener = new RecordingListener();
+        GameSession session = new GameSession(new Game(Player.ColorOption.WHITE), null, null, executor, listener);
+        session.close();
+        session.start();
+        session.submitMove("e2e4");
+        assertNull(listener.events.poll(200, TimeUnit.MILLISECONDS), "A closed session should not send events.");
+    }
+
+    @Test
+    void testClosedSessionFailsFutures() throws Exception {
+        // Test that the futures pending at close and those asked afterwards are completed exceptionally
+        CountDownLatch searching = new CountDownLatch(1);
+        GameSession.Engine engine = copy -> {
+            searching.countDown();
+            new CountDownLatch(1).await();
+            return null;
+        };
+        GameSession session = new GameSession(new Game(Player.ColorOption.WHITE), Game.Color.BLACK, engine, executor, new RecordingListener());
+        session.start();
+        assertEquals(1, session.submitMove("e2e4").get(5, TimeUnit.SECONDS));
+        CompletableFuture<Integer> reply = session.awaitPly(2);
+        assertTrue(searching.await(5, TimeUnit.SECONDS), "The engine should be searching.");
+
+        session.close();
+        assertThrows(ExecutionException.class, () -> reply.get(5, TimeUnit.SECONDS), "A pending wait should fail at close.");
+        assertThrows(ExecutionException.class, () -> session.submitMove("d2d4").get(5, TimeUnit.SECONDS), "A move after close should fail.");
+        assertThrows(ExecutionException.class, () -> session.ask(game -> game.gameHistory.size()).get(5, TimeUnit.SECONDS),
+                "A query after close should fail.");
+    }
+
+    @Test
+    void testEngineFailureIsReported() throws Exception {
+        // Test that an engine error reaches the listener and the futures waiting for the engine's move
+        List<Exception> failures = new CopyOnWriteArrayList<>();
+        GameSession.Listener listener = new RecordingListener() {
+            @Override
+            public void onEngineFailure(Game game, Exception error) {
+                failures.add(error);
+            }
+        };
+        GameSession.Engine engine = copy -> {
+            throw new IllegalStateException("The engine crashed.");
+        };
+        GameSession session = new GameSession(new Game(Player.ColorOption.WHITE), Game.Color.BLACK, engine, executor, listener);
+        session.start();
+        assertEquals(1, session.submitMove("e2e4").get(5, TimeUnit.SECONDS));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> session.awaitPly(2).get(5, TimeUnit.SECONDS));
+        assertEquals("The engine crashed.", error.getCause().getMessage(), "The wait should fail with the engine's error.");
+        assertEquals(1, failures.size(), "The listener should be told once.");
+    }
+}
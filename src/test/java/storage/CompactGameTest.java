@@ -0,0 +1,64 @@
+package storage;
+
+import elements.*;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+class CompactGameTest {
+
+    private static final List<String> MOVES = Arrays.asList("e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "g8f6", "e1g1");
+
+    @Test
+    void testEncodeOneBytePerMove() {
+        CompactGame game = CompactGame.fromUciMoves(7, 1000L, 0, Game.Color.WHITE, null, MOVES, null);
+        assertEquals(MOVES.size(), game.getPlyCount());
+        assertTrue(CompactGameWriter.toBytes(game).length < 16 + MOVES.size(), "Each half-move should take a single byte.");
+    }
+
+    @Test
+    void testWriteAndRead() {
+        int[] moveTimes = {0, 1500, 2000, 300, 70000, 10, 5};
+        CompactGame game = CompactGame.fromUciMoves(42, 1700000000000L, 1700000090000L, Game.Color.BLACK, "Draw", MOVES, moveTimes);
+
+        CompactGame read = CompactGameReader.read(CompactGameWriter.toBytes(game));
+
+        assertEquals(42, read.getGameID());
+        assertEquals(1700000000000L, read.getStartTimestamp());
+        assertEquals(1700000090000L, read.getEndTimestamp());
+        assertEquals(Game.Color.BLACK, read.getMyColor());
+        assertEquals("Draw", read.getResult());
+        assertArrayEquals(moveTimes, read.getMoveTimes());
+        assertEquals(MOVES, read.getUciMoves(), "The moves should be decoded from their indexes.");
+    }
+
+    @Test
+    void testUnfinishedGame() {
+        CompactGame game = CompactGame.fromUciMoves(1, 5L, 0, Game.Color.WHITE, null, MOVES.subList(0, 2), null);
+        CompactGame read = CompactGameReader.read(CompactGameWriter.toBytes(game));
+        assertFalse(read.isFinished());
+        assertEquals(0, read.getEndTimestamp());
+        assertNull(read.getMoveTimes());
+    }
+
+    @Test
+    void testToGame() {
+        Game game = CompactGame.fromUciMoves(1, 0, 0, Game.Color.WHITE, null, MOVES, null).toGame();
+        assertEquals(MOVES.size(), game.gameHistory.size());
+        assertTrue(game.currentPosition.getPiece(Square.of(0, 6)) instanceof pieces.King, "White should have castled.");
+    }
+
+    @Test
+    void testIllegalMoveRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> CompactGame.fromUciMoves(1, 0, 0, Game.Color.WHITE, null, Arrays.asList("e2e5"), null));
+    }
+
+    @Test
+    void testInvalidBytesRejected() {
+        assertThrows(IllegalArgumentException.class, () -> CompactGameReader.read(new byte[]{'P', 'K', 1, 0}));
+    }
+}
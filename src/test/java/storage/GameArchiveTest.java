@@ -0,0 +1,96 @@
+package storage;
+
+import elements.Game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+class GameArchiveTest {
+
+    private static final List<String> MOVES = Arrays.asList("e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "g8f6", "e1g1");
+
+    @TempDir
+    Path directory;
+
+    private CompactGame game(int gameID, int plies, String result) {
+        return CompactGame.fromUciMoves(gameID, 1000L * gameID, result == null ? 0 : 1000L * gameID + 500, Game.Color.WHITE,
+                result, MOVES.subList(0, plies), null);
+    }
+
+    @Test
+    void testCursorReadsMappedGames() throws Exception {
+        Path dataFile = directory.resolve("games.bin");
+        try (GameArchiveWriter writer = new GameArchiveWriter(dataFile)) {
+            writer.append(game(1, 7, "White"));
+            writer.append(game(2, 3, null));
+            writer.append(game(3, 0, "Draw"));
+        }
+
+        try (GameArchive archive = new GameArchive(dataFile)) {
+            assertEquals(3, archive.size());
+
+            GameArchive.Cursor cursor = archive.cursor();
+            assertTrue(cursor.next());
+            assertEquals(1, cursor.getGameID());
+            assertEquals("White", cursor.getResult());
+            assertEquals(1500L, cursor.getEndTimestamp());
+            assertEquals(7, cursor.getPlyCount());
+            assertEquals(MOVES.size(), cursor.toGame().gameHistory.size(), "The game should be replayed from the mapped moves.");
+
+            assertTrue(cursor.next());
+            assertEquals(2, cursor.getGameID());
+            assertNull(cursor.getResult(), "The second game is not finished.");
+            assertEquals(0, cursor.getEndTimestamp());
+            assertEquals(MOVES.subList(0, 3), cursor.toCompactGame().getUciMoves());
+
+            assertTrue(cursor.next());
+            assertEquals(0, cursor.getPlyCount());
+            assertFalse(cursor.next(), "The cursor should stop after the last game.");
+        }
+    }
+
+    @Test
+    void testRandomAccessAndIteration() throws Exception {
+        Path dataFile = directory.resolve("games.bin");
+        try (GameArchiveWriter writer = new GameArchiveWriter(dataFile)) {
+            for (int i = 1; i <= 5; i++) writer.append(game(i, i, "Black"));
+        }
+
+        try (GameArchive archive = new GameArchive(dataFile)) {
+            assertEquals(4, archive.get(3).getGameID());
+            assertEquals(4, archive.get(3).getPlyCount());
+            assertThrows(IndexOutOfBoundsException.class, () -> archive.get(5));
+
+            int count = 0;
+            for (CompactGame game : archive) assertEquals(++count, game.getGameID());
+            assertEquals(5, count);
+        }
+    }
+
+    @Test
+    void testReopenAppendsAfterLastIndexedGame() throws Exception {
+        Path dataFile = directory.resolve("games.bin");
+        try (GameArchiveWriter writer = new GameArchiveWriter(dataFile)) {
+            writer.append(game(1, 2, "White"));
+        }
+
+        // Simulate a crash after the data of a game was written but before its offset
+        Files.write(dataFile, new byte[]{1, 2, 3}, java.nio.file.StandardOpenOption.APPEND);
+
+        try (GameArchiveWriter writer = new GameArchiveWriter(dataFile)) {
+            writer.append(game(2, 4, "Draw"));
+        }
+
+        try (GameArchive archive = new GameArchive(dataFile)) {
+            assertEquals(2, archive.size());
+            assertEquals(2, archive.get(1).getGameID(), "The unindexed bytes should have been dropped.");
+            assertEquals(MOVES.subList(0, 4), archive.get(1).getUciMoves());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package uci;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+class UciMainTest {
+
+    private List<String> run(String... commands) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.US_ASCII);
+        new UciMain(new StringReader(String.join("\n", commands) + "\n"), out).run();
+        return Arrays.asList(bytes.toString(StandardCharsets.US_ASCII).split("\n"));
+    }
+
+    @Test
+    void testHandshake() throws Exception {
+        List<String> lines = run("uci", "isready", "quit");
+        assertEquals("id name " + UciMain.ENGINE_NAME, lines.get(0));
+        assertEquals("uciok", lines.get(2));
+        assertEquals("readyok", lines.get(3));
+    }
+
+    @Test
+    void testGoDepthFromMoves() throws Exception {
+        // Scholar's mate is on the board: the queen takes f7
+        List<String> lines = run("ucinewgame",
+                "position startpos moves e2e4 e7e5 f1c4 b8c6 d1h5 g8f6",
+                "go depth 2", "isready", "quit");
+        assertTrue(lines.contains("bestmove h5f7"), "The engine should play the mate: " + lines);
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("info depth 1 score mate 1 ")), "The mate should be reported: " + lines);
+    }
+
+    @Test
+    void testGoFromFen() throws Exception {
+        List<String> lines = run("position fen 4k3/p7/8/3q4/8/2N5/P7/4K3 w - - 0 1", "go movetime 5000 depth 1");
+        assertEquals("bestmove c3d5", lines.get(lines.size() - 1));
+        assertTrue(lines.get(0).matches("info depth 1 score cp \\d+ nodes \\d+ nps \\d+ time \\d+ pv c3d5"), lines.get(0));
+    }
+
+    @Test
+    void testInfiniteWaitsForStop() throws Exception {
+        List<String> lines = run("position startpos", "go infinite", "isready", "stop", "quit");
+        assertTrue(lines.indexOf("readyok") < lines.indexOf(lines.stream().filter(line -> line.startsWith("bestmove")).findFirst().orElse("")),
+                "An infinite search should give its move only after stop: " + lines);
+        assertEquals(1, lines.stream().filter(line -> line.startsWith("bestmove")).count());
+    }
+
+    @Test
+    void testBadPosition() throws Exception {
+        List<String> lines = run("position fen not a fen", "position startpos moves e2e5", "quit");
+        assertTrue(lines.get(0).startsWith("info string "));
+        assertEquals("info string Illegal move e2e5", lines.get(1));
+    }
+}